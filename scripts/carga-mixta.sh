@@ -0,0 +1,89 @@
+#!/bin/bash
+
+# Prueba de carga mixta: ventas (checkout) compitiendo con reportes pesados
+# Mide el p99 de POST /api/ventas mientras se lanzan reportes de inventario en paralelo.
+# Ejecutar una vez por modo y comparar:
+#   SERVER_EXECUTION_MODE=platform java -jar target/farmacontrol-api.jar
+#   SERVER_EXECUTION_MODE=virtual  java -jar target/farmacontrol-api.jar   (JDK 21+, mvn -Pjdk21 package)
+#
+# Uso: ./scripts/carga-mixta.sh [ventas] [reportes] [concurrencia]
+#   ventas       total de POST /api/ventas (por defecto 400)
+#   reportes     total de GET /api/reportes/inventario (por defecto 200)
+#   concurrencia peticiones simultáneas por tipo de tráfico (por defecto 32)
+#
+# Variables: API_URL, EMAIL, PASSWORD, PRODUCTO_ID (producto con stock suficiente)
+
+API_URL="${API_URL:-http://localhost:8080/api}"
+EMAIL="${EMAIL:-admin@farmacontrol.com}"
+PASSWORD="${PASSWORD:-admin123}"
+PRODUCTO_ID="${PRODUCTO_ID:-1}"
+
+VENTAS="${1:-400}"
+REPORTES="${2:-200}"
+CONCURRENCIA="${3:-32}"
+
+echo "🔐 Obteniendo token de autenticación..."
+TOKEN=$(curl -s -X POST "$API_URL/usuarios/auth" \
+  -H "Content-Type: application/json" \
+  -d "{\"email\": \"$EMAIL\", \"password\": \"$PASSWORD\"}" \
+  | python3 -c "import sys, json; print(json.load(sys.stdin)['data']['token'])" 2>/dev/null)
+
+if [ -z "$TOKEN" ]; then
+  echo "❌ Error al obtener token"
+  exit 1
+fi
+
+TMP_DIR=$(mktemp -d)
+trap 'rm -rf "$TMP_DIR"' EXIT
+
+VENTA_JSON="{\"metodoPago\": \"EFECTIVO\", \"detalles\": [{\"productoId\": $PRODUCTO_ID, \"cantidad\": 1}]}"
+
+# Cada línea de salida: código HTTP y tiempo total en segundos
+venta() {
+  curl -s -o /dev/null -w "%{http_code} %{time_total}\n" -X POST "$API_URL/ventas" \
+    -H "Authorization: Bearer $TOKEN" -H "Content-Type: application/json" -d "$VENTA_JSON"
+}
+
+reporte() {
+  curl -s -o /dev/null -w "%{http_code} %{time_total}\n" "$API_URL/reportes/inventario" \
+    -H "Authorization: Bearer $TOKEN"
+}
+
+export -f venta reporte
+export API_URL TOKEN VENTA_JSON
+
+echo "🚀 $VENTAS ventas y $REPORTES reportes, $CONCURRENCIA simultáneos por tipo..."
+INICIO=$(date +%s.%N)
+seq "$REPORTES" | xargs -P "$CONCURRENCIA" -I{} bash -c reporte > "$TMP_DIR/reportes.txt" &
+seq "$VENTAS" | xargs -P "$CONCURRENCIA" -I{} bash -c venta > "$TMP_DIR/ventas.txt"
+wait
+FIN=$(date +%s.%N)
+
+# Percentiles (ms) y errores por tipo de tráfico
+resumen() {
+  python3 - "$1" "$2" <<'EOF'
+import sys
+nombre, archivo = sys.argv[1], sys.argv[2]
+codigos, tiempos = [], []
+for linea in open(archivo):
+    partes = linea.split()
+    if len(partes) == 2:
+        codigos.append(partes[0])
+        tiempos.append(float(partes[1]) * 1000)
+if not tiempos:
+    print(f"{nombre:10s} sin respuestas")
+    sys.exit()
+tiempos.sort()
+p = lambda q: tiempos[min(len(tiempos) - 1, int(q * len(tiempos)))]
+errores = sum(1 for c in codigos if not c.startswith("2"))
+print(f"{nombre:10s} n={len(tiempos):5d}  p50={p(0.50):8.1f}ms  p95={p(0.95):8.1f}ms  "
+      f"p99={p(0.99):8.1f}ms  max={tiempos[-1]:8.1f}ms  errores={errores}")
+EOF
+}
+
+echo ""
+echo "================================================"
+resumen "ventas" "$TMP_DIR/ventas.txt"
+resumen "reportes" "$TMP_DIR/reportes.txt"
+echo "duración total: $(python3 -c "print(f'{$FIN - $INICIO:.1f}s')")"
+echo "================================================"
@@ -0,0 +1,73 @@
+package config;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Grupos de bulkheads (bulkheads.groups en application.yml), enlazados por FilterConfig
+ * Cada grupo define los servlet paths que protege, peticiones simultáneas, cola y espera máxima.
+ * workerThreads es server.undertow.threads.worker: en modo platform acota cuántas peticiones
+ * pueden ocupar los bulkheads entre ejecución y cola.
+ */
+public class BulkheadProperties {
+
+    private int workerThreads = 32;
+    private Map<String, Group> groups = new LinkedHashMap<>();
+
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    public void setWorkerThreads(int workerThreads) {
+        this.workerThreads = workerThreads;
+    }
+
+    public Map<String, Group> getGroups() {
+        return groups;
+    }
+
+    public void setGroups(Map<String, Group> groups) {
+        this.groups = groups;
+    }
+
+    public static class Group {
+        private List<String> paths = new ArrayList<>();
+        private int maxConcurrent = 8;
+        private int queue = 16;
+        private long timeoutMs = 1000;
+
+        public List<String> getPaths() {
+            return paths;
+        }
+
+        public void setPaths(List<String> paths) {
+            this.paths = paths;
+        }
+
+        public int getMaxConcurrent() {
+            return maxConcurrent;
+        }
+
+        public void setMaxConcurrent(int maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
+        }
+
+        public int getQueue() {
+            return queue;
+        }
+
+        public void setQueue(int queue) {
+            this.queue = queue;
+        }
+
+        public long getTimeoutMs() {
+            return timeoutMs;
+        }
+
+        public void setTimeoutMs(long timeoutMs) {
+            this.timeoutMs = timeoutMs;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package config;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Semáforo de concurrencia JDBC para el modo de hilos virtuales
+ * Con un hilo virtual por petición no hay un tope de workers que limite cuántas peticiones
+ * compiten por el pool: miles de hilos esperarían dentro de HikariCP y el driver MySQL fija
+ * (pin) el hilo portador mientras está en sus bloques synchronized. Con un permiso por conexión
+ * del pool, las peticiones esperan en una cola FIFO fuera del driver y la espera respeta
+ * el mismo connection-timeout del pool.
+ *
+ * El permiso se devuelve al cerrar la conexión (try-with-resources), una sola vez.
+ */
+final class ConnectionPermits {
+
+    private final Semaphore permits;
+    private final long timeoutMs;
+
+    ConnectionPermits(int size, long timeoutMs) {
+        this.permits = new Semaphore(size, true);
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * Tomar un permiso esperando como máximo el timeout del pool
+     */
+    void acquire() throws SQLException {
+        try {
+            if (!permits.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException(
+                    "Tiempo de espera agotado para obtener conexión (" + timeoutMs + " ms)");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrumpido esperando conexión", e);
+        }
+    }
+
+    void release() {
+        permits.release();
+    }
+
+    /**
+     * Envolver la conexión para que close() devuelva también el permiso
+     */
+    Connection wrap(Connection connection) {
+        AtomicBoolean released = new AtomicBoolean();
+        InvocationHandler handler = (proxy, method, args) -> {
+            try {
+                return method.invoke(connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            } finally {
+                if ("close".equals(method.getName()) && released.compareAndSet(false, true)) {
+                    permits.release();
+                }
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(
+            Connection.class.getClassLoader(), new Class<?>[] {Connection.class}, handler);
+    }
+
+    /**
+     * Peticiones esperando un permiso
+     */
+    int waiting() {
+        return permits.getQueueLength();
+    }
+
+    int available() {
+        return permits.availablePermits();
+    }
+}
@@ -0,0 +1,56 @@
+package config;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import security.RevokedTokenStore;
+import services.AuditWriter;
+import services.BarcodeCache;
+
+/**
+ * Expone el pool de DatabaseConfig como el DataSource de Spring Boot
+ * Así los services JDBC, JPA y Actuator comparten un único pool HikariCP,
+ * y Micrometer publica sus métricas (hikaricp.connections.active, .pending, .usage, .timeout)
+ */
+@Configuration
+public class DataSourceConfig {
+    
+    /**
+     * DataSource único de la aplicación (Spring lo cierra al apagar el contexto)
+     * Los valores de spring.datasource.hikari.* se aplican antes de que el pool arranque
+     */
+    @Bean
+    @ConfigurationProperties(prefix = "spring.datasource.hikari")
+    public HikariDataSource dataSource() {
+        return DatabaseConfig.getInstance().getDataSource();
+    }
+    
+    /**
+     * Escritor asíncrono de auditoría
+     * Depende del DataSource, así Spring lo detiene (vaciando la cola) antes de cerrar el pool
+     */
+    @Bean(destroyMethod = "shutdown")
+    public AuditWriter auditWriter(HikariDataSource dataSource) {
+        return AuditWriter.getInstance();
+    }
+    
+    /**
+     * Cache de códigos de barras, precargado al arrancar para que el primer escaneo no espere
+     */
+    @Bean(initMethod = "warmUp")
+    public BarcodeCache barcodeCache(HikariDataSource dataSource) {
+        return BarcodeCache.getInstance();
+    }
+    
+    /**
+     * JWT revocados compartidos entre instancias: carga los vigentes al arrancar y los
+     * sincroniza cada JWT_REVOCATION_SYNC_MS (también limpia TokenCache)
+     */
+    @Bean(initMethod = "start", destroyMethod = "shutdown")
+    public RevokedTokenStore revokedTokenStore(HikariDataSource dataSource) {
+        return RevokedTokenStore.fromEnv(dataSource);
+    }
+}
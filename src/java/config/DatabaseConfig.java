@@ -1,16 +1,33 @@
 package config;
 
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 /**
  * Configuración de conexión a la base de datos MySQL
- * Usa el patrón Singleton para mantener una única instancia
+ * Usa el patrón Singleton para mantener un único pool de conexiones (HikariCP).
+ * Cada llamada a getConnection() entrega una conexión propia del pool; al cerrarla
+ * (try-with-resources) se devuelve al pool en lugar de cerrarse físicamente.
  */
 public class DatabaseConfig {
-    private static DatabaseConfig instance;
-    private Connection connection;
+    private static volatile DatabaseConfig instance;
+    // En modo de hilos virtuales el propio pool limita la concurrencia JDBC (ver PermitHikariDataSource)
+    private final PermitHikariDataSource dataSource;
+    
+    // Nombre del pool (coincide con spring.datasource.hikari.pool-name)
+    public static final String POOL_NAME = "FarmaControlHikariCP";
+    
+    // Cubre la suma de max-concurrent de los bulkheads (15) más una conexión de margen; los
+    // workers de Undertow (32) que exceden esperan en las colas de los bulkheads sin conexión
+    // (en modo de hilos virtuales el mismo tamaño fija la concurrencia JDBC, ver ConnectionPermits)
+    private static final int DEFAULT_POOL_SIZE = 16;
+    
+    // Sentencias preparadas cacheadas por conexión (16 conexiones x 250 << max_prepared_stmt_count)
+    private static final int STATEMENT_CACHE_SIZE = 250;
+    private static final int STATEMENT_CACHE_SQL_LIMIT = 2048;
     
     // Credenciales de la base de datos
     private final String host;
@@ -28,16 +45,11 @@ public class DatabaseConfig {
         EnvConfig.load();
         
         // Prioridad: System.getenv() (Docker/K8s) > EnvConfig (.env file) > defaults
-        this.host = System.getenv("DB_HOST") != null ? System.getenv("DB_HOST") : 
-                    EnvConfig.get("HOST_DB", "localhost");
-        this.port = System.getenv("DB_PORT") != null ? System.getenv("DB_PORT") : 
-                    EnvConfig.get("PORT_DB", "3306");
-        this.database = System.getenv("DB_NAME") != null ? System.getenv("DB_NAME") : 
-                        EnvConfig.get("NAME_DB", "farmacontrol");
-        this.username = System.getenv("DB_USER") != null ? System.getenv("DB_USER") : 
-                        EnvConfig.get("USER_DB", "root");
-        this.password = System.getenv("DB_PASSWORD") != null ? System.getenv("DB_PASSWORD") : 
-                        EnvConfig.get("PASSWORD_DB", "");
+        this.host = getSetting("DB_HOST", "HOST_DB", "localhost");
+        this.port = getSetting("DB_PORT", "PORT_DB", "3306");
+        this.database = getSetting("DB_NAME", "NAME_DB", "farmacontrol");
+        this.username = getSetting("DB_USER", "USER_DB", "root");
+        this.password = getSetting("DB_PASSWORD", "PASSWORD_DB", "");
         
         // Construir URL de conexión
         this.url = String.format(
@@ -45,10 +57,53 @@ public class DatabaseConfig {
             host, port, database
         );
         
+        this.dataSource = createDataSource();
+        
         System.out.println("📦 DatabaseConfig inicializado");
         System.out.println("   Host: " + host);
         System.out.println("   Port: " + port);
         System.out.println("   Database: " + database);
+        System.out.println("   Pool: " + dataSource.getMaximumPoolSize() + " conexiones máx.");
+        if (ExecutionMode.isVirtual()) {
+            System.out.println("   Hilos virtuales: concurrencia JDBC limitada al tamaño final del pool");
+        }
+    }
+    
+    /**
+     * Construye el pool HikariCP. El pool arranca de forma perezosa en la primera
+     * llamada a getConnection(), así que instanciar los services no requiere BD.
+     */
+    private PermitHikariDataSource createDataSource() {
+        PermitHikariDataSource ds = new PermitHikariDataSource(ExecutionMode.isVirtual());
+        ds.setPoolName(POOL_NAME);
+        ds.setDriverClassName("com.mysql.cj.jdbc.Driver");
+        ds.setJdbcUrl(url);
+        ds.setUsername(username);
+        ds.setPassword(password);
+        
+        ds.setMaximumPoolSize(getIntSetting("DB_POOL_SIZE", "POOL_SIZE_DB", DEFAULT_POOL_SIZE));
+        ds.setMinimumIdle(getIntSetting("DB_POOL_MIN_IDLE", "POOL_MIN_IDLE_DB", 4));
+        ds.setConnectionTimeout(getIntSetting("DB_POOL_TIMEOUT_MS", "POOL_TIMEOUT_DB", 30000));
+        ds.setIdleTimeout(600000);
+        ds.setMaxLifetime(1800000);
+        ds.setAutoCommit(true);
+        
+        // Cache de sentencias del driver MySQL (por conexión física del pool):
+        // - useServerPrepStmts: el servidor parsea y planifica cada SQL una sola vez (COM_STMT_PREPARE)
+        // - cachePrepStmts: conn.prepareStatement(sql) reutiliza el handle ya preparado y
+        //   close() lo devuelve al cache en lugar de liberarlo en el servidor
+        ds.addDataSourceProperty("useServerPrepStmts", "true");
+        ds.addDataSourceProperty("cachePrepStmts", "true");
+        ds.addDataSourceProperty("prepStmtCacheSize", String.valueOf(STATEMENT_CACHE_SIZE));
+        ds.addDataSourceProperty("prepStmtCacheSqlLimit", String.valueOf(STATEMENT_CACHE_SQL_LIMIT));
+        ds.addDataSourceProperty("cacheResultSetMetadata", "true");
+        ds.addDataSourceProperty("cacheServerConfiguration", "true");
+        // Evita round trips en setAutoCommit()/getTransactionIsolation() de las transacciones
+        ds.addDataSourceProperty("useLocalSessionState", "true");
+        // executeBatch() de INSERT (auditoría, detalles de compra) como un INSERT multi-VALUES por lote
+        ds.addDataSourceProperty("rewriteBatchedStatements", "true");
+        
+        return ds;
     }
     
     /**
@@ -66,38 +121,40 @@ public class DatabaseConfig {
     }
     
     /**
-     * Obtiene una conexión a la base de datos
+     * Obtiene una conexión del pool.
+     * El llamador debe cerrarla (try-with-resources) para devolverla al pool.
      */
     public Connection getConnection() throws SQLException {
-        if (connection == null || connection.isClosed()) {
-            try {
-                // Cargar el driver de MySQL
-                Class.forName("com.mysql.cj.jdbc.Driver");
-                
-                // Establecer conexión
-                connection = DriverManager.getConnection(url, username, password);
-                System.out.println("✅ Conexión a la base de datos establecida");
-            } catch (ClassNotFoundException e) {
-                throw new SQLException("Driver MySQL no encontrado: " + e.getMessage());
-            } catch (SQLException e) {
-                System.err.println("❌ Error al conectar a la base de datos: " + e.getMessage());
-                throw e;
-            }
+        try {
+            return dataSource.getConnection();
+        } catch (SQLException e) {
+            System.err.println("❌ Error al obtener conexión del pool: " + e.getMessage());
+            throw e;
         }
-        return connection;
     }
     
     /**
-     * Cierra la conexión a la base de datos
+     * Peticiones esperando un permiso JDBC (siempre 0 en modo platform)
+     */
+    public int getThreadsAwaitingPermit() {
+        return dataSource.waiting();
+    }
+    
+    /**
+     * DataSource compartido (expuesto a Spring para métricas y JPA)
+     * En modo de hilos virtuales sus conexiones también pasan por el semáforo JDBC.
+     */
+    public HikariDataSource getDataSource() {
+        return dataSource;
+    }
+    
+    /**
+     * Cierra el pool de conexiones
      */
     public void closeConnection() {
-        if (connection != null) {
-            try {
-                connection.close();
-                System.out.println("🔌 Conexión a la base de datos cerrada");
-            } catch (SQLException e) {
-                System.err.println("Error al cerrar conexión: " + e.getMessage());
-            }
+        if (!dataSource.isClosed()) {
+            dataSource.close();
+            System.out.println("🔌 Pool de conexiones cerrado");
         }
     }
     
@@ -105,9 +162,8 @@ public class DatabaseConfig {
      * Prueba la conexión a la base de datos
      */
     public boolean testConnection() {
-        try {
-            Connection conn = getConnection();
-            boolean isValid = conn != null && !conn.isClosed();
+        try (Connection conn = getConnection()) {
+            boolean isValid = conn != null && conn.isValid(2);
             System.out.println(isValid ? "✅ Conexión exitosa" : "❌ Conexión fallida");
             return isValid;
         } catch (SQLException e) {
@@ -116,6 +172,42 @@ public class DatabaseConfig {
         }
     }
     
+    /**
+     * Estado actual del pool (útil para monitoreo de saturación)
+     */
+    public String getPoolStats() {
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        if (pool == null) {
+            return String.format("Pool{name=%s, estado=no iniciado, max=%d}",
+                POOL_NAME, dataSource.getMaximumPoolSize());
+        }
+        return String.format("Pool{name=%s, activas=%d, inactivas=%d, total=%d, esperando=%d, max=%d}",
+            POOL_NAME, pool.getActiveConnections(), pool.getIdleConnections(),
+            pool.getTotalConnections(), pool.getThreadsAwaitingConnection(),
+            dataSource.getMaximumPoolSize());
+    }
+    
+    /**
+     * Lee un valor con prioridad System.getenv() > .env > default
+     */
+    private static String getSetting(String envKey, String dotEnvKey, String defaultValue) {
+        String value = System.getenv(envKey);
+        return value != null ? value : EnvConfig.get(dotEnvKey, defaultValue);
+    }
+    
+    private static int getIntSetting(String envKey, String dotEnvKey, int defaultValue) {
+        String value = getSetting(envKey, dotEnvKey, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("⚠️ Valor inválido para " + envKey + ": " + value + " (usando " + defaultValue + ")");
+            return defaultValue;
+        }
+    }
+    
     // Getters
     public String getHost() { return host; }
     public String getPort() { return port; }
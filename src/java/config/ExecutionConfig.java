@@ -0,0 +1,34 @@
+package config;
+
+import java.util.concurrent.ExecutorService;
+
+import org.springframework.boot.web.embedded.undertow.UndertowServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Despacho de peticiones según ExecutionMode (SERVER_EXECUTION_MODE)
+ * En modo virtual el deployment de Undertow usa el executor de hilos virtuales para la cadena
+ * completa de filtros y servlets; los IO threads siguen siendo los de server.undertow.threads.io.
+ */
+@Configuration
+public class ExecutionConfig {
+
+    @Bean
+    public WebServerFactoryCustomizer<UndertowServletWebServerFactory> executionModeCustomizer() {
+        return factory -> {
+            ExecutorService executor = ExecutionMode.executor();
+            if (executor == null) {
+                System.out.println("🧵 Peticiones en worker threads de Undertow (modo " + ExecutionMode.PLATFORM + ")");
+                return;
+            }
+
+            factory.addDeploymentInfoCustomizers(deploymentInfo -> {
+                deploymentInfo.setExecutor(executor);
+                deploymentInfo.setAsyncExecutor(executor);
+            });
+            System.out.println("🧵 Peticiones en hilos virtuales (modo " + ExecutionMode.VIRTUAL + ")");
+        };
+    }
+}
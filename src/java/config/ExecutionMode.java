@@ -0,0 +1,62 @@
+package config;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Modo de ejecución de las peticiones servlet (SERVER_EXECUTION_MODE)
+ * - platform (por defecto): servlets y filtros corren en los worker threads de Undertow
+ *   (server.undertow.threads.worker en application.yml)
+ * - virtual: cada petición corre en un hilo virtual propio; requiere JDK 21+ (perfil Maven jdk21).
+ *   El acceso a JDBC se limita con un semáforo del tamaño del pool (ver ConnectionPermits).
+ *
+ * El proyecto compila con Java 17, así que el executor de hilos virtuales se obtiene por reflexión;
+ * si la JVM no los soporta se avisa y se mantiene el modo platform.
+ */
+public final class ExecutionMode {
+
+    public static final String PLATFORM = "platform";
+    public static final String VIRTUAL = "virtual";
+
+    private static final ExecutorService executor = createExecutor();
+
+    private ExecutionMode() {
+    }
+
+    /**
+     * @return true si las peticiones se despachan en hilos virtuales
+     */
+    public static boolean isVirtual() {
+        return executor != null;
+    }
+
+    /**
+     * Executor de hilos virtuales para las peticiones, o null en modo platform
+     */
+    public static ExecutorService executor() {
+        return executor;
+    }
+
+    private static ExecutorService createExecutor() {
+        EnvConfig.load();
+        String value = System.getenv("SERVER_EXECUTION_MODE");
+        String mode = (value != null ? value : EnvConfig.get("SERVER_EXECUTION_MODE", PLATFORM)).trim().toLowerCase();
+
+        if (!VIRTUAL.equals(mode)) {
+            if (!PLATFORM.equals(mode)) {
+                System.err.println("⚠️ SERVER_EXECUTION_MODE inválido: " + mode + " (usando " + PLATFORM + ")");
+            }
+            return null;
+        }
+
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            System.err.println("⚠️ Hilos virtuales no disponibles en Java " + Runtime.version().feature()
+                + " (se requiere 21+): usando " + PLATFORM);
+            return null;
+        }
+    }
+}
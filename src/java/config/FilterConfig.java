@@ -1,6 +1,10 @@
 package config;
 
+import filter.Bulkhead;
+import filter.BulkheadFilter;
 import filter.JwtAuthenticationFilter;
+import filter.RateLimitFilter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -35,4 +39,73 @@ public class FilterConfig {
         
         return registrationBean;
     }
+    
+    /**
+     * Registra el filtro de rate limiting por rol
+     * Corre después del JWT porque lee el userId/roleId que éste deja en el request,
+     * y antes de los bulkheads para que una petición fuera de cuota no ocupe un permiso
+     */
+    @Bean
+    public FilterRegistrationBean<RateLimitFilter> rateLimitFilter() {
+        FilterRegistrationBean<RateLimitFilter> registrationBean = new FilterRegistrationBean<>(new RateLimitFilter());
+        registrationBean.addUrlPatterns("/api/*");
+        registrationBean.setName("rateLimitFilter");
+        registrationBean.setOrder(3); // Después de JWT (order 2)
+        
+        System.out.println("✅ RateLimitFilter registrado en Spring Boot");
+        
+        return registrationBean;
+    }
+    
+    /**
+     * Grupos de bulkheads definidos en application.yml (bulkheads.groups)
+     */
+    @Bean
+    @ConfigurationProperties(prefix = "bulkheads")
+    public BulkheadProperties bulkheadProperties() {
+        return new BulkheadProperties();
+    }
+    
+    /**
+     * Registra el filtro de bulkheads por grupo de rutas
+     * Corre después del JWT y del rate limiting: las peticiones sin token o fuera de cuota
+     * se rechazan sin ocupar un permiso. En modo platform cada petición en cola espera en un
+     * worker de Undertow: si las colas pudieran ocupar todos los workers la API no arranca.
+     */
+    @Bean
+    public FilterRegistrationBean<BulkheadFilter> bulkheadFilter(BulkheadProperties properties) {
+        if (!ExecutionMode.isVirtual()) {
+            validarWorkers(properties);
+        }
+        
+        BulkheadFilter filter = new BulkheadFilter();
+        properties.getGroups().forEach((name, group) -> {
+            filter.add(new Bulkhead(name, group.getMaxConcurrent(), group.getQueue(), group.getTimeoutMs()),
+                group.getPaths());
+            System.out.println("🧱 Bulkhead " + name + ": " + group.getMaxConcurrent() + " simultáneas, cola "
+                + group.getQueue() + ", espera " + group.getTimeoutMs() + " ms " + group.getPaths());
+        });
+        
+        FilterRegistrationBean<BulkheadFilter> registrationBean = new FilterRegistrationBean<>(filter);
+        registrationBean.addUrlPatterns("/api/*");
+        registrationBean.setName("bulkheadFilter");
+        registrationBean.setOrder(4); // Después de rate limiting (order 3)
+        
+        return registrationBean;
+    }
+    
+    /**
+     * Verifica que los bulkheads (en ejecución + en cola) dejen workers libres para el resto de rutas
+     */
+    static void validarWorkers(BulkheadProperties properties) {
+        int ocupados = 0;
+        for (BulkheadProperties.Group group : properties.getGroups().values()) {
+            ocupados += group.getMaxConcurrent() + group.getQueue();
+        }
+        if (ocupados >= properties.getWorkerThreads()) {
+            throw new IllegalStateException("Los bulkheads pueden ocupar " + ocupados + " de "
+                + properties.getWorkerThreads() + " worker threads (max-concurrent + queue): reducir las colas "
+                + "o subir server.undertow.threads.worker");
+        }
+    }
 }
@@ -0,0 +1,171 @@
+package config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import filter.Bulkhead;
+import filter.BulkheadFilter;
+import security.PermissionCache;
+import security.TokenCache;
+import services.AuditSpool;
+import services.AuditWriter;
+
+/**
+ * Métricas propias de la aplicación publicadas en Actuator (/actuator/metrics y /actuator/prometheus)
+ */
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Métricas del cache de tokens JWT verificados
+     * jwt.token.cache.size, jwt.token.cache.requests{result=hit|miss}, jwt.token.cache.hit.ratio
+     */
+    @Bean
+    public MeterBinder tokenCacheMetrics() {
+        return registry -> {
+            Gauge.builder("jwt.token.cache.size", TokenCache::size)
+                    .description("Tokens JWT verificados en cache")
+                    .register(registry);
+
+            FunctionCounter.builder("jwt.token.cache.requests", TokenCache.class, c -> TokenCache.getStats().hits)
+                    .tag("result", "hit")
+                    .description("Búsquedas en el cache de tokens JWT")
+                    .register(registry);
+
+            FunctionCounter.builder("jwt.token.cache.requests", TokenCache.class, c -> TokenCache.getStats().misses)
+                    .tag("result", "miss")
+                    .description("Búsquedas en el cache de tokens JWT")
+                    .register(registry);
+
+            Gauge.builder("jwt.token.cache.hit.ratio", () -> TokenCache.getStats().hitRate / 100)
+                    .description("Proporción de aciertos del cache de tokens JWT")
+                    .register(registry);
+        };
+    }
+
+    /**
+     * Métricas del cache de permisos por rol
+     * permission.cache.size, permission.cache.requests{result=hit|miss}, permission.cache.hit.ratio,
+     * permission.cache.refreshes
+     */
+    @Bean
+    public MeterBinder permissionCacheMetrics() {
+        return registry -> {
+            Gauge.builder("permission.cache.size", PermissionCache::size)
+                    .description("Roles con permisos en cache")
+                    .register(registry);
+
+            FunctionCounter.builder("permission.cache.requests", PermissionCache.class, c -> PermissionCache.getStats().hits)
+                    .tag("result", "hit")
+                    .description("Búsquedas en el cache de permisos")
+                    .register(registry);
+
+            FunctionCounter.builder("permission.cache.requests", PermissionCache.class, c -> PermissionCache.getStats().misses)
+                    .tag("result", "miss")
+                    .description("Búsquedas en el cache de permisos")
+                    .register(registry);
+
+            Gauge.builder("permission.cache.hit.ratio", () -> PermissionCache.getStats().hitRate / 100)
+                    .description("Proporción de aciertos del cache de permisos")
+                    .register(registry);
+
+            FunctionCounter.builder("permission.cache.refreshes", PermissionCache.class, c -> PermissionCache.getRefreshCount())
+                    .description("Recargas anticipadas del cache de permisos en segundo plano")
+                    .register(registry);
+        };
+    }
+
+    /**
+     * Métricas del escritor asíncrono de auditoría
+     * audit.queue.size, audit.events{result=written|dropped|failed},
+     * audit.spool.replayed, audit.spool.backlog, audit.spool.segments
+     */
+    @Bean
+    public MeterBinder auditWriterMetrics() {
+        return registry -> {
+            Gauge.builder("audit.queue.size", () -> AuditWriter.getInstance().pending())
+                    .description("Eventos de auditoría pendientes de escribir")
+                    .register(registry);
+
+            FunctionCounter.builder("audit.events", AuditWriter.class, c -> AuditWriter.getInstance().getStats().written)
+                    .tag("result", "written")
+                    .description("Eventos de auditoría procesados")
+                    .register(registry);
+
+            FunctionCounter.builder("audit.events", AuditWriter.class, c -> AuditWriter.getInstance().getStats().dropped)
+                    .tag("result", "dropped")
+                    .description("Eventos de auditoría procesados")
+                    .register(registry);
+
+            FunctionCounter.builder("audit.events", AuditWriter.class, c -> AuditWriter.getInstance().getStats().failed)
+                    .tag("result", "failed")
+                    .description("Eventos de auditoría procesados")
+                    .register(registry);
+
+            // Spool local (AUDIT_SPOOL_DIR): eventos reproducidos (usar rate() para la velocidad) y pendientes
+            FunctionCounter.builder("audit.spool.replayed", AuditWriter.class, c -> AuditWriter.getInstance().getStats().replayed)
+                    .description("Eventos de auditoría reproducidos desde el spool")
+                    .register(registry);
+
+            Gauge.builder("audit.spool.backlog", () -> AuditWriter.getInstance().getStats().backlog)
+                    .description("Eventos de auditoría en el spool pendientes de reproducir")
+                    .register(registry);
+
+            Gauge.builder("audit.spool.segments", () -> {
+                        AuditSpool spool = AuditWriter.getInstance().getSpool();
+                        return spool != null ? spool.segments() : 0;
+                    })
+                    .description("Segmentos del spool de auditoría en disco")
+                    .register(registry);
+        };
+    }
+
+    /**
+     * Concurrencia JDBC en modo de hilos virtuales (SERVER_EXECUTION_MODE=virtual)
+     * db.permits.waiting: peticiones esperando un permiso antes de pedir conexión al pool
+     */
+    @Bean
+    public MeterBinder connectionPermitMetrics() {
+        return registry -> Gauge.builder("db.permits.waiting", () -> DatabaseConfig.getInstance().getThreadsAwaitingPermit())
+                .description("Peticiones esperando un permiso JDBC (modo de hilos virtuales)")
+                .register(registry);
+    }
+
+    /**
+     * Métricas de los bulkheads por grupo de rutas (bulkheads.groups)
+     * bulkhead.active{group}, bulkhead.queue.depth{group}, bulkhead.rejected{group,reason=queue_full|timeout}
+     */
+    @Bean
+    public MeterBinder bulkheadMetrics(FilterRegistrationBean<BulkheadFilter> bulkheadFilter) {
+        return registry -> {
+            for (Bulkhead bulkhead : bulkheadFilter.getFilter().getBulkheads()) {
+                Gauge.builder("bulkhead.active", bulkhead, Bulkhead::active)
+                        .tag("group", bulkhead.getName())
+                        .description("Peticiones en ejecución dentro del bulkhead")
+                        .register(registry);
+
+                Gauge.builder("bulkhead.queue.depth", bulkhead, Bulkhead::queueDepth)
+                        .tag("group", bulkhead.getName())
+                        .description("Peticiones esperando en la cola del bulkhead")
+                        .register(registry);
+
+                FunctionCounter.builder("bulkhead.rejected", bulkhead, Bulkhead::getRejectedQueueFull)
+                        .tag("group", bulkhead.getName())
+                        .tag("reason", "queue_full")
+                        .description("Peticiones rechazadas con 503 por el bulkhead")
+                        .register(registry);
+
+                FunctionCounter.builder("bulkhead.rejected", bulkhead, Bulkhead::getRejectedTimeout)
+                        .tag("group", bulkhead.getName())
+                        .tag("reason", "timeout")
+                        .description("Peticiones rechazadas con 503 por el bulkhead")
+                        .register(registry);
+            }
+        };
+    }
+}
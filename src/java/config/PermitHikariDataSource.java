@@ -0,0 +1,71 @@
+package config;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Pool HikariCP que, en modo de hilos virtuales, entrega cada conexión tras tomar un permiso
+ * de ConnectionPermits. Al aplicar el límite en el propio DataSource lo respetan todos sus
+ * usuarios: DatabaseConfig.getConnection(), JdbcRateLimitStore, JPA y Actuator.
+ *
+ * El semáforo se crea en la primera conexión, cuando el pool arranca y Spring ya aplicó
+ * spring.datasource.hikari.* (ver DataSourceConfig): su tamaño es el del pool definitivo.
+ */
+final class PermitHikariDataSource extends HikariDataSource {
+
+    private final boolean gated;
+    private volatile ConnectionPermits permits;
+
+    PermitHikariDataSource(boolean gated) {
+        this.gated = gated;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!gated) {
+            return super.getConnection();
+        }
+
+        ConnectionPermits p = permits();
+        p.acquire();
+        try {
+            return p.wrap(super.getConnection());
+        } catch (SQLException | RuntimeException e) {
+            p.release();
+            throw e;
+        }
+    }
+
+    private ConnectionPermits permits() {
+        ConnectionPermits p = permits;
+        if (p == null) {
+            // Solo construye el semáforo (sin E/S): el lock se suelta de inmediato
+            synchronized (this) {
+                p = permits;
+                if (p == null) {
+                    p = new ConnectionPermits(getMaximumPoolSize(), getConnectionTimeout());
+                    permits = p;
+                }
+            }
+        }
+        return p;
+    }
+
+    /**
+     * Peticiones esperando un permiso (0 en modo platform o antes de la primera conexión)
+     */
+    int waiting() {
+        ConnectionPermits p = permits;
+        return p != null ? p.waiting() : 0;
+    }
+
+    /**
+     * Permisos libres, o -1 si el semáforo aún no existe o el pool no está limitado
+     */
+    int availablePermits() {
+        ConnectionPermits p = permits;
+        return p != null ? p.available() : -1;
+    }
+}
@@ -2,13 +2,16 @@ package controller;
 
 import java.math.BigDecimal;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import model.Compra;
 import model.DetalleCompra;
 import model.Producto;
 import services.CompraService;
 import services.ProductoService;
 import services.ProveedorService;
+import utils.PagedResponse;
 
 /**
  * Controlador para compras
@@ -31,6 +34,16 @@ public class CompraController {
         return compraService.findAll();
     }
     
+    /**
+     * Obtener las compras paginadas por cursor
+     * @param cursor cursor devuelto en la página anterior (null para la primera)
+     * @param limit tamaño de página solicitado (null para el valor por defecto)
+     */
+    public PagedResponse<Compra> getComprasPage(String cursor, String limit) throws SQLException {
+        int size = PagedResponse.parseSize(limit);
+        return compraService.findPage(cursor, size);
+    }
+    
     /**
      * Obtener compra por ID
      */
@@ -119,13 +132,19 @@ public class CompraController {
         // Validar cada detalle
         BigDecimal subtotalCalculado = BigDecimal.ZERO;
         
+        // Cargar todos los productos de los detalles en una sola consulta
+        List<Long> productoIds = new ArrayList<>(detalles.size());
         for (DetalleCompra detalle : detalles) {
-            // Validar producto
             if (detalle.getProductoId() == null || detalle.getProductoId() <= 0) {
                 throw new IllegalArgumentException("ID de producto inválido en detalle");
             }
-            
-            Producto producto = productoService.findById(detalle.getProductoId());
+            productoIds.add(detalle.getProductoId());
+        }
+        Map<Long, Producto> productos = productoService.findByIds(productoIds);
+        
+        for (DetalleCompra detalle : detalles) {
+            // Validar producto
+            Producto producto = productos.get(detalle.getProductoId());
             if (producto == null) {
                 throw new SQLException("Producto no encontrado con ID: " + detalle.getProductoId());
             }
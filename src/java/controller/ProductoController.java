@@ -5,9 +5,12 @@ import java.math.BigDecimal;
 import java.sql.SQLException;
 import java.util.List;
 import model.Producto;
+import model.ProductoScan;
+import services.BarcodeCache;
 import services.CategoriaService;
 import services.ProductoService;
 import services.ValidationService;
+import utils.PagedResponse;
 
 /**
  * Controlador para productos
@@ -28,6 +31,16 @@ public class ProductoController {
         return productoService.findAll();
     }
     
+    /**
+     * Obtener los productos paginados por cursor
+     * @param cursor cursor devuelto en la página anterior (null para la primera)
+     * @param limit tamaño de página solicitado (null para el valor por defecto)
+     */
+    public PagedResponse<Producto> getProductosPage(String cursor, String limit) throws SQLException {
+        int size = PagedResponse.parseSize(limit);
+        return productoService.findPage(cursor, size);
+    }
+    
     /**
      * Obtener producto por ID
      */
@@ -44,6 +57,22 @@ public class ProductoController {
         return producto;
     }
     
+    /**
+     * Obtener producto por código de barras (escaneo en caja, sin consultar la base)
+     */
+    public ProductoScan getProductoByBarcode(String codigoBarras) throws SQLException {
+        if (codigoBarras == null || codigoBarras.trim().isEmpty()) {
+            throw new IllegalArgumentException("Código de barras requerido");
+        }
+        
+        ProductoScan producto = BarcodeCache.getInstance().find(codigoBarras.trim());
+        if (producto == null) {
+            throw new SQLException("Producto no encontrado con código de barras: " + codigoBarras.trim());
+        }
+        
+        return producto;
+    }
+    
     /**
      * Obtener productos por categoría
      */
@@ -3,13 +3,16 @@ package controller;
 import java.math.BigDecimal;
 import java.sql.Date;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import model.DetalleVenta;
 import model.Producto;
 import model.Venta;
 import services.ClienteService;
 import services.ProductoService;
 import services.VentaService;
+import utils.PagedResponse;
 
 /**
  * Controlador para ventas
@@ -32,6 +35,16 @@ public class VentaController {
         return ventaService.findAll();
     }
     
+    /**
+     * Obtener las ventas paginadas por cursor
+     * @param cursor cursor devuelto en la página anterior (null para la primera)
+     * @param limit tamaño de página solicitado (null para el valor por defecto)
+     */
+    public PagedResponse<Venta> getVentasPage(String cursor, String limit) throws SQLException {
+        int size = PagedResponse.parseSize(limit);
+        return ventaService.findPage(cursor, size);
+    }
+    
     /**
      * Obtener venta por ID
      */
@@ -115,18 +128,24 @@ public class VentaController {
         // Validar cada detalle y verificar stock
         BigDecimal subtotalCalculado = BigDecimal.ZERO;
         
+        // Cargar todos los productos de los detalles en una sola consulta
+        List<Long> productoIds = new ArrayList<>(detalles.size());
         for (DetalleVenta detalle : detalles) {
-            // Validar producto
             if (detalle.getProductoId() == null || detalle.getProductoId() <= 0) {
                 throw new IllegalArgumentException("ID de producto inválido en detalle");
             }
-            
-            Producto producto = productoService.findById(detalle.getProductoId());
+            productoIds.add(detalle.getProductoId());
+        }
+        Map<Long, Producto> productos = productoService.findByIds(productoIds);
+        
+        for (DetalleVenta detalle : detalles) {
+            // Validar producto
+            Producto producto = productos.get(detalle.getProductoId());
             if (producto == null) {
                 throw new SQLException("Producto no encontrado con ID: " + detalle.getProductoId());
             }
             
-            // Verificar stock disponible
+            // Verificar stock disponible (validación previa; la reserva atómica se hace en VentaService)
             if (detalle.getCantidad() == null || detalle.getCantidad() <= 0) {
                 throw new IllegalArgumentException("La cantidad debe ser mayor a cero");
             }
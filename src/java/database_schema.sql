@@ -163,10 +163,57 @@ CREATE TABLE movimientos_inventario (
                                         FOREIGN KEY (usuario_id) REFERENCES usuarios(id)
 );
 
--- Índices mínimos
-CREATE INDEX idx_producto_categoria ON productos(categoria_id);
+-- 12. Rollups de ventas
+-- Agregados mantenidos por VentaRollupService en la misma transacción que crea o cancela la venta.
+-- Sólo cuentan ventas COMPLETADA. granularidad: 'HORA' (periodo = inicio de la hora),
+-- 'DIA' (periodo = medianoche) o 'TOTAL' (acumulado histórico, periodo fijo '2000-01-01').
+-- slot (id de venta % VentaRollupService.SLOTS) reparte las filas por usuario y por método de pago
+-- para que ventas simultáneas no esperen el bloqueo de la misma fila; las lecturas suman los slots.
+CREATE TABLE IF NOT EXISTS rollup_ventas_producto (
+    granularidad VARCHAR(5) NOT NULL,
+    periodo DATETIME NOT NULL,
+    producto_id BIGINT NOT NULL,
+    cantidad BIGINT NOT NULL DEFAULT 0,
+    num_ventas BIGINT NOT NULL DEFAULT 0,
+    total DECIMAL(14,2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (granularidad, periodo, producto_id),
+    INDEX idx_rollup_producto_cantidad (granularidad, periodo, cantidad)
+);
+
+CREATE TABLE IF NOT EXISTS rollup_ventas_usuario (
+    granularidad VARCHAR(5) NOT NULL,
+    periodo DATETIME NOT NULL,
+    usuario_id BIGINT NOT NULL,
+    slot TINYINT NOT NULL DEFAULT 0,
+    num_ventas BIGINT NOT NULL DEFAULT 0,
+    total DECIMAL(14,2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (granularidad, periodo, usuario_id, slot)
+);
+
+CREATE TABLE IF NOT EXISTS rollup_ventas_metodo_pago (
+    granularidad VARCHAR(5) NOT NULL,
+    periodo DATETIME NOT NULL,
+    metodo_pago VARCHAR(20) NOT NULL,
+    slot TINYINT NOT NULL DEFAULT 0,
+    num_ventas BIGINT NOT NULL DEFAULT 0,
+    total DECIMAL(14,2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (granularidad, periodo, metodo_pago, slot)
+);
+
+-- Índices para las consultas de los services (ver migrations/001_indices_consultas.sql)
 CREATE INDEX idx_ventas_fecha ON ventas(fecha);
+CREATE INDEX idx_ventas_estado_fecha ON ventas(estado, fecha);
+CREATE INDEX idx_ventas_cliente_fecha ON ventas(cliente_id, fecha);
+CREATE INDEX idx_detalle_ventas_venta ON detalle_ventas(venta_id, producto_id, cantidad, subtotal);
 CREATE INDEX idx_compras_fecha ON compras(fecha);
+CREATE INDEX idx_compras_proveedor_fecha ON compras(proveedor_id, fecha);
+CREATE INDEX idx_detalle_compras_compra ON detalle_compras(compra_id);
+-- Listado y paginación por cursor de productos activos (nombre, id)
+CREATE INDEX idx_productos_activo_nombre ON productos(activo, nombre);
+CREATE INDEX idx_productos_categoria_activo_nombre ON productos(categoria_id, activo, nombre);
+CREATE INDEX idx_clientes_activo_nombre ON clientes(activo, nombre, apellido);
+CREATE INDEX idx_proveedores_activo_nombre ON proveedores(activo, nombre);
+CREATE INDEX idx_usuarios_rol_activo ON usuarios(rol_id, activo, nombre, apellido);
 
 
 USE farmacontrol;
@@ -229,22 +276,21 @@ GROUP BY v.id, v.fecha, c.nombre, c.apellido, c.telefono, c.email,
 -- ================================================================
 -- VISTA: v_productos_mas_vendidos
 -- Ranking de productos con ventas totales e ingresos generados
+-- Lee el rollup acumulado (TOTAL) en lugar de re-agregar detalle_ventas
 -- ================================================================
 CREATE OR REPLACE VIEW v_productos_mas_vendidos AS
 SELECT
     p.id AS producto_id,
     p.nombre AS producto,
     c.nombre AS categoria,
-    SUM(dv.cantidad) AS total_vendido,
-    COUNT(DISTINCT dv.venta_id) AS numero_ventas,
-    SUM(dv.precio_unitario * dv.cantidad) AS ingresos_generados,
-    AVG(dv.precio_unitario) AS precio_promedio
-FROM productos p
+    r.cantidad AS total_vendido,
+    r.num_ventas AS numero_ventas,
+    r.total AS ingresos_generados,
+    r.total / NULLIF(r.cantidad, 0) AS precio_promedio
+FROM rollup_ventas_producto r
+         INNER JOIN productos p ON p.id = r.producto_id
          INNER JOIN categorias c ON p.categoria_id = c.id
-         INNER JOIN detalle_ventas dv ON p.id = dv.producto_id
-         INNER JOIN ventas v ON dv.venta_id = v.id
-WHERE v.estado = 'COMPLETADA'
-GROUP BY p.id, p.nombre, c.nombre
+WHERE r.granularidad = 'TOTAL' AND r.periodo = '2000-01-01' AND r.cantidad > 0
 ORDER BY total_vendido DESC;
 
 -- ================================================================
@@ -271,7 +317,9 @@ WHERE p.activo = TRUE;
 
 -- ================================================================
 -- TRIGGER 1: después de insertar en detalle_ventas
--- Descuenta del stock y registra el movimiento
+-- Registra el movimiento de salida. El stock ya se descontó en
+-- VentaService.createConDetalles con un UPDATE condicional (stock >= cantidad)
+-- justo antes de insertar el detalle, así que aquí no se vuelve a descontar.
 -- ================================================================
 DROP TRIGGER IF EXISTS trg_descuento_stock_venta;
 CREATE TRIGGER trg_descuento_stock_venta
@@ -281,10 +329,6 @@ BEGIN
     DECLARE v_stock_actual INT;
     SELECT stock INTO v_stock_actual FROM productos WHERE id = NEW.producto_id;
 
-    UPDATE productos
-    SET stock = stock - NEW.cantidad
-    WHERE id = NEW.producto_id;
-
     INSERT INTO movimientos_inventario (
         producto_id, tipo_movimiento, cantidad_anterior,
         cantidad_movimiento, cantidad_nueva, referencia_id, usuario_id, observaciones
@@ -292,9 +336,9 @@ BEGIN
     VALUES (
                NEW.producto_id,
                'VENTA',
-               v_stock_actual,
+               v_stock_actual + NEW.cantidad,
                -NEW.cantidad,
-               v_stock_actual - NEW.cantidad,
+               v_stock_actual,
                NEW.venta_id,
                (SELECT usuario_id FROM ventas WHERE id = NEW.venta_id),
                'Salida por venta'
@@ -556,7 +600,13 @@ SELECT * FROM movimientos_inventario ORDER BY id DESC LIMIT 5;
 INSERT INTO ventas (cliente_id, usuario_id, subtotal, descuento, impuestos, total, metodo_pago, estado)
 VALUES (1, 1, 0, 0, 0, 0, 'EFECTIVO', 'COMPLETADA');
 
--- Insertar detalle (esto debe activar el TRIGGER trg_descuento_stock_venta)
+-- Descontar el stock antes de insertar el detalle, como VentaService: el TRIGGER
+-- trg_descuento_stock_venta ya no descuenta, solo registra el movimiento y calcula
+-- cantidad_anterior como stock + cantidad, así que el descuento no puede omitirse.
+-- Sin condición sobre el stock: los datos de ejemplo alcanzan y un UPDATE que no
+-- afectara filas dejaría los movimientos inconsistentes sin avisar.
+UPDATE productos SET stock = stock - 3 WHERE id = 1;
+UPDATE productos SET stock = stock - 2 WHERE id = 2;
 INSERT INTO detalle_ventas (venta_id, producto_id, nombre_producto, cantidad, precio_unitario, subtotal)
 VALUES
     (1, 1, 'Paracetamol 500mg', 3, 15.50, 46.50),
@@ -570,6 +620,45 @@ DELETE FROM detalle_ventas WHERE venta_id = 1 AND producto_id = 1;
 SELECT id, nombre, stock FROM productos WHERE id = 1;
 SELECT * FROM movimientos_inventario ORDER BY id DESC LIMIT 3;
 
+-- Carga inicial de los rollups con las ventas de ejemplo (después de insertarlas)
+-- VentaRollupService mantiene los rollups a partir de aquí; ver migrations/004_rollups_ventas.sql
+INSERT INTO rollup_ventas_producto (granularidad, periodo, producto_id, cantidad, num_ventas, total)
+SELECT g.granularidad,
+       CASE g.granularidad
+           WHEN 'HORA' THEN DATE_FORMAT(v.fecha, '%Y-%m-%d %H:00:00')
+           WHEN 'DIA' THEN DATE(v.fecha)
+           ELSE '2000-01-01' END AS periodo,
+       dv.producto_id, SUM(dv.cantidad), COUNT(DISTINCT v.id), SUM(dv.subtotal)
+FROM ventas v
+         INNER JOIN detalle_ventas dv ON dv.venta_id = v.id
+         CROSS JOIN (SELECT 'HORA' AS granularidad UNION ALL SELECT 'DIA' UNION ALL SELECT 'TOTAL') g
+WHERE v.estado = 'COMPLETADA'
+GROUP BY g.granularidad, periodo, dv.producto_id;
+
+INSERT INTO rollup_ventas_usuario (granularidad, periodo, usuario_id, slot, num_ventas, total)
+SELECT g.granularidad,
+       CASE g.granularidad
+           WHEN 'HORA' THEN DATE_FORMAT(v.fecha, '%Y-%m-%d %H:00:00')
+           WHEN 'DIA' THEN DATE(v.fecha)
+           ELSE '2000-01-01' END AS periodo,
+       v.usuario_id, v.id % 16 AS slot, COUNT(*), SUM(v.total)
+FROM ventas v
+         CROSS JOIN (SELECT 'HORA' AS granularidad UNION ALL SELECT 'DIA' UNION ALL SELECT 'TOTAL') g
+WHERE v.estado = 'COMPLETADA'
+GROUP BY g.granularidad, periodo, v.usuario_id, slot;
+
+INSERT INTO rollup_ventas_metodo_pago (granularidad, periodo, metodo_pago, slot, num_ventas, total)
+SELECT g.granularidad,
+       CASE g.granularidad
+           WHEN 'HORA' THEN DATE_FORMAT(v.fecha, '%Y-%m-%d %H:00:00')
+           WHEN 'DIA' THEN DATE(v.fecha)
+           ELSE '2000-01-01' END AS periodo,
+       COALESCE(v.metodo_pago, 'EFECTIVO'), v.id % 16 AS slot, COUNT(*), SUM(v.total)
+FROM ventas v
+         CROSS JOIN (SELECT 'HORA' AS granularidad UNION ALL SELECT 'DIA' UNION ALL SELECT 'TOTAL') g
+WHERE v.estado = 'COMPLETADA'
+GROUP BY g.granularidad, periodo, COALESCE(v.metodo_pago, 'EFECTIVO'), slot;
+
 
 -- Vista general de productos
 SELECT * FROM v_productos_info LIMIT 10;
@@ -616,7 +705,7 @@ CREATE TABLE IF NOT EXISTS refresh_tokens (
     user_agent VARCHAR(255),
     FOREIGN KEY (usuario_id) REFERENCES usuarios(id) ON DELETE CASCADE,
     INDEX idx_token (token),
-    INDEX idx_usuario_id (usuario_id),
+    INDEX idx_refresh_usuario_activos (usuario_id, revoked, expires_at),
     INDEX idx_expires_at (expires_at)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
@@ -633,12 +722,29 @@ CREATE TABLE IF NOT EXISTS audit_log (
     user_agent VARCHAR(255),
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     FOREIGN KEY (usuario_id) REFERENCES usuarios(id) ON DELETE SET NULL,
-    INDEX idx_usuario_id (usuario_id),
+    INDEX idx_audit_usuario_fecha (usuario_id, created_at),
     INDEX idx_accion (accion),
-    INDEX idx_entidad (entidad),
+    INDEX idx_audit_entidad_fecha (entidad, entidad_id, created_at),
     INDEX idx_created_at (created_at)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
+-- Tabla de JWT revocados antes de su expiración (logout), compartida entre instancias
+-- token_hash = SHA-256 del token en Base64 (security.TokenCache.keyOf), expira_ms = "exp" del token
+CREATE TABLE IF NOT EXISTS revoked_tokens (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    token_hash CHAR(43) NOT NULL UNIQUE,
+    expira_ms BIGINT NOT NULL,
+    INDEX idx_revoked_expira (expira_ms)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Tabla de Rate Limiting compartido (RATE_LIMIT_STORE=mysql)
+-- Un bucket por usuario; tokens en milésimas, actualizado_ms = último relleno (epoch ms)
+CREATE TABLE IF NOT EXISTS rate_limit_buckets (
+    usuario_id BIGINT PRIMARY KEY,
+    tokens BIGINT NOT NULL,
+    actualizado_ms BIGINT NOT NULL
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
 -- Tabla de Intentos de Login
 CREATE TABLE IF NOT EXISTS login_attempts (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
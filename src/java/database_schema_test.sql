@@ -159,13 +159,68 @@ CREATE TABLE IF NOT EXISTS refresh_tokens (
     user_agent VARCHAR(255),
     FOREIGN KEY (usuario_id) REFERENCES usuarios(id) ON DELETE CASCADE,
     INDEX idx_token (token),
-    INDEX idx_usuario_id (usuario_id)
+    INDEX idx_refresh_usuario_activos (usuario_id, revoked, expires_at)
 );
 
--- Índices
-CREATE INDEX idx_producto_categoria ON productos(categoria_id);
+-- 12. Rollups de ventas
+-- Agregados mantenidos por VentaRollupService en la misma transacción que crea o cancela la venta.
+-- Sólo cuentan ventas COMPLETADA. granularidad: 'HORA' (periodo = inicio de la hora),
+-- 'DIA' (periodo = medianoche) o 'TOTAL' (acumulado histórico, periodo fijo '2000-01-01').
+-- slot (id de venta % VentaRollupService.SLOTS) reparte las filas por usuario y por método de pago
+-- para que ventas simultáneas no esperen el bloqueo de la misma fila; las lecturas suman los slots.
+CREATE TABLE IF NOT EXISTS rollup_ventas_producto (
+    granularidad VARCHAR(5) NOT NULL,
+    periodo DATETIME NOT NULL,
+    producto_id BIGINT NOT NULL,
+    cantidad BIGINT NOT NULL DEFAULT 0,
+    num_ventas BIGINT NOT NULL DEFAULT 0,
+    total DECIMAL(14,2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (granularidad, periodo, producto_id),
+    INDEX idx_rollup_producto_cantidad (granularidad, periodo, cantidad)
+);
+
+CREATE TABLE IF NOT EXISTS rollup_ventas_usuario (
+    granularidad VARCHAR(5) NOT NULL,
+    periodo DATETIME NOT NULL,
+    usuario_id BIGINT NOT NULL,
+    slot TINYINT NOT NULL DEFAULT 0,
+    num_ventas BIGINT NOT NULL DEFAULT 0,
+    total DECIMAL(14,2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (granularidad, periodo, usuario_id, slot)
+);
+
+CREATE TABLE IF NOT EXISTS rollup_ventas_metodo_pago (
+    granularidad VARCHAR(5) NOT NULL,
+    periodo DATETIME NOT NULL,
+    metodo_pago VARCHAR(20) NOT NULL,
+    slot TINYINT NOT NULL DEFAULT 0,
+    num_ventas BIGINT NOT NULL DEFAULT 0,
+    total DECIMAL(14,2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (granularidad, periodo, metodo_pago, slot)
+);
+
+-- 13. JWT revocados (logout), compartidos entre instancias
+CREATE TABLE IF NOT EXISTS revoked_tokens (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    token_hash CHAR(43) NOT NULL UNIQUE,
+    expira_ms BIGINT NOT NULL,
+    INDEX idx_revoked_expira (expira_ms)
+);
+
+-- Índices para las consultas de los services (ver migrations/001_indices_consultas.sql)
 CREATE INDEX idx_ventas_fecha ON ventas(fecha);
+CREATE INDEX idx_ventas_estado_fecha ON ventas(estado, fecha);
+CREATE INDEX idx_ventas_cliente_fecha ON ventas(cliente_id, fecha);
+CREATE INDEX idx_detalle_ventas_venta ON detalle_ventas(venta_id, producto_id, cantidad, subtotal);
 CREATE INDEX idx_compras_fecha ON compras(fecha);
+CREATE INDEX idx_compras_proveedor_fecha ON compras(proveedor_id, fecha);
+CREATE INDEX idx_detalle_compras_compra ON detalle_compras(compra_id);
+-- Listado y paginación por cursor de productos activos (nombre, id)
+CREATE INDEX idx_productos_activo_nombre ON productos(activo, nombre);
+CREATE INDEX idx_productos_categoria_activo_nombre ON productos(categoria_id, activo, nombre);
+CREATE INDEX idx_clientes_activo_nombre ON clientes(activo, nombre, apellido);
+CREATE INDEX idx_proveedores_activo_nombre ON proveedores(activo, nombre);
+CREATE INDEX idx_usuarios_rol_activo ON usuarios(rol_id, activo, nombre, apellido);
 
 -- Datos iniciales
 INSERT INTO roles (nombre, descripcion) VALUES
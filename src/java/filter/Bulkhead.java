@@ -0,0 +1,112 @@
+package filter;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bulkhead de un grupo de rutas: tope de peticiones simultáneas, cola acotada y espera máxima
+ * Una petición entra directo si hay un permiso libre; si no, espera en la cola (FIFO) hasta
+ * timeoutMs. Con la cola llena o al agotar la espera se rechaza y BulkheadFilter responde 503.
+ * La espera en cola bloquea el hilo de la petición (un worker de Undertow en modo platform);
+ * FilterConfig verifica que ejecución + cola de todos los grupos no agoten los workers.
+ */
+public final class Bulkhead {
+
+    private final String name;
+    private final int maxConcurrent;
+    private final int maxQueue;
+    private final long timeoutMs;
+    private final Semaphore permits;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder rejectedQueueFull = new LongAdder();
+    private final LongAdder rejectedTimeout = new LongAdder();
+
+    // Mensaje precalculado para no concatenar en cada rechazo
+    final String rejectionMessage;
+
+    public Bulkhead(String name, int maxConcurrent, int maxQueue, long timeoutMs) {
+        if (maxConcurrent < 1 || maxQueue < 0 || timeoutMs < 0) {
+            throw new IllegalArgumentException("Configuración inválida del bulkhead " + name
+                + ": max-concurrent >= 1, queue >= 0, timeout-ms >= 0");
+        }
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueue = maxQueue;
+        this.timeoutMs = timeoutMs;
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.rejectionMessage = "Servicio saturado (" + name + "). Intenta nuevamente en unos segundos.";
+    }
+
+    /**
+     * Intentar entrar al bulkhead; si devuelve true el llamador debe invocar exit()
+     */
+    boolean tryEnter() {
+        if (permits.tryAcquire()) {
+            return true;
+        }
+
+        if (queued.incrementAndGet() > maxQueue) {
+            queued.decrementAndGet();
+            rejectedQueueFull.increment();
+            return false;
+        }
+
+        try {
+            if (permits.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+            rejectedTimeout.increment();
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejectedTimeout.increment();
+            return false;
+        } finally {
+            queued.decrementAndGet();
+        }
+    }
+
+    void exit() {
+        permits.release();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Peticiones en ejecución dentro del bulkhead
+     */
+    public int active() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    /**
+     * Peticiones esperando en la cola
+     */
+    public int queueDepth() {
+        return queued.get();
+    }
+
+    public long getRejectedQueueFull() {
+        return rejectedQueueFull.sum();
+    }
+
+    public long getRejectedTimeout() {
+        return rejectedTimeout.sum();
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public int getMaxQueue() {
+        return maxQueue;
+    }
+
+    public long getTimeoutMs() {
+        return timeoutMs;
+    }
+}
@@ -0,0 +1,77 @@
+package filter;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import utils.JsonResponse;
+
+/**
+ * Filtro de bulkheads por grupo de rutas (ventas, compras, catálogo, reportes, auth)
+ * Cada servlet se asocia a un Bulkhead por su servlet path ("/api/ventas", "/api/reportes", ...),
+ * de modo que un grupo saturado (ej. reportes pesados) responde 503 sin quitar workers ni
+ * conexiones a los demás. La configuración viene de bulkheads.groups en application.yml.
+ */
+public class BulkheadFilter implements Filter {
+
+    // Servlet path -> bulkhead del grupo (solo lectura tras la construcción)
+    private final Map<String, Bulkhead> byServletPath = new HashMap<>();
+    private final Map<String, Bulkhead> byName = new HashMap<>();
+
+    /**
+     * Registrar un grupo con los servlet paths que protege
+     */
+    public BulkheadFilter add(Bulkhead bulkhead, Collection<String> servletPaths) {
+        if (byName.putIfAbsent(bulkhead.getName(), bulkhead) != null) {
+            throw new IllegalStateException("Bulkhead duplicado: " + bulkhead.getName());
+        }
+        for (String path : servletPaths) {
+            Bulkhead previous = byServletPath.putIfAbsent(path, bulkhead);
+            if (previous != null) {
+                throw new IllegalStateException("La ruta " + path + " ya pertenece al bulkhead " + previous.getName());
+            }
+        }
+        return this;
+    }
+
+    public Collection<Bulkhead> getBulkheads() {
+        return byName.values();
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+
+        // El preflight CORS no llega a los servlets pesados: no consume permisos
+        Bulkhead bulkhead = "OPTIONS".equals(httpRequest.getMethod())
+            ? null : byServletPath.get(httpRequest.getServletPath());
+
+        if (bulkhead == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        if (!bulkhead.tryEnter()) {
+            HttpServletResponse httpResponse = (HttpServletResponse) response;
+            httpResponse.setHeader("Retry-After", "1");
+            JsonResponse.error(httpResponse, HttpServletResponse.SC_SERVICE_UNAVAILABLE, bulkhead.rejectionMessage);
+            return;
+        }
+
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            bulkhead.exit();
+        }
+    }
+}
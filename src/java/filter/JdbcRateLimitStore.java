@@ -0,0 +1,336 @@
+package filter;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Rate limiting compartido entre instancias respaldado por la tabla rate_limit_buckets
+ * La base guarda el bucket global de cada usuario. Cada instancia no la consulta por
+ * request: toma un lote de tokens (lease) con SELECT ... FOR UPDATE y lo consume en memoria
+ * con CAS hasta agotarlo o hasta que vence. Lo que queda de un lease vencido se devuelve
+ * al bucket global en la siguiente transacción.
+ * Si la base falla se abre un circuito: durante backoffMs se usa un LocalRateLimitStore sin
+ * intentar conectarse, y al vencer un solo request vuelve a probar la base.
+ */
+public class JdbcRateLimitStore implements RateLimitStore {
+
+    private static final int UNIDAD = TokenBucket.UNIDAD;
+
+    // Mínimo entre avisos de caída al rate limiting local
+    private static final long AVISO_MS = TimeUnit.MINUTES.toMillis(1);
+
+    // Espera máxima detrás de otro request que renueva el lease del mismo usuario
+    private static final long ESPERA_RENOVACION_MS = 1000;
+
+    // Ventana del circuito abierto cuando no se indica una
+    private static final long BACKOFF_MS = TimeUnit.SECONDS.toMillis(10);
+
+    private static final String SQL_SELECT =
+        "SELECT tokens, actualizado_ms FROM rate_limit_buckets WHERE usuario_id = ? FOR UPDATE";
+    private static final String SQL_INSERT =
+        "INSERT INTO rate_limit_buckets (usuario_id, tokens, actualizado_ms) VALUES (?, ?, ?)";
+    private static final String SQL_UPDATE =
+        "UPDATE rate_limit_buckets SET tokens = ?, actualizado_ms = ? WHERE usuario_id = ?";
+
+    private final DataSource dataSource;
+    private final int chunk;
+    private final long leaseMs;
+    private final long backoffMs;
+
+    // Leases de esta instancia (userId -> Lease)
+    private final LongBucketMap<Lease> leases = new LongBucketMap<>();
+    private final LocalRateLimitStore respaldo = new LocalRateLimitStore();
+
+    private final AtomicLong transacciones = new AtomicLong();
+    // Instante hasta el que el circuito está abierto (0 = cerrado, se usa la base)
+    private final AtomicLong abiertoHasta = new AtomicLong();
+    private volatile long ultimoAviso;
+
+    public JdbcRateLimitStore(DataSource dataSource, int chunk, long leaseMs) {
+        this(dataSource, chunk, leaseMs, BACKOFF_MS);
+    }
+
+    public JdbcRateLimitStore(DataSource dataSource, int chunk, long leaseMs, long backoffMs) {
+        if (chunk <= 0 || leaseMs <= 0 || backoffMs <= 0) {
+            throw new IllegalArgumentException(
+                "RATE_LIMIT_CHUNK, RATE_LIMIT_LEASE_MS y RATE_LIMIT_BACKOFF_MS deben ser positivos");
+        }
+        this.dataSource = dataSource;
+        this.chunk = chunk;
+        this.leaseMs = leaseMs;
+        this.backoffMs = backoffMs;
+    }
+
+    @Override
+    public long tryConsume(long userId, int requestsPerMinute, long now) {
+        Lease lease = leases.get(userId);
+        if (lease == null) {
+            lease = leases.putIfAbsent(new Lease(userId), now);
+        }
+
+        long resultado = lease.tryConsume(now);
+        if (resultado != Lease.AGOTADO) {
+            return resultado;
+        }
+
+        // Circuito abierto: la base falló hace poco, no volver a esperar una conexión.
+        // Al vencer la ventana un solo request (el que gana el CAS) prueba la base; el resto
+        // sigue con límites locales durante otra ventana o hasta que la prueba cierre el circuito.
+        boolean sonda = false;
+        long hasta = abiertoHasta.get();
+        if (hasta != 0) {
+            if (now < hasta || !abiertoHasta.compareAndSet(hasta, now + backoffMs)) {
+                return respaldo.tryConsume(userId, requestsPerMinute, now);
+            }
+            sonda = true;
+        }
+
+        // Un solo hilo por usuario renueva el lease; los demás esperan (acotado) y reintentan en memoria.
+        // ReentrantLock y no synchronized: en modo de hilos virtuales no fija el hilo portador
+        // mientras dura la transacción.
+        if (!lease.bloquear()) {
+            return respaldo.tryConsume(userId, requestsPerMinute, now);
+        }
+        try {
+            resultado = lease.tryConsume(now);
+            if (resultado != Lease.AGOTADO) {
+                return resultado;
+            }
+            // Mientras esperaba el lock otro request encontró la base caída
+            if (!sonda && abiertoHasta.get() != 0) {
+                return respaldo.tryConsume(userId, requestsPerMinute, now);
+            }
+            try {
+                long otorgado = renovar(lease, requestsPerMinute, now);
+                abiertoHasta.set(0);
+                return otorgado;
+            } catch (SQLException e) {
+                abiertoHasta.set(now + backoffMs);
+                avisarRespaldo(e, now);
+                return respaldo.tryConsume(userId, requestsPerMinute, now);
+            }
+        } finally {
+            lease.desbloquear();
+        }
+    }
+
+    /**
+     * Toma un nuevo lote del bucket global (devolviendo lo que sobró del lease anterior)
+     * y consume de él el token del request actual
+     */
+    private long renovar(Lease lease, int requestsPerMinute, long now) throws SQLException {
+        long capacidad = (long) requestsPerMinute * UNIDAD;
+        int lote = Math.max(1, Math.min(chunk, requestsPerMinute / 10));
+        int sobrantes = lease.liberar();
+
+        transacciones.incrementAndGet();
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                long[] fila = bloquearFila(conn, lease.key, capacidad, now);
+                long tokens = fila[0];
+                long actualizado = fila[1];
+
+                // Devolver lo no usado y rellenar según el tiempo transcurrido (igual que TokenBucket)
+                tokens = Math.min(capacidad, tokens + (long) sobrantes * UNIDAD);
+                long transcurrido = Math.max(0, now - actualizado);
+                long agregados = transcurrido * requestsPerMinute / 60;
+                if (tokens + agregados >= capacidad) {
+                    tokens = capacidad;
+                    actualizado = now;
+                } else {
+                    tokens += agregados;
+                    actualizado += agregados * 60 / requestsPerMinute;
+                }
+
+                long otorgados = Math.min(lote, tokens / UNIDAD);
+                tokens -= otorgados * UNIDAD;
+                actualizar(conn, lease.key, tokens, actualizado);
+                conn.commit();
+
+                if (otorgados == 0) {
+                    long msFaltantes = ((UNIDAD - tokens) * 60 + requestsPerMinute - 1) / requestsPerMinute
+                        - Math.max(0, now - actualizado);
+                    long espera = Math.max(1, msFaltantes);
+                    lease.denegar(now + espera);
+                    return -espera - 1;
+                }
+
+                // El primer token es del request actual
+                lease.otorgar((int) otorgados - 1, tokens / UNIDAD, now + leaseMs);
+                return otorgados - 1 + tokens / UNIDAD;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Bloquea la fila del usuario (creándola con el bucket lleno si no existe)
+     * @return {tokens, actualizado_ms}
+     */
+    private long[] bloquearFila(Connection conn, long userId, long capacidad, long now) throws SQLException {
+        long[] fila = seleccionar(conn, userId);
+        if (fila != null) {
+            return fila;
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement(SQL_INSERT)) {
+            stmt.setLong(1, userId);
+            stmt.setLong(2, capacidad);
+            stmt.setLong(3, now);
+            stmt.executeUpdate();
+            return new long[]{capacidad, now};
+        } catch (SQLException e) {
+            // Otra instancia insertó la fila al mismo tiempo: leerla con bloqueo
+            if (e.getSQLState() == null || !e.getSQLState().startsWith("23")) {
+                throw e;
+            }
+            fila = seleccionar(conn, userId);
+            if (fila == null) {
+                throw e;
+            }
+            return fila;
+        }
+    }
+
+    private long[] seleccionar(Connection conn, long userId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(SQL_SELECT)) {
+            stmt.setLong(1, userId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? new long[]{rs.getLong("tokens"), rs.getLong("actualizado_ms")} : null;
+            }
+        }
+    }
+
+    private void actualizar(Connection conn, long userId, long tokens, long actualizado) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(SQL_UPDATE)) {
+            stmt.setLong(1, tokens);
+            stmt.setLong(2, actualizado);
+            stmt.setLong(3, userId);
+            stmt.executeUpdate();
+        }
+    }
+
+    private void avisarRespaldo(SQLException e, long now) {
+        if (now - ultimoAviso >= AVISO_MS) {
+            ultimoAviso = now;
+            System.err.println("⚠️ Rate limit compartido no disponible, usando límites locales durante "
+                + backoffMs + " ms: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Número de transacciones hechas contra la base (para monitoreo y tests)
+     */
+    long getTransacciones() {
+        return transacciones.get();
+    }
+
+    @Override
+    public int size() {
+        return leases.size() + respaldo.size();
+    }
+
+    @Override
+    public void clear() {
+        leases.clear();
+        respaldo.clear();
+    }
+
+    /**
+     * Lote de tokens otorgado a esta instancia para un usuario
+     * Los tokens se descuentan con CAS; renovar y denegar solo ocurren bajo el lock del lease.
+     */
+    static final class Lease implements LongBucketMap.Entry {
+
+        // Resultado de tryConsume cuando hay que ir a la base
+        static final long AGOTADO = Long.MIN_VALUE;
+
+        final long key;
+        private final AtomicInteger tokens = new AtomicInteger();
+        private final ReentrantLock renovacion = new ReentrantLock();
+        // Tokens que quedaban en el bucket global al otorgar el lote (solo para el header Remaining)
+        private volatile long restantesGlobal;
+        private volatile long vence;
+        private volatile long denegadoHasta;
+
+        Lease(long key) {
+            this.key = key;
+        }
+
+        @Override
+        public long key() {
+            return key;
+        }
+
+        /**
+         * Toma el lock de renovación esperando como máximo ESPERA_RENOVACION_MS
+         */
+        boolean bloquear() {
+            try {
+                return renovacion.tryLock(ESPERA_RENOVACION_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        void desbloquear() {
+            renovacion.unlock();
+        }
+
+        long tryConsume(long now) {
+            if (now < vence) {
+                int t;
+                while ((t = tokens.get()) > 0) {
+                    if (tokens.compareAndSet(t, t - 1)) {
+                        return t - 1 + restantesGlobal;
+                    }
+                }
+            }
+            // Denegación reciente de la base: no volver a consultarla hasta que haya token
+            long hasta = denegadoHasta;
+            if (now < hasta) {
+                return -(hasta - now) - 1;
+            }
+            return AGOTADO;
+        }
+
+        /**
+         * Retira los tokens no usados del lease para devolverlos al bucket global
+         */
+        int liberar() {
+            return tokens.getAndSet(0);
+        }
+
+        void otorgar(int cantidad, long restantesGlobal, long vence) {
+            this.restantesGlobal = restantesGlobal;
+            this.denegadoHasta = 0;
+            this.vence = vence;
+            tokens.set(cantidad);
+        }
+
+        void denegar(long hasta) {
+            this.denegadoHasta = hasta;
+        }
+
+        /**
+         * Un lease vencido hace TTL_MS ya no tiene tokens utilizables; descartarlo no cambia el límite
+         */
+        @Override
+        public boolean isExpired(long now) {
+            return now - Math.max(vence, denegadoHasta) > TokenBucket.TTL_MS;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import jakarta.servlet.*;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import security.JwtTokenProvider;
+import security.TokenClaims;
 import utils.JsonResponse;
 
 import java.io.IOException;
@@ -64,22 +65,22 @@ public class JwtAuthenticationFilter implements Filter {
         
         String token = tokenProvider.extractTokenFromHeader(authHeader);
         
-        if (token == null || !tokenProvider.validateToken(token)) {
+        // Una sola verificación de firma por request
+        TokenClaims claims = token != null ? tokenProvider.verify(token) : null;
+        
+        if (claims == null) {
             System.out.println("❌ Token inválido o expirado");
             JsonResponse.unauthorized(httpResponse, "Token inválido o expirado");
             return;
         }
         
-        // Agregar información del usuario al request
-        Long userId = tokenProvider.getUserIdFromToken(token);
-        Integer roleId = tokenProvider.getRoleIdFromToken(token);
-        String email = tokenProvider.getEmailFromToken(token);
-        
-        System.out.println("✅ Token válido - userId: " + userId + ", roleId: " + roleId + ", email: " + email);
+        System.out.println("✅ Token válido - userId: " + claims.getUserId() + ", roleId: " + claims.getRoleId() + ", email: " + claims.getEmail());
         
-        httpRequest.setAttribute("userId", userId);
-        httpRequest.setAttribute("roleId", roleId);
-        httpRequest.setAttribute("userEmail", email);
+        // Agregar información del usuario al request
+        httpRequest.setAttribute(TokenClaims.REQUEST_ATTRIBUTE, claims);
+        httpRequest.setAttribute("userId", claims.getUserId());
+        httpRequest.setAttribute("roleId", claims.getRoleId());
+        httpRequest.setAttribute("userEmail", claims.getEmail());
         
         // Continuar con la cadena de filtros
         chain.doFilter(request, response);
@@ -0,0 +1,29 @@
+package filter;
+
+/**
+ * Buckets en memoria de esta instancia (comportamiento por defecto)
+ */
+public class LocalRateLimitStore implements RateLimitStore {
+
+    // Buckets por usuario autenticado (userId -> TokenBucket)
+    private final LongBucketMap<TokenBucket> buckets = new LongBucketMap<>();
+
+    @Override
+    public long tryConsume(long userId, int requestsPerMinute, long now) {
+        TokenBucket bucket = buckets.get(userId);
+        if (bucket == null) {
+            bucket = buckets.putIfAbsent(new TokenBucket(userId, requestsPerMinute, now), now);
+        }
+        return bucket.tryConsume(now);
+    }
+
+    @Override
+    public int size() {
+        return buckets.size();
+    }
+
+    @Override
+    public void clear() {
+        buckets.clear();
+    }
+}
@@ -0,0 +1,156 @@
+package filter;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Mapa concurrente userId (long) -> bucket sin boxing
+ * Tablas de direccionamiento abierto repartidas en segmentos. La lectura no usa locks
+ * (la clave es un campo final del bucket); solo la inserción de un usuario nuevo toma
+ * el lock de su segmento. No hay hilo de limpieza: cuando un segmento se llena se
+ * reconstruye sin los buckets expirados.
+ */
+final class LongBucketMap<B extends LongBucketMap.Entry> {
+
+    /**
+     * Valor del mapa: lleva su propia clave y sabe si ya expiró
+     */
+    interface Entry {
+        long key();
+
+        boolean isExpired(long now);
+    }
+
+    private static final int SEGMENTOS = 16;
+    private static final int CAPACIDAD_INICIAL = 16;
+
+    private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    private final Segmento[] segmentos = new Segmento[SEGMENTOS];
+
+    LongBucketMap() {
+        for (int i = 0; i < SEGMENTOS; i++) {
+            segmentos[i] = new Segmento();
+        }
+    }
+
+    /**
+     * Obtiene el bucket de una clave, o null si no existe
+     */
+    @SuppressWarnings("unchecked")
+    B get(long key) {
+        int h = hash(key);
+        return (B) segmentos[h >>> 28].get(key, h);
+    }
+
+    /**
+     * Inserta el bucket si la clave no existe
+     * @return el bucket que quedó en el mapa (el existente si otro hilo ganó la carrera)
+     */
+    @SuppressWarnings("unchecked")
+    B putIfAbsent(B bucket, long now) {
+        int h = hash(bucket.key());
+        return (B) segmentos[h >>> 28].putIfAbsent(bucket, h, now);
+    }
+
+    /**
+     * Número de buckets (aproximado mientras hay inserciones concurrentes)
+     */
+    int size() {
+        int total = 0;
+        for (Segmento segmento : segmentos) {
+            total += segmento.size;
+        }
+        return total;
+    }
+
+    void clear() {
+        for (Segmento segmento : segmentos) {
+            segmento.clear();
+        }
+    }
+
+    private static int hash(long key) {
+        // Mezcla de bits (finalizador de MurmurHash3) para repartir ids consecutivos
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    private static final class Segmento {
+        private volatile Object[] tabla = new Object[CAPACIDAD_INICIAL];
+        private volatile int size;
+
+        Entry get(long key, int h) {
+            Object[] t = tabla;
+            int mascara = t.length - 1;
+            for (int i = h & mascara; ; i = (i + 1) & mascara) {
+                Entry b = (Entry) SLOT.getAcquire(t, i);
+                if (b == null || b.key() == key) {
+                    return b;
+                }
+            }
+        }
+
+        synchronized Entry putIfAbsent(Entry bucket, int h, long now) {
+            Entry existente = get(bucket.key(), h);
+            if (existente != null) {
+                return existente;
+            }
+
+            Object[] t = tabla;
+            // Factor de carga máximo 3/4: antes de crecer se descartan los expirados
+            if ((size + 1) * 4 > t.length * 3) {
+                t = reconstruir(t, now);
+            }
+            insertar(t, bucket, h);
+            size++;
+            return bucket;
+        }
+
+        synchronized void clear() {
+            tabla = new Object[CAPACIDAD_INICIAL];
+            size = 0;
+        }
+
+        private Object[] reconstruir(Object[] actual, long now) {
+            int vivos = 0;
+            for (Object b : actual) {
+                if (b != null && !((Entry) b).isExpired(now)) {
+                    vivos++;
+                }
+            }
+
+            // Dejar la nueva tabla a lo más medio llena
+            int longitud = CAPACIDAD_INICIAL;
+            while (longitud < (vivos + 1) * 2) {
+                longitud <<= 1;
+            }
+
+            Object[] nueva = new Object[longitud];
+            for (Object o : actual) {
+                Entry b = (Entry) o;
+                if (b != null && !b.isExpired(now)) {
+                    insertar(nueva, b, hash(b.key()));
+                }
+            }
+            // Los lectores con la tabla anterior siguen viendo los mismos objetos bucket
+            tabla = nueva;
+            size = vivos;
+            return nueva;
+        }
+
+        private static void insertar(Object[] t, Entry bucket, int h) {
+            int mascara = t.length - 1;
+            int i = h & mascara;
+            while (t[i] != null) {
+                i = (i + 1) & mascara;
+            }
+            SLOT.setRelease(t, i, bucket);
+        }
+    }
+}
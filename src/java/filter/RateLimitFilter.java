@@ -1,72 +1,79 @@
 package filter;
 
 import jakarta.servlet.*;
-import jakarta.servlet.annotation.WebFilter;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import utils.AuthorizationHelper;
 import utils.JsonResponse;
 
 import java.io.IOException;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Filtro de Rate Limiting basado en roles
  * Limita el número de peticiones por minuto según el rol del usuario
  * Usa algoritmo Token Bucket para distribución suave de requests
+ * Los buckets de usuarios se indexan por userId (long) en LongBucketMap y los tokens se
+ * descuentan con CAS (ver TokenBucket): sin locks ni objetos nuevos por request.
+ * Con RATE_LIMIT_STORE=mysql los límites por usuario se comparten entre instancias
+ * (ver JdbcRateLimitStore); los límites por IP siempre son locales.
+ * Registrado en config.FilterConfig después de JwtAuthenticationFilter, del que lee userId y roleId.
  */
-@WebFilter(filterName = "RateLimitFilter", urlPatterns = {"/api/*"})
 public class RateLimitFilter implements Filter {
     
-    // Cache de buckets por usuario (userId -> TokenBucket)
-    private static final ConcurrentHashMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    // Buckets por usuario autenticado (local o compartido según RATE_LIMIT_STORE)
+    private static final RateLimitStore store = RateLimitStore.fromEnv();
     
-    // Configuración de límites por rol
-    private static final ConcurrentHashMap<Integer, RateLimit> ROLE_LIMITS = new ConcurrentHashMap<>();
+    // Buckets de requests no autenticados (IP -> TokenBucket)
+    private static final ConcurrentHashMap<String, TokenBucket> anonymousBuckets = new ConcurrentHashMap<>();
+    
+    // Cada cuántos buckets anónimos nuevos se descartan los expirados
+    private static final int ANONYMOUS_PURGE_INTERVAL = 1024;
+    private static final AtomicInteger anonymousInserts = new AtomicInteger();
+    
+    // Límite para requests no autenticados (por minuto por IP) y para roles desconocidos
+    private static final RateLimit ANONYMOUS_LIMIT = new RateLimit(20, "ANONYMOUS");
+    private static final RateLimit UNKNOWN_LIMIT = new RateLimit(50, "UNKNOWN");
+    
+    // Configuración de límites por rol (índice = roleId)
+    private static final RateLimit[] ROLE_LIMITS = new RateLimit[21];
+    
+    // Textos de X-RateLimit-Remaining precalculados para no crear Strings por request
+    private static final String[] REMAINING_HEADERS = new String[TokenBucket.MAX_CAPACITY + 1];
     
     static {
         // Configurar límites por rol (requests por minuto)
-        ROLE_LIMITS.put(1, new RateLimit(Integer.MAX_VALUE, "ADMIN")); // ADMIN: Ilimitado
-        ROLE_LIMITS.put(2, new RateLimit(200, "DIRECTOR")); // DIRECTOR: 200/min
-        ROLE_LIMITS.put(3, new RateLimit(150, "GERENTE")); // GERENTE: 150/min
-        ROLE_LIMITS.put(4, new RateLimit(100, "SUPERVISOR")); // SUPERVISOR: 100/min
-        ROLE_LIMITS.put(5, new RateLimit(100, "CAJERO")); // CAJERO: 100/min
-        ROLE_LIMITS.put(6, new RateLimit(100, "VENDEDOR")); // VENDEDOR: 100/min
-        ROLE_LIMITS.put(7, new RateLimit(80, "INVENTARISTA")); // INVENTARISTA: 80/min
-        ROLE_LIMITS.put(8, new RateLimit(80, "CONTADOR")); // CONTADOR: 80/min
-        ROLE_LIMITS.put(9, new RateLimit(60, "AUXILIAR_CONTABLE")); // AUXILIAR_CONTABLE: 60/min
-        ROLE_LIMITS.put(10, new RateLimit(80, "COMPRADOR")); // COMPRADOR: 80/min
-        ROLE_LIMITS.put(11, new RateLimit(60, "RECEPCIONISTA")); // RECEPCIONISTA: 60/min
-        ROLE_LIMITS.put(12, new RateLimit(50, "SOPORTE_TECNICO")); // SOPORTE_TECNICO: 50/min
-        ROLE_LIMITS.put(13, new RateLimit(100, "ANALISTA_VENTAS")); // ANALISTA_VENTAS: 100/min
-        ROLE_LIMITS.put(14, new RateLimit(80, "ENCARGADO_COMPRAS")); // ENCARGADO_COMPRAS: 80/min
-        ROLE_LIMITS.put(15, new RateLimit(60, "ASISTENTE_GERENCIA")); // ASISTENTE_GERENCIA: 60/min
-        ROLE_LIMITS.put(16, new RateLimit(50, "FARMACEUTICO")); // FARMACEUTICO: 50/min
-        ROLE_LIMITS.put(17, new RateLimit(40, "REPARTIDOR")); // REPARTIDOR: 40/min
-        ROLE_LIMITS.put(18, new RateLimit(30, "ALMACENISTA")); // ALMACENISTA: 30/min
-        ROLE_LIMITS.put(19, new RateLimit(20, "PRACTICANTE")); // PRACTICANTE: 20/min
-        ROLE_LIMITS.put(20, new RateLimit(10, "INVITADO")); // INVITADO: 10/min
+        ROLE_LIMITS[1] = new RateLimit(Integer.MAX_VALUE, "ADMIN"); // ADMIN: Ilimitado
+        ROLE_LIMITS[2] = new RateLimit(200, "DIRECTOR"); // DIRECTOR: 200/min
+        ROLE_LIMITS[3] = new RateLimit(150, "GERENTE"); // GERENTE: 150/min
+        ROLE_LIMITS[4] = new RateLimit(100, "SUPERVISOR"); // SUPERVISOR: 100/min
+        ROLE_LIMITS[5] = new RateLimit(100, "CAJERO"); // CAJERO: 100/min
+        ROLE_LIMITS[6] = new RateLimit(100, "VENDEDOR"); // VENDEDOR: 100/min
+        ROLE_LIMITS[7] = new RateLimit(80, "INVENTARISTA"); // INVENTARISTA: 80/min
+        ROLE_LIMITS[8] = new RateLimit(80, "CONTADOR"); // CONTADOR: 80/min
+        ROLE_LIMITS[9] = new RateLimit(60, "AUXILIAR_CONTABLE"); // AUXILIAR_CONTABLE: 60/min
+        ROLE_LIMITS[10] = new RateLimit(80, "COMPRADOR"); // COMPRADOR: 80/min
+        ROLE_LIMITS[11] = new RateLimit(60, "RECEPCIONISTA"); // RECEPCIONISTA: 60/min
+        ROLE_LIMITS[12] = new RateLimit(50, "SOPORTE_TECNICO"); // SOPORTE_TECNICO: 50/min
+        ROLE_LIMITS[13] = new RateLimit(100, "ANALISTA_VENTAS"); // ANALISTA_VENTAS: 100/min
+        ROLE_LIMITS[14] = new RateLimit(80, "ENCARGADO_COMPRAS"); // ENCARGADO_COMPRAS: 80/min
+        ROLE_LIMITS[15] = new RateLimit(60, "ASISTENTE_GERENCIA"); // ASISTENTE_GERENCIA: 60/min
+        ROLE_LIMITS[16] = new RateLimit(50, "FARMACEUTICO"); // FARMACEUTICO: 50/min
+        ROLE_LIMITS[17] = new RateLimit(40, "REPARTIDOR"); // REPARTIDOR: 40/min
+        ROLE_LIMITS[18] = new RateLimit(30, "ALMACENISTA"); // ALMACENISTA: 30/min
+        ROLE_LIMITS[19] = new RateLimit(20, "PRACTICANTE"); // PRACTICANTE: 20/min
+        ROLE_LIMITS[20] = new RateLimit(10, "INVITADO"); // INVITADO: 10/min
+        
+        for (int i = 0; i < REMAINING_HEADERS.length; i++) {
+            REMAINING_HEADERS[i] = String.valueOf(i);
+        }
     }
     
     @Override
     public void init(FilterConfig filterConfig) throws ServletException {
+        // Sin hilo de limpieza: los buckets expirados se descartan al insertar nuevos
         System.out.println("🚦 RateLimitFilter inicializado - Límites por rol configurados");
-        
-        // Tarea de limpieza periódica cada 5 minutos
-        Thread cleanupThread = new Thread(() -> {
-            while (true) {
-                try {
-                    Thread.sleep(TimeUnit.MINUTES.toMillis(5));
-                    cleanupExpiredBuckets();
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    break;
-                }
-            }
-        });
-        cleanupThread.setDaemon(true);
-        cleanupThread.setName("RateLimit-Cleanup");
-        cleanupThread.start();
     }
     
     @Override
@@ -90,27 +97,34 @@ public class RateLimitFilter implements Filter {
         }
         
         // Obtener información del usuario del request (inyectada por JwtAuthenticationFilter)
-        Long userId = (Long) httpRequest.getAttribute("userId");
-        Integer roleId = (Integer) httpRequest.getAttribute("roleId");
+        Long userId = AuthorizationHelper.getCurrentUserId(httpRequest);
+        Integer roleId = AuthorizationHelper.getCurrentRoleId(httpRequest);
+        
+        long now = System.currentTimeMillis();
         
         // Si no hay usuario autenticado, aplicar límite más restrictivo
         if (userId == null || roleId == null) {
             // Límite para requests no autenticados: 20 por minuto por IP
-            String key = "anonymous_" + getClientIP(httpRequest);
-            if (!checkRateLimit(key, 20, httpResponse)) {
+            TokenBucket bucket = getAnonymousBucket(getClientIP(httpRequest), now);
+            if (!checkRateLimit(bucket.tryConsume(now), ANONYMOUS_LIMIT, now, httpResponse)) {
                 return;
             }
         } else {
             // Aplicar límite según el rol del usuario
-            RateLimit limit = ROLE_LIMITS.getOrDefault(roleId, new RateLimit(50, "UNKNOWN"));
-            String key = "user_" + userId;
+            RateLimit limit = getRoleLimit(roleId);
             
-            if (!checkRateLimit(key, limit.requestsPerMinute, httpResponse)) {
-                // Log del rate limit excedido
-                System.out.println("⚠️ Rate limit excedido - Usuario: " + userId + 
-                                   ", Rol: " + limit.roleName + 
-                                   ", Límite: " + limit.requestsPerMinute + "/min");
-                return;
+            if (!limit.unlimited) {
+                long result = store.tryConsume(userId, limit.requestsPerMinute, now);
+                
+                if (!checkRateLimit(result, limit, now, httpResponse)) {
+                    // Log del rate limit excedido
+                    System.out.println("⚠️ Rate limit excedido - Usuario: " + userId + 
+                                       ", Rol: " + limit.roleName + 
+                                       ", Límite: " + limit.requestsPerMinute + "/min");
+                    return;
+                }
+            } else {
+                httpResponse.setHeader("X-RateLimit-Limit", limit.limitHeader);
             }
         }
         
@@ -119,24 +133,44 @@ public class RateLimitFilter implements Filter {
     }
     
     /**
-     * Verifica si se permite una petición según el rate limit
+     * Obtiene el límite de un rol (sin crear objetos para roles desconocidos)
      */
-    private boolean checkRateLimit(String key, int maxRequestsPerMinute, HttpServletResponse response) 
-            throws IOException {
+    private static RateLimit getRoleLimit(int roleId) {
+        RateLimit limit = roleId >= 0 && roleId < ROLE_LIMITS.length ? ROLE_LIMITS[roleId] : null;
+        return limit != null ? limit : UNKNOWN_LIMIT;
+    }
+    
+    /**
+     * Obtiene o crea el bucket de una IP anónima
+     * Cada ANONYMOUS_PURGE_INTERVAL buckets nuevos se descartan los expirados
+     */
+    private static TokenBucket getAnonymousBucket(String ip, long now) {
+        TokenBucket bucket = anonymousBuckets.get(ip);
+        if (bucket != null) {
+            return bucket;
+        }
         
-        // Obtener o crear bucket para este usuario/IP
-        TokenBucket bucket = buckets.computeIfAbsent(key, 
-            k -> new TokenBucket(maxRequestsPerMinute));
+        if (anonymousInserts.incrementAndGet() % ANONYMOUS_PURGE_INTERVAL == 0) {
+            anonymousBuckets.values().removeIf(b -> b.isExpired(now));
+        }
+        return anonymousBuckets.computeIfAbsent(ip, k -> new TokenBucket(0, ANONYMOUS_LIMIT.requestsPerMinute, now));
+    }
+    
+    /**
+     * Verifica si se permite una petición según el resultado de consumir un token
+     * (tokens restantes, o -(ms de espera) - 1 si se excedió el límite)
+     */
+    private boolean checkRateLimit(long result, RateLimit limit, long now, HttpServletResponse response) 
+            throws IOException {
         
-        // Intentar consumir un token
-        if (!bucket.tryConsume()) {
+        if (result < 0) {
             // Rate limit excedido
-            long waitSeconds = bucket.getSecondsUntilRefill();
+            long waitSeconds = (-result - 1) / 1000 + 1; // Redondear arriba
             
             // Agregar headers informativos
-            response.setHeader("X-RateLimit-Limit", String.valueOf(maxRequestsPerMinute));
+            response.setHeader("X-RateLimit-Limit", limit.limitHeader);
             response.setHeader("X-RateLimit-Remaining", "0");
-            response.setHeader("X-RateLimit-Reset", String.valueOf(System.currentTimeMillis() / 1000 + waitSeconds));
+            response.setHeader("X-RateLimit-Reset", String.valueOf(now / 1000 + waitSeconds));
             response.setHeader("Retry-After", String.valueOf(waitSeconds));
             
             JsonResponse.tooManyRequests(response, 
@@ -146,32 +180,12 @@ public class RateLimitFilter implements Filter {
         }
         
         // Agregar headers informativos
-        response.setHeader("X-RateLimit-Limit", String.valueOf(maxRequestsPerMinute));
-        response.setHeader("X-RateLimit-Remaining", String.valueOf(bucket.getAvailableTokens()));
+        response.setHeader("X-RateLimit-Limit", limit.limitHeader);
+        response.setHeader("X-RateLimit-Remaining", REMAINING_HEADERS[(int) result]);
         
         return true;
     }
     
-    /**
-     * Limpia buckets que no se han usado recientemente
-     */
-    private void cleanupExpiredBuckets() {
-        long now = System.currentTimeMillis();
-        int removed = 0;
-        
-        for (String key : buckets.keySet()) {
-            TokenBucket bucket = buckets.get(key);
-            if (bucket != null && bucket.isExpired(now)) {
-                buckets.remove(key);
-                removed++;
-            }
-        }
-        
-        if (removed > 0) {
-            System.out.println("🧹 RateLimit cleanup: " + removed + " buckets expirados eliminados");
-        }
-    }
-    
     /**
      * Obtiene la IP del cliente (considerando proxies)
      */
@@ -200,7 +214,8 @@ public class RateLimitFilter implements Filter {
     
     @Override
     public void destroy() {
-        buckets.clear();
+        store.clear();
+        anonymousBuckets.clear();
         System.out.println("🚦 RateLimitFilter destruido");
     }
     
@@ -210,85 +225,14 @@ public class RateLimitFilter implements Filter {
     private static class RateLimit {
         final int requestsPerMinute;
         final String roleName;
+        final String limitHeader;
+        final boolean unlimited;
         
         RateLimit(int requestsPerMinute, String roleName) {
             this.requestsPerMinute = requestsPerMinute;
             this.roleName = roleName;
-        }
-    }
-    
-    /**
-     * Implementación del algoritmo Token Bucket
-     * Permite ráfagas controladas de requests
-     */
-    private static class TokenBucket {
-        private final int capacity;
-        private final double refillRate; // tokens por milisegundo
-        private double tokens;
-        private long lastRefillTime;
-        private long lastAccessTime;
-        
-        TokenBucket(int requestsPerMinute) {
-            this.capacity = requestsPerMinute;
-            this.refillRate = requestsPerMinute / 60000.0; // requests por ms
-            this.tokens = requestsPerMinute; // Empezar con bucket lleno
-            this.lastRefillTime = System.currentTimeMillis();
-            this.lastAccessTime = System.currentTimeMillis();
-        }
-        
-        /**
-         * Intenta consumir un token
-         */
-        synchronized boolean tryConsume() {
-            refill();
-            lastAccessTime = System.currentTimeMillis();
-            
-            if (tokens >= 1) {
-                tokens -= 1;
-                return true;
-            }
-            return false;
-        }
-        
-        /**
-         * Rellena el bucket según el tiempo transcurrido
-         */
-        private void refill() {
-            long now = System.currentTimeMillis();
-            long timePassed = now - lastRefillTime;
-            
-            double tokensToAdd = timePassed * refillRate;
-            tokens = Math.min(capacity, tokens + tokensToAdd);
-            
-            lastRefillTime = now;
-        }
-        
-        /**
-         * Obtiene tokens disponibles actuales
-         */
-        synchronized int getAvailableTokens() {
-            refill();
-            return (int) tokens;
-        }
-        
-        /**
-         * Calcula segundos hasta el próximo token disponible
-         */
-        synchronized long getSecondsUntilRefill() {
-            if (tokens >= 1) {
-                return 0;
-            }
-            
-            double tokensNeeded = 1 - tokens;
-            long msNeeded = (long) (tokensNeeded / refillRate);
-            return (msNeeded / 1000) + 1; // Redondear arriba
-        }
-        
-        /**
-         * Verifica si el bucket ha expirado (no usado en 10 minutos)
-         */
-        boolean isExpired(long now) {
-            return (now - lastAccessTime) > TimeUnit.MINUTES.toMillis(10);
+            this.limitHeader = String.valueOf(requestsPerMinute);
+            this.unlimited = requestsPerMinute > TokenBucket.MAX_CAPACITY;
         }
     }
     
@@ -296,7 +240,13 @@ public class RateLimitFilter implements Filter {
      * Obtiene estadísticas del rate limiter (útil para monitoreo)
      */
     public static String getStats() {
+        int roles = 0;
+        for (RateLimit limit : ROLE_LIMITS) {
+            if (limit != null) {
+                roles++;
+            }
+        }
         return String.format("RateLimiter{activeBuckets=%d, roles=%d}", 
-            buckets.size(), ROLE_LIMITS.size());
+            store.size() + anonymousBuckets.size(), roles);
     }
 }
@@ -0,0 +1,43 @@
+package filter;
+
+import config.DatabaseConfig;
+
+/**
+ * Almacén de buckets de rate limiting por usuario
+ * La implementación local (por defecto) lleva los buckets en memoria de cada instancia;
+ * con RATE_LIMIT_STORE=mysql la cuota se comparte entre todas las instancias de la API
+ * a través de la tabla rate_limit_buckets (ver JdbcRateLimitStore).
+ */
+public interface RateLimitStore {
+
+    /**
+     * Intenta consumir un token del usuario
+     * @return tokens restantes (>= 0) si se permitió, o -(ms hasta el próximo token) - 1 si no
+     */
+    long tryConsume(long userId, int requestsPerMinute, long now);
+
+    /**
+     * Número de buckets activos en esta instancia
+     */
+    int size();
+
+    /**
+     * Descarta los buckets de esta instancia
+     */
+    void clear();
+
+    /**
+     * Crea el almacén configurado en RATE_LIMIT_STORE (local | mysql)
+     */
+    static RateLimitStore fromEnv() {
+        String tipo = System.getenv().getOrDefault("RATE_LIMIT_STORE", "local");
+        if ("mysql".equalsIgnoreCase(tipo)) {
+            int chunk = Integer.parseInt(System.getenv().getOrDefault("RATE_LIMIT_CHUNK", "10"));
+            long leaseMs = Long.parseLong(System.getenv().getOrDefault("RATE_LIMIT_LEASE_MS", "5000"));
+            long backoffMs = Long.parseLong(System.getenv().getOrDefault("RATE_LIMIT_BACKOFF_MS", "10000"));
+            // El pool compartido aplica los permisos JDBC del modo de hilos virtuales
+            return new JdbcRateLimitStore(DatabaseConfig.getInstance().getDataSource(), chunk, leaseMs, backoffMs);
+        }
+        return new LocalRateLimitStore();
+    }
+}
@@ -0,0 +1,106 @@
+package filter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Implementación del algoritmo Token Bucket sin locks
+ * Todo el estado va en un solo long (milésimas de token + instante del último relleno)
+ * y se actualiza con CAS, así que consumir un token no bloquea ni crea objetos.
+ *
+ * Layout del estado: [24 bits milésimas de token][40 bits ms desde BASE]
+ */
+final class TokenBucket implements LongBucketMap.Entry {
+
+    // Los tokens se cuentan en milésimas para no perder los rellenos parciales
+    static final int UNIDAD = 1000;
+
+    private static final int BITS_TIEMPO = 40;
+    private static final long MASCARA_TIEMPO = (1L << BITS_TIEMPO) - 1;
+
+    // Capacidad máxima representable (límites mayores se tratan como ilimitados)
+    static final int MAX_CAPACITY = (int) (((1L << (64 - BITS_TIEMPO)) - 1) / UNIDAD);
+
+    // Los buckets sin uso por más de este tiempo se pueden descartar
+    static final long TTL_MS = TimeUnit.MINUTES.toMillis(10);
+
+    // Origen de los tiempos relativos (40 bits de ms alcanzan para ~34 años);
+    // un día de margen por si el reloj del sistema retrocede
+    private static final long BASE = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1);
+
+    final long key;
+    final int capacity;
+    private final long capacidadMilesimas;
+    private final AtomicLong state;
+
+    TokenBucket(long key, int requestsPerMinute, long now) {
+        if (requestsPerMinute <= 0 || requestsPerMinute > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Límite fuera de rango: " + requestsPerMinute);
+        }
+        this.key = key;
+        this.capacity = requestsPerMinute;
+        this.capacidadMilesimas = (long) requestsPerMinute * UNIDAD;
+        // Empezar con bucket lleno
+        this.state = new AtomicLong(pack(capacidadMilesimas, relativo(now)));
+    }
+
+    @Override
+    public long key() {
+        return key;
+    }
+
+    /**
+     * Intenta consumir un token
+     * @return tokens restantes (>= 0) si se permitió, o -(ms hasta el próximo token) - 1 si no
+     */
+    long tryConsume(long now) {
+        long t = relativo(now);
+
+        while (true) {
+            long actual = state.get();
+            long guardados = actual >>> BITS_TIEMPO;
+            long ultimo = actual & MASCARA_TIEMPO;
+            long tokens = guardados;
+
+            // Rellenar según el tiempo transcurrido (capacity tokens por minuto = capacity / 60 milésimas por ms)
+            long agregados = Math.max(0, t - ultimo) * capacity / 60;
+            long nuevoTiempo;
+            if (tokens + agregados >= capacidadMilesimas) {
+                tokens = capacidadMilesimas;
+                nuevoTiempo = t;
+            } else {
+                tokens += agregados;
+                // Solo se avanza el tiempo equivalente a las milésimas agregadas
+                nuevoTiempo = ultimo + agregados * 60 / capacity;
+            }
+
+            if (tokens < UNIDAD) {
+                // Sin token disponible: no hace falta escribir, el relleno se recalcula la próxima vez
+                long msFaltantes = ((UNIDAD - guardados) * 60 + capacity - 1) / capacity - Math.max(0, t - ultimo);
+                return -Math.max(1, msFaltantes) - 1;
+            }
+
+            tokens -= UNIDAD;
+            if (state.compareAndSet(actual, pack(tokens, nuevoTiempo))) {
+                return tokens / UNIDAD;
+            }
+        }
+    }
+
+    /**
+     * Verifica si el bucket no se ha usado en TTL_MS
+     * (para entonces ya está lleno, así que descartarlo no cambia el límite)
+     */
+    @Override
+    public boolean isExpired(long now) {
+        return relativo(now) - (state.get() & MASCARA_TIEMPO) > TTL_MS;
+    }
+
+    private static long pack(long milesimas, long tiempo) {
+        return (milesimas << BITS_TIEMPO) | (tiempo & MASCARA_TIEMPO);
+    }
+
+    private static long relativo(long now) {
+        return Math.max(0, now - BASE);
+    }
+}
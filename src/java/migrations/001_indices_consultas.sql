@@ -0,0 +1,63 @@
+-- ================================================================
+-- MIGRACIÓN 001: ÍNDICES PARA LAS CONSULTAS DE LOS SERVICES
+-- Ejecutar una sola vez sobre una base creada con una versión anterior de database_schema.sql
+-- (las instalaciones nuevas ya incluyen estos índices).
+--
+-- Cada índice indica la consulta que atiende. En InnoDB todo índice secundario incluye el id,
+-- así que (fecha) sirve también para ORDER BY fecha, id y para la paginación por cursor.
+-- Los índices implícitos de las llaves foráneas se reemplazan por los compuestos:
+-- MySQL descarta el implícito al existir otro índice que empiece por la misma columna.
+-- Los demás DROP INDEX apuntan a índices del esquema original (idx_producto_categoria y los
+-- idx_usuario_id / idx_entidad de audit_log y refresh_tokens), presentes en toda base anterior.
+-- ================================================================
+USE farmacontrol;
+
+-- Consultas de ventas completadas por rango (reportes y carga inicial de rollups):
+--   WHERE estado = 'COMPLETADA' AND fecha >= ? AND fecha < ?
+-- (VentaService.findByFecha sin filtro de estado usa idx_ventas_fecha)
+CREATE INDEX idx_ventas_estado_fecha ON ventas(estado, fecha);
+
+-- Ventas de un cliente ordenadas por fecha (reemplaza el índice implícito de la llave cliente_id)
+CREATE INDEX idx_ventas_cliente_fecha ON ventas(cliente_id, fecha);
+
+-- VentaService.getDetalles, cancelar y VentaRollupService (cubre SUM(cantidad), SUM(subtotal) por producto)
+CREATE INDEX idx_detalle_ventas_venta ON detalle_ventas(venta_id, producto_id, cantidad, subtotal);
+
+-- CompraService.getDetalles y cancelar
+CREATE INDEX idx_detalle_compras_compra ON detalle_compras(compra_id);
+
+-- CompraService.findByProveedor: WHERE proveedor_id = ? ORDER BY fecha DESC
+CREATE INDEX idx_compras_proveedor_fecha ON compras(proveedor_id, fecha);
+
+-- ProductoService.findByCategoria: WHERE categoria_id = ? AND activo = TRUE ORDER BY nombre
+CREATE INDEX idx_productos_categoria_activo_nombre ON productos(categoria_id, activo, nombre);
+DROP INDEX idx_producto_categoria ON productos;
+
+-- ProductoService.findAll / findPage: WHERE activo = TRUE [AND (nombre, id) > (?, ?)] ORDER BY nombre, id
+CREATE INDEX idx_productos_activo_nombre ON productos(activo, nombre);
+-- idx_productos_nombre solo existe en bases creadas con el esquema de la paginación por cursor
+-- (no en el esquema original): se borra únicamente si está, sin cortar el script con el error 1091
+SET @sql_drop = (SELECT IF(COUNT(*) > 0, 'DROP INDEX idx_productos_nombre ON productos', 'DO 0')
+                 FROM information_schema.statistics
+                 WHERE table_schema = DATABASE() AND table_name = 'productos'
+                   AND index_name = 'idx_productos_nombre');
+PREPARE drop_stmt FROM @sql_drop;
+EXECUTE drop_stmt;
+DEALLOCATE PREPARE drop_stmt;
+
+-- ClienteService.findAll / ProveedorService.findAll: WHERE activo = TRUE ORDER BY nombre[, apellido]
+CREATE INDEX idx_clientes_activo_nombre ON clientes(activo, nombre, apellido);
+CREATE INDEX idx_proveedores_activo_nombre ON proveedores(activo, nombre);
+
+-- UsuarioService.getUsuariosByRole: WHERE rol_id = ? AND activo = true ORDER BY nombre, apellido
+CREATE INDEX idx_usuarios_rol_activo ON usuarios(rol_id, activo, nombre, apellido);
+
+-- AuditService.getByUsuario / getByEntidad: filtro + ORDER BY created_at DESC LIMIT ?
+CREATE INDEX idx_audit_usuario_fecha ON audit_log(usuario_id, created_at);
+CREATE INDEX idx_audit_entidad_fecha ON audit_log(entidad, entidad_id, created_at);
+DROP INDEX idx_usuario_id ON audit_log;
+DROP INDEX idx_entidad ON audit_log;
+
+-- RefreshTokenService: WHERE usuario_id = ? AND revoked = false AND expires_at > NOW()
+CREATE INDEX idx_refresh_usuario_activos ON refresh_tokens(usuario_id, revoked, expires_at);
+DROP INDEX idx_usuario_id ON refresh_tokens;
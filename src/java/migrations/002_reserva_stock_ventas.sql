@@ -0,0 +1,38 @@
+-- ================================================================
+-- MIGRACIÓN 002: RESERVA ATÓMICA DE STOCK EN VENTAS
+-- Ejecutar una sola vez sobre una base creada con una versión anterior de database_schema.sql
+-- (las instalaciones nuevas ya incluyen este trigger).
+--
+-- VentaService.createConDetalles descuenta ahora el stock con
+--   UPDATE productos SET stock = stock - ? WHERE id = ? AND stock >= ?
+-- recorriendo los productos en orden ascendente de id, antes de insertar cada detalle.
+-- Si el UPDATE no afecta filas la venta se revierte, así que dos cajas que venden
+-- las últimas unidades a la vez ya no pueden dejar el stock en negativo.
+-- El trigger deja de descontar (si no, el stock se restaría dos veces) y solo
+-- registra el movimiento de inventario.
+-- ================================================================
+USE farmacontrol;
+
+DROP TRIGGER IF EXISTS trg_descuento_stock_venta;
+CREATE TRIGGER trg_descuento_stock_venta
+    AFTER INSERT ON detalle_ventas
+    FOR EACH ROW
+BEGIN
+    DECLARE v_stock_actual INT;
+    SELECT stock INTO v_stock_actual FROM productos WHERE id = NEW.producto_id;
+
+    INSERT INTO movimientos_inventario (
+        producto_id, tipo_movimiento, cantidad_anterior,
+        cantidad_movimiento, cantidad_nueva, referencia_id, usuario_id, observaciones
+    )
+    VALUES (
+               NEW.producto_id,
+               'VENTA',
+               v_stock_actual + NEW.cantidad,
+               -NEW.cantidad,
+               v_stock_actual,
+               NEW.venta_id,
+               (SELECT usuario_id FROM ventas WHERE id = NEW.venta_id),
+               'Salida por venta'
+           );
+END;
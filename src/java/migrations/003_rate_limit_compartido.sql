@@ -0,0 +1,17 @@
+-- ================================================================
+-- MIGRACIÓN 003: RATE LIMITING COMPARTIDO ENTRE INSTANCIAS
+-- Ejecutar una sola vez sobre una base creada con una versión anterior de database_schema.sql
+-- (las instalaciones nuevas ya incluyen esta tabla).
+--
+-- Solo se usa con RATE_LIMIT_STORE=mysql. Cada instancia de la API toma de esta tabla
+-- lotes de tokens (RATE_LIMIT_CHUNK) con SELECT ... FOR UPDATE y los consume en memoria,
+-- así que la base recibe una transacción por lote y no una por request.
+-- tokens va en milésimas de token y actualizado_ms es el instante del último relleno (epoch ms).
+-- ================================================================
+USE farmacontrol;
+
+CREATE TABLE IF NOT EXISTS rate_limit_buckets (
+    usuario_id BIGINT PRIMARY KEY,
+    tokens BIGINT NOT NULL,
+    actualizado_ms BIGINT NOT NULL
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
@@ -0,0 +1,101 @@
+-- ================================================================
+-- MIGRACIÓN 004: ROLLUPS DE VENTAS
+-- Ejecutar sobre una base creada con una versión anterior de database_schema.sql
+-- ANTES de desplegar la versión de la API que usa VentaRollupService: createConDetalles y
+-- cancelar actualizan estas tablas dentro de la transacción de la venta y fallan si no existen.
+-- (las instalaciones nuevas ya incluyen las tablas y su carga inicial).
+--
+-- La carga inicial se calcula desde las ventas COMPLETADA y reemplaza los valores existentes
+-- (ON DUPLICATE KEY UPDATE col = VALUES(col)), así que se puede volver a ejecutar sin duplicar.
+-- Las filas por usuario y por método de pago se reparten en 16 slots (id de venta % 16,
+-- VentaRollupService.SLOTS) para que las cajas que venden a la vez no compitan por la misma fila.
+-- ================================================================
+USE farmacontrol;
+
+CREATE TABLE IF NOT EXISTS rollup_ventas_producto (
+    granularidad VARCHAR(5) NOT NULL,
+    periodo DATETIME NOT NULL,
+    producto_id BIGINT NOT NULL,
+    cantidad BIGINT NOT NULL DEFAULT 0,
+    num_ventas BIGINT NOT NULL DEFAULT 0,
+    total DECIMAL(14,2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (granularidad, periodo, producto_id),
+    INDEX idx_rollup_producto_cantidad (granularidad, periodo, cantidad)
+);
+
+CREATE TABLE IF NOT EXISTS rollup_ventas_usuario (
+    granularidad VARCHAR(5) NOT NULL,
+    periodo DATETIME NOT NULL,
+    usuario_id BIGINT NOT NULL,
+    slot TINYINT NOT NULL DEFAULT 0,
+    num_ventas BIGINT NOT NULL DEFAULT 0,
+    total DECIMAL(14,2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (granularidad, periodo, usuario_id, slot)
+);
+
+CREATE TABLE IF NOT EXISTS rollup_ventas_metodo_pago (
+    granularidad VARCHAR(5) NOT NULL,
+    periodo DATETIME NOT NULL,
+    metodo_pago VARCHAR(20) NOT NULL,
+    slot TINYINT NOT NULL DEFAULT 0,
+    num_ventas BIGINT NOT NULL DEFAULT 0,
+    total DECIMAL(14,2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (granularidad, periodo, metodo_pago, slot)
+);
+
+-- Carga inicial desde las ventas existentes
+INSERT INTO rollup_ventas_producto (granularidad, periodo, producto_id, cantidad, num_ventas, total)
+SELECT g.granularidad,
+       CASE g.granularidad
+           WHEN 'HORA' THEN DATE_FORMAT(v.fecha, '%Y-%m-%d %H:00:00')
+           WHEN 'DIA' THEN DATE(v.fecha)
+           ELSE '2000-01-01' END AS periodo,
+       dv.producto_id, SUM(dv.cantidad), COUNT(DISTINCT v.id), SUM(dv.subtotal)
+FROM ventas v
+         INNER JOIN detalle_ventas dv ON dv.venta_id = v.id
+         CROSS JOIN (SELECT 'HORA' AS granularidad UNION ALL SELECT 'DIA' UNION ALL SELECT 'TOTAL') g
+WHERE v.estado = 'COMPLETADA'
+GROUP BY g.granularidad, periodo, dv.producto_id
+ON DUPLICATE KEY UPDATE cantidad = VALUES(cantidad), num_ventas = VALUES(num_ventas), total = VALUES(total);
+
+INSERT INTO rollup_ventas_usuario (granularidad, periodo, usuario_id, slot, num_ventas, total)
+SELECT g.granularidad,
+       CASE g.granularidad
+           WHEN 'HORA' THEN DATE_FORMAT(v.fecha, '%Y-%m-%d %H:00:00')
+           WHEN 'DIA' THEN DATE(v.fecha)
+           ELSE '2000-01-01' END AS periodo,
+       v.usuario_id, v.id % 16 AS slot, COUNT(*), SUM(v.total)
+FROM ventas v
+         CROSS JOIN (SELECT 'HORA' AS granularidad UNION ALL SELECT 'DIA' UNION ALL SELECT 'TOTAL') g
+WHERE v.estado = 'COMPLETADA'
+GROUP BY g.granularidad, periodo, v.usuario_id, slot
+ON DUPLICATE KEY UPDATE num_ventas = VALUES(num_ventas), total = VALUES(total);
+
+INSERT INTO rollup_ventas_metodo_pago (granularidad, periodo, metodo_pago, slot, num_ventas, total)
+SELECT g.granularidad,
+       CASE g.granularidad
+           WHEN 'HORA' THEN DATE_FORMAT(v.fecha, '%Y-%m-%d %H:00:00')
+           WHEN 'DIA' THEN DATE(v.fecha)
+           ELSE '2000-01-01' END AS periodo,
+       COALESCE(v.metodo_pago, 'EFECTIVO'), v.id % 16 AS slot, COUNT(*), SUM(v.total)
+FROM ventas v
+         CROSS JOIN (SELECT 'HORA' AS granularidad UNION ALL SELECT 'DIA' UNION ALL SELECT 'TOTAL') g
+WHERE v.estado = 'COMPLETADA'
+GROUP BY g.granularidad, periodo, COALESCE(v.metodo_pago, 'EFECTIVO'), slot
+ON DUPLICATE KEY UPDATE num_ventas = VALUES(num_ventas), total = VALUES(total);
+
+-- Ranking de productos leído del acumulado (TOTAL) en lugar de re-agregar detalle_ventas
+CREATE OR REPLACE VIEW v_productos_mas_vendidos AS
+SELECT
+    p.id AS producto_id,
+    p.nombre AS producto,
+    c.nombre AS categoria,
+    r.cantidad AS total_vendido,
+    r.num_ventas AS numero_ventas,
+    r.total AS ingresos_generados,
+    r.total / NULLIF(r.cantidad, 0) AS precio_promedio
+FROM rollup_ventas_producto r
+         INNER JOIN productos p ON p.id = r.producto_id
+         INNER JOIN categorias c ON p.categoria_id = c.id
+WHERE r.granularidad = 'TOTAL' AND r.periodo = '2000-01-01' AND r.cantidad > 0
+ORDER BY total_vendido DESC;
@@ -0,0 +1,18 @@
+-- ================================================================
+-- MIGRACIÓN 005: JWT REVOCADOS COMPARTIDOS ENTRE INSTANCIAS
+-- Ejecutar una sola vez sobre una base creada con una versión anterior de database_schema.sql
+-- ANTES de desplegar la versión de la API con POST /api/usuarios/logout persistente
+-- (las instalaciones nuevas ya incluyen esta tabla).
+--
+-- El logout inserta aquí el hash del JWT; cada instancia consulta la tabla al verificar un token
+-- que no tiene en cache y trae las filas nuevas cada JWT_REVOCATION_SYNC_MS (ver
+-- security.RevokedTokenStore). Las filas se borran cuando el token expira.
+-- ================================================================
+USE farmacontrol;
+
+CREATE TABLE IF NOT EXISTS revoked_tokens (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    token_hash CHAR(43) NOT NULL UNIQUE,
+    expira_ms BIGINT NOT NULL,
+    INDEX idx_revoked_expira (expira_ms)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
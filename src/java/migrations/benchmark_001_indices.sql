@@ -0,0 +1,70 @@
+-- ================================================================
+-- BENCHMARK MIGRACIÓN 001: rangos de fecha sargables
+-- Compara el plan de DATE(fecha) BETWEEN contra el rango semiabierto
+-- sobre 1,000,000 de ventas en una base aparte (no toca farmacontrol).
+-- Requiere MySQL 8.0.18+ (EXPLAIN ANALYZE y CTE recursivos).
+--
+--   mysql -u root -p < src/java/migrations/benchmark_001_indices.sql
+--
+-- Resultado esperado:
+--   ANTES:   Filter: (cast(ventas.fecha as date) between ...)  ->  Table scan on ventas (rows=1000000)
+--   DESPUÉS: Index range scan on ventas using idx_ventas_fecha / idx_ventas_estado_fecha
+--            (sólo se leen las filas del rango, ~6,400 por semana)
+-- ================================================================
+CREATE DATABASE IF NOT EXISTS farmacontrol_bench;
+USE farmacontrol_bench;
+
+DROP TABLE IF EXISTS ventas;
+CREATE TABLE ventas (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    fecha TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    cliente_id BIGINT NULL,
+    usuario_id BIGINT NOT NULL,
+    total DECIMAL(12,2) DEFAULT 0,
+    metodo_pago VARCHAR(20) DEFAULT 'EFECTIVO',
+    estado VARCHAR(20) DEFAULT 'COMPLETADA'
+);
+
+-- 1,000,000 de ventas repartidas en ~3 años (una cada ~94 segundos), 2% canceladas
+SET SESSION cte_max_recursion_depth = 1000000;
+INSERT INTO ventas (fecha, cliente_id, usuario_id, total, metodo_pago, estado)
+WITH RECURSIVE seq (n) AS (
+    SELECT 1
+    UNION ALL
+    SELECT n + 1 FROM seq WHERE n < 1000000
+)
+SELECT TIMESTAMP('2023-01-01') + INTERVAL (n * 94) SECOND,
+       1 + n % 5000,
+       1 + n % 20,
+       ROUND(10 + RAND() * 490, 2),
+       ELT(1 + n % 3, 'EFECTIVO', 'TARJETA', 'TRANSFERENCIA'),
+       IF(n % 50 = 0, 'CANCELADA', 'COMPLETADA')
+FROM seq;
+
+CREATE INDEX idx_ventas_fecha ON ventas(fecha);
+ANALYZE TABLE ventas;
+
+-- ANTES: la función sobre la columna impide usar idx_ventas_fecha
+EXPLAIN ANALYZE
+SELECT COUNT(*), SUM(total) FROM ventas
+WHERE DATE(fecha) BETWEEN '2025-03-01' AND '2025-03-07';
+
+-- DESPUÉS: rango semiabierto [inicio, fin + 1 día), mismo resultado
+EXPLAIN ANALYZE
+SELECT COUNT(*), SUM(total) FROM ventas
+WHERE fecha >= '2025-03-01' AND fecha < '2025-03-08';
+
+-- Ventas completadas en el rango: con idx_ventas_estado_fecha
+EXPLAIN ANALYZE
+SELECT COUNT(*), SUM(total) FROM ventas
+WHERE estado = 'COMPLETADA' AND fecha >= '2025-03-01' AND fecha < '2025-03-08';
+
+CREATE INDEX idx_ventas_estado_fecha ON ventas(estado, fecha);
+ANALYZE TABLE ventas;
+
+EXPLAIN ANALYZE
+SELECT COUNT(*), SUM(total) FROM ventas
+WHERE estado = 'COMPLETADA' AND fecha >= '2025-03-01' AND fecha < '2025-03-08';
+
+-- Limpieza
+DROP DATABASE farmacontrol_bench;
@@ -0,0 +1,50 @@
+package model;
+
+import java.math.BigDecimal;
+
+/**
+ * Registro compacto de un producto para el escaneo de códigos de barras en caja
+ * Solo lleva lo que necesita el punto de venta (sin categoría ni fechas).
+ */
+public final class ProductoScan {
+    private final long id;
+    private final String nombre;
+    private final BigDecimal precio;
+    private final int stock;
+    private final String codigoBarras;
+
+    public ProductoScan(long id, String nombre, BigDecimal precio, int stock, String codigoBarras) {
+        this.id = id;
+        this.nombre = nombre;
+        this.precio = precio;
+        this.stock = stock;
+        this.codigoBarras = codigoBarras;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public BigDecimal getPrecio() {
+        return precio;
+    }
+
+    public int getStock() {
+        return stock;
+    }
+
+    public String getCodigoBarras() {
+        return codigoBarras;
+    }
+
+    /**
+     * Copia del registro con otro stock
+     */
+    public ProductoScan withStock(int stock) {
+        return new ProductoScan(id, nombre, precio, stock, codigoBarras);
+    }
+}
@@ -0,0 +1,65 @@
+package routes;
+
+import java.io.IOException;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Base de los servlets REST: aplica los headers CORS, responde el preflight OPTIONS
+ * y despacha el resto de peticiones por la tabla de rutas registrada en init()
+ * HEAD y TRACE siguen el manejo de HttpServlet (HEAD = GET sin cuerpo).
+ */
+abstract class ApiServlet extends HttpServlet {
+
+    private static final long serialVersionUID = 1L;
+
+    protected final RouteTable routes;
+
+    /**
+     * @param idInvalido mensaje para un {id} no numérico en la ruta
+     */
+    protected ApiServlet(String idInvalido) {
+        this.routes = new RouteTable(idInvalido);
+    }
+
+    @Override
+    protected void service(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+
+        enableCORS(response);
+
+        switch (request.getMethod()) {
+            case "OPTIONS":
+                response.setStatus(HttpServletResponse.SC_OK);
+                break;
+            case "HEAD":
+            case "TRACE":
+                // doHead delega en doGet; el contenedor no envía el cuerpo de una respuesta a HEAD
+                super.service(request, response);
+                break;
+            default:
+                routes.dispatch(request, response);
+                break;
+        }
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        routes.dispatch(request, response);
+    }
+
+    /**
+     * Habilitar CORS para permitir peticiones desde frontend
+     */
+    private static void enableCORS(HttpServletResponse response) {
+        response.setHeader("Access-Control-Allow-Origin", "*");
+        response.setHeader("Access-Control-Allow-Methods", "GET, POST, PUT, DELETE, OPTIONS");
+        response.setHeader("Access-Control-Allow-Headers", "Content-Type, Authorization, X-Requested-With");
+        response.setHeader("Access-Control-Allow-Credentials", "true");
+        response.setHeader("Access-Control-Max-Age", "3600");
+    }
+}
@@ -1,22 +1,19 @@
 package routes;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.sql.SQLException;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import controller.CategoriaController;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
-import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import model.AuditLog;
 import model.Categoria;
 import services.AuditService;
+import utils.JsonParser;
 import utils.JsonResponse;
 
 /**
@@ -24,49 +21,52 @@ import utils.JsonResponse;
  * Rutas: /api/categorias
  */
 @WebServlet(name = "CategoriaServlet", urlPatterns = {"/api/categorias", "/api/categorias/*"})
-public class CategoriaServlet extends HttpServlet {
+public class CategoriaServlet extends ApiServlet {
     
     private CategoriaController categoriaController;
     
+    public CategoriaServlet() {
+        super("ID de categoría inválido");
+    }
+    
     @Override
     public void init() throws ServletException {
         super.init();
         this.categoriaController = new CategoriaController();
+        
+        routes.get("/", this::listar)
+              .get("/{id}", this::obtener)
+              .post("/", this::crear)
+              .put("/{id}", this::actualizar)
+              .delete("/{id}", this::eliminar);
     }
     
     /**
      * GET /api/categorias - Obtener todas las categorías
-     * GET /api/categorias/{id} - Obtener categoría por ID
      */
-    @Override
-    protected void doGet(HttpServletRequest request, HttpServletResponse response) 
-            throws ServletException, IOException {
-        
-        enableCORS(response);
+    private void listar(HttpServletRequest request, HttpServletResponse response, RouteTable.PathParams params) 
+            throws IOException {
         
         try {
-            String pathInfo = request.getPathInfo();
+            List<Categoria> categorias = categoriaController.getAllCategorias();
+            JsonResponse.success(response, categorias);
             
-            if (pathInfo == null || pathInfo.equals("/")) {
-                // GET /api/categorias - Obtener todas
-                List<Categoria> categorias = categoriaController.getAllCategorias();
-                JsonResponse.success(response, categorias);
-                
-            } else {
-                // GET /api/categorias/{id} - Obtener por ID
-                String[] pathParts = pathInfo.split("/");
-                if (pathParts.length == 2) {
-                    try {
-                        Long id = Long.parseLong(pathParts[1]);
-                        Categoria categoria = categoriaController.getCategoriaById(id);
-                        JsonResponse.success(response, categoria);
-                    } catch (NumberFormatException e) {
-                        JsonResponse.badRequest(response, "ID de categoría inválido");
-                    }
-                } else {
-                    JsonResponse.notFound(response, "Ruta no encontrada");
-                }
-            }
+        } catch (SQLException e) {
+            JsonResponse.internalError(response, "Error en la base de datos: " + e.getMessage());
+        } catch (Exception e) {
+            JsonResponse.internalError(response, "Error interno del servidor");
+        }
+    }
+    
+    /**
+     * GET /api/categorias/{id} - Obtener categoría por ID
+     */
+    private void obtener(HttpServletRequest request, HttpServletResponse response, RouteTable.PathParams params) 
+            throws IOException {
+        
+        try {
+            Categoria categoria = categoriaController.getCategoriaById(params.getId());
+            JsonResponse.success(response, categoria);
             
         } catch (IllegalArgumentException e) {
             JsonResponse.badRequest(response, e.getMessage());
@@ -84,11 +84,8 @@ public class CategoriaServlet extends HttpServlet {
     /**
      * POST /api/categorias - Crear nueva categoría
      */
-    @Override
-    protected void doPost(HttpServletRequest request, HttpServletResponse response) 
-            throws ServletException, IOException {
-        
-        enableCORS(response);
+    private void crear(HttpServletRequest request, HttpServletResponse response, RouteTable.PathParams params) 
+            throws IOException {
         
         // Verificar autorización para crear categorías
         if (!utils.AuthorizationHelper.checkRoles(request, response, 
@@ -98,7 +95,7 @@ public class CategoriaServlet extends HttpServlet {
         
         try {
             // Leer JSON del request
-            Map<String, Object> json = readJsonFromRequest(request);
+            Map<String, Object> json = JsonParser.readJsonFromRequest(request);
             
             String nombre = json.containsKey("nombre") ? (String) json.get("nombre") : null;
             String descripcion = json.containsKey("descripcion") ? (String) json.get("descripcion") : null;
@@ -131,11 +128,8 @@ public class CategoriaServlet extends HttpServlet {
     /**
      * PUT /api/categorias/{id} - Actualizar categoría
      */
-    @Override
-    protected void doPut(HttpServletRequest request, HttpServletResponse response) 
-            throws ServletException, IOException {
-        
-        enableCORS(response);
+    private void actualizar(HttpServletRequest request, HttpServletResponse response, RouteTable.PathParams params) 
+            throws IOException {
         
         // Verificar autorización para actualizar categorías
         if (!utils.AuthorizationHelper.checkRoles(request, response, 
@@ -144,28 +138,10 @@ public class CategoriaServlet extends HttpServlet {
         }
         
         try {
-            String pathInfo = request.getPathInfo();
-            if (pathInfo == null || pathInfo.equals("/")) {
-                JsonResponse.badRequest(response, "ID de categoría requerido");
-                return;
-            }
-            
-            String[] pathParts = pathInfo.split("/");
-            if (pathParts.length != 2) {
-                JsonResponse.badRequest(response, "Ruta inválida");
-                return;
-            }
-            
-            Long id;
-            try {
-                id = Long.parseLong(pathParts[1]);
-            } catch (NumberFormatException e) {
-                JsonResponse.badRequest(response, "ID de categoría inválido");
-                return;
-            }
+            Long id = params.getId();
             
             // Leer JSON del request
-            Map<String, Object> json = readJsonFromRequest(request);
+            Map<String, Object> json = JsonParser.readJsonFromRequest(request);
             
             String nombre = json.containsKey("nombre") ? (String) json.get("nombre") : null;
             String descripcion = json.containsKey("descripcion") ? (String) json.get("descripcion") : null;
@@ -212,11 +188,8 @@ public class CategoriaServlet extends HttpServlet {
     /**
      * DELETE /api/categorias/{id} - Eliminar categoría
      */
-    @Override
-    protected void doDelete(HttpServletRequest request, HttpServletResponse response) 
-            throws ServletException, IOException {
-        
-        enableCORS(response);
+    private void eliminar(HttpServletRequest request, HttpServletResponse response, RouteTable.PathParams params) 
+            throws IOException {
         
         // Verificar autorización para eliminar categorías
         if (!utils.AuthorizationHelper.checkRoles(request, response, 
@@ -225,25 +198,7 @@ public class CategoriaServlet extends HttpServlet {
         }
         
         try {
-            String pathInfo = request.getPathInfo();
-            if (pathInfo == null || pathInfo.equals("/")) {
-                JsonResponse.badRequest(response, "ID de categoría requerido");
-                return;
-            }
-            
-            String[] pathParts = pathInfo.split("/");
-            if (pathParts.length != 2) {
-                JsonResponse.badRequest(response, "Ruta inválida");
-                return;
-            }
-            
-            Long id;
-            try {
-                id = Long.parseLong(pathParts[1]);
-            } catch (NumberFormatException e) {
-                JsonResponse.badRequest(response, "ID de categoría inválido");
-                return;
-            }
+            Long id = params.getId();
             
             boolean eliminado = categoriaController.deleteCategoria(id);
             
@@ -269,239 +224,4 @@ public class CategoriaServlet extends HttpServlet {
             JsonResponse.internalError(response, "Error interno del servidor");
         }
     }
-    
-    @Override
-    protected void doOptions(HttpServletRequest request, HttpServletResponse response) 
-            throws ServletException, IOException {
-        enableCORS(response);
-        response.setStatus(HttpServletResponse.SC_OK);
-    }
-    
-    /**
-     * Método helper para leer y parsear JSON desde el request body
-     */
-    private Map<String, Object> readJsonFromRequest(HttpServletRequest request) throws IOException {
-        StringBuilder jsonBuilder = new StringBuilder();
-        try (BufferedReader reader = request.getReader()) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                jsonBuilder.append(line);
-            }
-        }
-        
-        String jsonString = jsonBuilder.toString().trim();
-        return parseSimpleJson(jsonString);
-    }
-    
-    /**
-     * Parser JSON manual simple
-     */
-    @SuppressWarnings("unchecked")
-    private Map<String, Object> parseSimpleJson(String json) {
-        Map<String, Object> result = new HashMap<>();
-        if (json == null || json.isEmpty()) {
-            return result;
-        }
-        
-        // Remover llaves externas
-        json = json.trim();
-        if (json.startsWith("{")) {
-            json = json.substring(1);
-        }
-        if (json.endsWith("}")) {
-            json = json.substring(0, json.length() - 1);
-        }
-        
-        // Parsear pares key:value
-        int depth = 0;
-        int arrayDepth = 0;
-        StringBuilder currentKey = new StringBuilder();
-        StringBuilder currentValue = new StringBuilder();
-        boolean inKey = true;
-        boolean inString = false;
-        boolean escape = false;
-        
-        for (int i = 0; i < json.length(); i++) {
-            char c = json.charAt(i);
-            
-            if (escape) {
-                if (inKey) {
-                    currentKey.append(c);
-                } else {
-                    currentValue.append(c);
-                }
-                escape = false;
-                continue;
-            }
-            
-            if (c == '\\') {
-                escape = true;
-                continue;
-            }
-            
-            if (c == '"' && depth == 0 && arrayDepth == 0) {
-                inString = !inString;
-                continue;
-            }
-            
-            if (!inString) {
-                if (c == '{') {
-                    depth++;
-                } else if (c == '}') {
-                    depth--;
-                } else if (c == '[') {
-                    arrayDepth++;
-                } else if (c == ']') {
-                    arrayDepth--;
-                }
-            }
-            
-            if (depth == 0 && arrayDepth == 0 && !inString) {
-                if (c == ':' && inKey) {
-                    inKey = false;
-                    continue;
-                } else if (c == ',') {
-                    // Guardar el par key-value
-                    String key = currentKey.toString().trim().replaceAll("\"", "");
-                    String value = currentValue.toString().trim();
-                    
-                    if (!key.isEmpty()) {
-                        result.put(key, parseValue(value));
-                    }
-                    
-                    currentKey = new StringBuilder();
-                    currentValue = new StringBuilder();
-                    inKey = true;
-                    continue;
-                }
-            }
-            
-            if (inKey) {
-                currentKey.append(c);
-            } else {
-                currentValue.append(c);
-            }
-        }
-        
-        // Guardar el último par
-        if (currentKey.length() > 0) {
-            String key = currentKey.toString().trim().replaceAll("\"", "");
-            String value = currentValue.toString().trim();
-            if (!key.isEmpty()) {
-                result.put(key, parseValue(value));
-            }
-        }
-        
-        return result;
-    }
-    
-    /**
-     * Parsear valor JSON (null, boolean, number, string, array)
-     */
-    private Object parseValue(String value) {
-        if (value == null || value.isEmpty()) {
-            return null;
-        }
-        
-        value = value.trim();
-        
-        // null
-        if ("null".equals(value)) {
-            return null;
-        }
-        
-        // boolean
-        if ("true".equals(value)) {
-            return true;
-        }
-        if ("false".equals(value)) {
-            return false;
-        }
-        
-        // string
-        if (value.startsWith("\"") && value.endsWith("\"")) {
-            return value.substring(1, value.length() - 1);
-        }
-        
-        // array
-        if (value.startsWith("[") && value.endsWith("]")) {
-            return parseJsonArray(value);
-        }
-        
-        // number
-        try {
-            if (value.contains(".")) {
-                return Double.parseDouble(value);
-            } else {
-                return Long.parseLong(value);
-            }
-        } catch (NumberFormatException e) {
-            // Si no es número, devolver como string
-            return value;
-        }
-    }
-    
-    /**
-     * Parsear array JSON
-     */
-    private List<Map<String, Object>> parseJsonArray(String arrayStr) {
-        List<Map<String, Object>> list = new ArrayList<>();
-        if (arrayStr == null || arrayStr.length() <= 2) {
-            return list;
-        }
-        
-        // Remover corchetes
-        arrayStr = arrayStr.substring(1, arrayStr.length() - 1).trim();
-        if (arrayStr.isEmpty()) {
-            return list;
-        }
-        
-        // Separar elementos por comas (respetando objetos anidados)
-        List<String> elements = new ArrayList<>();
-        int depth = 0;
-        StringBuilder current = new StringBuilder();
-        boolean inString = false;
-        
-        for (int i = 0; i < arrayStr.length(); i++) {
-            char c = arrayStr.charAt(i);
-            
-            if (c == '"' && (i == 0 || arrayStr.charAt(i - 1) != '\\')) {
-                inString = !inString;
-            }
-            
-            if (!inString) {
-                if (c == '{' || c == '[') {
-                    depth++;
-                } else if (c == '}' || c == ']') {
-                    depth--;
-                }
-            }
-            
-            if (c == ',' && depth == 0 && !inString) {
-                elements.add(current.toString().trim());
-                current = new StringBuilder();
-            } else {
-                current.append(c);
-            }
-        }
-        if (current.length() > 0) {
-            elements.add(current.toString().trim());
-        }
-        
-        // Parsear cada elemento
-        for (String element : elements) {
-            element = element.trim();
-            if (element.startsWith("{") && element.endsWith("}")) {
-                list.add(parseSimpleJson(element));
-            }
-        }
-        
-        return list;
-    }
-    
-    private void enableCORS(HttpServletResponse response) {
-        response.setHeader("Access-Control-Allow-Origin", "*");
-        response.setHeader("Access-Control-Allow-Methods", "GET, POST, PUT, DELETE, OPTIONS");
-        response.setHeader("Access-Control-Allow-Headers", "Content-Type, Authorization");
-    }
 }
@@ -7,7 +7,6 @@ import services.AuditService;
 import utils.JsonResponse;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
-import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
@@ -20,70 +19,72 @@ import java.util.Map;
  * Rutas: /api/clientes
  */
 @WebServlet(name = "ClienteServlet", urlPatterns = {"/api/clientes", "/api/clientes/*"})
-public class ClienteServlet extends HttpServlet {
+public class ClienteServlet extends ApiServlet {
     
     private ClienteController clienteController;
     
+    public ClienteServlet() {
+        super("ID de cliente inválido");
+    }
+    
     @Override
     public void init() throws ServletException {
         super.init();
         this.clienteController = new ClienteController();
+        
+        routes.get("/", this::listar)
+              .get("/buscar", this::buscar)
+              .get("/{id}", this::obtener)
+              .post("/", this::crear)
+              .put("/{id}", this::actualizar)
+              .delete("/{id}", this::eliminar);
     }
     
     /**
      * GET /api/clientes - Obtener todos los clientes
-     * GET /api/clientes/{id} - Obtener cliente por ID
      * GET /api/clientes?search={texto} - Buscar clientes por nombre o email
      */
-    @Override
-    protected void doGet(HttpServletRequest request, HttpServletResponse response) 
-            throws ServletException, IOException {
-        
-        enableCORS(response);
+    private void listar(HttpServletRequest request, HttpServletResponse response, RouteTable.PathParams params) 
+            throws IOException {
         
         try {
-            String pathInfo = request.getPathInfo();
             String searchParam = request.getParameter("search");
+            
+            if (searchParam != null && !searchParam.trim().isEmpty()) {
+                List<Cliente> clientes = clienteController.searchClientes(searchParam.trim());
+                JsonResponse.success(response, clientes);
+            } else {
+                List<Cliente> clientes = clienteController.getAllClientes();
+                JsonResponse.success(response, clientes);
+            }
+            
+        } catch (IllegalArgumentException e) {
+            JsonResponse.badRequest(response, e.getMessage());
+        } catch (SQLException e) {
+            if (e.getMessage().contains("no encontrado")) {
+                JsonResponse.notFound(response, e.getMessage());
+            } else {
+                JsonResponse.internalError(response, "Error en la base de datos: " + e.getMessage());
+            }
+        } catch (Exception e) {
+            JsonResponse.internalError(response, "Error interno del servidor");
+        }
+    }
+    
+    /**
+     * GET /api/clientes/buscar?q={texto} - Buscar clientes por nombre o email
+     */
+    private void buscar(HttpServletRequest request, HttpServletResponse response, RouteTable.PathParams params) 
+            throws IOException {
+        
+        try {
             String qParam = request.getParameter("q");
             
-            if (pathInfo == null || pathInfo.equals("/")) {
-                if (searchParam != null && !searchParam.trim().isEmpty()) {
-                    // GET /api/clientes?search={texto}
-                    List<Cliente> clientes = clienteController.searchClientes(searchParam.trim());
-                    JsonResponse.success(response, clientes);
-                } else {
-                    // GET /api/clientes - Obtener todos
-                    List<Cliente> clientes = clienteController.getAllClientes();
-                    JsonResponse.success(response, clientes);
-                }
-                
+            if (qParam != null && !qParam.trim().isEmpty()) {
+                List<Cliente> clientes = clienteController.searchClientes(qParam.trim());
+                JsonResponse.success(response, clientes);
             } else {
-                String[] pathParts = pathInfo.split("/");
-                if (pathParts.length == 2) {
-                    String segment = pathParts[1];
-                    
-                    // Manejar rutas especiales antes de intentar parsear como ID
-                    if ("buscar".equals(segment)) {
-                        // GET /api/clientes/buscar?q={texto}
-                        if (qParam != null && !qParam.trim().isEmpty()) {
-                            List<Cliente> clientes = clienteController.searchClientes(qParam.trim());
-                            JsonResponse.success(response, clientes);
-                        } else {
-                            JsonResponse.badRequest(response, "Parámetro 'q' requerido para búsqueda");
-                        }
-                    } else {
-                        // GET /api/clientes/{id} - Obtener por ID
-                        try {
-                            Long id = Long.parseLong(segment);
-                            Cliente cliente = clienteController.getClienteById(id);
-                            JsonResponse.success(response, cliente);
-                        } catch (NumberFormatException e) {
-                            JsonResponse.badRequest(response, "ID de cliente inválido");
-                        }
-                    }
-                } else {
-                    JsonResponse.notFound(response, "Ruta no encontrada");
-                }
+                JsonResponse.badRequest(response, "Parámetro 'q' requerido para búsqueda");
             }
             
         } catch (IllegalArgumentException e) {
@@ -100,13 +101,33 @@ public class ClienteServlet extends HttpServlet {
     }
     
     /**
-     * POST /api/clientes - Crear nuevo cliente
+     * GET /api/clientes/{id} - Obtener cliente por ID
      */
-    @Override
-    protected void doPost(HttpServletRequest request, HttpServletResponse response) 
-            throws ServletException, IOException {
+    private void obtener(HttpServletRequest request, HttpServletResponse response, RouteTable.PathParams params) 
+            throws IOException {
         
-        enableCORS(response);
+        try {
+            Cliente cliente = clienteController.getClienteById(params.getId());
+            JsonResponse.success(response, cliente);
+            
+        } catch (IllegalArgumentException e) {
+            JsonResponse.badRequest(response, e.getMessage());
+        } catch (SQLException e) {
+            if (e.getMessage().contains("no encontrado")) {
+                JsonResponse.notFound(response, e.getMessage());
+            } else {
+                JsonResponse.internalError(response, "Error en la base de datos: " + e.getMessage());
+            }
+        } catch (Exception e) {
+            JsonResponse.internalError(response, "Error interno del servidor");
+        }
+    }
+    
+    /**
+     * POST /api/clientes - Crear nuevo cliente
+     */
+    private void crear(HttpServletRequest request, HttpServletResponse response, RouteTable.PathParams params) 
+            throws IOException {
         
         // Verificar autorización para crear clientes
         if (!utils.AuthorizationHelper.checkRoles(request, response, 
@@ -178,11 +199,8 @@ public class ClienteServlet extends HttpServlet {
     /**
      * PUT /api/clientes/{id} - Actualizar cliente
      */
-    @Override
-    protected void doPut(HttpServletRequest request, HttpServletResponse response) 
-            throws ServletException, IOException {
-        
-        enableCORS(response);
+    private void actualizar(HttpServletRequest request, HttpServletResponse response, RouteTable.PathParams params) 
+            throws IOException {
         
         // Verificar autorización para actualizar clientes
         if (!utils.AuthorizationHelper.checkRoles(request, response, 
@@ -191,25 +209,7 @@ public class ClienteServlet extends HttpServlet {
         }
         
         try {
-            String pathInfo = request.getPathInfo();
-            if (pathInfo == null || pathInfo.equals("/")) {
-                JsonResponse.badRequest(response, "ID de cliente requerido");
-                return;
-            }
-            
-            String[] pathParts = pathInfo.split("/");
-            if (pathParts.length != 2) {
-                JsonResponse.badRequest(response, "Ruta inválida");
-                return;
-            }
-            
-            Long id;
-            try {
-                id = Long.parseLong(pathParts[1]);
-            } catch (NumberFormatException e) {
-                JsonResponse.badRequest(response, "ID de cliente inválido");
-                return;
-            }
+            Long id = params.getId();
             
             // Leer JSON del request
             Map<String, Object> json = utils.JsonParser.readJsonFromRequest(request);
@@ -271,11 +271,8 @@ public class ClienteServlet extends HttpServlet {
     /**
      * DELETE /api/clientes/{id} - Eliminar cliente
      */
-    @Override
-    protected void doDelete(HttpServletRequest request, HttpServletResponse response) 
-            throws ServletException, IOException {
-        
-        enableCORS(response);
+    private void eliminar(HttpServletRequest request, HttpServletResponse response, RouteTable.PathParams params) 
+            throws IOException {
         
         // Verificar autorización para eliminar clientes
         if (!utils.AuthorizationHelper.checkRoles(request, response, 
@@ -284,25 +281,7 @@ public class ClienteServlet extends HttpServlet {
         }
         
         try {
-            String pathInfo = request.getPathInfo();
-            if (pathInfo == null || pathInfo.equals("/")) {
-                JsonResponse.badRequest(response, "ID de cliente requerido");
-                return;
-            }
-            
-            String[] pathParts = pathInfo.split("/");
-            if (pathParts.length != 2) {
-                JsonResponse.badRequest(response, "Ruta inválida");
-                return;
-            }
-            
-            Long id;
-            try {
-                id = Long.parseLong(pathParts[1]);
-            } catch (NumberFormatException e) {
-                JsonResponse.badRequest(response, "ID de cliente inválido");
-                return;
-            }
+            Long id = params.getId();
             
             boolean eliminado = clienteController.deleteCliente(id);
             
@@ -328,17 +307,4 @@ public class ClienteServlet extends HttpServlet {
             JsonResponse.internalError(response, "Error interno del servidor");
         }
     }
-    
-    @Override
-    protected void doOptions(HttpServletRequest request, HttpServletResponse response) 
-            throws ServletException, IOException {
-        enableCORS(response);
-        response.setStatus(HttpServletResponse.SC_OK);
-    }
-    
-    private void enableCORS(HttpServletResponse response) {
-        response.setHeader("Access-Control-Allow-Origin", "*");
-        response.setHeader("Access-Control-Allow-Methods", "GET, POST, PUT, DELETE, OPTIONS");
-        response.setHeader("Access-Control-Allow-Headers", "Content-Type, Authorization");
-    }
-}
\ No newline at end of file
+}
@@ -1,16 +1,15 @@
 package routes;
 
 import java.io.IOException;
-import java.math.BigDecimal;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
 import controller.CompraController;
+import dto.CompraDTO;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
-import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import model.AuditLog;
@@ -21,66 +20,51 @@ import utils.JsonResponse;
 import utils.JsonParser;
 
 @WebServlet(name = "CompraServlet", urlPatterns = {"/api/compras", "/api/compras/*"})
-public class CompraServlet extends HttpServlet {
+public class CompraServlet extends ApiServlet {
     
     private CompraController compraController;
     
+    public CompraServlet() {
+        super("ID de compra inválido");
+    }
+    
     @Override
     public void init() throws ServletException {
         super.init();
         this.compraController = new CompraController();
+        
+        routes.get("/", this::listar)
+              .get("/{id}", this::obtener)
+              .get("/{id}/detalles", this::obtenerDetalles)
+              .post("/", this::crear)
+              .put("/{id}/estado", this::cambiarEstado)
+              .put("/{id}/cancelar", this::cancelar);
     }
     
-    @Override
-    protected void doGet(HttpServletRequest request, HttpServletResponse response) 
-            throws ServletException, IOException {
-        
-        enableCORS(response);
+    /**
+     * GET /api/compras, GET /api/compras?proveedor=id o GET /api/compras?limit=n&cursor=c
+     */
+    private void listar(HttpServletRequest request, HttpServletResponse response, RouteTable.PathParams params) 
+            throws IOException {
         
         try {
-            String pathInfo = request.getPathInfo();
+            String proveedorParam = request.getParameter("proveedor");
             
-            if (pathInfo == null || pathInfo.equals("/")) {
-                // GET /api/compras o GET /api/compras?proveedor=id
-                String proveedorParam = request.getParameter("proveedor");
-                
-                if (proveedorParam != null && !proveedorParam.trim().isEmpty()) {
-                    try {
-                        Long proveedorId = Long.parseLong(proveedorParam);
-                        List<Compra> compras = compraController.getComprasByProveedor(proveedorId);
-                        JsonResponse.success(response, compras);
-                    } catch (NumberFormatException e) {
-                        JsonResponse.badRequest(response, "ID de proveedor inválido");
-                    }
-                } else {
-                    List<Compra> compras = compraController.getAllCompras();
+            if (proveedorParam != null && !proveedorParam.trim().isEmpty()) {
+                try {
+                    Long proveedorId = Long.parseLong(proveedorParam);
+                    List<Compra> compras = compraController.getComprasByProveedor(proveedorId);
                     JsonResponse.success(response, compras);
+                } catch (NumberFormatException e) {
+                    JsonResponse.badRequest(response, "ID de proveedor inválido");
                 }
-                
+            } else if (request.getParameter("limit") != null || request.getParameter("cursor") != null) {
+                // GET /api/compras?limit={n}&cursor={cursor} - Paginación por cursor
+                JsonResponse.success(response, compraController.getComprasPage(
+                        request.getParameter("cursor"), request.getParameter("limit")));
             } else {
-                // GET /api/compras/{id} o GET /api/compras/{id}/detalles
-                String[] pathParts = pathInfo.split("/");
-                if (pathParts.length >= 2) {
-                    try {
-                        Long id = Long.parseLong(pathParts[1]);
-                        
-                        if (pathParts.length == 2) {
-                            // GET /api/compras/{id}
-                            Compra compra = compraController.getCompraById(id);
-                            JsonResponse.success(response, compra);
-                        } else if (pathParts.length == 3 && "detalles".equals(pathParts[2])) {
-                            // GET /api/compras/{id}/detalles
-                            List<DetalleCompra> detalles = compraController.getDetallesCompra(id);
-                            JsonResponse.success(response, detalles);
-                        } else {
-                            JsonResponse.notFound(response, "Ruta no encontrada");
-                        }
-                    } catch (NumberFormatException e) {
-                        JsonResponse.badRequest(response, "ID de compra inválido");
-                    }
-                } else {
-                    JsonResponse.notFound(response, "Ruta no encontrada");
-                }
+                List<Compra> compras = compraController.getAllCompras();
+                JsonResponse.success(response, compras);
             }
             
         } catch (IllegalArgumentException e) {
@@ -96,11 +80,57 @@ public class CompraServlet extends HttpServlet {
         }
     }
     
-    @Override
-    protected void doPost(HttpServletRequest request, HttpServletResponse response) 
-            throws ServletException, IOException {
+    /**
+     * GET /api/compras/{id}
+     */
+    private void obtener(HttpServletRequest request, HttpServletResponse response, RouteTable.PathParams params) 
+            throws IOException {
+        
+        try {
+            Compra compra = compraController.getCompraById(params.getId());
+            JsonResponse.success(response, compra);
+            
+        } catch (IllegalArgumentException e) {
+            JsonResponse.badRequest(response, e.getMessage());
+        } catch (SQLException e) {
+            if (e.getMessage().contains("no encontrado")) {
+                JsonResponse.notFound(response, e.getMessage());
+            } else {
+                JsonResponse.internalError(response, "Error en la base de datos: " + e.getMessage());
+            }
+        } catch (Exception e) {
+            JsonResponse.internalError(response, "Error interno del servidor");
+        }
+    }
+    
+    /**
+     * GET /api/compras/{id}/detalles
+     */
+    private void obtenerDetalles(HttpServletRequest request, HttpServletResponse response, RouteTable.PathParams params) 
+            throws IOException {
         
-        enableCORS(response);
+        try {
+            List<DetalleCompra> detalles = compraController.getDetallesCompra(params.getId());
+            JsonResponse.success(response, detalles);
+            
+        } catch (IllegalArgumentException e) {
+            JsonResponse.badRequest(response, e.getMessage());
+        } catch (SQLException e) {
+            if (e.getMessage().contains("no encontrado")) {
+                JsonResponse.notFound(response, e.getMessage());
+            } else {
+                JsonResponse.internalError(response, "Error en la base de datos: " + e.getMessage());
+            }
+        } catch (Exception e) {
+            JsonResponse.internalError(response, "Error interno del servidor");
+        }
+    }
+    
+    /**
+     * POST /api/compras - Crear compra con sus detalles
+     */
+    private void crear(HttpServletRequest request, HttpServletResponse response, RouteTable.PathParams params) 
+            throws IOException {
         
         // Verificar autorización - Solo ciertos roles pueden crear compras
         if (!utils.AuthorizationHelper.checkRoles(request, response, 
@@ -109,17 +139,14 @@ public class CompraServlet extends HttpServlet {
         }
         
         try {
-            Map<String, Object> json = JsonParser.readJsonFromRequest(request);
+            // Leer JSON del request directamente al DTO
+            CompraDTO compraDTO = JsonParser.readJsonFromRequest(request, CompraDTO.class);
             
             // Extraer parámetros principales
-            Long proveedorId = json.containsKey("proveedorId") && json.get("proveedorId") != null
-                ? ((Number) json.get("proveedorId")).longValue() : null;
-            Long usuarioId = json.containsKey("usuarioId") && json.get("usuarioId") != null
-                ? ((Number) json.get("usuarioId")).longValue() : null;
-            String estado = json.containsKey("estado") && json.get("estado") != null
-                ? json.get("estado").toString() : "PENDIENTE";
-            String observaciones = json.containsKey("observaciones") && json.get("observaciones") != null
-                ? json.get("observaciones").toString() : null;
+            Long proveedorId = compraDTO.getProveedorId();
+            Long usuarioId = compraDTO.getUsuarioId();
+            String estado = compraDTO.getEstado();
+            String observaciones = compraDTO.getObservaciones();
             
             // Validar parámetros requeridos
             if (proveedorId == null) {
@@ -132,6 +159,11 @@ public class CompraServlet extends HttpServlet {
                 return;
             }
             
+            if (compraDTO.getDetalles() == null || compraDTO.getDetalles().isEmpty()) {
+                JsonResponse.badRequest(response, "Debe incluir al menos un producto");
+                return;
+            }
+            
             // Crear compra
             Compra compra = new Compra();
             compra.setProveedorId(proveedorId);
@@ -139,16 +171,18 @@ public class CompraServlet extends HttpServlet {
             compra.setEstado(estado != null ? estado : "PENDIENTE");
             compra.setObservaciones(observaciones);
             
-            // Crear lista de detalles (simplificado - en una implementación real vendría del JSON)
-            List<DetalleCompra> detalles = new ArrayList<>();
-            
-            // Por ahora crear una compra sin detalles para prueba
-            if (detalles.isEmpty()) {
-                // Agregar un detalle de prueba si no hay detalles
+            // Crear lista de detalles
+            List<DetalleCompra> detalles = new ArrayList<>(compraDTO.getDetalles().size());
+            for (CompraDTO.DetalleCompraDTO detalleDTO : compraDTO.getDetalles()) {
+                if (detalleDTO == null || detalleDTO.getProductoId() == null || detalleDTO.getCantidad() == null) {
+                    JsonResponse.badRequest(response, "Cada detalle debe incluir productoId y cantidad");
+                    return;
+                }
+                
                 DetalleCompra detalle = new DetalleCompra();
-                detalle.setProductoId(1L); // Producto de ejemplo
-                detalle.setCantidad(1);
-                detalle.setPrecioUnitario(new BigDecimal("100.00"));
+                detalle.setProductoId(detalleDTO.getProductoId());
+                detalle.setCantidad(detalleDTO.getCantidad());
+                detalle.setPrecioUnitario(detalleDTO.getPrecioUnitario());
                 detalles.add(detalle);
             }
             
@@ -172,87 +206,44 @@ public class CompraServlet extends HttpServlet {
         }
     }
     
-    @Override
-    protected void doPut(HttpServletRequest request, HttpServletResponse response) 
-            throws ServletException, IOException {
+    /**
+     * PUT /api/compras/{id}/estado - Cambiar estado
+     */
+    private void cambiarEstado(HttpServletRequest request, HttpServletResponse response, RouteTable.PathParams params) 
+            throws IOException {
         
-        enableCORS(response);
+        // Verificar autorización para cambiar estado
+        if (!utils.AuthorizationHelper.checkRoles(request, response, 
+                security.RolePermissions.COMPRAS_CREATE)) {
+            return;
+        }
         
         try {
-            String pathInfo = request.getPathInfo();
-            if (pathInfo == null || pathInfo.equals("/")) {
-                JsonResponse.badRequest(response, "ID de compra requerido");
-                return;
-            }
+            Long id = params.getId();
+            
+            Map<String, Object> json = JsonParser.readJsonFromRequest(request);
+            String nuevoEstado = json.containsKey("estado") && json.get("estado") != null
+                ? json.get("estado").toString() : null;
             
-            String[] pathParts = pathInfo.split("/");
-            if (pathParts.length < 2) {
-                JsonResponse.badRequest(response, "ID de compra requerido");
+            if (nuevoEstado == null || nuevoEstado.trim().isEmpty()) {
+                JsonResponse.badRequest(response, "El nuevo estado es requerido");
                 return;
             }
             
-            Long id = Long.parseLong(pathParts[1]);
+            boolean actualizado = compraController.updateEstadoCompra(id, nuevoEstado);
             
-            if (pathParts.length == 3 && "estado".equals(pathParts[2])) {
-                // PUT /api/compras/{id}/estado - Cambiar estado
+            if (actualizado) {
+                Compra compraActualizada = compraController.getCompraById(id);
                 
-                // Verificar autorización para cambiar estado
-                if (!utils.AuthorizationHelper.checkRoles(request, response, 
-                        security.RolePermissions.COMPRAS_CREATE)) {
-                    return;
-                }
-                
-                Map<String, Object> json = JsonParser.readJsonFromRequest(request);
-                String nuevoEstado = json.containsKey("estado") && json.get("estado") != null
-                    ? json.get("estado").toString() : null;
-                
-                if (nuevoEstado == null || nuevoEstado.trim().isEmpty()) {
-                    JsonResponse.badRequest(response, "El nuevo estado es requerido");
-                    return;
-                }
+                // Auditoría: Registrar cambio de estado
+                AuditService.logUpdate(request, AuditLog.ENTIDAD_COMPRA, id,
+                    String.format("Estado de compra actualizado a: %s", nuevoEstado));
                 
-                boolean actualizado = compraController.updateEstadoCompra(id, nuevoEstado);
-                
-                if (actualizado) {
-                    Compra compraActualizada = compraController.getCompraById(id);
-                    
-                    // Auditoría: Registrar cambio de estado
-                    AuditService.logUpdate(request, AuditLog.ENTIDAD_COMPRA, id,
-                        String.format("Estado de compra actualizado a: %s", nuevoEstado));
-                    
-                    JsonResponse.success(response, "Estado actualizado exitosamente", compraActualizada);
-                } else {
-                    JsonResponse.internalError(response, "No se pudo actualizar el estado");
-                }
-            } else if (pathParts.length == 3 && "cancelar".equals(pathParts[2])) {
-                // PUT /api/compras/{id}/cancelar - Cancelar compra
-                
-                // Verificar autorización para cancelar compra
-                if (!utils.AuthorizationHelper.checkRoles(request, response, 
-                        security.RolePermissions.COMPRAS_CANCEL)) {
-                    return;
-                }
-                
-                boolean cancelada = compraController.cancelarCompra(id);
-                
-                if (cancelada) {
-                    Compra compraCancelada = compraController.getCompraById(id);
-                    
-                    // Auditoría: Registrar cancelación de compra
-                    AuditService.logUpdate(request, AuditLog.ENTIDAD_COMPRA, id,
-                        String.format("Compra cancelada - Total: $%.2f", 
-                            compraCancelada.getTotal()));
-                    
-                    JsonResponse.success(response, "Compra cancelada exitosamente", compraCancelada);
-                } else {
-                    JsonResponse.internalError(response, "No se pudo cancelar la compra");
-                }
+                JsonResponse.success(response, "Estado actualizado exitosamente", compraActualizada);
             } else {
-                JsonResponse.notFound(response, "Operación no soportada");
+                JsonResponse.internalError(response, "No se pudo actualizar el estado");
             }
             
-        } catch (NumberFormatException e) {
-            JsonResponse.badRequest(response, "ID de compra inválido");
         } catch (IllegalArgumentException e) {
             JsonResponse.badRequest(response, e.getMessage());
         } catch (SQLException e) {
@@ -266,16 +257,46 @@ public class CompraServlet extends HttpServlet {
         }
     }
     
-    @Override
-    protected void doOptions(HttpServletRequest request, HttpServletResponse response) 
-            throws ServletException, IOException {
-        enableCORS(response);
-        response.setStatus(HttpServletResponse.SC_OK);
-    }
-    
-    private void enableCORS(HttpServletResponse response) {
-        response.setHeader("Access-Control-Allow-Origin", "*");
-        response.setHeader("Access-Control-Allow-Methods", "GET, POST, PUT, DELETE, OPTIONS");
-        response.setHeader("Access-Control-Allow-Headers", "Content-Type, Authorization");
+    /**
+     * PUT /api/compras/{id}/cancelar - Cancelar compra
+     */
+    private void cancelar(HttpServletRequest request, HttpServletResponse response, RouteTable.PathParams params) 
+            throws IOException {
+        
+        // Verificar autorización para cancelar compra
+        if (!utils.AuthorizationHelper.checkRoles(request, response, 
+                security.RolePermissions.COMPRAS_CANCEL)) {
+            return;
+        }
+        
+        try {
+            Long id = params.getId();
+            
+            boolean cancelada = compraController.cancelarCompra(id);
+            
+            if (cancelada) {
+                Compra compraCancelada = compraController.getCompraById(id);
+                
+                // Auditoría: Registrar cancelación de compra
+                AuditService.logUpdate(request, AuditLog.ENTIDAD_COMPRA, id,
+                    String.format("Compra cancelada - Total: $%.2f", 
+                        compraCancelada.getTotal()));
+                
+                JsonResponse.success(response, "Compra cancelada exitosamente", compraCancelada);
+            } else {
+                JsonResponse.internalError(response, "No se pudo cancelar la compra");
+            }
+            
+        } catch (IllegalArgumentException e) {
+            JsonResponse.badRequest(response, e.getMessage());
+        } catch (SQLException e) {
+            if (e.getMessage().contains("no encontrado")) {
+                JsonResponse.notFound(response, e.getMessage());
+            } else {
+                JsonResponse.internalError(response, "Error en la base de datos: " + e.getMessage());
+            }
+        } catch (Exception e) {
+            JsonResponse.internalError(response, "Error interno del servidor");
+        }
     }
 }
@@ -8,7 +8,6 @@ import utils.JsonResponse;
 import utils.JsonParser;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
-import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
@@ -17,51 +16,61 @@ import java.util.List;
 import java.util.Map;
 
 @WebServlet(name = "ProveedorServlet", urlPatterns = {"/api/proveedores", "/api/proveedores/*"})
-public class ProveedorServlet extends HttpServlet {
+public class ProveedorServlet extends ApiServlet {
     
     private ProveedorController proveedorController;
     
+    public ProveedorServlet() {
+        super("ID de proveedor inválido");
+    }
+    
     @Override
     public void init() throws ServletException {
         super.init();
         this.proveedorController = new ProveedorController();
+        
+        routes.get("/", this::listar)
+              .get("/{id}", this::obtener)
+              .post("/", this::crear);
     }
     
-    @Override
-    protected void doGet(HttpServletRequest request, HttpServletResponse response) 
-            throws ServletException, IOException {
-        
-        enableCORS(response);
+    /**
+     * GET /api/proveedores - Obtener todos los proveedores
+     * GET /api/proveedores?search={termino} - Buscar proveedores
+     */
+    private void listar(HttpServletRequest request, HttpServletResponse response, RouteTable.PathParams params) 
+            throws IOException {
         
         try {
-            String pathInfo = request.getPathInfo();
+            String searchTerm = request.getParameter("search");
             
-            if (pathInfo == null || pathInfo.equals("/")) {
-                String searchTerm = request.getParameter("search");
-                
-                if (searchTerm != null && !searchTerm.trim().isEmpty()) {
-                    List<Proveedor> proveedores = proveedorController.searchProveedores(searchTerm);
-                    JsonResponse.success(response, proveedores);
-                } else {
-                    List<Proveedor> proveedores = proveedorController.getAllProveedores();
-                    JsonResponse.success(response, proveedores);
-                }
-                
+            if (searchTerm != null && !searchTerm.trim().isEmpty()) {
+                List<Proveedor> proveedores = proveedorController.searchProveedores(searchTerm);
+                JsonResponse.success(response, proveedores);
             } else {
-                String[] pathParts = pathInfo.split("/");
-                if (pathParts.length == 2) {
-                    try {
-                        Long id = Long.parseLong(pathParts[1]);
-                        Proveedor proveedor = proveedorController.getProveedorById(id);
-                        JsonResponse.success(response, proveedor);
-                    } catch (NumberFormatException e) {
-                        JsonResponse.badRequest(response, "ID de proveedor inválido");
-                    }
-                } else {
-                    JsonResponse.notFound(response, "Ruta no encontrada");
-                }
+                List<Proveedor> proveedores = proveedorController.getAllProveedores();
+                JsonResponse.success(response, proveedores);
             }
             
+        } catch (IllegalArgumentException e) {
+            JsonResponse.badRequest(response, e.getMessage());
+        } catch (SQLException e) {
+            JsonResponse.internalError(response, "Error en la base de datos: " + e.getMessage());
+        } catch (Exception e) {
+            JsonResponse.internalError(response, "Error interno del servidor");
+        }
+    }
+    
+    /**
+     * GET /api/proveedores/{id} - Obtener proveedor por ID
+     */
+    private void obtener(HttpServletRequest request, HttpServletResponse response, RouteTable.PathParams params) 
+            throws IOException {
+        
+        try {
+            Proveedor proveedor = proveedorController.getProveedorById(params.getId());
+            JsonResponse.success(response, proveedor);
+            
         } catch (IllegalArgumentException e) {
             JsonResponse.badRequest(response, e.getMessage());
         } catch (SQLException e) {
@@ -75,11 +84,11 @@ public class ProveedorServlet extends HttpServlet {
         }
     }
     
-    @Override
-    protected void doPost(HttpServletRequest request, HttpServletResponse response) 
-            throws ServletException, IOException {
-        
-        enableCORS(response);
+    /**
+     * POST /api/proveedores - Crear proveedor
+     */
+    private void crear(HttpServletRequest request, HttpServletResponse response, RouteTable.PathParams params) 
+            throws IOException {
         
         // Verificar autorización para crear proveedores
         if (!utils.AuthorizationHelper.checkRoles(request, response, 
@@ -128,17 +137,4 @@ public class ProveedorServlet extends HttpServlet {
             JsonResponse.internalError(response, "Error interno del servidor: " + e.getMessage());
         }
     }
-    
-    @Override
-    protected void doOptions(HttpServletRequest request, HttpServletResponse response) 
-            throws ServletException, IOException {
-        enableCORS(response);
-        response.setStatus(HttpServletResponse.SC_OK);
-    }
-    
-    private void enableCORS(HttpServletResponse response) {
-        response.setHeader("Access-Control-Allow-Origin", "*");
-        response.setHeader("Access-Control-Allow-Methods", "GET, POST, PUT, DELETE, OPTIONS");
-        response.setHeader("Access-Control-Allow-Headers", "Content-Type, Authorization");
-    }
 }
@@ -6,160 +6,162 @@ import java.util.Map;
 import controller.ReporteController;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
-import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import model.AuditLog;
+import services.AuditService;
 import utils.JsonResponse;
+import utils.PagedResponse;
 
 @WebServlet("/api/reportes/*")
-public class ReporteServlet extends HttpServlet {
+public class ReporteServlet extends ApiServlet {
     
     private ReporteController reporteController;
     
+    public ReporteServlet() {
+        super("Tipo de reporte no válido");
+    }
+    
     @Override
     public void init() throws ServletException {
         super.init();
         this.reporteController = new ReporteController();
+        
+        // GET /api/reportes y /api/reportes/dashboard - Dashboard general
+        routes.get("/", this::handleDashboard)
+              .get("/dashboard", this::handleDashboard)
+              .get("/ventas", this::handleReporteVentas)
+              .get("/compras", this::handleReporteCompras)
+              .get("/productos", this::handleProductosMasVendidos)
+              .get("/productos/mas-vendidos", this::handleProductosMasVendidos)
+              .get("/inventario", this::handleReporteInventario)
+              .get("/inventario/bajo", this::handleInventarioBajo)
+              .get("/clientes", this::handleReporteClientes)
+              .get("/auditoria", this::handleAuditoria);
     }
     
-    @Override
-    protected void doOptions(HttpServletRequest request, HttpServletResponse response) 
-            throws ServletException, IOException {
-        setCORSHeaders(response);
-        response.setStatus(HttpServletResponse.SC_OK);
-    }
-    
-    @Override
-    protected void doGet(HttpServletRequest request, HttpServletResponse response) 
-            throws ServletException, IOException {
-        
-        setCORSHeaders(response);
+    private void handleDashboard(HttpServletRequest request, HttpServletResponse response, RouteTable.PathParams params) 
+            throws IOException {
         
         try {
-            String pathInfo = request.getPathInfo();
-            
-            if (pathInfo == null || pathInfo.equals("/")) {
-                // GET /api/reportes - Dashboard general
-                Map<String, Object> dashboard = reporteController.getDashboard();
-                JsonResponse.success(response, dashboard);
-                
-            } else {
-                String[] pathParts = pathInfo.split("/");
-                if (pathParts.length > 1) {
-                    String tipo = pathParts[1];
-                    
-                    switch (tipo) {
-                        case "dashboard":
-                            // GET /api/reportes/dashboard - Dashboard general (alias)
-                            Map<String, Object> dashboard = reporteController.getDashboard();
-                            JsonResponse.success(response, dashboard);
-                            break;
-                            
-                        case "ventas":
-                            handleReporteVentas(request, response, pathParts);
-                            break;
-                            
-                        case "compras":
-                            handleReporteCompras(request, response);
-                            break;
-                            
-                        case "productos":
-                            handleReporteProductos(request, response, pathParts);
-                            break;
-                            
-                        case "inventario":
-                            handleReporteInventario(request, response, pathParts);
-                            break;
-                            
-                        case "clientes":
-                            handleReporteClientes(request, response);
-                            break;
-                            
-                        default:
-                            JsonResponse.error(response, 400, "Tipo de reporte no válido");
-                    }
-                } else {
-                    JsonResponse.error(response, 400, "Ruta no válida");
-                }
-            }
-            
+            Map<String, Object> dashboard = reporteController.getDashboard();
+            JsonResponse.success(response, dashboard);
         } catch (Exception e) {
-            e.printStackTrace();
-            JsonResponse.error(response, 500, "Error interno del servidor: " + e.getMessage());
+            errorInterno(response, e);
         }
     }
     
-    private void handleReporteVentas(HttpServletRequest request, HttpServletResponse response, String[] pathParts) 
-            throws Exception {
-        
-        String fechaInicio = request.getParameter("fecha_inicio");
-        String fechaFin = request.getParameter("fecha_fin");
-        String clienteIdParam = request.getParameter("cliente_id");
-        Long clienteId = clienteIdParam != null ? Long.parseLong(clienteIdParam) : null;
+    private void handleReporteVentas(HttpServletRequest request, HttpServletResponse response, RouteTable.PathParams params) 
+            throws IOException {
         
-        Map<String, Object> reporteVentas = reporteController.getReporteVentas(fechaInicio, fechaFin, clienteId);
-        JsonResponse.success(response, reporteVentas);
+        try {
+            String fechaInicio = request.getParameter("fecha_inicio");
+            String fechaFin = request.getParameter("fecha_fin");
+            String clienteIdParam = request.getParameter("cliente_id");
+            Long clienteId = clienteIdParam != null ? Long.parseLong(clienteIdParam) : null;
+            
+            Map<String, Object> reporteVentas = reporteController.getReporteVentas(fechaInicio, fechaFin, clienteId);
+            JsonResponse.success(response, reporteVentas);
+        } catch (Exception e) {
+            errorInterno(response, e);
+        }
     }
     
-    private void handleReporteCompras(HttpServletRequest request, HttpServletResponse response) 
-            throws Exception {
+    private void handleReporteCompras(HttpServletRequest request, HttpServletResponse response, RouteTable.PathParams params) 
+            throws IOException {
         
-        String proveedorIdParam = request.getParameter("proveedor_id");
-        if (proveedorIdParam != null) {
-            Long proveedorId = Long.parseLong(proveedorIdParam);
-            Map<String, Object> reporteCompras = reporteController.getComprasPorProveedor(proveedorId);
-            JsonResponse.success(response, reporteCompras);
-        } else {
-            JsonResponse.error(response, 400, "Se requiere proveedor_id para el reporte de compras");
+        try {
+            String proveedorIdParam = request.getParameter("proveedor_id");
+            if (proveedorIdParam != null) {
+                Long proveedorId = Long.parseLong(proveedorIdParam);
+                Map<String, Object> reporteCompras = reporteController.getComprasPorProveedor(proveedorId);
+                JsonResponse.success(response, reporteCompras);
+            } else {
+                JsonResponse.error(response, 400, "Se requiere proveedor_id para el reporte de compras");
+            }
+        } catch (Exception e) {
+            errorInterno(response, e);
         }
     }
     
-    private void handleReporteProductos(HttpServletRequest request, HttpServletResponse response, String[] pathParts) 
-            throws Exception {
+    /**
+     * GET /api/reportes/productos/mas-vendidos (y /api/reportes/productos como alias)
+     */
+    private void handleProductosMasVendidos(HttpServletRequest request, HttpServletResponse response, RouteTable.PathParams params) 
+            throws IOException {
         
-        if (pathParts.length > 2 && "mas-vendidos".equals(pathParts[2])) {
-            // GET /api/reportes/productos/mas-vendidos
-            Map<String, Object> productosMasVendidos = reporteController.getProductosMasVendidos();
-            JsonResponse.success(response, productosMasVendidos);
-        } else if (pathParts.length == 2) {
-            // GET /api/reportes/productos (alias para mas-vendidos)
+        try {
             Map<String, Object> productosMasVendidos = reporteController.getProductosMasVendidos();
             JsonResponse.success(response, productosMasVendidos);
-        } else {
-            JsonResponse.error(response, 400, "Endpoint de productos no válido");
+        } catch (Exception e) {
+            errorInterno(response, e);
         }
     }
     
-    private void handleReporteInventario(HttpServletRequest request, HttpServletResponse response, String[] pathParts) 
-            throws Exception {
+    /**
+     * GET /api/reportes/inventario
+     */
+    private void handleReporteInventario(HttpServletRequest request, HttpServletResponse response, RouteTable.PathParams params) 
+            throws IOException {
         
-        if (pathParts.length == 2) {
-            // GET /api/reportes/inventario
+        try {
             Map<String, Object> reporteInventario = reporteController.getInventario();
             JsonResponse.success(response, reporteInventario);
-        } else if (pathParts.length == 3 && "bajo".equals(pathParts[2])) {
-            // GET /api/reportes/inventario/bajo
+        } catch (Exception e) {
+            errorInterno(response, e);
+        }
+    }
+    
+    /**
+     * GET /api/reportes/inventario/bajo?limite={n}
+     */
+    private void handleInventarioBajo(HttpServletRequest request, HttpServletResponse response, RouteTable.PathParams params) 
+            throws IOException {
+        
+        try {
             String limiteParam = request.getParameter("limite");
             Integer limite = limiteParam != null ? Integer.parseInt(limiteParam) : 10;
             Map<String, Object> inventarioBajo = reporteController.getProductosStockBajo(limite);
             JsonResponse.success(response, inventarioBajo);
-        } else {
-            JsonResponse.error(response, 400, "Endpoint de inventario no válido");
+        } catch (Exception e) {
+            errorInterno(response, e);
         }
     }
     
-    private void handleReporteClientes(HttpServletRequest request, HttpServletResponse response) 
-            throws Exception {
+    private void handleReporteClientes(HttpServletRequest request, HttpServletResponse response, RouteTable.PathParams params) 
+            throws IOException {
         
-        Map<String, Object> reporteClientes = reporteController.getClientesFrecuentes();
-        JsonResponse.success(response, reporteClientes);
+        try {
+            Map<String, Object> reporteClientes = reporteController.getClientesFrecuentes();
+            JsonResponse.success(response, reporteClientes);
+        } catch (Exception e) {
+            errorInterno(response, e);
+        }
+    }
+    
+    private void handleAuditoria(HttpServletRequest request, HttpServletResponse response, RouteTable.PathParams params) 
+            throws IOException {
+        
+        // Solo roles con permiso REPORTES_READ
+        if (!utils.AuthorizationHelper.checkRoles(request, response, 
+                security.RolePermissions.REPORTES_READ)) {
+            return;
+        }
+        
+        // GET /api/reportes/auditoria?limit={n}&cursor={cursor}
+        try {
+            int size = PagedResponse.parseSize(request.getParameter("limit"));
+            PagedResponse<AuditLog> pagina = AuditService.getPage(request.getParameter("cursor"), size);
+            JsonResponse.success(response, pagina);
+        } catch (IllegalArgumentException e) {
+            JsonResponse.badRequest(response, e.getMessage());
+        } catch (Exception e) {
+            errorInterno(response, e);
+        }
     }
     
-    private void setCORSHeaders(HttpServletResponse response) {
-        response.setHeader("Access-Control-Allow-Origin", "*");
-        response.setHeader("Access-Control-Allow-Methods", "GET, POST, PUT, DELETE, OPTIONS");
-        response.setHeader("Access-Control-Allow-Headers", "Content-Type, Authorization, X-Requested-With");
-        response.setHeader("Access-Control-Allow-Credentials", "true");
-        response.setHeader("Access-Control-Max-Age", "3600");
+    private void errorInterno(HttpServletResponse response, Exception e) throws IOException {
+        e.printStackTrace();
+        JsonResponse.error(response, 500, "Error interno del servidor: " + e.getMessage());
     }
 }
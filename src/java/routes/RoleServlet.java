@@ -7,7 +7,6 @@ import java.util.List;
 import controller.RoleController;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
-import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import model.Role;
@@ -20,50 +19,52 @@ import utils.JsonResponse;
  * Rutas: /api/roles
  */
 @WebServlet(name = "RoleServlet", urlPatterns = {"/api/roles", "/api/roles/*"})
-public class RoleServlet extends HttpServlet {
+public class RoleServlet extends ApiServlet {
     
     private RoleController roleController;
     
+    public RoleServlet() {
+        super("ID de role inválido");
+    }
+    
     @Override
     public void init() throws ServletException {
         super.init();
         this.roleController = new RoleController();
+        
+        routes.get("/", this::listar)
+              .get("/{id}", this::obtener)
+              .post("/", this::crear)
+              .put("/{id}", this::actualizar)
+              .delete("/{id}", this::eliminar);
     }
     
     /**
      * GET /api/roles - Obtener todos los roles
-     * GET /api/roles/{id} - Obtener role por ID
      */
-    @Override
-    protected void doGet(HttpServletRequest request, HttpServletResponse response) 
-            throws ServletException, IOException {
-        
-        // Habilitar CORS
-        enableCORS(response);
+    private void listar(HttpServletRequest request, HttpServletResponse response, RouteTable.PathParams params) 
+            throws IOException {
         
         try {
-            String pathInfo = request.getPathInfo();
+            List<Role> roles = roleController.getAllRoles();
+            JsonResponse.success(response, roles);
             
-            if (pathInfo == null || pathInfo.equals("/")) {
-                // GET /api/roles - Obtener todos
-                List<Role> roles = roleController.getAllRoles();
-                JsonResponse.success(response, roles);
-                
-            } else {
-                // GET /api/roles/{id} - Obtener por ID
-                String[] pathParts = pathInfo.split("/");
-                if (pathParts.length == 2) {
-                    try {
-                        Integer id = Integer.parseInt(pathParts[1]);
-                        Role role = roleController.getRoleById(id);
-                        JsonResponse.success(response, role);
-                    } catch (NumberFormatException e) {
-                        JsonResponse.badRequest(response, "ID de role inválido");
-                    }
-                } else {
-                    JsonResponse.notFound(response, "Ruta no encontrada");
-                }
-            }
+        } catch (SQLException e) {
+            JsonResponse.internalError(response, "Error en la base de datos: " + e.getMessage());
+        } catch (Exception e) {
+            JsonResponse.internalError(response, "Error interno del servidor");
+        }
+    }
+    
+    /**
+     * GET /api/roles/{id} - Obtener role por ID
+     */
+    private void obtener(HttpServletRequest request, HttpServletResponse response, RouteTable.PathParams params) 
+            throws IOException {
+        
+        try {
+            Role role = roleController.getRoleById(params.getIntId());
+            JsonResponse.success(response, role);
             
         } catch (IllegalArgumentException e) {
             JsonResponse.badRequest(response, e.getMessage());
@@ -82,11 +83,8 @@ public class RoleServlet extends HttpServlet {
      * POST /api/roles - Crear nuevo role
      * Requiere rol: ADMIN únicamente
      */
-    @Override
-    protected void doPost(HttpServletRequest request, HttpServletResponse response) 
-            throws ServletException, IOException {
-        
-        enableCORS(response);
+    private void crear(HttpServletRequest request, HttpServletResponse response, RouteTable.PathParams params) 
+            throws IOException {
         
         // Verificar autorización - Solo ADMIN y DIRECTOR pueden crear roles
         if (!utils.AuthorizationHelper.checkRoles(request, response, 
@@ -128,11 +126,8 @@ public class RoleServlet extends HttpServlet {
      * PUT /api/roles/{id} - Actualizar role
      * Requiere rol: ADMIN únicamente
      */
-    @Override
-    protected void doPut(HttpServletRequest request, HttpServletResponse response) 
-            throws ServletException, IOException {
-        
-        enableCORS(response);
+    private void actualizar(HttpServletRequest request, HttpServletResponse response, RouteTable.PathParams params) 
+            throws IOException {
         
         // Verificar autorización - Solo ADMIN y DIRECTOR pueden actualizar roles
         if (!utils.AuthorizationHelper.checkRoles(request, response, 
@@ -141,25 +136,7 @@ public class RoleServlet extends HttpServlet {
         }
         
         try {
-            String pathInfo = request.getPathInfo();
-            if (pathInfo == null || pathInfo.equals("/")) {
-                JsonResponse.badRequest(response, "ID de role requerido");
-                return;
-            }
-            
-            String[] pathParts = pathInfo.split("/");
-            if (pathParts.length != 2) {
-                JsonResponse.badRequest(response, "Ruta inválida");
-                return;
-            }
-            
-            Integer id;
-            try {
-                id = Integer.parseInt(pathParts[1]);
-            } catch (NumberFormatException e) {
-                JsonResponse.badRequest(response, "ID de role inválido");
-                return;
-            }
+            Integer id = params.getIntId();
             
             // Leer parámetros
             String nombre = request.getParameter("nombre");
@@ -208,11 +185,8 @@ public class RoleServlet extends HttpServlet {
      * DELETE /api/roles/{id} - Eliminar role
      * Requiere rol: ADMIN únicamente
      */
-    @Override
-    protected void doDelete(HttpServletRequest request, HttpServletResponse response) 
-            throws ServletException, IOException {
-        
-        enableCORS(response);
+    private void eliminar(HttpServletRequest request, HttpServletResponse response, RouteTable.PathParams params) 
+            throws IOException {
         
         // Verificar autorización - Solo ADMIN y DIRECTOR pueden eliminar roles
         if (!utils.AuthorizationHelper.checkRoles(request, response, 
@@ -221,25 +195,7 @@ public class RoleServlet extends HttpServlet {
         }
         
         try {
-            String pathInfo = request.getPathInfo();
-            if (pathInfo == null || pathInfo.equals("/")) {
-                JsonResponse.badRequest(response, "ID de role requerido");
-                return;
-            }
-            
-            String[] pathParts = pathInfo.split("/");
-            if (pathParts.length != 2) {
-                JsonResponse.badRequest(response, "Ruta inválida");
-                return;
-            }
-            
-            Integer id;
-            try {
-                id = Integer.parseInt(pathParts[1]);
-            } catch (NumberFormatException e) {
-                JsonResponse.badRequest(response, "ID de role inválido");
-                return;
-            }
+            Integer id = params.getIntId();
             
             boolean eliminado = roleController.deleteRole(id);
             
@@ -265,23 +221,4 @@ public class RoleServlet extends HttpServlet {
             JsonResponse.internalError(response, "Error interno del servidor");
         }
     }
-    
-    /**
-     * OPTIONS - Para CORS
-     */
-    @Override
-    protected void doOptions(HttpServletRequest request, HttpServletResponse response) 
-            throws ServletException, IOException {
-        enableCORS(response);
-        response.setStatus(HttpServletResponse.SC_OK);
-    }
-    
-    /**
-     * Habilitar CORS para permitir peticiones desde frontend
-     */
-    private void enableCORS(HttpServletResponse response) {
-        response.setHeader("Access-Control-Allow-Origin", "*");
-        response.setHeader("Access-Control-Allow-Methods", "GET, POST, PUT, DELETE, OPTIONS");
-        response.setHeader("Access-Control-Allow-Headers", "Content-Type, Authorization");
-    }
-}
\ No newline at end of file
+}
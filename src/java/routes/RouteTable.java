@@ -0,0 +1,305 @@
+package routes;
+
+import java.io.IOException;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import utils.JsonResponse;
+
+/**
+ * Tabla de rutas precompilada (trie por segmento) para los servlets REST
+ * Las rutas se registran una vez en init(): "/", "/buscar", "/{id}", "/{id}/detalles", "/barcode/{codigo}".
+ * "{id}" es una variable numérica (long) y cualquier otro "{nombre}" una variable de texto.
+ *
+ * El despacho recorre pathInfo con indexOf/regionMatches, sin split, regex ni excepciones:
+ * un literal tiene prioridad sobre una variable, y un segmento no numérico en la posición
+ * de un {id} responde 400 con el mensaje de la tabla. Las variables se entregan en un
+ * PathParams reutilizado por hilo, de modo que el despacho no asigna objetos por petición.
+ */
+final class RouteTable {
+
+    /**
+     * Manejador de una ruta (método + patrón)
+     */
+    @FunctionalInterface
+    interface Handler {
+        void handle(HttpServletRequest request, HttpServletResponse response, PathParams params)
+                throws ServletException, IOException;
+    }
+
+    private static final int GET = 0;
+    private static final int POST = 1;
+    private static final int PUT = 2;
+    private static final int DELETE = 3;
+    private static final String[] METHOD_NAMES = {"GET", "POST", "PUT", "DELETE"};
+
+    /** Máximo de dígitos aceptados en un {id}; 18 dígitos siempre caben en un long */
+    private static final int MAX_ID_DIGITS = 18;
+
+    private static final ThreadLocal<PathParams> PARAMS = ThreadLocal.withInitial(PathParams::new);
+
+    private final Node root = new Node();
+    private final String idInvalido;
+
+    /**
+     * @param idInvalido mensaje para un {id} no numérico (ej. "ID de producto inválido")
+     */
+    RouteTable(String idInvalido) {
+        this.idInvalido = idInvalido;
+    }
+
+    RouteTable get(String pattern, Handler handler) {
+        return add(GET, pattern, handler);
+    }
+
+    RouteTable post(String pattern, Handler handler) {
+        return add(POST, pattern, handler);
+    }
+
+    RouteTable put(String pattern, Handler handler) {
+        return add(PUT, pattern, handler);
+    }
+
+    RouteTable delete(String pattern, Handler handler) {
+        return add(DELETE, pattern, handler);
+    }
+
+    private RouteTable add(int method, String pattern, Handler handler) {
+        Node node = root;
+        // El registro ocurre una sola vez por servlet, aquí split no afecta al despacho
+        for (String segment : pattern.split("/")) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            if (segment.equals("{id}")) {
+                if (node.id == null) {
+                    node.id = new Node();
+                }
+                node = node.id;
+            } else if (segment.startsWith("{") && segment.endsWith("}")) {
+                if (node.texto == null) {
+                    node.texto = new Node();
+                }
+                node = node.texto;
+            } else {
+                node = node.addLiteral(segment);
+            }
+        }
+
+        if (node.handlers[method] != null) {
+            throw new IllegalStateException("Ruta duplicada: " + METHOD_NAMES[method] + " " + pattern);
+        }
+        node.handlers[method] = handler;
+        return this;
+    }
+
+    /**
+     * Resolver la petición contra la tabla e invocar el manejador
+     * HEAD usa el manejador de GET. Responde 404 si la ruta no existe, 405 con el header
+     * Allow si existe para otros métodos y 400 si un {id} no es numérico.
+     */
+    void dispatch(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+
+        String path = request.getPathInfo();
+        PathParams params = PARAMS.get();
+        params.reset(path, idInvalido);
+
+        Node node = root;
+        if (path != null) {
+            int length = path.length();
+            int start = 0;
+            while (start < length) {
+                if (path.charAt(start) == '/') {
+                    start++;
+                    continue;
+                }
+                int end = path.indexOf('/', start);
+                if (end < 0) {
+                    end = length;
+                }
+
+                Node next = node.literal(path, start, end);
+                if (next == null) {
+                    if (node.id != null && params.parseId(path, start, end)) {
+                        next = node.id;
+                    } else if (node.texto != null) {
+                        params.setTexto(start, end);
+                        next = node.texto;
+                    } else if (node.id != null) {
+                        JsonResponse.badRequest(response, idInvalido);
+                        return;
+                    } else {
+                        JsonResponse.notFound(response, "Ruta no encontrada");
+                        return;
+                    }
+                }
+                node = next;
+                start = end + 1;
+            }
+        }
+
+        int method = methodIndex(request.getMethod());
+        Handler handler = method >= 0 ? node.handlers[method] : null;
+        if (handler == null) {
+            if (node.hasHandlers()) {
+                response.setHeader("Allow", node.allow());
+                JsonResponse.error(response, HttpServletResponse.SC_METHOD_NOT_ALLOWED, "Método no permitido");
+            } else {
+                JsonResponse.notFound(response, "Ruta no encontrada");
+            }
+            return;
+        }
+
+        handler.handle(request, response, params);
+    }
+
+    private static int methodIndex(String method) {
+        switch (method) {
+            case "GET":
+            case "HEAD":
+                return GET;
+            case "POST":
+                return POST;
+            case "PUT":
+                return PUT;
+            case "DELETE":
+                return DELETE;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Variables de ruta de la petición en curso
+     * Solo es válido dentro del manejador; la instancia se reutiliza en la siguiente petición del hilo.
+     */
+    static final class PathParams {
+        private String path;
+        private String idInvalido;
+        private long id;
+        private int textoStart;
+        private int textoEnd;
+
+        private void reset(String path, String idInvalido) {
+            this.path = path;
+            this.idInvalido = idInvalido;
+            this.id = 0;
+            this.textoStart = 0;
+            this.textoEnd = 0;
+        }
+
+        /**
+         * Acumular los dígitos del segmento; false si no es un número válido
+         */
+        private boolean parseId(String path, int start, int end) {
+            if (end - start > MAX_ID_DIGITS) {
+                return false;
+            }
+            long value = 0;
+            for (int i = start; i < end; i++) {
+                char c = path.charAt(i);
+                if (c < '0' || c > '9') {
+                    return false;
+                }
+                value = value * 10 + (c - '0');
+            }
+            this.id = value;
+            return true;
+        }
+
+        private void setTexto(int start, int end) {
+            this.textoStart = start;
+            this.textoEnd = end;
+        }
+
+        /**
+         * Valor de {id}
+         */
+        long getId() {
+            return id;
+        }
+
+        /**
+         * Valor de {id} para tablas con clave entera (roles)
+         */
+        int getIntId() {
+            if (id > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException(idInvalido);
+            }
+            return (int) id;
+        }
+
+        /**
+         * Valor de la variable de texto; el String se crea solo al pedirlo
+         */
+        String getTexto() {
+            return textoEnd > textoStart ? path.substring(textoStart, textoEnd) : null;
+        }
+    }
+
+    /**
+     * Nodo del trie: hijos literales, hijo {id}, hijo de texto y un manejador por método
+     */
+    private static final class Node {
+        private String[] literals = new String[0];
+        private Node[] children = new Node[0];
+        private Node id;
+        private Node texto;
+        private final Handler[] handlers = new Handler[METHOD_NAMES.length];
+
+        private Node literal(String path, int start, int end) {
+            int length = end - start;
+            for (int i = 0; i < literals.length; i++) {
+                String literal = literals[i];
+                if (literal.length() == length && path.regionMatches(start, literal, 0, length)) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        private Node addLiteral(String segment) {
+            Node existing = literal(segment, 0, segment.length());
+            if (existing != null) {
+                return existing;
+            }
+            int n = literals.length;
+            String[] newLiterals = new String[n + 1];
+            Node[] newChildren = new Node[n + 1];
+            System.arraycopy(literals, 0, newLiterals, 0, n);
+            System.arraycopy(children, 0, newChildren, 0, n);
+            newLiterals[n] = segment;
+            newChildren[n] = new Node();
+            literals = newLiterals;
+            children = newChildren;
+            return newChildren[n];
+        }
+
+        private boolean hasHandlers() {
+            for (Handler handler : handlers) {
+                if (handler != null) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Valor del header Allow para un 405 (solo se arma en ese caso)
+         */
+        private String allow() {
+            StringBuilder allow = new StringBuilder();
+            for (int i = 0; i < handlers.length; i++) {
+                if (handlers[i] != null) {
+                    allow.append(METHOD_NAMES[i]).append(", ");
+                    if (i == GET) {
+                        allow.append("HEAD, ");
+                    }
+                }
+            }
+            return allow.append("OPTIONS").toString();
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package security;
 
 import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -11,6 +12,7 @@ import org.springframework.stereotype.Component;
 
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import model.Usuario;
@@ -27,11 +29,19 @@ public class JwtTokenProvider {
     // Duración del token: 24 horas
     private final long expirationTime;
     
+    // Clave HMAC y parser construidos una sola vez (no por cada token)
+    private final SecretKey signingKey;
+    private final JwtParser parser;
+    
     public JwtTokenProvider() {
         this.secretKey = System.getenv().getOrDefault("JWT_SECRET", 
             "MiFarmaControlSecretKeyParaJWT2025DebeSerLargaYSegura256BitsMinimo");
         this.expirationTime = Long.parseLong(
             System.getenv().getOrDefault("JWT_EXPIRATION", "86400000"));
+        this.signingKey = Keys.hmacShaKeyFor(secretKey.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parser()
+                .verifyWith(signingKey)
+                .build();
     }
     
     /**
@@ -47,17 +57,76 @@ public class JwtTokenProvider {
         claims.put("roleId", usuario.getRolId());
         claims.put("nombre", usuario.getNombre());
         
-        SecretKey key = Keys.hmacShaKeyFor(secretKey.getBytes(StandardCharsets.UTF_8));
-        
         return Jwts.builder()
                 .claims(claims)
                 .subject(usuario.getEmail())
                 .issuedAt(now)
                 .expiration(expiryDate)
-                .signWith(key)
+                .signWith(signingKey)
                 .compact();
     }
     
+    /**
+     * Verifica el token una sola vez y devuelve sus claims
+     * Usa TokenCache para no repetir la verificación de tokens ya vistos
+     * @return los claims verificados, o null si el token es inválido o expiró
+     */
+    public TokenClaims verify(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        
+        // Tokens repetidos: se reutilizan los claims ya verificados hasta su "exp"
+        String key = TokenCache.keyOf(token);
+        if (TokenCache.isRevoked(key)) {
+            return null;
+        }
+        TokenClaims cached = TokenCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        
+        try {
+            Claims claims = getClaimsFromToken(token);
+            TokenClaims verified = new TokenClaims(
+                    claims.get("userId", Long.class),
+                    claims.get("roleId", Integer.class),
+                    claims.getSubject(),
+                    claims.getExpiration());
+            // Primera vez que esta instancia ve el token: puede haberlo revocado otra
+            RevokedTokenStore revocados = RevokedTokenStore.activo();
+            if (revocados != null && revocados.isRevoked(key)) {
+                TokenCache.revoke(key, verified.getExpiration());
+                return null;
+            }
+            TokenCache.put(key, verified);
+            return verified;
+        } catch (JwtException | IllegalArgumentException e) {
+            // Token inválido o expirado
+            return null;
+        }
+    }
+    
+    /**
+     * Revoca un token antes de su expiración (p. ej. al cerrar sesión)
+     * La revocación se guarda en revoked_tokens para que la vean todas las instancias
+     * @return true si el token era válido y quedó revocado
+     * @throws SQLException si no se pudo guardar la revocación
+     */
+    public boolean revokeToken(String token) throws SQLException {
+        TokenClaims claims = verify(token);
+        if (claims == null) {
+            return false;
+        }
+        String key = TokenCache.keyOf(token);
+        RevokedTokenStore revocados = RevokedTokenStore.activo();
+        if (revocados != null) {
+            revocados.revoke(key, claims.getExpiration());
+        }
+        TokenCache.revoke(key, claims.getExpiration());
+        return true;
+    }
+    
     /**
      * Extrae el email del token
      */
@@ -86,17 +155,8 @@ public class JwtTokenProvider {
      * Valida si el token es válido
      */
     public boolean validateToken(String token) {
-        try {
-            SecretKey key = Keys.hmacShaKeyFor(secretKey.getBytes(StandardCharsets.UTF_8));
-            Jwts.parser()
-                    .verifyWith(key)
-                    .build()
-                    .parseSignedClaims(token);
-            return true;
-        } catch (JwtException | IllegalArgumentException e) {
-            // Token inválido o expirado
-            return false;
-        }
+        // Inválido, expirado o revocado
+        return verify(token) != null;
     }
     
     /**
@@ -115,12 +175,7 @@ public class JwtTokenProvider {
      * Obtiene los claims del token
      */
     private Claims getClaimsFromToken(String token) {
-        SecretKey key = Keys.hmacShaKeyFor(secretKey.getBytes(StandardCharsets.UTF_8));
-        return Jwts.parser()
-                .verifyWith(key)
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        return parser.parseSignedClaims(token).getPayload();
     }
     
     /**
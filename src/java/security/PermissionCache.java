@@ -1,8 +1,17 @@
 package security;
 
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
 import java.sql.*;
 import config.DatabaseConfig;
 
@@ -10,64 +19,217 @@ import config.DatabaseConfig;
  * Cache de permisos por rol con TTL (Time To Live)
  * Mejora el rendimiento al evitar consultas repetitivas a la base de datos
  * Thread-safe usando ConcurrentHashMap
+ * - Carga única por rol: si varios requests encuentran el rol sin cache, solo uno consulta
+ *   la base y los demás esperan ese mismo resultado.
+ * - Refresco anticipado: pasado REFRESH_AHEAD_MS la entrada se recarga en segundo plano
+ *   mientras se sigue sirviendo la actual, así que un rol en uso nunca espera a la base.
+ * - Al cargar, los códigos de permiso se compilan a un bitset (un ordinal por código), así
+ *   que verificar permisos no hace hashing de Strings. Para los checks frecuentes conviene
+ *   precalcular una PermissionMask con mask(...).
  */
 public class PermissionCache {
     
     // Cache principal: roleId -> Set de permisos
     private static final ConcurrentHashMap<Integer, CacheEntry> cache = new ConcurrentHashMap<>();
     
+    // Ordinal de cada código de permiso (posición del bit en los bitsets)
+    private static final ConcurrentHashMap<String, Integer> ordinals = new ConcurrentHashMap<>();
+    private static final AtomicInteger nextOrdinal = new AtomicInteger();
+    
+    // Cargas en curso por rol (carga única)
+    private static final ConcurrentHashMap<Integer, CompletableFuture<CacheEntry>> loading = new ConcurrentHashMap<>();
+    
     // TTL del cache: 5 minutos (en milisegundos)
     private static final long CACHE_TTL_MS = TimeUnit.MINUTES.toMillis(5);
     
+    // Edad a partir de la cual se recarga en segundo plano (80% del TTL)
+    private static final long REFRESH_AHEAD_MS = CACHE_TTL_MS * 4 / 5;
+    
+    // Hilo de refresco anticipado (daemon: no impide apagar la JVM)
+    private static final ExecutorService refresher = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "permission-refresh");
+        t.setDaemon(true);
+        return t;
+    });
+    
     // Estadísticas del cache (para monitoreo)
-    private static long cacheHits = 0;
-    private static long cacheMisses = 0;
+    private static final LongAdder cacheHits = new LongAdder();
+    private static final LongAdder cacheMisses = new LongAdder();
+    private static final LongAdder refreshes = new LongAdder();
+    
+    // Origen de los permisos y reloj (reemplazables en tests)
+    static volatile PermissionLoader loader = PermissionCache::loadPermissionsFromDatabase;
+    static volatile LongSupplier clock = System::currentTimeMillis;
+    
+    // Entrada sin permisos (rol nulo o error de carga; nunca se guarda en cache)
+    private static final CacheEntry EMPTY = new CacheEntry(Set.of());
+    
+    /**
+     * Carga los permisos de un rol
+     */
+    @FunctionalInterface
+    interface PermissionLoader {
+        Set<String> load(int roleId) throws SQLException;
+    }
     
     /**
      * Clase interna para almacenar permisos con timestamp
      */
     private static class CacheEntry {
         final Set<String> permissions;
+        final long[] bits;
         final long timestamp;
+        final AtomicBoolean refreshing = new AtomicBoolean();
         
         CacheEntry(Set<String> permissions) {
             this.permissions = permissions;
-            this.timestamp = System.currentTimeMillis();
+            this.bits = compile(permissions);
+            this.timestamp = clock.getAsLong();
         }
         
         boolean isExpired() {
-            return (System.currentTimeMillis() - timestamp) > CACHE_TTL_MS;
+            return (clock.getAsLong() - timestamp) > CACHE_TTL_MS;
+        }
+    }
+    
+    /**
+     * Conjunto precompilado de códigos de permiso para verificarlo con operaciones de bits
+     */
+    public static final class PermissionMask {
+        private final long[] bits;
+        
+        private PermissionMask(long[] bits) {
+            this.bits = bits;
+        }
+        
+        private boolean isEmpty() {
+            for (long word : bits) {
+                if (word != 0) {
+                    return false;
+                }
+            }
+            return true;
         }
     }
     
+    /**
+     * Compila códigos de permiso a una máscara reutilizable
+     * @param permissionCodes Códigos de permisos
+     */
+    public static PermissionMask mask(String... permissionCodes) {
+        return new PermissionMask(permissionCodes == null ? new long[0] : compile(Arrays.asList(permissionCodes)));
+    }
+    
+    /**
+     * Convierte un conjunto de códigos a bitset, asignando ordinal a los códigos nuevos
+     */
+    private static long[] compile(Collection<String> codes) {
+        int[] ords = new int[codes.size()];
+        int max = -1;
+        int n = 0;
+        for (String code : codes) {
+            if (code != null) {
+                ords[n] = ordinals.computeIfAbsent(code, c -> nextOrdinal.getAndIncrement());
+                max = Math.max(max, ords[n++]);
+            }
+        }
+        
+        long[] bits = new long[(max >> 6) + 1];
+        for (int i = 0; i < n; i++) {
+            bits[ords[i] >> 6] |= 1L << ords[i];
+        }
+        return bits;
+    }
+    
     /**
      * Obtiene los permisos de un rol desde el cache o la base de datos
      * @param roleId ID del rol
      * @return Set de códigos de permisos
      */
     public static Set<String> getPermissions(Integer roleId) {
+        return getEntry(roleId).permissions;
+    }
+    
+    /**
+     * Obtiene la entrada de un rol desde el cache o la base de datos
+     */
+    private static CacheEntry getEntry(Integer roleId) {
         if (roleId == null) {
-            cacheMisses++;
-            return Set.of(); // Set vacío
+            cacheMisses.increment();
+            return EMPTY;
         }
         
         // Intentar obtener del cache
         CacheEntry entry = cache.get(roleId);
         
-        // Verificar si existe y no ha expirado
-        if (entry != null && !entry.isExpired()) {
-            cacheHits++;
-            return entry.permissions;
+        if (entry != null) {
+            long age = clock.getAsLong() - entry.timestamp;
+            if (age <= CACHE_TTL_MS) {
+                cacheHits.increment();
+                // Cerca de expirar: recargar en segundo plano (una sola vez por entrada)
+                if (age > REFRESH_AHEAD_MS && entry.refreshing.compareAndSet(false, true)) {
+                    scheduleRefresh(roleId, entry);
+                }
+                return entry;
+            }
         }
         
-        // Cache miss o expirado: consultar base de datos
-        cacheMisses++;
-        Set<String> permissions = loadPermissionsFromDatabase(roleId);
-        
-        // Almacenar en cache
-        cache.put(roleId, new CacheEntry(permissions));
+        // Cache miss o expirado: consultar base de datos (una sola consulta por rol)
+        cacheMisses.increment();
+        return loadOnce(roleId);
+    }
+    
+    /**
+     * Carga los permisos de un rol compartiendo la consulta entre requests concurrentes
+     */
+    private static CacheEntry loadOnce(Integer roleId) {
+        CompletableFuture<CacheEntry> future = new CompletableFuture<>();
+        CompletableFuture<CacheEntry> inFlight = loading.putIfAbsent(roleId, future);
+        if (inFlight != null) {
+            return inFlight.join();
+        }
         
-        return permissions;
+        try {
+            // Otro request pudo terminar la carga entre nuestra lectura del cache y el putIfAbsent
+            CacheEntry entry = cache.get(roleId);
+            if (entry != null && !entry.isExpired()) {
+                future.complete(entry);
+                return entry;
+            }
+            try {
+                entry = new CacheEntry(loader.load(roleId));
+                cache.put(roleId, entry);
+            } catch (SQLException e) {
+                // No cachear el fallo: el siguiente request vuelve a intentar
+                System.err.println("Error al cargar permisos del rol " + roleId + ": " + e.getMessage());
+                entry = EMPTY;
+            }
+            future.complete(entry);
+            return entry;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(roleId, future);
+        }
+    }
+    
+    /**
+     * Recarga en segundo plano una entrada próxima a expirar
+     * Si la carga falla se conserva la entrada actual hasta su TTL
+     */
+    private static void scheduleRefresh(Integer roleId, CacheEntry current) {
+        refreshes.increment();
+        refresher.execute(() -> {
+            try {
+                CacheEntry fresh = new CacheEntry(loader.load(roleId));
+                // replace: no revivir una entrada invalidada mientras se recargaba
+                cache.replace(roleId, current, fresh);
+            } catch (SQLException | RuntimeException e) {
+                System.err.println("Error al refrescar permisos del rol " + roleId + ": " + e.getMessage());
+                current.refreshing.set(false);
+            }
+        });
     }
     
     /**
@@ -75,7 +237,7 @@ public class PermissionCache {
      * @param roleId ID del rol
      * @return Set de códigos de permisos
      */
-    private static Set<String> loadPermissionsFromDatabase(Integer roleId) {
+    private static Set<String> loadPermissionsFromDatabase(int roleId) throws SQLException {
         Set<String> permissions = ConcurrentHashMap.newKeySet();
         
         String sql = "SELECT p.codigo " +
@@ -93,10 +255,6 @@ public class PermissionCache {
                     permissions.add(rs.getString("codigo"));
                 }
             }
-            
-        } catch (SQLException e) {
-            System.err.println("Error al cargar permisos del rol " + roleId + ": " + e.getMessage());
-            e.printStackTrace();
         }
         
         return permissions;
@@ -113,8 +271,10 @@ public class PermissionCache {
             return false;
         }
         
-        Set<String> permissions = getPermissions(roleId);
-        return permissions.contains(permissionCode);
+        long[] bits = getEntry(roleId).bits;
+        Integer ord = ordinals.get(permissionCode);
+        // Un código sin ordinal no lo tiene ningún rol cargado
+        return ord != null && (ord >> 6) < bits.length && (bits[ord >> 6] & (1L << ord)) != 0;
     }
     
     /**
@@ -128,10 +288,24 @@ public class PermissionCache {
             return false;
         }
         
-        Set<String> permissions = getPermissions(roleId);
+        return hasAnyPermission(roleId, mask(permissionCodes));
+    }
+    
+    /**
+     * Verifica si un rol tiene ALGUNO de los permisos de la máscara
+     * @param roleId ID del rol
+     * @param mask Máscara creada con mask(...)
+     * @return true si el rol tiene al menos uno de los permisos
+     */
+    public static boolean hasAnyPermission(Integer roleId, PermissionMask mask) {
+        if (roleId == null || mask == null) {
+            return false;
+        }
         
-        for (String code : permissionCodes) {
-            if (permissions.contains(code)) {
+        long[] bits = getEntry(roleId).bits;
+        int words = Math.min(bits.length, mask.bits.length);
+        for (int i = 0; i < words; i++) {
+            if ((bits[i] & mask.bits[i]) != 0) {
                 return true;
             }
         }
@@ -150,10 +324,24 @@ public class PermissionCache {
             return false;
         }
         
-        Set<String> permissions = getPermissions(roleId);
+        return hasAllPermissions(roleId, mask(permissionCodes));
+    }
+    
+    /**
+     * Verifica si un rol tiene TODOS los permisos de la máscara
+     * @param roleId ID del rol
+     * @param mask Máscara creada con mask(...)
+     * @return true si el rol tiene todos los permisos
+     */
+    public static boolean hasAllPermissions(Integer roleId, PermissionMask mask) {
+        if (roleId == null || mask == null || mask.isEmpty()) {
+            return false;
+        }
         
-        for (String code : permissionCodes) {
-            if (!permissions.contains(code)) {
+        long[] bits = getEntry(roleId).bits;
+        for (int i = 0; i < mask.bits.length; i++) {
+            long rol = i < bits.length ? bits[i] : 0;
+            if ((rol & mask.bits[i]) != mask.bits[i]) {
                 return false;
             }
         }
@@ -233,21 +421,38 @@ public class PermissionCache {
      * @return Mapa con estadísticas
      */
     public static CacheStats getStats() {
+        long hits = cacheHits.sum();
+        long misses = cacheMisses.sum();
         return new CacheStats(
             cache.size(),
-            cacheHits,
-            cacheMisses,
-            cacheHits + cacheMisses > 0 ? 
-                (double) cacheHits / (cacheHits + cacheMisses) * 100 : 0
+            hits,
+            misses,
+            hits + misses > 0 ? 
+                (double) hits / (hits + misses) * 100 : 0
         );
     }
     
+    /**
+     * Número de recargas en segundo plano iniciadas (refresco anticipado)
+     */
+    public static long getRefreshCount() {
+        return refreshes.sum();
+    }
+    
+    /**
+     * Número de roles en cache
+     */
+    public static int size() {
+        return cache.size();
+    }
+    
     /**
      * Resetea las estadísticas del cache
      */
     public static void resetStats() {
-        cacheHits = 0;
-        cacheMisses = 0;
+        cacheHits.reset();
+        cacheMisses.reset();
+        refreshes.reset();
     }
     
     /**
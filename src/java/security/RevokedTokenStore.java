@@ -0,0 +1,163 @@
+package security;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.Date;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWT revocados compartidos entre instancias (tabla revoked_tokens)
+ * El logout guarda el hash del token (TokenCache.keyOf) con su "exp". Cada instancia:
+ * - consulta la tabla al verificar un token que no tiene en cache, antes de cachearlo
+ * - trae cada syncMs las revocaciones nuevas y las aplica a TokenCache, así un token que
+ *   otra instancia ya tenía verificado deja de valer a más tardar en un intervalo
+ * - borra de la tabla las filas de tokens ya expirados y limpia TokenCache
+ * Si la base no responde al verificar se acepta el token: la sincronización lo corrige.
+ */
+public class RevokedTokenStore {
+
+    // Ids releídos en cada sincronización: un INSERT puede confirmarse después de otro con id mayor
+    private static final int SOLAPE_IDS = 64;
+
+    private static final String SQL_INSERT =
+        "INSERT INTO revoked_tokens (token_hash, expira_ms) VALUES (?, ?)";
+    private static final String SQL_EXISTE =
+        "SELECT 1 FROM revoked_tokens WHERE token_hash = ?";
+    private static final String SQL_NUEVOS =
+        "SELECT id, token_hash, expira_ms FROM revoked_tokens WHERE id > ? AND expira_ms >= ? ORDER BY id";
+    private static final String SQL_PURGA =
+        "DELETE FROM revoked_tokens WHERE expira_ms < ?";
+
+    // Store en uso (null fuera de Spring, p. ej. en tests: las revocaciones quedan locales)
+    private static volatile RevokedTokenStore activo;
+
+    private final DataSource dataSource;
+    private final long syncMs;
+
+    // Último id aplicado (solo lo usa sync, que es synchronized)
+    private long ultimoId;
+    private ScheduledExecutorService scheduler;
+
+    public RevokedTokenStore(DataSource dataSource, long syncMs) {
+        if (syncMs <= 0) {
+            throw new IllegalArgumentException("JWT_REVOCATION_SYNC_MS debe ser positivo");
+        }
+        this.dataSource = dataSource;
+        this.syncMs = syncMs;
+    }
+
+    /**
+     * Store sobre el pool compartido con el intervalo de JWT_REVOCATION_SYNC_MS (5 s por defecto)
+     */
+    public static RevokedTokenStore fromEnv(DataSource dataSource) {
+        long syncMs = Long.parseLong(System.getenv().getOrDefault("JWT_REVOCATION_SYNC_MS", "5000"));
+        return new RevokedTokenStore(dataSource, syncMs);
+    }
+
+    /**
+     * Store activo, o null si no se inició ninguno
+     */
+    public static RevokedTokenStore activo() {
+        return activo;
+    }
+
+    /**
+     * Carga las revocaciones vigentes y programa la sincronización periódica
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        tarea();
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "jwt-revocations");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::tarea, syncMs, syncMs, TimeUnit.MILLISECONDS);
+        activo = this;
+    }
+
+    public synchronized void shutdown() {
+        if (activo == this) {
+            activo = null;
+        }
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Guarda la revocación para todas las instancias (revocar dos veces no es un error)
+     */
+    public void revoke(String key, Date expiration) throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_INSERT)) {
+            stmt.setString(1, key);
+            stmt.setLong(2, expiration != null ? expiration.getTime() : Long.MAX_VALUE);
+            stmt.executeUpdate();
+        } catch (SQLIntegrityConstraintViolationException e) {
+            // Ya revocado (por ejemplo, desde otra instancia)
+        }
+    }
+
+    /**
+     * Verifica en la base si el token fue revocado
+     */
+    public boolean isRevoked(String key) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_EXISTE)) {
+            stmt.setString(1, key);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        } catch (SQLException e) {
+            System.err.println("⚠️ No se pudo consultar revoked_tokens: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Aplica a TokenCache las revocaciones nuevas y borra las de tokens expirados
+     * @return Número de revocaciones leídas
+     */
+    synchronized int sync() throws SQLException {
+        long now = System.currentTimeMillis();
+        int leidas = 0;
+        try (Connection conn = dataSource.getConnection()) {
+            try (PreparedStatement stmt = conn.prepareStatement(SQL_NUEVOS)) {
+                stmt.setLong(1, Math.max(0, ultimoId - SOLAPE_IDS));
+                stmt.setLong(2, now);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        TokenCache.revoke(rs.getString("token_hash"), new Date(rs.getLong("expira_ms")));
+                        ultimoId = Math.max(ultimoId, rs.getLong("id"));
+                        leidas++;
+                    }
+                }
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(SQL_PURGA)) {
+                stmt.setLong(1, now);
+                stmt.executeUpdate();
+            }
+        }
+        return leidas;
+    }
+
+    private void tarea() {
+        try {
+            sync();
+        } catch (SQLException e) {
+            // Se reintenta en el siguiente intervalo
+            System.err.println("⚠️ Error al sincronizar revocaciones de JWT: " + e.getMessage());
+        }
+        TokenCache.cleanExpired();
+    }
+}
@@ -1,12 +1,11 @@
 package security;
 
-import java.util.Arrays;
-import java.util.HashSet;
 import java.util.Set;
 
 /**
  * Sistema de permisos basado en roles
  * Define qué roles tienen acceso a qué operaciones
+ * Cada permiso es un RoleSet (máscara de bits por roleId), así que verificarlo es una operación de bits
  */
 public class RolePermissions {
     
@@ -37,116 +36,116 @@ public class RolePermissions {
     // ==================== PERMISOS POR MÓDULO ====================
     
     // ---------- PRODUCTOS ----------
-    public static final Set<Integer> PRODUCTOS_READ = new HashSet<>(Arrays.asList(
+    public static final RoleSet PRODUCTOS_READ = RoleSet.of(
         ADMIN, FARMACEUTICO, CAJERO, ALMACEN, GERENTE, ASISTENTE, 
         AUDITOR, OPERADOR, SUPERVISOR, ENCARGADO_VENTAS, ENCARGADO_COMPRAS,
         ADMIN_FINANZAS, DIRECTOR, MARKETING, ANALISTA, INVITADO
-    ));
+    );
     
-    public static final Set<Integer> PRODUCTOS_WRITE = new HashSet<>(Arrays.asList(
+    public static final RoleSet PRODUCTOS_WRITE = RoleSet.of(
         ADMIN, FARMACEUTICO, ALMACEN, GERENTE, ENCARGADO_COMPRAS
-    ));
+    );
     
-    public static final Set<Integer> PRODUCTOS_DELETE = new HashSet<>(Arrays.asList(
+    public static final RoleSet PRODUCTOS_DELETE = RoleSet.of(
         ADMIN, GERENTE, DIRECTOR
-    ));
+    );
     
     // ---------- VENTAS ----------
-    public static final Set<Integer> VENTAS_CREATE = new HashSet<>(Arrays.asList(
+    public static final RoleSet VENTAS_CREATE = RoleSet.of(
         ADMIN, CAJERO, FARMACEUTICO, GERENTE, ENCARGADO_VENTAS, OPERADOR
-    ));
+    );
     
-    public static final Set<Integer> VENTAS_READ = new HashSet<>(Arrays.asList(
+    public static final RoleSet VENTAS_READ = RoleSet.of(
         ADMIN, CAJERO, FARMACEUTICO, GERENTE, ENCARGADO_VENTAS, 
         AUDITOR, ADMIN_FINANZAS, DIRECTOR, TESORERIA, ANALISTA
-    ));
+    );
     
-    public static final Set<Integer> VENTAS_CANCEL = new HashSet<>(Arrays.asList(
+    public static final RoleSet VENTAS_CANCEL = RoleSet.of(
         ADMIN, GERENTE, ENCARGADO_VENTAS, DIRECTOR
-    ));
+    );
     
     // ---------- COMPRAS ----------
-    public static final Set<Integer> COMPRAS_CREATE = new HashSet<>(Arrays.asList(
+    public static final RoleSet COMPRAS_CREATE = RoleSet.of(
         ADMIN, ALMACEN, ENCARGADO_COMPRAS, GERENTE, DIRECTOR
-    ));
+    );
     
-    public static final Set<Integer> COMPRAS_READ = new HashSet<>(Arrays.asList(
+    public static final RoleSet COMPRAS_READ = RoleSet.of(
         ADMIN, ALMACEN, ENCARGADO_COMPRAS, GERENTE, AUDITOR, 
         ADMIN_FINANZAS, DIRECTOR, TESORERIA, ANALISTA
-    ));
+    );
     
-    public static final Set<Integer> COMPRAS_CANCEL = new HashSet<>(Arrays.asList(
+    public static final RoleSet COMPRAS_CANCEL = RoleSet.of(
         ADMIN, GERENTE, ENCARGADO_COMPRAS, DIRECTOR
-    ));
+    );
     
     // ---------- CLIENTES ----------
-    public static final Set<Integer> CLIENTES_READ = new HashSet<>(Arrays.asList(
+    public static final RoleSet CLIENTES_READ = RoleSet.of(
         ADMIN, CAJERO, FARMACEUTICO, GERENTE, ENCARGADO_VENTAS, 
         ASISTENTE, OPERADOR, MARKETING, ANALISTA
-    ));
+    );
     
-    public static final Set<Integer> CLIENTES_WRITE = new HashSet<>(Arrays.asList(
+    public static final RoleSet CLIENTES_WRITE = RoleSet.of(
         ADMIN, CAJERO, ENCARGADO_VENTAS, GERENTE, ASISTENTE, MARKETING
-    ));
+    );
     
-    public static final Set<Integer> CLIENTES_DELETE = new HashSet<>(Arrays.asList(
+    public static final RoleSet CLIENTES_DELETE = RoleSet.of(
         ADMIN, GERENTE, DIRECTOR
-    ));
+    );
     
     // ---------- PROVEEDORES ----------
-    public static final Set<Integer> PROVEEDORES_READ = new HashSet<>(Arrays.asList(
+    public static final RoleSet PROVEEDORES_READ = RoleSet.of(
         ADMIN, ALMACEN, ENCARGADO_COMPRAS, GERENTE, AUDITOR, DIRECTOR
-    ));
+    );
     
-    public static final Set<Integer> PROVEEDORES_WRITE = new HashSet<>(Arrays.asList(
+    public static final RoleSet PROVEEDORES_WRITE = RoleSet.of(
         ADMIN, ENCARGADO_COMPRAS, GERENTE, DIRECTOR
-    ));
+    );
     
-    public static final Set<Integer> PROVEEDORES_DELETE = new HashSet<>(Arrays.asList(
+    public static final RoleSet PROVEEDORES_DELETE = RoleSet.of(
         ADMIN, GERENTE, DIRECTOR
-    ));
+    );
     
     // ---------- CATEGORÍAS ----------
-    public static final Set<Integer> CATEGORIAS_READ = new HashSet<>(Arrays.asList(
+    public static final RoleSet CATEGORIAS_READ = RoleSet.of(
         ADMIN, FARMACEUTICO, CAJERO, ALMACEN, GERENTE, ASISTENTE,
         OPERADOR, ENCARGADO_VENTAS, ENCARGADO_COMPRAS, ANALISTA, INVITADO
-    ));
+    );
     
-    public static final Set<Integer> CATEGORIAS_WRITE = new HashSet<>(Arrays.asList(
+    public static final RoleSet CATEGORIAS_WRITE = RoleSet.of(
         ADMIN, FARMACEUTICO, GERENTE, DIRECTOR
-    ));
+    );
     
-    public static final Set<Integer> CATEGORIAS_DELETE = new HashSet<>(Arrays.asList(
+    public static final RoleSet CATEGORIAS_DELETE = RoleSet.of(
         ADMIN, GERENTE, DIRECTOR
-    ));
+    );
     
     // ---------- REPORTES ----------
-    public static final Set<Integer> REPORTES_READ = new HashSet<>(Arrays.asList(
+    public static final RoleSet REPORTES_READ = RoleSet.of(
         ADMIN, GERENTE, AUDITOR, ADMIN_FINANZAS, DIRECTOR, 
         TESORERIA, ANALISTA, SUPERVISOR
-    ));
+    );
     
-    public static final Set<Integer> REPORTES_FINANCIEROS = new HashSet<>(Arrays.asList(
+    public static final RoleSet REPORTES_FINANCIEROS = RoleSet.of(
         ADMIN, GERENTE, ADMIN_FINANZAS, DIRECTOR, TESORERIA
-    ));
+    );
     
     // ---------- USUARIOS ----------
-    public static final Set<Integer> USUARIOS_READ = new HashSet<>(Arrays.asList(
+    public static final RoleSet USUARIOS_READ = RoleSet.of(
         ADMIN, GERENTE, RRHH, DIRECTOR, SUPERVISOR
-    ));
+    );
     
-    public static final Set<Integer> USUARIOS_WRITE = new HashSet<>(Arrays.asList(
+    public static final RoleSet USUARIOS_WRITE = RoleSet.of(
         ADMIN, RRHH, DIRECTOR
-    ));
+    );
     
-    public static final Set<Integer> USUARIOS_DELETE = new HashSet<>(Arrays.asList(
+    public static final RoleSet USUARIOS_DELETE = RoleSet.of(
         ADMIN, DIRECTOR
-    ));
+    );
     
     // ---------- ROLES ----------
-    public static final Set<Integer> ROLES_MANAGE = new HashSet<>(Arrays.asList(
+    public static final RoleSet ROLES_MANAGE = RoleSet.of(
         ADMIN, DIRECTOR
-    ));
+    );
     
     // ==================== MÉTODOS DE UTILIDAD ====================
     
@@ -157,6 +156,9 @@ public class RolePermissions {
         if (roleId == null || allowedRoles == null) {
             return false;
         }
+        if (allowedRoles instanceof RoleSet) {
+            return ((RoleSet) allowedRoles).contains(roleId.intValue());
+        }
         return allowedRoles.contains(roleId);
     }
     
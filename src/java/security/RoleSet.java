@@ -0,0 +1,81 @@
+package security;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Conjunto inmutable de roles codificado como máscara de bits (bit n = roleId n)
+ * Verificar si un rol pertenece al conjunto es un desplazamiento y un AND,
+ * sin boxing ni hashing. Admite roleIds de 0 a 63.
+ */
+public final class RoleSet extends AbstractSet<Integer> {
+
+    public static final int MAX_ROLE_ID = 63;
+
+    private final long mask;
+
+    private RoleSet(long mask) {
+        this.mask = mask;
+    }
+
+    /**
+     * Crea el conjunto con los roles indicados
+     */
+    public static RoleSet of(int... roleIds) {
+        long mask = 0;
+        for (int roleId : roleIds) {
+            if (roleId < 0 || roleId > MAX_ROLE_ID) {
+                throw new IllegalArgumentException("roleId fuera de rango: " + roleId);
+            }
+            mask |= 1L << roleId;
+        }
+        return new RoleSet(mask);
+    }
+
+    /**
+     * Verifica si el rol pertenece al conjunto
+     */
+    public boolean contains(int roleId) {
+        return roleId >= 0 && roleId <= MAX_ROLE_ID && (mask & (1L << roleId)) != 0;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Integer && contains(((Integer) o).intValue());
+    }
+
+    /**
+     * Máscara de bits del conjunto
+     */
+    public long mask() {
+        return mask;
+    }
+
+    @Override
+    public int size() {
+        return Long.bitCount(mask);
+    }
+
+    @Override
+    public Iterator<Integer> iterator() {
+        return new Iterator<>() {
+            private long restantes = mask;
+
+            @Override
+            public boolean hasNext() {
+                return restantes != 0;
+            }
+
+            @Override
+            public Integer next() {
+                if (restantes == 0) {
+                    throw new NoSuchElementException();
+                }
+                int roleId = Long.numberOfTrailingZeros(restantes);
+                restantes &= restantes - 1;
+                return roleId;
+            }
+        };
+    }
+}
@@ -0,0 +1,202 @@
+package security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache acotado de tokens JWT ya verificados
+ * Evita repetir la verificación HMAC y el parseo de claims cuando un terminal
+ * envía el mismo token miles de veces. La clave es el SHA-256 del token
+ * (no se guarda el token en claro) y cada entrada caduca en el "exp" del token.
+ * Thread-safe usando ConcurrentHashMap
+ */
+public class TokenCache {
+
+    // Máximo de tokens en cache (configurable con JWT_CACHE_SIZE)
+    private static final int MAX_SIZE = Integer.parseInt(
+        System.getenv().getOrDefault("JWT_CACHE_SIZE", "10000"));
+
+    // Entradas examinadas por desalojo cuando el cache está lleno
+    private static final int EVICTION_SAMPLE = 8;
+
+    // Cache principal: hash del token -> claims verificados
+    private static final ConcurrentHashMap<String, TokenClaims> cache = new ConcurrentHashMap<>();
+
+    // Tokens revocados: hash del token -> expiración (ms); se descartan al expirar
+    private static final ConcurrentHashMap<String, Long> revoked = new ConcurrentHashMap<>();
+
+    // Estadísticas del cache (para monitoreo)
+    private static final AtomicLong cacheHits = new AtomicLong();
+    private static final AtomicLong cacheMisses = new AtomicLong();
+
+    /**
+     * Calcula la clave de cache de un token (SHA-256 en Base64)
+     */
+    public static String keyOf(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 está garantizado en toda JVM
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Obtiene los claims verificados de un token
+     * @param key clave calculada con keyOf
+     * @return los claims, o null si no están en cache o ya expiraron
+     */
+    public static TokenClaims get(String key) {
+        TokenClaims claims = cache.get(key);
+
+        if (claims != null && claims.isExpired()) {
+            cache.remove(key, claims);
+            claims = null;
+        }
+
+        if (claims != null) {
+            cacheHits.incrementAndGet();
+        } else {
+            cacheMisses.incrementAndGet();
+        }
+        return claims;
+    }
+
+    /**
+     * Guarda los claims de un token recién verificado
+     * Si el cache está lleno, desaloja una entrada de una muestra acotada
+     */
+    public static void put(String key, TokenClaims claims) {
+        if (MAX_SIZE <= 0 || claims.getExpiration() == null) {
+            return;
+        }
+
+        if (cache.size() >= MAX_SIZE) {
+            evictSample();
+        }
+
+        cache.put(key, claims);
+    }
+
+    /**
+     * Desaloja hasta EVICTION_SAMPLE entradas sin recorrer todo el cache:
+     * las expiradas de la muestra y, si no hay ninguna, la que expira antes.
+     * El costo por inserción es constante aunque el cache esté lleno.
+     */
+    private static void evictSample() {
+        Iterator<Map.Entry<String, TokenClaims>> it = cache.entrySet().iterator();
+        Map.Entry<String, TokenClaims> victim = null;
+        boolean removedExpired = false;
+
+        for (int i = 0; i < EVICTION_SAMPLE && it.hasNext(); i++) {
+            Map.Entry<String, TokenClaims> entry = it.next();
+            TokenClaims claims = entry.getValue();
+            if (claims.isExpired()) {
+                removedExpired |= cache.remove(entry.getKey(), claims);
+            } else if (victim == null
+                    || claims.getExpiration().before(victim.getValue().getExpiration())) {
+                victim = entry;
+            }
+        }
+
+        if (!removedExpired && victim != null) {
+            cache.remove(victim.getKey(), victim.getValue());
+        }
+    }
+
+    /**
+     * Revoca un token en esta instancia: se elimina del cache y se rechaza hasta su expiración
+     * Las demás instancias la reciben de revoked_tokens (ver RevokedTokenStore).
+     */
+    public static void revoke(String key, Date expiration) {
+        cache.remove(key);
+        revoked.put(key, expiration != null ? expiration.getTime() : Long.MAX_VALUE);
+    }
+
+    /**
+     * Verifica si un token fue revocado y aún no expira
+     */
+    public static boolean isRevoked(String key) {
+        if (revoked.isEmpty()) {
+            return false;
+        }
+
+        Long expiration = revoked.get(key);
+        if (expiration == null) {
+            return false;
+        }
+        if (expiration < System.currentTimeMillis()) {
+            revoked.remove(key, expiration);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Invalida todo el cache (no afecta a los tokens revocados)
+     */
+    public static void invalidateAll() {
+        cache.clear();
+    }
+
+    /**
+     * Limpia entradas expiradas del cache y de la lista de revocados
+     * RevokedTokenStore la ejecuta en cada sincronización
+     * @return Número de entradas eliminadas
+     */
+    public static int cleanExpired() {
+        int removed = 0;
+        long now = System.currentTimeMillis();
+
+        for (Map.Entry<String, TokenClaims> entry : cache.entrySet()) {
+            if (entry.getValue().isExpired() && cache.remove(entry.getKey(), entry.getValue())) {
+                removed++;
+            }
+        }
+
+        for (Map.Entry<String, Long> entry : revoked.entrySet()) {
+            if (entry.getValue() < now && revoked.remove(entry.getKey(), entry.getValue())) {
+                removed++;
+            }
+        }
+
+        return removed;
+    }
+
+    /**
+     * Número de tokens en cache
+     */
+    public static int size() {
+        return cache.size();
+    }
+
+    /**
+     * Obtiene estadísticas del cache
+     */
+    public static PermissionCache.CacheStats getStats() {
+        long hits = cacheHits.get();
+        long misses = cacheMisses.get();
+        return new PermissionCache.CacheStats(
+            cache.size(),
+            hits,
+            misses,
+            hits + misses > 0 ? (double) hits / (hits + misses) * 100 : 0
+        );
+    }
+
+    /**
+     * Resetea las estadísticas del cache
+     */
+    public static void resetStats() {
+        cacheHits.set(0);
+        cacheMisses.set(0);
+    }
+}
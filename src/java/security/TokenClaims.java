@@ -0,0 +1,49 @@
+package security;
+
+import java.util.Date;
+
+/**
+ * Claims de un token JWT ya verificado
+ * Se obtiene una sola vez por request en JwtAuthenticationFilter y se adjunta al request
+ * para que AuthorizationHelper y RateLimitFilter no vuelvan a parsear el token.
+ */
+public final class TokenClaims {
+
+    // Nombre del atributo del request donde se guardan los claims verificados
+    public static final String REQUEST_ATTRIBUTE = "tokenClaims";
+
+    private final Long userId;
+    private final Integer roleId;
+    private final String email;
+    private final Date expiration;
+
+    public TokenClaims(Long userId, Integer roleId, String email, Date expiration) {
+        this.userId = userId;
+        this.roleId = roleId;
+        this.email = email;
+        this.expiration = expiration;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public Integer getRoleId() {
+        return roleId;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public Date getExpiration() {
+        return expiration;
+    }
+
+    /**
+     * Verifica si el token ya expiró
+     */
+    public boolean isExpired() {
+        return expiration != null && expiration.before(new Date());
+    }
+}
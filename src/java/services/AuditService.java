@@ -3,6 +3,8 @@ package services;
 import config.DatabaseConfig;
 import model.AuditLog;
 import jakarta.servlet.http.HttpServletRequest;
+import utils.KeysetCursor;
+import utils.PagedResponse;
 
 import java.sql.*;
 import java.util.ArrayList;
@@ -10,37 +12,22 @@ import java.util.List;
 
 /**
  * Servicio para registro de auditoría
- * Registra todas las operaciones críticas del sistema
+ * Registra todas las operaciones críticas del sistema (la escritura es asíncrona, ver AuditWriter)
  */
 public class AuditService {
     
     /**
      * Registra una operación en el log de auditoría
+     * No espera a la base de datos: el evento se encola y AuditWriter lo inserta en lote.
+     * La fecha se toma aquí para que created_at refleje el momento de la operación.
      */
     public static void log(Long usuarioId, String usuarioEmail, String accion, String entidad, 
                           Long entidadId, String detalles, String ipAddress, String userAgent) {
-        String sql = "INSERT INTO audit_log (usuario_id, usuario_email, accion, entidad, " +
-                    "entidad_id, detalles, ip_address, user_agent) " +
-                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        AuditLog evento = new AuditLog(usuarioId, usuarioEmail, accion, entidad, 
+                                       entidadId, detalles, ipAddress, userAgent);
+        evento.setCreatedAt(new Timestamp(System.currentTimeMillis()));
         
-        try (Connection conn = DatabaseConfig.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setObject(1, usuarioId);
-            stmt.setString(2, usuarioEmail);
-            stmt.setString(3, accion);
-            stmt.setString(4, entidad);
-            stmt.setObject(5, entidadId);
-            stmt.setString(6, detalles);
-            stmt.setString(7, ipAddress);
-            stmt.setString(8, userAgent);
-            
-            stmt.executeUpdate();
-            
-        } catch (SQLException e) {
-            // No lanzar excepción para no interrumpir la operación principal
-            System.err.println("Error al registrar auditoría: " + e.getMessage());
-        }
+        AuditWriter.getInstance().enqueue(evento);
     }
     
     /**
@@ -85,6 +72,14 @@ public class AuditService {
             "Login exitoso", ipAddress, userAgent);
     }
     
+    /**
+     * Registra cierre de sesión
+     */
+    public static void logLogout(Long usuarioId, String usuarioEmail, String ipAddress, String userAgent) {
+        log(usuarioId, usuarioEmail, AuditLog.ACCION_LOGOUT, "USUARIO", usuarioId, 
+            "Sesión cerrada", ipAddress, userAgent);
+    }
+    
     /**
      * Registra intento de login fallido
      */
@@ -163,6 +158,49 @@ public class AuditService {
         return logs;
     }
     
+    /**
+     * Obtiene una página del log de auditoría por keyset (created_at DESC, id DESC)
+     * 
+     * @param cursor cursor opaco del último registro entregado, o null para la primera página
+     * @param size número de registros por página
+     * @throws IllegalArgumentException si el cursor es inválido
+     */
+    public static PagedResponse<AuditLog> getPage(String cursor, int size) throws SQLException {
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        String sql = "SELECT * FROM audit_log " +
+                    (after != null ? "WHERE created_at < ? OR (created_at = ? AND id < ?) " : "") +
+                    "ORDER BY created_at DESC, id DESC LIMIT ?";
+        List<AuditLog> logs = new ArrayList<>();
+        
+        try (Connection conn = DatabaseConfig.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            int idx = 1;
+            if (after != null) {
+                stmt.setTimestamp(idx++, after.getFecha());
+                stmt.setTimestamp(idx++, after.getFecha());
+                stmt.setLong(idx++, after.getId());
+            }
+            // Se pide una fila extra para saber si hay página siguiente
+            stmt.setInt(idx, size + 1);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    logs.add(mapResultSetToAuditLog(rs));
+                }
+            }
+        }
+        
+        String nextCursor = null;
+        if (logs.size() > size) {
+            logs.remove(size);
+            AuditLog ultimo = logs.get(size - 1);
+            nextCursor = KeysetCursor.encode(ultimo.getCreatedAt(), ultimo.getId());
+        }
+        
+        return new PagedResponse<>(logs, size, after != null ? cursor : null, nextCursor);
+    }
+    
     /**
      * Obtiene la IP del cliente desde el request
      */
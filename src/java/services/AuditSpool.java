@@ -0,0 +1,480 @@
+package services;
+
+import model.AuditLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Spool local de eventos de auditoría en segmentos mapeados en memoria
+ * Los eventos se agregan al final del segmento actual (append-only) y AuditWriter los
+ * reproduce en audit_log por lotes. La posición confirmada se guarda en el archivo
+ * "checkpoint", así que tras un reinicio se continúa donde se quedó. Cuando un segmento
+ * se llena se abre el siguiente, y los segmentos ya reproducidos se borran.
+ *
+ * Formato de cada registro: [longitud int][crc32 int][payload]. La longitud se escribe
+ * al final, por lo que un registro a medio escribir se lee como fin de datos.
+ * Los datos sobreviven a una caída del proceso (quedan en el page cache del sistema);
+ * force() se llama al cambiar de segmento y en cada ciclo del escritor.
+ *
+ * Cada segmento se mapea una sola vez mientras está entre el checkpoint y el último lote
+ * leído (o es el de escritura); el mapeo se libera al borrar el segmento.
+ */
+public class AuditSpool implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(AuditSpool.class);
+
+    private static final String PREFIJO = "audit-";
+    private static final String EXTENSION = ".seg";
+    private static final String CHECKPOINT = "checkpoint";
+    private static final int CABECERA = 8;
+
+    // Libera un mapeo sin esperar al GC (un segmento de 16 MB por mapeo)
+    private static final Consumer<ByteBuffer> LIBERADOR = liberador();
+
+    private final Path dir;
+    private final int segmentSize;
+    private final FileChannel checkpoint;
+
+    // Segmentos existentes (número de secuencia), del más antiguo al actual
+    private final TreeSet<Long> segmentos = new TreeSet<>();
+    // Mapeos vivos por segmento (lectura, lote pendiente y escritura)
+    private final TreeMap<Long, MappedByteBuffer> mapeos = new TreeMap<>();
+
+    // Segmento donde se escribe
+    private long escrituraSeq;
+    private MappedByteBuffer escritura;
+    private int escrituraPos;
+
+    // Posición confirmada (checkpoint) y segmento que se está leyendo
+    private long lecturaSeq;
+    private int lecturaPos;
+    private MappedByteBuffer lectura;
+
+    // Posición después del último lote entregado por peek(), pendiente de ack()
+    private long pendienteSeq;
+    private int pendientePos;
+    private int pendienteEventos;
+
+    private long backlog;
+    private boolean sucio;
+    private boolean cerrado;
+
+    /**
+     * Abre (o crea) el spool y recupera la posición del checkpoint
+     * @param segmentSize tamaño de cada segmento en bytes
+     */
+    public AuditSpool(Path dir, int segmentSize) throws IOException {
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(dir);
+
+        try (DirectoryStream<Path> archivos = Files.newDirectoryStream(dir, PREFIJO + "*" + EXTENSION)) {
+            for (Path archivo : archivos) {
+                String nombre = archivo.getFileName().toString();
+                segmentos.add(Long.parseLong(nombre.substring(PREFIJO.length(), nombre.length() - EXTENSION.length())));
+            }
+        }
+
+        this.checkpoint = FileChannel.open(dir.resolve(CHECKPOINT),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        // Leer el checkpoint (segmento + offset); si no existe se empieza por el segmento más antiguo
+        ByteBuffer cp = ByteBuffer.allocate(12);
+        if (checkpoint.read(cp, 0) == 12) {
+            cp.flip();
+            lecturaSeq = cp.getLong();
+            lecturaPos = cp.getInt();
+        } else {
+            lecturaSeq = segmentos.isEmpty() ? 1 : segmentos.first();
+            lecturaPos = 0;
+        }
+        if (!segmentos.isEmpty() && lecturaSeq < segmentos.first()) {
+            lecturaSeq = segmentos.first();
+            lecturaPos = 0;
+        }
+
+        // Segmentos anteriores al checkpoint ya se reprodujeron
+        borrarAnteriores(lecturaSeq);
+
+        if (segmentos.isEmpty()) {
+            escrituraSeq = lecturaSeq;
+            lecturaPos = 0;
+            segmentos.add(escrituraSeq);
+            escritura = mapeado(escrituraSeq);
+            escrituraPos = 0;
+        } else {
+            escrituraSeq = segmentos.last();
+            escritura = mapeado(escrituraSeq);
+            escrituraPos = finDeDatos(escritura, 0);
+        }
+
+        lectura = mapeado(lecturaSeq);
+        backlog = contarPendientes();
+        pendienteSeq = lecturaSeq;
+        pendientePos = lecturaPos;
+
+        log.info("Spool de auditoría abierto en {}. Segmentos: {}, Pendientes: {}", dir, segmentos.size(), backlog);
+    }
+
+    /**
+     * Agrega un evento al final del spool
+     * @throws IllegalArgumentException si el evento no cabe en un segmento
+     */
+    public synchronized void append(AuditLog evento) throws IOException {
+        abierto();
+        byte[] payload = codificar(evento);
+        int total = CABECERA + payload.length;
+        if (total > segmentSize) {
+            throw new IllegalArgumentException("Evento de auditoría demasiado grande para el spool: " + total + " bytes");
+        }
+
+        if (escrituraPos + total > segmentSize) {
+            rotar();
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        // Marca de fin después del registro (limpia restos de un registro incompleto anterior)
+        if (escrituraPos + total + 4 <= segmentSize) {
+            escritura.putInt(escrituraPos + total, 0);
+        }
+        escritura.put(escrituraPos + CABECERA, payload);
+        escritura.putInt(escrituraPos + 4, (int) crc.getValue());
+        // La longitud al final: hasta aquí el registro no es visible
+        escritura.putInt(escrituraPos, payload.length);
+
+        escrituraPos += total;
+        backlog++;
+        sucio = true;
+    }
+
+    /**
+     * Lee hasta max eventos a partir del checkpoint, sin confirmarlos
+     * Llamadas sucesivas sin ack() devuelven los mismos eventos.
+     */
+    public synchronized List<AuditLog> peek(int max) throws IOException {
+        abierto();
+        List<AuditLog> eventos = new ArrayList<>();
+        long seq = lecturaSeq;
+        int pos = lecturaPos;
+        MappedByteBuffer buffer = lectura;
+
+        while (eventos.size() < max) {
+            int len = pos + CABECERA <= segmentSize ? buffer.getInt(pos) : 0;
+            if (len <= 0 || pos + CABECERA + len > segmentSize || (seq == escrituraSeq && pos >= escrituraPos)) {
+                if (seq >= escrituraSeq) {
+                    break;
+                }
+                // Fin de un segmento ya cerrado: pasar al siguiente
+                seq = segmentos.higher(seq);
+                pos = 0;
+                // Queda mapeado hasta que ack() pase de él: repetir peek() no lo vuelve a mapear
+                buffer = mapeado(seq);
+                continue;
+            }
+
+            byte[] payload = new byte[len];
+            buffer.get(pos + CABECERA, payload);
+            eventos.add(decodificar(payload));
+            pos += CABECERA + len;
+        }
+
+        pendienteSeq = seq;
+        pendientePos = pos;
+        pendienteEventos = eventos.size();
+        return eventos;
+    }
+
+    /**
+     * Confirma el último lote de peek(): guarda el checkpoint y borra los segmentos terminados
+     */
+    public synchronized void ack() throws IOException {
+        abierto();
+        if (pendienteEventos == 0 && pendienteSeq == lecturaSeq) {
+            return;
+        }
+
+        ByteBuffer cp = ByteBuffer.allocate(12);
+        cp.putLong(pendienteSeq).putInt(pendientePos).flip();
+        checkpoint.write(cp, 0);
+        checkpoint.force(false);
+
+        if (pendienteSeq != lecturaSeq) {
+            lectura = mapeado(pendienteSeq);
+            borrarAnteriores(pendienteSeq);
+        }
+        lecturaSeq = pendienteSeq;
+        lecturaPos = pendientePos;
+        backlog -= pendienteEventos;
+        pendienteEventos = 0;
+    }
+
+    /**
+     * Baja a disco lo escrito desde la última llamada
+     */
+    public synchronized void force() {
+        if (sucio) {
+            escritura.force();
+            sucio = false;
+        }
+    }
+
+    /**
+     * Eventos en el spool pendientes de reproducir
+     */
+    public synchronized long backlog() {
+        return backlog;
+    }
+
+    /**
+     * Número de segmentos en disco
+     */
+    public synchronized int segments() {
+        return segmentos.size();
+    }
+
+    /**
+     * Número de segmentos mapeados en memoria
+     */
+    synchronized int mappedSegments() {
+        return mapeos.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (cerrado) {
+            return;
+        }
+        force();
+        cerrado = true;
+        // Sin referencias a los buffers liberados: un acceso posterior tumbaría la JVM
+        escritura = null;
+        lectura = null;
+        for (MappedByteBuffer buffer : mapeos.values()) {
+            LIBERADOR.accept(buffer);
+        }
+        mapeos.clear();
+        checkpoint.close();
+    }
+
+    private void abierto() throws IOException {
+        if (cerrado) {
+            throw new IOException("Spool de auditoría cerrado");
+        }
+    }
+
+    private void rotar() throws IOException {
+        escritura.force();
+        long anterior = escrituraSeq;
+        escrituraSeq++;
+        segmentos.add(escrituraSeq);
+        escritura = mapeado(escrituraSeq);
+        escrituraPos = 0;
+        sucio = false;
+        // El segmento cerrado se vuelve a mapear cuando el lector llegue a él
+        if (anterior > pendienteSeq) {
+            liberar(anterior);
+        }
+        log.debug("Spool de auditoría: nuevo segmento {}", escrituraSeq);
+    }
+
+    /**
+     * Mapeo del segmento, reutilizando el existente
+     */
+    private MappedByteBuffer mapeado(long seq) throws IOException {
+        MappedByteBuffer buffer = mapeos.get(seq);
+        if (buffer == null) {
+            buffer = mapear(seq);
+            mapeos.put(seq, buffer);
+        }
+        return buffer;
+    }
+
+    private void liberar(long seq) {
+        MappedByteBuffer buffer = mapeos.remove(seq);
+        if (buffer != null) {
+            LIBERADOR.accept(buffer);
+        }
+    }
+
+    private MappedByteBuffer mapear(long seq) throws IOException {
+        try (FileChannel canal = FileChannel.open(segmento(seq),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // El mapeo sigue siendo válido después de cerrar el canal
+            return canal.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+    }
+
+    private Path segmento(long seq) {
+        return dir.resolve(String.format("%s%020d%s", PREFIJO, seq, EXTENSION));
+    }
+
+    private void borrarAnteriores(long seq) {
+        while (!segmentos.isEmpty() && segmentos.first() < seq) {
+            long viejo = segmentos.pollFirst();
+            liberar(viejo);
+            try {
+                Files.deleteIfExists(segmento(viejo));
+            } catch (IOException e) {
+                log.warn("No se pudo borrar el segmento de auditoría {}: {}", viejo, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Recorre los registros válidos desde pos y devuelve la posición del final de los datos
+     */
+    private int finDeDatos(MappedByteBuffer buffer, int pos) {
+        while (pos + CABECERA <= segmentSize) {
+            int len = buffer.getInt(pos);
+            if (len <= 0 || pos + CABECERA + len > segmentSize) {
+                break;
+            }
+            byte[] payload = new byte[len];
+            buffer.get(pos + CABECERA, payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != buffer.getInt(pos + 4)) {
+                log.warn("Registro de auditoría incompleto en el segmento {} (offset {}), se descarta", escrituraSeq, pos);
+                break;
+            }
+            pos += CABECERA + len;
+        }
+        return pos;
+    }
+
+    private long contarPendientes() throws IOException {
+        long total = 0;
+        for (long seq : segmentos.tailSet(lecturaSeq)) {
+            MappedByteBuffer buffer = mapeado(seq);
+            int pos = seq == lecturaSeq ? lecturaPos : 0;
+            int fin = seq == escrituraSeq ? escrituraPos : segmentSize;
+            while (pos + CABECERA <= fin) {
+                int len = buffer.getInt(pos);
+                if (len <= 0 || pos + CABECERA + len > fin) {
+                    break;
+                }
+                total++;
+                pos += CABECERA + len;
+            }
+            if (seq != lecturaSeq && seq != escrituraSeq) {
+                liberar(seq);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Unmap explícito con sun.misc.Unsafe.invokeCleaner (módulo jdk.unsupported)
+     * Si no está disponible los mapeos se liberan cuando el GC recolecta el buffer.
+     */
+    private static Consumer<ByteBuffer> liberador() {
+        try {
+            Class<?> clase = Class.forName("sun.misc.Unsafe");
+            Field campo = clase.getDeclaredField("theUnsafe");
+            campo.setAccessible(true);
+            Object unsafe = campo.get(null);
+            Method invokeCleaner = clase.getMethod("invokeCleaner", ByteBuffer.class);
+            return buffer -> {
+                try {
+                    invokeCleaner.invoke(unsafe, buffer);
+                } catch (ReflectiveOperationException e) {
+                    log.debug("No se pudo liberar un mapeo del spool: {}", e.getMessage());
+                }
+            };
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.warn("Los mapeos del spool de auditoría quedan a cargo del GC: {}", e.getMessage());
+            return buffer -> { };
+        }
+    }
+
+    // ==================== Codificación ====================
+
+    private static byte[] codificar(AuditLog e) {
+        ByteBuffer buffer = ByteBuffer.allocate(64 + longitud(e.getUsuarioEmail()) + longitud(e.getAccion())
+            + longitud(e.getEntidad()) + longitud(e.getDetalles()) + longitud(e.getIpAddress()) + longitud(e.getUserAgent()));
+        putLong(buffer, e.getUsuarioId());
+        putString(buffer, e.getUsuarioEmail());
+        putString(buffer, e.getAccion());
+        putString(buffer, e.getEntidad());
+        putLong(buffer, e.getEntidadId());
+        putString(buffer, e.getDetalles());
+        putString(buffer, e.getIpAddress());
+        putString(buffer, e.getUserAgent());
+        buffer.putLong(e.getCreatedAt() != null ? e.getCreatedAt().getTime() : System.currentTimeMillis());
+
+        byte[] bytes = new byte[buffer.position()];
+        buffer.flip().get(bytes);
+        return bytes;
+    }
+
+    private static AuditLog decodificar(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        AuditLog e = new AuditLog();
+        e.setUsuarioId(getLong(buffer));
+        e.setUsuarioEmail(getString(buffer));
+        e.setAccion(getString(buffer));
+        e.setEntidad(getString(buffer));
+        e.setEntidadId(getLong(buffer));
+        e.setDetalles(getString(buffer));
+        e.setIpAddress(getString(buffer));
+        e.setUserAgent(getString(buffer));
+        e.setCreatedAt(new Timestamp(buffer.getLong()));
+        return e;
+    }
+
+    private static int longitud(String s) {
+        // Peor caso UTF-8: 3 bytes por char (los pares sustitutos ocupan 4 bytes en 2 chars)
+        return s != null ? s.length() * 3 : 0;
+    }
+
+    private static void putLong(ByteBuffer buffer, Long valor) {
+        buffer.put((byte) (valor != null ? 1 : 0));
+        buffer.putLong(valor != null ? valor : 0L);
+    }
+
+    private static Long getLong(ByteBuffer buffer) {
+        boolean presente = buffer.get() == 1;
+        long valor = buffer.getLong();
+        return presente ? valor : null;
+    }
+
+    private static void putString(ByteBuffer buffer, String valor) {
+        if (valor == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        byte[] bytes = valor.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int len = buffer.getInt();
+        if (len < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[len];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,463 @@
+package services;
+
+import config.DatabaseConfig;
+import model.AuditLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Escritor asíncrono del log de auditoría
+ * Los servlets encolan los eventos en una cola acotada y un hilo de fondo los inserta
+ * en lotes JDBC cada BATCH_SIZE registros o cada FLUSH_MS milisegundos, así el request
+ * no espera el INSERT. Si la cola está llena se espera OFFER_TIMEOUT_MS (back-pressure)
+ * y después el evento se descarta y se cuenta. Al apagar la aplicación se vacía la cola.
+ *
+ * Con AUDIT_SPOOL_DIR los eventos se escriben primero en un spool local (AuditSpool) y el
+ * hilo los reproduce desde ahí: si MySQL está lento o caído los eventos esperan en disco
+ * y se reintenta con espera exponencial, sin bloquear las ventas ni perder registros.
+ */
+public class AuditWriter {
+    private static final Logger log = LoggerFactory.getLogger(AuditWriter.class);
+
+    // Capacidad de la cola (configurable con AUDIT_QUEUE_SIZE)
+    private static final int QUEUE_SIZE = Integer.parseInt(
+        System.getenv().getOrDefault("AUDIT_QUEUE_SIZE", "10000"));
+
+    // Registros por lote (configurable con AUDIT_BATCH_SIZE)
+    private static final int BATCH_SIZE = Integer.parseInt(
+        System.getenv().getOrDefault("AUDIT_BATCH_SIZE", "200"));
+
+    // Tiempo máximo que un evento espera en la cola antes de escribirse (configurable con AUDIT_FLUSH_MS)
+    private static final long FLUSH_MS = Long.parseLong(
+        System.getenv().getOrDefault("AUDIT_FLUSH_MS", "500"));
+
+    // Espera máxima del request cuando la cola está llena antes de descartar el evento
+    private static final long OFFER_TIMEOUT_MS = 5;
+
+    // Tiempo máximo para vaciar la cola al apagar
+    private static final long SHUTDOWN_TIMEOUT_MS = 10000;
+
+    // Directorio del spool local (configurable con AUDIT_SPOOL_DIR; vacío = solo cola en memoria)
+    private static final String SPOOL_DIR = System.getenv().getOrDefault("AUDIT_SPOOL_DIR", "");
+
+    // Tamaño de cada segmento del spool en MB (configurable con AUDIT_SPOOL_SEGMENT_MB)
+    private static final int SPOOL_SEGMENT_MB = Integer.parseInt(
+        System.getenv().getOrDefault("AUDIT_SPOOL_SEGMENT_MB", "16"));
+
+    // Espera máxima entre reintentos cuando la BD no responde
+    private static final long MAX_BACKOFF_MS = 5000;
+
+    private static final String SQL_INSERT =
+        "INSERT INTO audit_log (usuario_id, usuario_email, accion, entidad, " +
+        "entidad_id, detalles, ip_address, user_agent, created_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * Destino de los lotes (la base de datos en producción)
+     */
+    interface BatchSink {
+        void write(List<AuditLog> lote) throws SQLException;
+    }
+
+    // Marca que se encola al apagar para despertar al escritor si está esperando
+    private static final AuditLog FIN = new AuditLog();
+
+    private static volatile AuditWriter instance;
+
+    private final BlockingQueue<AuditLog> queue;
+    private final int batchSize;
+    private final long flushMs;
+    private final BatchSink sink;
+    private final AuditSpool spool;
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    // Contadores (para monitoreo)
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+
+    private AuditWriter() {
+        this(QUEUE_SIZE, BATCH_SIZE, FLUSH_MS, AuditWriter::insertarLote, abrirSpool());
+    }
+
+    AuditWriter(int capacity, int batchSize, long flushMs, BatchSink sink) {
+        this(capacity, batchSize, flushMs, sink, null);
+    }
+
+    AuditWriter(int capacity, int batchSize, long flushMs, BatchSink sink, AuditSpool spool) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.flushMs = flushMs;
+        this.sink = sink;
+        this.spool = spool;
+        this.writerThread = new Thread(this::run, "audit-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Obtiene la instancia única (arranca el hilo escritor en el primer uso)
+     */
+    public static AuditWriter getInstance() {
+        if (instance == null) {
+            synchronized (AuditWriter.class) {
+                if (instance == null) {
+                    instance = new AuditWriter();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Abre el spool configurado en AUDIT_SPOOL_DIR
+     * @return el spool, o null si no está configurado o no se pudo abrir (se usa solo la cola)
+     */
+    private static AuditSpool abrirSpool() {
+        if (SPOOL_DIR.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return new AuditSpool(Paths.get(SPOOL_DIR), SPOOL_SEGMENT_MB * 1024 * 1024);
+        } catch (IOException | RuntimeException e) {
+            log.error("No se pudo abrir el spool de auditoría en {}, se usará solo la cola en memoria: {}",
+                SPOOL_DIR, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Encola un evento de auditoría
+     * @return false si se descartó (cola llena o escritor detenido)
+     */
+    public boolean enqueue(AuditLog evento) {
+        if (running && spool != null) {
+            try {
+                spool.append(evento);
+                enqueued.incrementAndGet();
+                return true;
+            } catch (IOException | IllegalArgumentException e) {
+                log.warn("No se pudo escribir en el spool de auditoría, se usa la cola en memoria: {}", e.getMessage());
+            }
+        }
+
+        if (running) {
+            try {
+                if (queue.offer(evento, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    enqueued.incrementAndGet();
+                    return true;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        long total = dropped.incrementAndGet();
+        // Avisar en el primer descarte y luego cada 1000 para no saturar el log
+        if (total == 1 || total % 1000 == 0) {
+            log.warn("Cola de auditoría llena o detenida, eventos descartados: {}", total);
+        }
+        return false;
+    }
+
+    /**
+     * Detiene el escritor después de escribir los eventos pendientes
+     * Lo invoca Spring al cerrar el contexto, antes de cerrar el pool de conexiones.
+     */
+    public void shutdown() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        // Si la cola está llena no hace falta: el escritor no está esperando
+        queue.offer(FIN);
+
+        try {
+            writerThread.join(flushMs + SHUTDOWN_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (writerThread.isAlive()) {
+            log.warn("El escritor de auditoría no terminó a tiempo. Pendientes: {}", queue.size());
+        } else {
+            log.info("Escritor de auditoría detenido. {}", getStats());
+        }
+    }
+
+    /**
+     * Bucle del hilo escritor: junta un lote y lo escribe
+     */
+    private void run() {
+        if (spool != null) {
+            reproducirSpool();
+            return;
+        }
+
+        List<AuditLog> lote = new ArrayList<>(batchSize);
+        boolean interrumpido = false;
+
+        while (running || !queue.isEmpty()) {
+            try {
+                AuditLog primero = queue.poll(flushMs, TimeUnit.MILLISECONDS);
+                if (primero == null || primero == FIN) {
+                    continue;
+                }
+                lote.add(primero);
+
+                // Completar el lote hasta batchSize o hasta que pasen flushMs desde el primer evento
+                long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushMs);
+                while (lote.size() < batchSize && running) {
+                    if (queue.drainTo(lote, batchSize - lote.size()) > 0) {
+                        continue;
+                    }
+                    long restante = limite - System.nanoTime();
+                    AuditLog siguiente = restante > 0 ? queue.poll(restante, TimeUnit.NANOSECONDS) : null;
+                    if (siguiente == null || siguiente == FIN) {
+                        break;
+                    }
+                    lote.add(siguiente);
+                }
+                // Al apagar no se espera: se escribe lo que haya
+                queue.drainTo(lote, batchSize - lote.size());
+                lote.removeIf(evento -> evento == FIN);
+            } catch (InterruptedException e) {
+                // Se trata como un apagado: se sigue vaciando la cola con drainTo
+                interrumpido = true;
+                running = false;
+                queue.drainTo(lote, batchSize - lote.size());
+                lote.removeIf(evento -> evento == FIN);
+            }
+
+            escribir(lote);
+            lote.clear();
+        }
+
+        if (interrumpido) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void escribir(List<AuditLog> lote) {
+        if (lote.isEmpty()) {
+            return;
+        }
+        try {
+            sink.write(lote);
+            written.addAndGet(lote.size());
+            batches.incrementAndGet();
+        } catch (Exception e) {
+            // No se reintenta: un error de BD no debe acumular eventos sin límite
+            failed.addAndGet(lote.size());
+            log.error("Error al escribir lote de auditoría ({} registros): {}", lote.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Bucle del hilo escritor con spool: reproduce el spool en la BD por lotes
+     * El checkpoint solo avanza después de escribir el lote; si la BD falla se reintenta
+     * el mismo lote con espera exponencial. Al apagar, lo que no se pudo escribir queda
+     * en el spool para el siguiente arranque.
+     */
+    private void reproducirSpool() {
+        List<AuditLog> memoria = new ArrayList<>();
+        long espera = flushMs;
+
+        while (true) {
+            boolean lleno = false;
+            boolean error = false;
+            try {
+                // Eventos que no entraron al spool (error de disco): mismo trato que sin spool
+                queue.drainTo(memoria, batchSize);
+                memoria.removeIf(evento -> evento == FIN);
+                escribir(memoria);
+                memoria.clear();
+
+                spool.force();
+                List<AuditLog> lote = spool.peek(batchSize);
+                if (!lote.isEmpty()) {
+                    reproducir(lote);
+                    spool.ack();
+                    lleno = lote.size() == batchSize;
+                }
+                espera = flushMs;
+            } catch (SQLException | IOException | RuntimeException e) {
+                error = true;
+                log.warn("No se pudo reproducir el spool de auditoría, reintento en {} ms. Pendientes: {}. Error: {}",
+                    espera, spool.backlog(), e.getMessage());
+            }
+
+            if (!running && (error || (!lleno && queue.isEmpty()))) {
+                break;
+            }
+            if (lleno) {
+                continue;
+            }
+
+            try {
+                AuditLog evento = queue.poll(espera, TimeUnit.MILLISECONDS);
+                if (evento != null && evento != FIN) {
+                    memoria.add(evento);
+                }
+            } catch (InterruptedException e) {
+                running = false;
+            }
+            if (error) {
+                espera = Math.min(espera * 2, MAX_BACKOFF_MS);
+            }
+        }
+
+        try {
+            spool.close();
+        } catch (IOException e) {
+            log.warn("Error al cerrar el spool de auditoría: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Escribe un lote del spool; relanza solo los errores transitorios (conexión, timeout)
+     * Si el lote falla por un dato inválido se reintenta evento por evento y los inválidos
+     * se cuentan como fallidos, para que un solo evento no detenga el spool.
+     */
+    private void reproducir(List<AuditLog> lote) throws SQLException {
+        try {
+            sink.write(lote);
+            written.addAndGet(lote.size());
+            replayed.addAndGet(lote.size());
+            batches.incrementAndGet();
+            return;
+        } catch (SQLException e) {
+            if (esTransitorio(e)) {
+                throw e;
+            }
+            log.warn("Lote de auditoría rechazado, se reintenta evento por evento: {}", e.getMessage());
+        }
+
+        for (AuditLog evento : lote) {
+            try {
+                sink.write(Collections.singletonList(evento));
+                written.incrementAndGet();
+            } catch (SQLException e) {
+                if (esTransitorio(e)) {
+                    throw e;
+                }
+                failed.incrementAndGet();
+                log.error("Evento de auditoría descartado ({} {}): {}", evento.getAccion(), evento.getEntidad(), e.getMessage());
+            }
+            replayed.incrementAndGet();
+        }
+        batches.incrementAndGet();
+    }
+
+    private static boolean esTransitorio(SQLException e) {
+        String estado = e.getSQLState();
+        return e instanceof SQLTransientException
+            || e instanceof SQLRecoverableException
+            || (estado != null && estado.startsWith("08"));
+    }
+
+    /**
+     * Inserta un lote en audit_log con un batch JDBC en una sola transacción
+     */
+    private static void insertarLote(List<AuditLog> lote) throws SQLException {
+        try (Connection conn = DatabaseConfig.getInstance().getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(SQL_INSERT)) {
+                for (AuditLog evento : lote) {
+                    stmt.setObject(1, evento.getUsuarioId());
+                    stmt.setString(2, evento.getUsuarioEmail());
+                    stmt.setString(3, evento.getAccion());
+                    stmt.setString(4, evento.getEntidad());
+                    stmt.setObject(5, evento.getEntidadId());
+                    stmt.setString(6, evento.getDetalles());
+                    stmt.setString(7, evento.getIpAddress());
+                    stmt.setString(8, evento.getUserAgent());
+                    stmt.setTimestamp(9, evento.getCreatedAt());
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Eventos esperando en la cola
+     */
+    public int pending() {
+        return queue.size();
+    }
+
+    /**
+     * Spool local, o null si no está configurado
+     */
+    public AuditSpool getSpool() {
+        return spool;
+    }
+
+    /**
+     * Obtiene estadísticas del escritor
+     */
+    public Stats getStats() {
+        return new Stats(queue.size(), spool != null ? spool.backlog() : 0, enqueued.get(), written.get(),
+                         replayed.get(), dropped.get(), failed.get(), batches.get());
+    }
+
+    /**
+     * Estadísticas del escritor de auditoría
+     */
+    public static class Stats {
+        public final int pending;
+        public final long backlog;
+        public final long enqueued;
+        public final long written;
+        public final long replayed;
+        public final long dropped;
+        public final long failed;
+        public final long batches;
+
+        Stats(int pending, long backlog, long enqueued, long written, long replayed,
+              long dropped, long failed, long batches) {
+            this.pending = pending;
+            this.backlog = backlog;
+            this.enqueued = enqueued;
+            this.written = written;
+            this.replayed = replayed;
+            this.dropped = dropped;
+            this.failed = failed;
+            this.batches = batches;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                "AuditStats{pending=%d, backlog=%d, enqueued=%d, written=%d, replayed=%d, dropped=%d, failed=%d, batches=%d}",
+                pending, backlog, enqueued, written, replayed, dropped, failed, batches
+            );
+        }
+    }
+}
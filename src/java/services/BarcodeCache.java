@@ -0,0 +1,516 @@
+package services;
+
+import config.DatabaseConfig;
+import model.Producto;
+import model.ProductoScan;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Cache de productos por código de barras para el escaneo en caja
+ * Los códigos numéricos (EAN-13, UPC-A, GTIN-14) se normalizan a long y se buscan en una
+ * tabla de direccionamiento abierto long -> posición, sin Strings ni boxing; los ceros a la
+ * izquierda no cuentan, así un UPC-A y su EAN-13 equivalente encuentran el mismo producto.
+ * Los códigos alfanuméricos van a un HashMap aparte.
+ *
+ * La tabla es inmutable y se reemplaza entera (copy-on-write) cuando cambian los códigos:
+ * al crear, modificar o desactivar un producto. Los cambios de stock con cantidad conocida
+ * (ventas, compras, cancelaciones) se suman al registro en cache tras el commit; los demás
+ * (stock fijado a mano) invalidan el registro, que se relee por ID en el siguiente escaneo.
+ * Se precarga al arrancar (ver DataSourceConfig) y se reconstruye en segundo plano cada
+ * BARCODE_CACHE_REFRESH_SEC para recoger lo que esta instancia no ve: cambios de otras
+ * instancias de la API y ediciones directas en la base.
+ */
+public class BarcodeCache {
+
+    private static final long VACIO = -1;
+    // 18 dígitos siempre caben en un long
+    private static final int MAX_DIGITOS = 18;
+
+    // Cada cuánto se reconstruye la tabla completa desde la base
+    private static final long REFRESH_MS = TimeUnit.SECONDS.toMillis(
+        Long.parseLong(System.getenv().getOrDefault("BARCODE_CACHE_REFRESH_SEC", "60")));
+
+    private static final BarcodeCache instance = new BarcodeCache(new JdbcLoader());
+
+    /**
+     * Fuente de los registros (la base de datos fuera de los tests)
+     */
+    interface Loader {
+        List<ProductoScan> loadAll() throws SQLException;
+
+        /**
+         * @return el registro del producto, o null si no existe o está inactivo
+         */
+        ProductoScan loadById(long id) throws SQLException;
+    }
+
+    /**
+     * Cambio de stock en curso: estado del cache antes del commit y cantidades por producto
+     */
+    public static final class StockChange {
+        private final Tabla tabla;
+        private final Map<Long, Integer> deltas;
+        // ID -> número de relecturas de su registro al empezar (solo los que estaban en cache)
+        private final Map<Long, Long> relecturas;
+
+        private StockChange(Tabla tabla, Map<Long, Integer> deltas, Map<Long, Long> relecturas) {
+            this.tabla = tabla;
+            this.deltas = deltas;
+            this.relecturas = relecturas;
+        }
+    }
+
+    private final Loader loader;
+    private volatile Tabla tabla;
+
+    private volatile long cargadaEn;
+    private final AtomicBoolean recargando = new AtomicBoolean();
+    // IDs con stock escrito desde que empezó la recarga en curso (null si no hay recarga o si
+    // cambió algún código y hay que descartarla; guardado por el lock)
+    private Set<Long> escritosDuranteRecarga;
+
+    BarcodeCache(Loader loader) {
+        this.loader = loader;
+    }
+
+    public static BarcodeCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Precarga todos los productos activos con código de barras
+     * Si la base no está disponible se carga en el primer escaneo
+     */
+    public void warmUp() {
+        try {
+            long inicio = System.currentTimeMillis();
+            List<ProductoScan> registros = loader.loadAll();
+            synchronized (this) {
+                tabla = Tabla.construir(registros);
+                cargadaEn = System.currentTimeMillis();
+            }
+            System.out.println("🏷️ Cache de códigos de barras cargado: " + registros.size() + " productos en "
+                + (System.currentTimeMillis() - inicio) + " ms");
+        } catch (SQLException e) {
+            System.err.println("⚠️ No se pudo precargar el cache de códigos de barras: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Busca un producto activo por código de barras
+     * @return el registro, o null si ningún producto activo tiene ese código
+     */
+    public ProductoScan find(String codigoBarras) throws SQLException {
+        Tabla t = cargada();
+        int pos = t.posicion(codigoBarras);
+        if (pos < 0) {
+            return null;
+        }
+
+        ProductoScan registro = t.registros.get(pos);
+        if (registro != null) {
+            return registro;
+        }
+
+        // Registro invalidado por un cambio de stock: releerlo por ID
+        long version = t.versiones.get(pos);
+        registro = loader.loadById(t.ids[pos]);
+        if (registro == null) {
+            return null;
+        }
+        synchronized (this) {
+            // Si hubo otra escritura mientras se leía, no guardar un valor que puede ser viejo
+            if (tabla == t && t.versiones.get(pos) == version) {
+                t.registros.set(pos, registro);
+                t.relecturas.incrementAndGet(pos);
+            }
+        }
+        return registro;
+    }
+
+    /**
+     * Registra el alta o modificación de un producto (reconstruye la tabla)
+     */
+    public synchronized void put(Producto producto) {
+        if (tabla == null || producto.getId() == null) {
+            return;
+        }
+        escritosDuranteRecarga = null;
+        boolean activo = producto.getActivo() == null || producto.getActivo();
+        ProductoScan registro = activo && producto.getCodigoBarras() != null
+            ? new ProductoScan(producto.getId(), producto.getNombre(), producto.getPrecio(),
+                producto.getStock() != null ? producto.getStock() : 0, producto.getCodigoBarras())
+            : null;
+        tabla = tabla.reemplazar(producto.getId(), registro);
+    }
+
+    /**
+     * Quita un producto (desactivado o eliminado)
+     */
+    public synchronized void remove(long productoId) {
+        if (tabla != null) {
+            escritosDuranteRecarga = null;
+            tabla = tabla.reemplazar(productoId, null);
+        }
+    }
+
+    /**
+     * Invalida el registro de productos cuyo stock cambió
+     */
+    public synchronized void invalidate(Collection<Long> productoIds) {
+        Tabla t = tabla;
+        if (t == null) {
+            return;
+        }
+        if (escritosDuranteRecarga != null) {
+            escritosDuranteRecarga.addAll(productoIds);
+        }
+        for (Long id : productoIds) {
+            Integer pos = id != null ? t.porId.get(id) : null;
+            if (pos != null) {
+                t.versiones.incrementAndGet(pos);
+                t.registros.set(pos, null);
+            }
+        }
+    }
+
+    /**
+     * Registra el estado del cache antes de confirmar un cambio de stock
+     * Llamar antes del commit y, una vez confirmado, pasar el resultado a applyStockChange.
+     * @param deltas ID de producto -> unidades sumadas (negativas si salen)
+     */
+    public synchronized StockChange beginStockChange(Map<Long, Integer> deltas) {
+        Tabla t = tabla;
+        Map<Long, Long> relecturas = new HashMap<>();
+        if (t != null) {
+            for (Long id : deltas.keySet()) {
+                Integer pos = t.porId.get(id);
+                if (pos != null && t.registros.get(pos) != null) {
+                    relecturas.put(id, t.relecturas.get(pos));
+                }
+            }
+        }
+        return new StockChange(t, deltas, relecturas);
+    }
+
+    /**
+     * Suma al stock en cache las cantidades ya confirmadas en la base
+     * Si el registro se releyó desde beginStockChange su valor puede incluir ya el cambio:
+     * en ese caso (o si no estaba en cache o la tabla se reconstruyó) se invalida.
+     */
+    public synchronized void applyStockChange(StockChange cambio) {
+        Tabla t = tabla;
+        if (t == null) {
+            return;
+        }
+        if (escritosDuranteRecarga != null) {
+            escritosDuranteRecarga.addAll(cambio.deltas.keySet());
+        }
+        List<Long> invalidar = new ArrayList<>();
+        for (Map.Entry<Long, Integer> delta : cambio.deltas.entrySet()) {
+            Integer pos = t.porId.get(delta.getKey());
+            if (pos == null) {
+                continue;
+            }
+            ProductoScan registro = t.registros.get(pos);
+            Long relecturas = cambio.relecturas.get(delta.getKey());
+            if (t == cambio.tabla && registro != null && relecturas != null && t.relecturas.get(pos) == relecturas) {
+                // La versión descarta las relecturas en vuelo, que pueden ser anteriores al commit
+                t.versiones.incrementAndGet(pos);
+                t.registros.set(pos, registro.withStock(registro.getStock() + delta.getValue()));
+            } else {
+                invalidar.add(delta.getKey());
+            }
+        }
+        invalidate(invalidar);
+    }
+
+    /**
+     * Número de productos en cache
+     */
+    public int size() {
+        Tabla t = tabla;
+        return t != null ? t.ids.length : 0;
+    }
+
+    private Tabla cargada() throws SQLException {
+        Tabla t = tabla;
+        if (t != null) {
+            if (System.currentTimeMillis() - cargadaEn > REFRESH_MS && recargando.compareAndSet(false, true)) {
+                Thread hilo = new Thread(this::recargar, "barcode-cache-refresh");
+                hilo.setDaemon(true);
+                hilo.start();
+            }
+            return t;
+        }
+        synchronized (this) {
+            if (tabla == null) {
+                tabla = Tabla.construir(loader.loadAll());
+                cargadaEn = System.currentTimeMillis();
+            }
+            return tabla;
+        }
+    }
+
+    /**
+     * Reconstruye la tabla desde la base sin bloquear los escaneos ni las escrituras
+     * Los productos con stock escrito por esta instancia durante la lectura se invalidan en
+     * la tabla nueva (la lectura puede ser anterior); si cambió algún código se descarta.
+     */
+    void recargar() {
+        Set<Long> escritos = new HashSet<>();
+        synchronized (this) {
+            escritosDuranteRecarga = escritos;
+        }
+        try {
+            List<ProductoScan> registros = loader.loadAll();
+            synchronized (this) {
+                if (escritosDuranteRecarga == escritos) {
+                    Tabla nueva = Tabla.construir(registros);
+                    for (Long id : escritos) {
+                        Integer pos = nueva.porId.get(id);
+                        if (pos != null) {
+                            nueva.registros.set(pos, null);
+                        }
+                    }
+                    tabla = nueva;
+                }
+            }
+        } catch (SQLException e) {
+            // Se sigue usando la tabla actual; se reintenta en el siguiente intervalo
+            System.err.println("⚠️ Error al recargar el cache de códigos de barras: " + e.getMessage());
+        } finally {
+            synchronized (this) {
+                if (escritosDuranteRecarga == escritos) {
+                    escritosDuranteRecarga = null;
+                }
+            }
+            cargadaEn = System.currentTimeMillis();
+            recargando.set(false);
+        }
+    }
+
+    /**
+     * Código numérico normalizado, o VACIO si el código no es numérico
+     * Se ignoran espacios y guiones.
+     */
+    static long claveNumerica(String codigo) {
+        if (codigo == null) {
+            return VACIO;
+        }
+        long valor = 0;
+        int digitos = 0;
+        for (int i = 0; i < codigo.length(); i++) {
+            char c = codigo.charAt(i);
+            if (c == ' ' || c == '-') {
+                continue;
+            }
+            if (c < '0' || c > '9' || ++digitos > MAX_DIGITOS) {
+                return VACIO;
+            }
+            valor = valor * 10 + (c - '0');
+        }
+        return digitos > 0 ? valor : VACIO;
+    }
+
+    private static String claveAlfanumerica(String codigo) {
+        return codigo.replace(" ", "").replace("-", "").toUpperCase(Locale.ROOT);
+    }
+
+    private static int hash(long clave) {
+        // Finalizador de MurmurHash3 para repartir códigos consecutivos
+        long h = clave;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    /**
+     * Tabla inmutable de códigos; solo los registros (y su versión) cambian en sitio
+     */
+    private static final class Tabla {
+        // Código numérico -> posición (direccionamiento abierto, factor de carga <= 1/2)
+        final long[] claves;
+        final int[] posiciones;
+        // Códigos alfanuméricos -> posición
+        final Map<String, Integer> alfanumericos;
+
+        // Por posición: ID de producto, código original, registro (null = invalidado), versión
+        // (cambia con cada escritura de stock) y número de veces que se releyó de la base
+        final long[] ids;
+        final String[] codigos;
+        final AtomicReferenceArray<ProductoScan> registros;
+        final AtomicLongArray versiones;
+        final AtomicLongArray relecturas;
+        final Map<Long, Integer> porId;
+
+        private Tabla(long[] ids, String[] codigos, ProductoScan[] registros) {
+            int n = ids.length;
+            this.ids = ids;
+            this.codigos = codigos;
+            this.registros = new AtomicReferenceArray<>(registros);
+            this.versiones = new AtomicLongArray(n);
+            this.relecturas = new AtomicLongArray(n);
+            this.porId = new HashMap<>(n * 2);
+            this.alfanumericos = new HashMap<>();
+
+            int longitud = 16;
+            while (longitud < n * 2) {
+                longitud <<= 1;
+            }
+            this.claves = new long[longitud];
+            this.posiciones = new int[longitud];
+            Arrays.fill(claves, VACIO);
+
+            int mascara = longitud - 1;
+            for (int pos = 0; pos < n; pos++) {
+                porId.put(ids[pos], pos);
+                long clave = claveNumerica(codigos[pos]);
+                if (clave == VACIO) {
+                    alfanumericos.put(claveAlfanumerica(codigos[pos]), pos);
+                    continue;
+                }
+                int i = hash(clave) & mascara;
+                while (claves[i] != VACIO && claves[i] != clave) {
+                    i = (i + 1) & mascara;
+                }
+                // Códigos equivalentes repetidos: queda el último
+                claves[i] = clave;
+                posiciones[i] = pos;
+            }
+        }
+
+        static Tabla construir(List<ProductoScan> registros) {
+            List<ProductoScan> conCodigo = new ArrayList<>(registros.size());
+            for (ProductoScan r : registros) {
+                if (r.getCodigoBarras() != null && !r.getCodigoBarras().isBlank()) {
+                    conCodigo.add(r);
+                }
+            }
+            int n = conCodigo.size();
+            long[] ids = new long[n];
+            String[] codigos = new String[n];
+            ProductoScan[] regs = new ProductoScan[n];
+            for (int i = 0; i < n; i++) {
+                ProductoScan r = conCodigo.get(i);
+                ids[i] = r.getId();
+                codigos[i] = r.getCodigoBarras();
+                regs[i] = r;
+            }
+            return new Tabla(ids, codigos, regs);
+        }
+
+        /**
+         * Copia de la tabla con el producto reemplazado (o quitado si registro es null)
+         */
+        Tabla reemplazar(long productoId, ProductoScan registro) {
+            List<ProductoScan> vigentes = new ArrayList<>(ids.length + 1);
+            List<Integer> invalidados = new ArrayList<>();
+            for (int pos = 0; pos < ids.length; pos++) {
+                if (ids[pos] == productoId) {
+                    continue;
+                }
+                ProductoScan r = registros.get(pos);
+                if (r == null) {
+                    // Conservar el hueco invalidado: se releerá en el próximo escaneo
+                    invalidados.add(vigentes.size());
+                    r = new ProductoScan(ids[pos], null, null, 0, codigos[pos]);
+                }
+                vigentes.add(r);
+            }
+            if (registro != null && registro.getCodigoBarras() != null && !registro.getCodigoBarras().isBlank()) {
+                vigentes.add(registro);
+            }
+
+            Tabla nueva = construir(vigentes);
+            for (int pos : invalidados) {
+                nueva.registros.set(pos, null);
+            }
+            return nueva;
+        }
+
+        int posicion(String codigo) {
+            if (codigo == null) {
+                return -1;
+            }
+            long clave = claveNumerica(codigo);
+            if (clave == VACIO) {
+                Integer pos = alfanumericos.get(claveAlfanumerica(codigo.trim()));
+                return pos != null ? pos : -1;
+            }
+            int mascara = claves.length - 1;
+            for (int i = hash(clave) & mascara; ; i = (i + 1) & mascara) {
+                long k = claves[i];
+                if (k == clave) {
+                    return posiciones[i];
+                }
+                if (k == VACIO) {
+                    return -1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Lee los registros compactos de la tabla productos
+     */
+    private static final class JdbcLoader implements Loader {
+        private static final String COLUMNAS = "SELECT id, nombre, precio, stock, codigo_barras FROM productos ";
+
+        @Override
+        public List<ProductoScan> loadAll() throws SQLException {
+            List<ProductoScan> registros = new ArrayList<>();
+            String sql = COLUMNAS + "WHERE activo = TRUE AND codigo_barras IS NOT NULL AND codigo_barras <> ''";
+            try (Connection conn = DatabaseConfig.getInstance().getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(sql);
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    registros.add(map(rs));
+                }
+            }
+            return registros;
+        }
+
+        @Override
+        public ProductoScan loadById(long id) throws SQLException {
+            String sql = COLUMNAS + "WHERE id = ? AND activo = TRUE";
+            try (Connection conn = DatabaseConfig.getInstance().getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setLong(1, id);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    return rs.next() ? map(rs) : null;
+                }
+            }
+        }
+
+        private static ProductoScan map(ResultSet rs) throws SQLException {
+            return new ProductoScan(
+                rs.getLong("id"),
+                rs.getString("nombre"),
+                rs.getBigDecimal("precio"),
+                rs.getInt("stock"),
+                rs.getString("codigo_barras")
+            );
+        }
+    }
+}
@@ -6,11 +6,15 @@ import org.slf4j.LoggerFactory;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import model.Compra;
 import model.DetalleCompra;
 import model.Proveedor;
 import model.Usuario;
+import utils.KeysetCursor;
+import utils.PagedResponse;
 
 /**
  * Service para gestión de compras con soporte transaccional
@@ -48,6 +52,56 @@ public class CompraService {
         return compras;
     }
     
+    /**
+     * Obtener una página de compras por keyset (fecha DESC, id DESC)
+     * Usa el índice de fecha en lugar de OFFSET, así el costo no crece con la profundidad de la página.
+     * 
+     * @param cursor cursor opaco de la última compra entregada, o null para la primera página
+     * @param size número de compras por página
+     * @throws IllegalArgumentException si el cursor es inválido
+     */
+    public PagedResponse<Compra> findPage(String cursor, int size) throws SQLException {
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        List<Compra> compras = new ArrayList<>();
+        String sql = "SELECT c.*, " +
+                     "p.nombre as proveedor_nombre, " +
+                     "u.nombre as usuario_nombre, u.apellido as usuario_apellido " +
+                     "FROM compras c " +
+                     "LEFT JOIN proveedores p ON c.proveedor_id = p.id " +
+                     "LEFT JOIN usuarios u ON c.usuario_id = u.id " +
+                     (after != null ? "WHERE c.fecha < ? OR (c.fecha = ? AND c.id < ?) " : "") +
+                     "ORDER BY c.fecha DESC, c.id DESC " +
+                     "LIMIT ?";
+        
+        try (Connection conn = dbConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            int idx = 1;
+            if (after != null) {
+                stmt.setTimestamp(idx++, after.getFecha());
+                stmt.setTimestamp(idx++, after.getFecha());
+                stmt.setLong(idx++, after.getId());
+            }
+            // Se pide una fila extra para saber si hay página siguiente
+            stmt.setInt(idx, size + 1);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    compras.add(mapResultSetToCompra(rs));
+                }
+            }
+        }
+        
+        String nextCursor = null;
+        if (compras.size() > size) {
+            compras.remove(size);
+            Compra ultima = compras.get(size - 1);
+            nextCursor = KeysetCursor.encode(ultima.getFecha(), ultima.getId());
+        }
+        
+        return new PagedResponse<>(compras, size, after != null ? cursor : null, nextCursor);
+    }
+    
     /**
      * Buscar compra por ID
      */
@@ -160,7 +214,15 @@ public class CompraService {
                 stmt.executeBatch();
             }
             
+            // Sumar lo comprado también al stock del cache de escaneo
+            Map<Long, Integer> deltas = new HashMap<>();
+            for (DetalleCompra detalle : detalles) {
+                deltas.merge(detalle.getProductoId(), detalle.getCantidad(), Integer::sum);
+            }
+            BarcodeCache.StockChange cambioStock = BarcodeCache.getInstance().beginStockChange(deltas);
+            
             conn.commit();
+            BarcodeCache.getInstance().applyStockChange(cambioStock);
             
             log.info("Compra creada exitosamente. ID: {}, Total: ${}", compraId, compra.getTotal());
             return compra;
@@ -184,6 +246,11 @@ public class CompraService {
                 } catch (SQLException ex) {
                     log.error("Error al restaurar autocommit", ex);
                 }
+                try {
+                    conn.close(); // Devolver la conexión al pool
+                } catch (SQLException ex) {
+                    log.error("Error al devolver conexión al pool", ex);
+                }
             }
         }
     }
@@ -239,6 +306,16 @@ public class CompraService {
             conn.setAutoCommit(false);
             
             // 1. Eliminar detalles (esto activa el trigger de reversión de stock)
+            Map<Long, Integer> deltas = new HashMap<>();
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT producto_id, SUM(cantidad) FROM detalle_compras WHERE compra_id = ? GROUP BY producto_id")) {
+                stmt.setLong(1, id);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        deltas.put(rs.getLong(1), -rs.getInt(2));
+                    }
+                }
+            }
             String sqlDeleteDetalles = "DELETE FROM detalle_compras WHERE compra_id = ?";
             try (PreparedStatement stmt = conn.prepareStatement(sqlDeleteDetalles)) {
                 stmt.setLong(1, id);
@@ -252,7 +329,9 @@ public class CompraService {
                 stmt.executeUpdate();
             }
             
+            BarcodeCache.StockChange cambioStock = BarcodeCache.getInstance().beginStockChange(deltas);
             conn.commit();
+            BarcodeCache.getInstance().applyStockChange(cambioStock);
             return true;
             
         } catch (SQLException e) {
@@ -262,7 +341,11 @@ public class CompraService {
             throw e;
         } finally {
             if (conn != null) {
-                conn.setAutoCommit(true);
+                try {
+                    conn.setAutoCommit(true);
+                } finally {
+                    conn.close(); // Devolver la conexión al pool
+                }
             }
         }
     }
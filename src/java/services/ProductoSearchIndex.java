@@ -0,0 +1,427 @@
+package services;
+
+import java.sql.SQLException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+/**
+ * Índice de búsqueda en memoria sobre los productos activos
+ * Reemplaza el LIKE '%q%' (full scan en cada tecla del buscador del POS) por:
+ * - postings de trigramas sobre nombre, descripción y código de barras (búsqueda por subcadena)
+ * - postings de prefijos de 1 y 2 letras por palabra (consultas de menos de 3 caracteres)
+ * - índice exacto de código de barras
+ * El texto se normaliza a minúsculas sin acentos, igual que la collation utf8mb4_unicode_ci.
+ * Las lecturas no toman locks; las escrituras (altas/cambios/bajas) se serializan.
+ * La reconstrucción periódica lee la base fuera del lock y no pisa los productos escritos
+ * mientras tanto: la escritura de la API es más reciente que esa lectura.
+ * Cada candidato se verifica contra el texto vigente del producto, así que una búsqueda
+ * concurrente con una escritura nunca devuelve un producto que ya no coincide.
+ */
+public class ProductoSearchIndex {
+
+    private static final Pattern ACENTOS = Pattern.compile("\\p{M}+");
+    private static final Pattern PALABRAS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    // Separador de campos en el texto indexado (ninguna consulta lo contiene)
+    private static final char SEPARADOR = '\u0001';
+    private static final char MARCA_PREFIJO = '\u0002';
+
+    // Cada cuánto se reconstruye el índice completo desde la base (cambios hechos fuera de la API)
+    private static final long REFRESH_MS = TimeUnit.MINUTES.toMillis(
+        Long.parseLong(System.getenv().getOrDefault("SEARCH_INDEX_REFRESH_MIN", "10")));
+
+    // Rango del resultado (menor = mejor)
+    private static final int RANGO_CODIGO_EXACTO = 0;
+    private static final int RANGO_NOMBRE_PREFIJO = 1;
+    private static final int RANGO_PALABRA_PREFIJO = 2;
+    private static final int RANGO_NOMBRE_CONTIENE = 3;
+    private static final int RANGO_OTRO_CAMPO = 4;
+
+    /**
+     * Fuente de los productos activos para construir el índice
+     */
+    @FunctionalInterface
+    public interface Loader {
+        List<Documento> loadAll() throws SQLException;
+    }
+
+    /**
+     * Campos indexados de un producto
+     */
+    public static final class Documento {
+        final long id;
+        final String nombre;
+        final String texto;
+        final String codigoBarras;
+        final String nombreOriginal;
+
+        public Documento(long id, String nombre, String descripcion, String codigoBarras) {
+            this.id = id;
+            this.nombreOriginal = nombre != null ? nombre : "";
+            this.nombre = normalize(nombre);
+            this.codigoBarras = codigoBarras != null && !codigoBarras.isBlank() ? codigoBarras.trim() : null;
+            this.texto = this.nombre + SEPARADOR + normalize(descripcion) + SEPARADOR
+                + (this.codigoBarras != null ? normalize(this.codigoBarras) : "");
+        }
+
+        /**
+         * Gramas del documento: trigramas del texto y prefijos de 1-2 letras de cada palabra
+         */
+        Set<String> gramas() {
+            Set<String> gramas = new HashSet<>();
+            for (int i = 0; i + 3 <= texto.length(); i++) {
+                gramas.add(texto.substring(i, i + 3));
+            }
+            for (String palabra : PALABRAS.split(texto)) {
+                if (!palabra.isEmpty()) {
+                    gramas.add(prefijo(palabra.substring(0, 1)));
+                    if (palabra.length() >= 2) {
+                        gramas.add(prefijo(palabra.substring(0, 2)));
+                    }
+                }
+            }
+            return gramas;
+        }
+    }
+
+    private final Loader loader;
+
+    // Productos indexados por ID
+    private final ConcurrentHashMap<Long, Documento> documentos = new ConcurrentHashMap<>();
+    // Grama -> IDs de productos
+    private final ConcurrentHashMap<String, Set<Long>> postings = new ConcurrentHashMap<>();
+    // Código de barras exacto -> ID
+    private final ConcurrentHashMap<String, Long> codigos = new ConcurrentHashMap<>();
+
+    private volatile boolean cargado;
+    private volatile long cargadoEn;
+    private final AtomicBoolean recargando = new AtomicBoolean();
+    // IDs escritos desde que empezó la recarga en curso (null si no hay recarga; guardado por el lock)
+    private Set<Long> escritosDuranteRecarga;
+
+    public ProductoSearchIndex(Loader loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * Busca productos cuyo nombre, descripción o código de barras contenga la consulta
+     * @return IDs ordenados por relevancia (código exacto, prefijo del nombre, prefijo de
+     *         una palabra, nombre que contiene, otro campo) y luego por nombre
+     */
+    public List<Long> search(String query) throws SQLException {
+        ensureLoaded();
+
+        String q = normalize(query);
+        List<Long> resultado = new ArrayList<>();
+        if (q.isEmpty()) {
+            return resultado;
+        }
+
+        Set<Long> candidatos = candidatos(q);
+        if (candidatos.isEmpty()) {
+            return resultado;
+        }
+
+        String codigo = query.trim();
+        List<Coincidencia> coincidencias = new ArrayList<>();
+        for (Long id : candidatos) {
+            Documento doc = documentos.get(id);
+            if (doc == null) {
+                continue;
+            }
+            int rango = rango(doc, q, codigo);
+            if (rango >= 0) {
+                coincidencias.add(new Coincidencia(doc, rango));
+            }
+        }
+
+        coincidencias.sort(Comparator.<Coincidencia>comparingInt(c -> c.rango)
+            .thenComparing(c -> c.doc.nombreOriginal)
+            .thenComparingLong(c -> c.doc.id));
+        for (Coincidencia c : coincidencias) {
+            resultado.add(c.doc.id);
+        }
+        return resultado;
+    }
+
+    /**
+     * Busca el ID del producto activo con ese código de barras exacto
+     * @return el ID, o null si no hay
+     */
+    public Long findIdByCodigoBarras(String codigoBarras) throws SQLException {
+        if (codigoBarras == null || codigoBarras.isBlank()) {
+            return null;
+        }
+        ensureLoaded();
+        return codigos.get(codigoBarras.trim());
+    }
+
+    /**
+     * Indexa o reindexa un producto (si está inactivo se quita del índice)
+     */
+    public synchronized void put(long id, String nombre, String descripcion, String codigoBarras, boolean activo) {
+        if (!activo) {
+            remove(id);
+            return;
+        }
+        registrarEscritura(id);
+        Documento nuevo = new Documento(id, nombre, descripcion, codigoBarras);
+        Documento anterior = documentos.put(id, nuevo);
+        if (anterior != null) {
+            quitarPostings(anterior, nuevo.gramas());
+        }
+        agregarPostings(nuevo);
+    }
+
+    /**
+     * Quita un producto del índice
+     */
+    public synchronized void remove(long id) {
+        registrarEscritura(id);
+        quitar(id);
+    }
+
+    private void quitar(long id) {
+        Documento anterior = documentos.remove(id);
+        if (anterior != null) {
+            quitarPostings(anterior, Set.of());
+        }
+    }
+
+    private void registrarEscritura(long id) {
+        if (escritosDuranteRecarga != null) {
+            escritosDuranteRecarga.add(id);
+        }
+    }
+
+    /**
+     * Descarta el índice; se vuelve a cargar en la siguiente búsqueda
+     */
+    public synchronized void clear() {
+        documentos.clear();
+        postings.clear();
+        codigos.clear();
+        cargado = false;
+        // Una recarga en curso trae datos anteriores al descarte: no se aplica
+        escritosDuranteRecarga = null;
+    }
+
+    /**
+     * Número de productos indexados
+     */
+    public int size() {
+        return documentos.size();
+    }
+
+    /**
+     * Carga el índice la primera vez y lo reconstruye en segundo plano cada REFRESH_MS
+     */
+    private void ensureLoaded() throws SQLException {
+        if (!cargado) {
+            synchronized (this) {
+                if (!cargado) {
+                    cargar(loader.loadAll(), Set.of());
+                }
+            }
+        } else if (System.currentTimeMillis() - cargadoEn > REFRESH_MS && recargando.compareAndSet(false, true)) {
+            Thread hilo = new Thread(this::recargar, "producto-search-refresh");
+            hilo.setDaemon(true);
+            hilo.start();
+        }
+    }
+
+    /**
+     * Reconstruye el índice desde la base sin bloquear las escrituras durante la consulta
+     */
+    void recargar() {
+        Set<Long> escritos = new HashSet<>();
+        synchronized (this) {
+            escritosDuranteRecarga = escritos;
+        }
+        try {
+            List<Documento> docs = loader.loadAll();
+            synchronized (this) {
+                if (escritosDuranteRecarga == escritos) {
+                    cargar(docs, escritos);
+                }
+            }
+        } catch (SQLException e) {
+            // Se sigue usando el índice actual; se reintenta en el siguiente intervalo
+            System.err.println("⚠️ Error al recargar el índice de búsqueda de productos: " + e.getMessage());
+            cargadoEn = System.currentTimeMillis();
+        } finally {
+            synchronized (this) {
+                if (escritosDuranteRecarga == escritos) {
+                    escritosDuranteRecarga = null;
+                }
+            }
+            recargando.set(false);
+        }
+    }
+
+    /**
+     * Reemplaza el contenido del índice salvo los productos en {@code conservar}, que se
+     * escribieron después de leer {@code docs} (llamar con el lock tomado)
+     */
+    private void cargar(Collection<Documento> docs, Set<Long> conservar) {
+        long inicio = System.nanoTime();
+        ConcurrentHashMap<Long, Documento> vigentes = new ConcurrentHashMap<>();
+        for (Documento doc : docs) {
+            if (!conservar.contains(doc.id)) {
+                vigentes.put(doc.id, doc);
+            }
+        }
+
+        // Quitar los que ya no están activos y (re)indexar el resto
+        for (Long id : new ArrayList<>(documentos.keySet())) {
+            if (!vigentes.containsKey(id) && !conservar.contains(id)) {
+                quitar(id);
+            }
+        }
+        for (Documento doc : vigentes.values()) {
+            Documento anterior = documentos.put(doc.id, doc);
+            if (anterior != null) {
+                quitarPostings(anterior, doc.gramas());
+            }
+            agregarPostings(doc);
+        }
+
+        cargado = true;
+        cargadoEn = System.currentTimeMillis();
+        System.out.println("🔎 Índice de búsqueda de productos cargado: " + documentos.size() + " productos en "
+            + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio) + " ms");
+    }
+
+    private void agregarPostings(Documento doc) {
+        for (String grama : doc.gramas()) {
+            postings.computeIfAbsent(grama, g -> ConcurrentHashMap.newKeySet()).add(doc.id);
+        }
+        if (doc.codigoBarras != null) {
+            codigos.put(doc.codigoBarras, doc.id);
+        }
+    }
+
+    /**
+     * Quita las gramas del documento anterior que no siguen en el nuevo
+     */
+    private void quitarPostings(Documento anterior, Set<String> conservar) {
+        for (String grama : anterior.gramas()) {
+            if (conservar.contains(grama)) {
+                continue;
+            }
+            Set<Long> ids = postings.get(grama);
+            if (ids != null) {
+                ids.remove(anterior.id);
+                if (ids.isEmpty()) {
+                    postings.remove(grama, ids);
+                }
+            }
+        }
+        if (anterior.codigoBarras != null) {
+            codigos.remove(anterior.codigoBarras, anterior.id);
+        }
+    }
+
+    /**
+     * IDs que pueden coincidir: intersección de los postings de la consulta, empezando por el menor
+     */
+    private Set<Long> candidatos(String q) {
+        List<String> gramas = new ArrayList<>();
+        if (q.length() < 3) {
+            gramas.add(prefijo(q));
+        } else {
+            for (int i = 0; i + 3 <= q.length(); i++) {
+                gramas.add(q.substring(i, i + 3));
+            }
+        }
+
+        List<Set<Long>> listas = new ArrayList<>(gramas.size());
+        for (String grama : gramas) {
+            Set<Long> ids = postings.get(grama);
+            if (ids == null) {
+                return Set.of();
+            }
+            listas.add(ids);
+        }
+        listas.sort(Comparator.comparingInt(Set::size));
+
+        Set<Long> resultado = new HashSet<>(listas.get(0));
+        for (int i = 1; i < listas.size() && !resultado.isEmpty(); i++) {
+            resultado.retainAll(listas.get(i));
+        }
+        return resultado;
+    }
+
+    /**
+     * Rango de un candidato, o -1 si no coincide
+     */
+    private static int rango(Documento doc, String q, String codigo) {
+        if (q.length() < 3) {
+            // Consultas cortas: solo prefijos de palabra
+            if (doc.nombre.startsWith(q)) {
+                return RANGO_NOMBRE_PREFIJO;
+            }
+            return contienePrefijoDePalabra(doc.nombre, q) ? RANGO_PALABRA_PREFIJO
+                : contienePrefijoDePalabra(doc.texto, q) ? RANGO_OTRO_CAMPO : -1;
+        }
+
+        if (!doc.texto.contains(q)) {
+            return -1;
+        }
+        if (codigo.equals(doc.codigoBarras)) {
+            return RANGO_CODIGO_EXACTO;
+        }
+        if (doc.nombre.startsWith(q)) {
+            return RANGO_NOMBRE_PREFIJO;
+        }
+        if (contienePrefijoDePalabra(doc.nombre, q)) {
+            return RANGO_PALABRA_PREFIJO;
+        }
+        return doc.nombre.contains(q) ? RANGO_NOMBRE_CONTIENE : RANGO_OTRO_CAMPO;
+    }
+
+    private static boolean contienePrefijoDePalabra(String texto, String q) {
+        for (int i = texto.indexOf(q); i >= 0; i = texto.indexOf(q, i + 1)) {
+            if (i == 0 || !Character.isLetterOrDigit(texto.charAt(i - 1))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String prefijo(String letras) {
+        // Marcador propio para que no choque con un trigrama del texto
+        return MARCA_PREFIJO + letras;
+    }
+
+    /**
+     * Minúsculas sin acentos (equivalente a comparar con utf8mb4_unicode_ci)
+     */
+    static String normalize(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        String sinAcentos = ACENTOS.matcher(Normalizer.normalize(texto.trim(), Normalizer.Form.NFD)).replaceAll("");
+        return sinAcentos.toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Coincidencia {
+        final Documento doc;
+        final int rango;
+
+        Coincidencia(Documento doc, int rango) {
+            this.doc = doc;
+            this.rango = rango;
+        }
+    }
+}
@@ -6,15 +6,31 @@ import org.slf4j.LoggerFactory;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import model.Categoria;
 import model.Producto;
+import utils.KeysetCursor;
+import utils.PagedResponse;
 
 /**
  * Service para gestión de productos
  */
 public class ProductoService {
     private static final Logger log = LoggerFactory.getLogger(ProductoService.class);
+    // Máximo de IDs por consulta IN (el resto va en consultas adicionales)
+    private static final int MAX_IDS_POR_CONSULTA = 500;
+    // Tamaños fijos de la lista IN: cada lote se rellena hasta el siguiente tamaño repitiendo
+    // el último ID, así el cache de sentencias del servidor guarda 5 consultas y no una por longitud
+    private static final int[] TAMANOS_IN = {1, 8, 32, 128, MAX_IDS_POR_CONSULTA};
+    
+    // Índice de búsqueda compartido por todas las instancias del service
+    private static final ProductoSearchIndex searchIndex = new ProductoSearchIndex(ProductoService::loadSearchDocuments);
+
     private final DatabaseConfig dbConfig;
     
     public ProductoService() {
@@ -44,6 +60,54 @@ public class ProductoService {
         return productos;
     }
     
+    /**
+     * Obtener una página de productos activos por keyset (nombre ASC, id ASC)
+     * Usa el índice de nombre en lugar de OFFSET, así el costo no crece con la profundidad de la página.
+     * 
+     * @param cursor cursor opaco del último producto entregado, o null para la primera página
+     * @param size número de productos por página
+     * @throws IllegalArgumentException si el cursor es inválido
+     */
+    public PagedResponse<Producto> findPage(String cursor, int size) throws SQLException {
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        List<Producto> productos = new ArrayList<>();
+        String sql = "SELECT p.*, c.nombre as categoria_nombre, c.descripcion as categoria_descripcion " +
+                     "FROM productos p " +
+                     "LEFT JOIN categorias c ON p.categoria_id = c.id " +
+                     "WHERE p.activo = TRUE " +
+                     (after != null ? "AND (p.nombre > ? OR (p.nombre = ? AND p.id > ?)) " : "") +
+                     "ORDER BY p.nombre, p.id " +
+                     "LIMIT ?";
+        
+        try (Connection conn = dbConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            int idx = 1;
+            if (after != null) {
+                stmt.setString(idx++, after.getTexto());
+                stmt.setString(idx++, after.getTexto());
+                stmt.setLong(idx++, after.getId());
+            }
+            // Se pide una fila extra para saber si hay página siguiente
+            stmt.setInt(idx, size + 1);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    productos.add(mapResultSetToProducto(rs));
+                }
+            }
+        }
+        
+        String nextCursor = null;
+        if (productos.size() > size) {
+            productos.remove(size);
+            Producto ultimo = productos.get(size - 1);
+            nextCursor = KeysetCursor.encode(ultimo.getNombre(), ultimo.getId());
+        }
+        
+        return new PagedResponse<>(productos, size, after != null ? cursor : null, nextCursor);
+    }
+    
     /**
      * Buscar producto por ID
      */
@@ -68,6 +132,63 @@ public class ProductoService {
         return null;
     }
     
+    /**
+     * Obtiene varios productos por ID en una sola consulta (IN) por lote
+     * Los IDs repetidos o nulos se ignoran; los que no existen no aparecen en el mapa.
+     * @return Mapa ID -> producto
+     */
+    public Map<Long, Producto> findByIds(Collection<Long> ids) throws SQLException {
+        Map<Long, Producto> productos = new HashMap<>();
+        if (ids == null || ids.isEmpty()) {
+            return productos;
+        }
+
+        List<Long> unicos = new ArrayList<>(new LinkedHashSet<>(ids));
+        unicos.remove(null);
+        if (unicos.isEmpty()) {
+            return productos;
+        }
+
+        try (Connection conn = dbConfig.getConnection()) {
+            for (int desde = 0; desde < unicos.size(); desde += MAX_IDS_POR_CONSULTA) {
+                List<Long> lote = unicos.subList(desde, Math.min(desde + MAX_IDS_POR_CONSULTA, unicos.size()));
+                int tamano = tamanoListaIn(lote.size());
+
+                String sql = "SELECT p.*, c.nombre as categoria_nombre, c.descripcion as categoria_descripcion " +
+                             "FROM productos p " +
+                             "LEFT JOIN categorias c ON p.categoria_id = c.id " +
+                             "WHERE p.id IN (" + String.join(",", Collections.nCopies(tamano, "?")) + ")";
+
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < tamano; i++) {
+                        stmt.setLong(i + 1, lote.get(Math.min(i, lote.size() - 1)));
+                    }
+
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            Producto producto = mapResultSetToProducto(rs);
+                            productos.put(producto.getId(), producto);
+                        }
+                    }
+                }
+            }
+        }
+
+        return productos;
+    }
+
+    /**
+     * Menor tamaño fijo de lista IN que admite la cantidad de IDs indicada
+     */
+    static int tamanoListaIn(int ids) {
+        for (int tamano : TAMANOS_IN) {
+            if (ids <= tamano) {
+                return tamano;
+            }
+        }
+        return MAX_IDS_POR_CONSULTA;
+    }
+
     /**
      * Buscar productos por categoría
      */
@@ -119,36 +240,56 @@ public class ProductoService {
     
     /**
      * Buscar productos por nombre, descripción o código de barras
+     * La coincidencia se resuelve en el índice en memoria (ver ProductoSearchIndex) y solo los
+     * productos encontrados se leen de la base, por ID, para devolver precio y stock vigentes.
+     * Resultados ordenados por relevancia: código exacto, prefijo del nombre, prefijo de palabra.
      */
     public List<Producto> search(String query) throws SQLException {
-        List<Producto> productos = new ArrayList<>();
-        String sql = "SELECT p.*, c.nombre as categoria_nombre, c.descripcion as categoria_descripcion " +
-                     "FROM productos p " +
-                     "LEFT JOIN categorias c ON p.categoria_id = c.id " +
-                     "WHERE (LOWER(p.nombre) LIKE LOWER(?) " +
-                     "   OR LOWER(p.descripcion) LIKE LOWER(?) " +
-                     "   OR p.codigo_barras LIKE ?) " +
-                     "AND p.activo = TRUE " +
-                     "ORDER BY p.nombre";
+        List<Long> ids = searchIndex.search(query);
+        Map<Long, Producto> encontrados = findByIds(ids);
         
-        try (Connection conn = dbConfig.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            String searchPattern = "%" + query + "%";
-            stmt.setString(1, searchPattern);
-            stmt.setString(2, searchPattern);
-            stmt.setString(3, searchPattern);
-            
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    productos.add(mapResultSetToProducto(rs));
-                }
+        List<Producto> productos = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Producto producto = encontrados.get(id);
+            if (producto != null && Boolean.TRUE.equals(producto.getActivo())) {
+                productos.add(producto);
             }
         }
         
         return productos;
     }
     
+    /**
+     * Índice de búsqueda de productos (compartido)
+     */
+    public static ProductoSearchIndex getSearchIndex() {
+        return searchIndex;
+    }
+    
+    /**
+     * Lee los campos buscables de los productos activos para construir el índice
+     */
+    private static List<ProductoSearchIndex.Documento> loadSearchDocuments() throws SQLException {
+        List<ProductoSearchIndex.Documento> documentos = new ArrayList<>();
+        String sql = "SELECT id, nombre, descripcion, codigo_barras FROM productos WHERE activo = TRUE";
+        
+        try (Connection conn = DatabaseConfig.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            
+            while (rs.next()) {
+                documentos.add(new ProductoSearchIndex.Documento(
+                    rs.getLong("id"),
+                    rs.getString("nombre"),
+                    rs.getString("descripcion"),
+                    rs.getString("codigo_barras")
+                ));
+            }
+        }
+        
+        return documentos;
+    }
+    
     /**
      * Crear un nuevo producto
      */
@@ -174,6 +315,7 @@ public class ProductoService {
                 try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
                     if (generatedKeys.next()) {
                         producto.setId(generatedKeys.getLong(1));
+                        indexar(producto);
                         return producto;
                     }
                 }
@@ -204,7 +346,11 @@ public class ProductoService {
             stmt.setBoolean(8, producto.getActivo());
             stmt.setLong(9, producto.getId());
             
-            return stmt.executeUpdate() > 0;
+            boolean actualizado = stmt.executeUpdate() > 0;
+            if (actualizado) {
+                indexar(producto);
+            }
+            return actualizado;
         }
     }
     
@@ -220,7 +366,11 @@ public class ProductoService {
             stmt.setInt(1, newStock);
             stmt.setLong(2, id);
             
-            return stmt.executeUpdate() > 0;
+            boolean actualizado = stmt.executeUpdate() > 0;
+            if (actualizado) {
+                BarcodeCache.getInstance().invalidate(List.of(id));
+            }
+            return actualizado;
         }
     }
     
@@ -234,10 +384,24 @@ public class ProductoService {
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setLong(1, id);
-            return stmt.executeUpdate() > 0;
+            boolean eliminado = stmt.executeUpdate() > 0;
+            if (eliminado) {
+                searchIndex.remove(id);
+                BarcodeCache.getInstance().remove(id);
+            }
+            return eliminado;
         }
     }
     
+    /**
+     * Mantiene el índice de búsqueda y el cache de códigos de barras al día tras un alta o modificación
+     */
+    private void indexar(Producto producto) {
+        searchIndex.put(producto.getId(), producto.getNombre(), producto.getDescripcion(),
+            producto.getCodigoBarras(), producto.getActivo() == null || producto.getActivo());
+        BarcodeCache.getInstance().put(producto);
+    }
+    
     /**
      * Mapear ResultSet a objeto Producto
      */
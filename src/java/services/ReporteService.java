@@ -12,17 +12,45 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Servicio para generar reportes y estadísticas
  */
 public class ReporteService {
     
+    // Executor acotado para los agregados del dashboard (uno por consulta, sin saturar el pool de conexiones)
+    private static final int DASHBOARD_THREADS = 4;
+    private static final long DASHBOARD_TIMEOUT_SECONDS = 10;
+    private static final AtomicInteger DASHBOARD_THREAD_COUNT = new AtomicInteger();
+    private static final ExecutorService DASHBOARD_EXECUTOR = Executors.newFixedThreadPool(DASHBOARD_THREADS, r -> {
+        Thread thread = new Thread(r, "dashboard-" + DASHBOARD_THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    /**
+     * Ejecuta una consulta de agregación del dashboard
+     */
+    @FunctionalInterface
+    interface Agregador {
+        Agregado agregar(String sql) throws SQLException;
+    }
+    
+    // Origen de los agregados (reemplazable en tests)
+    static volatile Agregador agregador = ReporteService::agregar;
+    
     private final VentaService ventaService;
     private final ProductoService productoService;
     private final CompraService compraService;
     private final ClienteService clienteService;
     private final ProveedorService proveedorService;
+    private final VentaRollupService rollupService;
     
     public ReporteService() {
         this.ventaService = new VentaService();
@@ -30,40 +58,51 @@ public class ReporteService {
         this.compraService = new CompraService();
         this.clienteService = new ClienteService();
         this.proveedorService = new ProveedorService();
+        this.rollupService = new VentaRollupService();
     }
     
     /**
      * Generar dashboard principal con estadísticas generales
+     * Conteos, montos y stock bajo se calculan con SQL agregado en paralelo, sin cargar filas
      */
     public Map<String, Object> generarDashboard() throws SQLException {
         Map<String, Object> dashboard = new HashMap<>();
+        List<Future<Agregado>> enviados = new ArrayList<>();
         
         try {
+            // Agregados independientes en paralelo, cada uno con una sola consulta
+            Future<Agregado> ventas = enviar(enviados,
+                "SELECT COUNT(*), COALESCE(SUM(total), 0) FROM ventas");
+            Future<Agregado> compras = enviar(enviados,
+                "SELECT COUNT(*), COALESCE(SUM(total), 0) FROM compras");
+            // Productos activos y cuántos tienen stock bajo (menos de 10 unidades)
+            Future<Agregado> productos = enviar(enviados,
+                "SELECT COUNT(*), COALESCE(SUM(CASE WHEN stock < 10 THEN 1 ELSE 0 END), 0) " +
+                "FROM productos WHERE activo = TRUE");
+            Future<Agregado> clientes = enviar(enviados,
+                "SELECT COUNT(*), 0 FROM clientes WHERE activo = TRUE");
+            Future<Agregado> proveedores = enviar(enviados,
+                "SELECT COUNT(*), 0 FROM proveedores WHERE activo = TRUE");
+            
+            // Un solo límite de tiempo para todo el dashboard
+            long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(DASHBOARD_TIMEOUT_SECONDS);
+            Agregado totalVentas = esperar(ventas, limite);
+            Agregado totalCompras = esperar(compras, limite);
+            Agregado totalProductos = esperar(productos, limite);
+            
             // Estadísticas principales
             Map<String, Object> estadisticas = new HashMap<>();
-            estadisticas.put("totalVentas", ventaService.findAll().size());
-            estadisticas.put("totalCompras", compraService.findAll().size());
-            estadisticas.put("totalProductos", productoService.findAll().size());
-            estadisticas.put("totalClientes", clienteService.findAll().size());
-            estadisticas.put("totalProveedores", proveedorService.findAll().size());
+            estadisticas.put("totalVentas", totalVentas.cantidad);
+            estadisticas.put("totalCompras", totalCompras.cantidad);
+            estadisticas.put("totalProductos", totalProductos.cantidad);
+            estadisticas.put("totalClientes", esperar(clientes, limite).cantidad);
+            estadisticas.put("totalProveedores", esperar(proveedores, limite).cantidad);
             
-            // Calcular totales monetarios
-            BigDecimal montoTotalVentas = ventaService.findAll().stream()
-                .map(venta -> venta.getTotal())
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-                
-            BigDecimal montoTotalCompras = compraService.findAll().stream()
-                .map(compra -> compra.getTotal())
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+            // Totales monetarios
+            estadisticas.put("montoTotalVentas", totalVentas.valor);
+            estadisticas.put("montoTotalCompras", totalCompras.valor);
             
-            estadisticas.put("montoTotalVentas", montoTotalVentas);
-            estadisticas.put("montoTotalCompras", montoTotalCompras);
-            
-            // Productos con stock bajo (menos de 10 unidades)
-            long productosStockBajo = productoService.findAll().stream()
-                .filter(producto -> producto.getStock() < 10)
-                .count();
-            estadisticas.put("productosStockBajo", productosStockBajo);
+            estadisticas.put("productosStockBajo", totalProductos.valor.longValue());
             
             // Información adicional
             dashboard.put("estadisticas", estadisticas);
@@ -73,6 +112,9 @@ public class ReporteService {
             dashboard.put("estado", "Datos actualizados correctamente");
             
         } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
             // En caso de error, devolver dashboard básico
             Map<String, Object> estadisticas = new HashMap<>();
             estadisticas.put("totalVentas", 0);
@@ -89,11 +131,65 @@ public class ReporteService {
             dashboard.put("sistema", "FarmaControl v1.0");
             dashboard.put("descripcion", "Dashboard del sistema de gestión farmacéutica");
             dashboard.put("estado", "Error al cargar datos: " + e.getMessage());
+        } finally {
+            // Si un agregado falló o se agotó el tiempo, los demás no siguen ocupando hilos ni conexiones
+            for (Future<Agregado> futuro : enviados) {
+                futuro.cancel(true);
+            }
         }
         
         return dashboard;
     }
     
+    private static Future<Agregado> enviar(List<Future<Agregado>> enviados, String sql) {
+        Agregador a = agregador;
+        Future<Agregado> futuro = DASHBOARD_EXECUTOR.submit(() -> a.agregar(sql));
+        enviados.add(futuro);
+        return futuro;
+    }
+    
+    /**
+     * Ejecuta una consulta de agregación que devuelve (conteo, valor) en una sola fila
+     * El timeout de la consulta corta en el servidor la que siga corriendo tras cancelarla
+     */
+    private static Agregado agregar(String sql) throws SQLException {
+        try (Connection conn = DatabaseConfig.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setQueryTimeout((int) DASHBOARD_TIMEOUT_SECONDS);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return new Agregado(rs.getInt(1), rs.getBigDecimal(2));
+            }
+        }
+    }
+    
+    /**
+     * Espera el resultado de un agregado hasta el límite (System.nanoTime) del dashboard
+     * Propaga la causa original (p. ej. SQLException) para que el mensaje de error sea legible
+     */
+    private static Agregado esperar(Future<Agregado> agregado, long limite) throws Exception {
+        try {
+            return agregado.get(Math.max(0, limite - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            throw causa instanceof Exception ? (Exception) causa : e;
+        }
+    }
+    
+    /**
+     * Resultado de una consulta de agregación: conteo y valor (suma o conteo condicional)
+     */
+    static class Agregado {
+        final int cantidad;
+        final BigDecimal valor;
+        
+        Agregado(int cantidad, BigDecimal valor) {
+            this.cantidad = cantidad;
+            this.valor = valor != null ? valor : BigDecimal.ZERO;
+        }
+    }
+    
     /**
      * Reporte de ventas con filtros opcionales
      */
@@ -129,35 +225,8 @@ public class ReporteService {
         reporte.put("tipo", "productos_mas_vendidos");
         reporte.put("descripcion", "Productos con mayor número de ventas");
         
-        // Consulta SQL para obtener productos más vendidos con cantidad y total
-        String sql = "SELECT " +
-                     "p.id AS productoId, " +
-                     "p.nombre AS nombreProducto, " +
-                     "SUM(dv.cantidad) AS cantidadVendida, " +
-                     "SUM(dv.subtotal) AS totalVentas " +
-                     "FROM productos p " +
-                     "INNER JOIN detalle_ventas dv ON p.id = dv.producto_id " +
-                     "INNER JOIN ventas v ON dv.venta_id = v.id " +
-                     "WHERE v.estado = 'COMPLETADA' " +
-                     "GROUP BY p.id, p.nombre " +
-                     "ORDER BY cantidadVendida DESC " +
-                     "LIMIT 10";
-        
-        List<Map<String, Object>> productos = new ArrayList<>();
-        
-        try (Connection conn = DatabaseConfig.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
-            
-            while (rs.next()) {
-                Map<String, Object> producto = new HashMap<>();
-                producto.put("productoId", rs.getLong("productoId"));
-                producto.put("nombreProducto", rs.getString("nombreProducto"));
-                producto.put("cantidadVendida", rs.getInt("cantidadVendida"));
-                producto.put("totalVentas", rs.getDouble("totalVentas"));
-                productos.add(producto);
-            }
-        }
+        // Top 10 desde el rollup acumulado, sin re-agregar detalle_ventas
+        List<Map<String, Object>> productos = rollupService.getTopProductos(10);
         
         reporte.put("productos", productos);
         reporte.put("fechaGeneracion", LocalDate.now().format(DateTimeFormatter.ISO_LOCAL_DATE));
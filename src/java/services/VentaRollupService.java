@@ -0,0 +1,175 @@
+package services;
+
+import config.DatabaseConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Service para los rollups de ventas (rollup_ventas_producto, _usuario y _metodo_pago)
+ * Mantiene agregados por hora, día y total acumulado de forma incremental, dentro de la
+ * transacción que crea o cancela la venta, para que los reportes no re-agreguen detalle_ventas.
+ */
+public class VentaRollupService {
+    private static final Logger log = LoggerFactory.getLogger(VentaRollupService.class);
+
+    // Periodo fijo del acumulado histórico (granularidad TOTAL)
+    public static final String PERIODO_TOTAL = "2000-01-01 00:00:00";
+
+    // Filas por (granularidad, periodo, usuario/método de pago) repartidas en SLOTS según el id de la venta:
+    // las cajas que venden a la vez con el mismo método de pago actualizan filas distintas en lugar de
+    // esperar el bloqueo de una sola fila hasta el commit. Las lecturas suman todos los slots.
+    // rollup_ventas_producto no se reparte: la venta ya bloquea la fila del producto al descontar stock.
+    public static final int SLOTS = 16;
+
+    // Una fila por granularidad; el periodo se calcula a partir de la fecha de la venta.
+    // En ON DUPLICATE KEY UPDATE las columnas van calificadas: ventas y detalle_ventas también tienen total/cantidad
+    private static final String GRANULARIDADES =
+        "CROSS JOIN (SELECT 'HORA' AS granularidad UNION ALL SELECT 'DIA' UNION ALL SELECT 'TOTAL') g ";
+    private static final String PERIODO =
+        "CASE g.granularidad " +
+        "WHEN 'HORA' THEN DATE_FORMAT(MAX(v.fecha), '%Y-%m-%d %H:00:00') " +
+        "WHEN 'DIA' THEN DATE(MAX(v.fecha)) " +
+        "ELSE '" + PERIODO_TOTAL + "' END";
+
+    private static final String SQL_PRODUCTO =
+        "INSERT INTO rollup_ventas_producto (granularidad, periodo, producto_id, cantidad, num_ventas, total) " +
+        "SELECT g.granularidad, " + PERIODO + ", dv.producto_id, " +
+        "? * SUM(dv.cantidad), ?, ? * SUM(dv.subtotal) " +
+        "FROM ventas v " +
+        "INNER JOIN detalle_ventas dv ON dv.venta_id = v.id " +
+        GRANULARIDADES +
+        "WHERE v.id = ? AND v.estado = 'COMPLETADA' " +
+        "GROUP BY g.granularidad, dv.producto_id " +
+        "ON DUPLICATE KEY UPDATE rollup_ventas_producto.cantidad = rollup_ventas_producto.cantidad + VALUES(cantidad), " +
+        "rollup_ventas_producto.num_ventas = rollup_ventas_producto.num_ventas + VALUES(num_ventas), " +
+        "rollup_ventas_producto.total = rollup_ventas_producto.total + VALUES(total)";
+
+    private static final String SQL_USUARIO =
+        "INSERT INTO rollup_ventas_usuario (granularidad, periodo, usuario_id, slot, num_ventas, total) " +
+        "SELECT g.granularidad, " + PERIODO + ", MAX(v.usuario_id), MAX(v.id) % " + SLOTS + ", ?, ? * MAX(v.total) " +
+        "FROM ventas v " +
+        GRANULARIDADES +
+        "WHERE v.id = ? AND v.estado = 'COMPLETADA' " +
+        "GROUP BY g.granularidad " +
+        "ON DUPLICATE KEY UPDATE rollup_ventas_usuario.num_ventas = rollup_ventas_usuario.num_ventas + VALUES(num_ventas), " +
+        "rollup_ventas_usuario.total = rollup_ventas_usuario.total + VALUES(total)";
+
+    private static final String SQL_METODO_PAGO =
+        "INSERT INTO rollup_ventas_metodo_pago (granularidad, periodo, metodo_pago, slot, num_ventas, total) " +
+        "SELECT g.granularidad, " + PERIODO + ", COALESCE(MAX(v.metodo_pago), 'EFECTIVO'), MAX(v.id) % " + SLOTS + ", ?, ? * MAX(v.total) " +
+        "FROM ventas v " +
+        GRANULARIDADES +
+        "WHERE v.id = ? AND v.estado = 'COMPLETADA' " +
+        "GROUP BY g.granularidad " +
+        "ON DUPLICATE KEY UPDATE rollup_ventas_metodo_pago.num_ventas = rollup_ventas_metodo_pago.num_ventas + VALUES(num_ventas), " +
+        "rollup_ventas_metodo_pago.total = rollup_ventas_metodo_pago.total + VALUES(total)";
+
+    private final DatabaseConfig dbConfig;
+
+    public VentaRollupService() {
+        this.dbConfig = DatabaseConfig.getInstance();
+    }
+
+    /**
+     * Suma una venta COMPLETADA a los rollups
+     * Debe llamarse con la conexión de la transacción, después de insertar los detalles
+     */
+    public void aplicarVenta(Connection conn, long ventaId) throws SQLException {
+        actualizar(conn, ventaId, 1);
+    }
+
+    /**
+     * Resta una venta COMPLETADA de los rollups
+     * Debe llamarse con la conexión de la transacción, antes de borrar los detalles y cambiar el estado
+     */
+    public void revertirVenta(Connection conn, long ventaId) throws SQLException {
+        actualizar(conn, ventaId, -1);
+    }
+
+    private void actualizar(Connection conn, long ventaId, int signo) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(SQL_PRODUCTO)) {
+            stmt.setInt(1, signo);
+            stmt.setInt(2, signo);
+            stmt.setInt(3, signo);
+            stmt.setLong(4, ventaId);
+            stmt.executeUpdate();
+        }
+
+        for (String sql : new String[] {SQL_USUARIO, SQL_METODO_PAGO}) {
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setInt(1, signo);
+                stmt.setInt(2, signo);
+                stmt.setLong(3, ventaId);
+                stmt.executeUpdate();
+            }
+        }
+
+        log.debug("Rollups actualizados. Venta: {}, Signo: {}", ventaId, signo);
+    }
+
+    /**
+     * Productos más vendidos según el acumulado histórico
+     * Lee las primeras filas del índice (granularidad, periodo, cantidad), sin importar el tamaño del historial
+     */
+    public List<Map<String, Object>> getTopProductos(int limite) throws SQLException {
+        String sql = "SELECT r.producto_id, p.nombre, r.cantidad, r.total " +
+                     "FROM rollup_ventas_producto r " +
+                     "INNER JOIN productos p ON p.id = r.producto_id " +
+                     "WHERE r.granularidad = 'TOTAL' AND r.periodo = ? AND r.cantidad > 0 " +
+                     "ORDER BY r.cantidad DESC " +
+                     "LIMIT ?";
+
+        List<Map<String, Object>> productos = new ArrayList<>();
+
+        try (Connection conn = dbConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setTimestamp(1, Timestamp.valueOf(PERIODO_TOTAL));
+            stmt.setInt(2, limite);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Map<String, Object> producto = new HashMap<>();
+                    producto.put("productoId", rs.getLong("producto_id"));
+                    producto.put("nombreProducto", rs.getString("nombre"));
+                    producto.put("cantidadVendida", rs.getInt("cantidad"));
+                    producto.put("totalVentas", rs.getDouble("total"));
+                    productos.add(producto);
+                }
+            }
+        }
+
+        return productos;
+    }
+
+    /**
+     * Total vendido entre dos fechas (inclusive) a partir de los buckets diarios (todos los slots)
+     */
+    public BigDecimal getTotalPeriodo(Date fechaInicio, Date fechaFin) throws SQLException {
+        String sql = "SELECT COALESCE(SUM(total), 0) AS total " +
+                     "FROM rollup_ventas_metodo_pago " +
+                     "WHERE granularidad = 'DIA' AND periodo BETWEEN ? AND ?";
+
+        try (Connection conn = dbConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setDate(1, fechaInicio);
+            stmt.setDate(2, fechaFin);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getBigDecimal("total");
+                }
+            }
+        }
+
+        return BigDecimal.ZERO;
+    }
+}
@@ -7,11 +7,16 @@ import org.slf4j.LoggerFactory;
 import java.math.BigDecimal;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import model.Cliente;
 import model.DetalleVenta;
 import model.Usuario;
 import model.Venta;
+import utils.KeysetCursor;
+import utils.PagedResponse;
 
 /**
  * Service para gestión de ventas con soporte transaccional
@@ -19,9 +24,11 @@ import model.Venta;
 public class VentaService {
     private static final Logger log = LoggerFactory.getLogger(VentaService.class);
     private final DatabaseConfig dbConfig;
+    private final VentaRollupService rollupService;
     
     public VentaService() {
         this.dbConfig = DatabaseConfig.getInstance();
+        this.rollupService = new VentaRollupService();
     }
     
     /**
@@ -49,6 +56,56 @@ public class VentaService {
         return ventas;
     }
     
+    /**
+     * Obtener una página de ventas por keyset (fecha DESC, id DESC)
+     * Usa el índice de fecha en lugar de OFFSET, así el costo no crece con la profundidad de la página.
+     * 
+     * @param cursor cursor opaco de la última venta entregada, o null para la primera página
+     * @param size número de ventas por página
+     * @throws IllegalArgumentException si el cursor es inválido
+     */
+    public PagedResponse<Venta> findPage(String cursor, int size) throws SQLException {
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        List<Venta> ventas = new ArrayList<>();
+        String sql = "SELECT v.*, " +
+                     "c.nombre as cliente_nombre, c.apellido as cliente_apellido, " +
+                     "u.nombre as usuario_nombre, u.apellido as usuario_apellido " +
+                     "FROM ventas v " +
+                     "LEFT JOIN clientes c ON v.cliente_id = c.id " +
+                     "LEFT JOIN usuarios u ON v.usuario_id = u.id " +
+                     (after != null ? "WHERE v.fecha < ? OR (v.fecha = ? AND v.id < ?) " : "") +
+                     "ORDER BY v.fecha DESC, v.id DESC " +
+                     "LIMIT ?";
+        
+        try (Connection conn = dbConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            int idx = 1;
+            if (after != null) {
+                stmt.setTimestamp(idx++, after.getFecha());
+                stmt.setTimestamp(idx++, after.getFecha());
+                stmt.setLong(idx++, after.getId());
+            }
+            // Se pide una fila extra para saber si hay página siguiente
+            stmt.setInt(idx, size + 1);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ventas.add(mapResultSetToVenta(rs));
+                }
+            }
+        }
+        
+        String nextCursor = null;
+        if (ventas.size() > size) {
+            ventas.remove(size);
+            Venta ultima = ventas.get(size - 1);
+            nextCursor = KeysetCursor.encode(ultima.getFecha(), ultima.getId());
+        }
+        
+        return new PagedResponse<>(ventas, size, after != null ? cursor : null, nextCursor);
+    }
+    
     /**
      * Buscar venta por ID
      */
@@ -77,7 +134,8 @@ public class VentaService {
     }
     
     /**
-     * Buscar ventas por fecha
+     * Buscar ventas por fecha (ambas fechas inclusive)
+     * Usa el rango semiabierto [inicio, fin + 1 día) sobre v.fecha para aprovechar idx_ventas_fecha
      */
     public List<Venta> findByFecha(Date fechaInicio, Date fechaFin) throws SQLException {
         List<Venta> ventas = new ArrayList<>();
@@ -87,14 +145,14 @@ public class VentaService {
                      "FROM ventas v " +
                      "LEFT JOIN clientes c ON v.cliente_id = c.id " +
                      "LEFT JOIN usuarios u ON v.usuario_id = u.id " +
-                     "WHERE DATE(v.fecha) BETWEEN ? AND ? " +
+                     "WHERE v.fecha >= ? AND v.fecha < ? " +
                      "ORDER BY v.fecha DESC";
         
         try (Connection conn = dbConfig.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setDate(1, fechaInicio);
-            stmt.setDate(2, fechaFin);
+            stmt.setDate(2, Date.valueOf(fechaFin.toLocalDate().plusDays(1)));
             
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
@@ -148,24 +206,51 @@ public class VentaService {
                 }
             }
             
-            // 2. Insertar los detalles (esto activa el trigger de descuento de stock)
+            // 2. Reservar stock e insertar los detalles
+            //    Se recorren en orden ascendente de producto_id para que dos ventas concurrentes
+            //    bloqueen las filas de productos en el mismo orden (sin deadlocks). El UPDATE
+            //    condicional descuenta solo si hay stock: si otra caja vendió las últimas unidades
+            //    no afecta filas y la venta se revierte. El trigger solo registra el movimiento.
+            List<DetalleVenta> ordenados = new ArrayList<>(detalles);
+            ordenados.sort(Comparator.comparing(DetalleVenta::getProductoId));
+            
+            String sqlReserva = "UPDATE productos SET stock = stock - ? WHERE id = ? AND stock >= ?";
             String sqlDetalle = "INSERT INTO detalle_ventas (venta_id, producto_id, nombre_producto, " +
                                "cantidad, precio_unitario, subtotal) VALUES (?, ?, ?, ?, ?, ?)";
             
-            try (PreparedStatement stmt = conn.prepareStatement(sqlDetalle)) {
-                for (DetalleVenta detalle : detalles) {
+            try (PreparedStatement reserva = conn.prepareStatement(sqlReserva);
+                 PreparedStatement stmt = conn.prepareStatement(sqlDetalle)) {
+                for (DetalleVenta detalle : ordenados) {
+                    reserva.setInt(1, detalle.getCantidad());
+                    reserva.setLong(2, detalle.getProductoId());
+                    reserva.setInt(3, detalle.getCantidad());
+                    if (reserva.executeUpdate() == 0) {
+                        throw new SQLException("No se pudo completar la venta: stock insuficiente para el producto ID " +
+                            detalle.getProductoId() + " (Solicitado: " + detalle.getCantidad() + ")");
+                    }
+                    
                     stmt.setLong(1, ventaId);
                     stmt.setLong(2, detalle.getProductoId());
                     stmt.setString(3, detalle.getNombreProducto());
                     stmt.setInt(4, detalle.getCantidad());
                     stmt.setBigDecimal(5, detalle.getPrecioUnitario());
                     stmt.setBigDecimal(6, detalle.getSubtotal());
-                    stmt.addBatch();
+                    stmt.executeUpdate();
                 }
-                stmt.executeBatch();
             }
             
+            // 3. Sumar la venta a los rollups de reportes (misma transacción)
+            rollupService.aplicarVenta(conn, ventaId);
+            
+            // Descontar lo vendido también del stock del cache de escaneo
+            Map<Long, Integer> deltas = new HashMap<>();
+            for (DetalleVenta detalle : ordenados) {
+                deltas.merge(detalle.getProductoId(), -detalle.getCantidad(), Integer::sum);
+            }
+            BarcodeCache.StockChange cambioStock = BarcodeCache.getInstance().beginStockChange(deltas);
+            
             conn.commit();
+            BarcodeCache.getInstance().applyStockChange(cambioStock);
             
             log.info("Venta creada exitosamente. ID: {}, Total: ${}", ventaId, venta.getTotal());
             return venta;
@@ -189,6 +274,11 @@ public class VentaService {
                 } catch (SQLException ex) {
                     log.error("Error al restaurar autocommit", ex);
                 }
+                try {
+                    conn.close(); // Devolver la conexión al pool
+                } catch (SQLException ex) {
+                    log.error("Error al devolver conexión al pool", ex);
+                }
             }
         }
     }
@@ -227,21 +317,36 @@ public class VentaService {
             conn = dbConfig.getConnection();
             conn.setAutoCommit(false);
             
-            // 1. Eliminar detalles (esto activa el trigger de reversión de stock)
+            // 1. Restar la venta de los rollups de reportes (antes de borrar los detalles)
+            rollupService.revertirVenta(conn, id);
+            
+            // 2. Eliminar detalles (esto activa el trigger de reversión de stock)
+            Map<Long, Integer> deltas = new HashMap<>();
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT producto_id, SUM(cantidad) FROM detalle_ventas WHERE venta_id = ? GROUP BY producto_id")) {
+                stmt.setLong(1, id);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        deltas.put(rs.getLong(1), rs.getInt(2));
+                    }
+                }
+            }
             String sqlDeleteDetalles = "DELETE FROM detalle_ventas WHERE venta_id = ?";
             try (PreparedStatement stmt = conn.prepareStatement(sqlDeleteDetalles)) {
                 stmt.setLong(1, id);
                 stmt.executeUpdate();
             }
             
-            // 2. Actualizar estado de la venta
+            // 3. Actualizar estado de la venta
             String sqlUpdateVenta = "UPDATE ventas SET estado = 'CANCELADA' WHERE id = ?";
             try (PreparedStatement stmt = conn.prepareStatement(sqlUpdateVenta)) {
                 stmt.setLong(1, id);
                 stmt.executeUpdate();
             }
             
+            BarcodeCache.StockChange cambioStock = BarcodeCache.getInstance().beginStockChange(deltas);
             conn.commit();
+            BarcodeCache.getInstance().applyStockChange(cambioStock);
             return true;
             
         } catch (SQLException e) {
@@ -251,7 +356,11 @@ public class VentaService {
             throw e;
         } finally {
             if (conn != null) {
-                conn.setAutoCommit(true);
+                try {
+                    conn.setAutoCommit(true);
+                } finally {
+                    conn.close(); // Devolver la conexión al pool
+                }
             }
         }
     }
@@ -260,24 +369,8 @@ public class VentaService {
      * Obtener total de ventas por período
      */
     public BigDecimal getTotalVentasPorPeriodo(Date fechaInicio, Date fechaFin) throws SQLException {
-        String sql = "SELECT COALESCE(SUM(total), 0) as total " +
-                     "FROM ventas " +
-                     "WHERE DATE(fecha) BETWEEN ? AND ? AND estado = 'COMPLETADA'";
-        
-        try (Connection conn = dbConfig.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setDate(1, fechaInicio);
-            stmt.setDate(2, fechaFin);
-            
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getBigDecimal("total");
-                }
-            }
-        }
-        
-        return BigDecimal.ZERO;
+        // Buckets diarios precalculados: el costo depende del rango, no del historial
+        return rollupService.getTotalPeriodo(fechaInicio, fechaFin);
     }
     
     /**
@@ -3,6 +3,7 @@ package utils;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import security.RolePermissions;
+import security.TokenClaims;
 
 import java.io.IOException;
 import java.util.Set;
@@ -25,10 +26,10 @@ public class AuthorizationHelper {
                                      HttpServletResponse response, 
                                      Set<Integer> allowedRoles) {
         try {
-            // Obtener el roleId del request (inyectado por JwtAuthenticationFilter)
-            Integer roleId = (Integer) request.getAttribute("roleId");
-            Long userId = (Long) request.getAttribute("userId");
-            String email = (String) request.getAttribute("userEmail");
+            // Obtener los datos del token verificado (inyectados por JwtAuthenticationFilter)
+            Integer roleId = getCurrentRoleId(request);
+            Long userId = getCurrentUserId(request);
+            String email = getCurrentUserEmail(request);
             
             // Validar que tenemos información del usuario
             if (roleId == null || userId == null) {
@@ -59,7 +60,7 @@ public class AuthorizationHelper {
      */
     public static boolean isAdmin(HttpServletRequest request, HttpServletResponse response) {
         try {
-            Integer roleId = (Integer) request.getAttribute("roleId");
+            Integer roleId = getCurrentRoleId(request);
             
             if (roleId == null) {
                 JsonResponse.unauthorized(response, "Información de autenticación incompleta");
@@ -84,7 +85,7 @@ public class AuthorizationHelper {
      */
     public static boolean hasAdminPrivileges(HttpServletRequest request, HttpServletResponse response) {
         try {
-            Integer roleId = (Integer) request.getAttribute("roleId");
+            Integer roleId = getCurrentRoleId(request);
             
             if (roleId == null) {
                 JsonResponse.unauthorized(response, "Información de autenticación incompleta");
@@ -105,25 +106,37 @@ public class AuthorizationHelper {
         }
     }
     
+    /**
+     * Obtiene los claims del token verificado por JwtAuthenticationFilter
+     * @return los claims, o null si el request no pasó por el filtro
+     */
+    public static TokenClaims getTokenClaims(HttpServletRequest request) {
+        Object claims = request.getAttribute(TokenClaims.REQUEST_ATTRIBUTE);
+        return claims instanceof TokenClaims ? (TokenClaims) claims : null;
+    }
+    
     /**
      * Obtiene el roleId del request actual
      */
     public static Integer getCurrentRoleId(HttpServletRequest request) {
-        return (Integer) request.getAttribute("roleId");
+        TokenClaims claims = getTokenClaims(request);
+        return claims != null ? claims.getRoleId() : (Integer) request.getAttribute("roleId");
     }
     
     /**
      * Obtiene el userId del request actual
      */
     public static Long getCurrentUserId(HttpServletRequest request) {
-        return (Long) request.getAttribute("userId");
+        TokenClaims claims = getTokenClaims(request);
+        return claims != null ? claims.getUserId() : (Long) request.getAttribute("userId");
     }
     
     /**
      * Obtiene el email del usuario actual
      */
     public static String getCurrentUserEmail(HttpServletRequest request) {
-        return (String) request.getAttribute("userEmail");
+        TokenClaims claims = getTokenClaims(request);
+        return claims != null ? claims.getEmail() : (String) request.getAttribute("userEmail");
     }
     
     /**
@@ -0,0 +1,302 @@
+package utils;
+
+import java.io.IOException;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Enlazador JSON precompilado por clase (dto.VentaDTO, dto.CompraDTO, etc.), inverso de BeanSerializer
+ * Cada clase se inspecciona una sola vez: el constructor sin argumentos y los setters se convierten
+ * en accesores generados con LambdaMetafactory. El cuerpo se decodifica token a token desde
+ * JsonReader directamente a los campos, sin Map intermedio.
+ *
+ * Tipos soportados: String, Long, Integer, Double, Boolean (y sus primitivos), BigDecimal, otros
+ * beans y List de cualquiera de ellos. Los campos desconocidos o de otros tipos (fechas, etc.)
+ * se ignoran; un valor de tipo incorrecto lanza IllegalArgumentException.
+ */
+final class BeanBinder {
+
+    private static final ConcurrentHashMap<Class<?>, BeanBinder> cache = new ConcurrentHashMap<>();
+
+    private final Supplier<Object> constructor;
+    private final Map<String, Property> properties;
+
+    private BeanBinder(Supplier<Object> constructor, Map<String, Property> properties) {
+        this.constructor = constructor;
+        this.properties = properties;
+    }
+
+    /**
+     * Obtener (o compilar la primera vez) el enlazador de una clase
+     */
+    static BeanBinder forClass(Class<?> clazz) {
+        return cache.computeIfAbsent(clazz, BeanBinder::compile);
+    }
+
+    /**
+     * Instancia nueva sin campos asignados (cuerpo vacío)
+     */
+    Object create() {
+        return constructor.get();
+    }
+
+    /**
+     * Leer el siguiente objeto JSON como una instancia nueva de la clase
+     */
+    Object read(JsonReader reader) throws IOException {
+        Object bean = constructor.get();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            Property property = properties.get(reader.nextName());
+            if (property == null) {
+                reader.skipValue();
+            } else if (reader.peek() == JsonReader.Token.NULL) {
+                reader.nextNull();
+                if (!property.primitive) {
+                    property.setter.accept(bean, null);
+                }
+            } else {
+                property.setter.accept(bean, property.kind.read(reader, property.elementType));
+            }
+        }
+        reader.endObject();
+        return bean;
+    }
+
+    private static BeanBinder compile(Class<?> clazz) {
+        Map<String, Property> properties = new HashMap<>();
+        for (Method method : clazz.getMethods()) {
+            String name = method.getName();
+            if (name.length() <= 3 || !name.startsWith("set") || method.getParameterCount() != 1
+                    || Modifier.isStatic(method.getModifiers()) || method.isBridge()) {
+                continue;
+            }
+
+            Class<?> type = method.getParameterTypes()[0];
+            Class<?> elementType = type;
+            if (type == List.class) {
+                elementType = elementType(method.getGenericParameterTypes()[0]);
+                if (elementType == null || Kind.of(elementType) == null) {
+                    continue;
+                }
+            }
+            Kind kind = Kind.of(type);
+            if (kind == null) {
+                continue;
+            }
+
+            String fieldName = name.substring(3, 4).toLowerCase() + name.substring(4);
+            properties.putIfAbsent(fieldName,
+                new Property(setter(clazz, method), kind, elementType, type.isPrimitive()));
+        }
+
+        return new BeanBinder(constructor(clazz), properties);
+    }
+
+    private static Class<?> elementType(Type type) {
+        if (type instanceof ParameterizedType) {
+            Type arg = ((ParameterizedType) type).getActualTypeArguments()[0];
+            if (arg instanceof Class) {
+                return (Class<?>) arg;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Generar una fábrica directa para el constructor sin argumentos
+     */
+    @SuppressWarnings("unchecked")
+    private static Supplier<Object> constructor(Class<?> clazz) {
+        Constructor<?> ctor;
+        try {
+            ctor = clazz.getConstructor();
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("La clase " + clazz.getName() + " no tiene constructor público sin argumentos");
+        }
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle handle = lookup.unreflectConstructor(ctor);
+            CallSite site = LambdaMetafactory.metafactory(lookup, "get",
+                    MethodType.methodType(Supplier.class),
+                    MethodType.methodType(Object.class),
+                    handle,
+                    MethodType.methodType(clazz));
+            return (Supplier<Object>) site.getTarget().invokeExact();
+        } catch (Throwable e) {
+            return () -> {
+                try {
+                    return ctor.newInstance();
+                } catch (ReflectiveOperationException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            };
+        }
+    }
+
+    /**
+     * Generar un accesor directo para el setter; si la clase no es accesible se usa Method.invoke
+     */
+    @SuppressWarnings("unchecked")
+    private static BiConsumer<Object, Object> setter(Class<?> clazz, Method method) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle handle = lookup.unreflect(method);
+            CallSite site = LambdaMetafactory.metafactory(lookup, "accept",
+                    MethodType.methodType(BiConsumer.class),
+                    MethodType.methodType(void.class, Object.class, Object.class),
+                    handle,
+                    MethodType.methodType(void.class, clazz, method.getParameterTypes()[0]).wrap().changeReturnType(void.class));
+            return (BiConsumer<Object, Object>) site.getTarget().invokeExact();
+        } catch (Throwable e) {
+            return (obj, value) -> {
+                try {
+                    method.invoke(obj, value);
+                } catch (ReflectiveOperationException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            };
+        }
+    }
+
+    /**
+     * Campo precompilado: setter, forma de leer el valor y clase del valor (del elemento en listas)
+     */
+    private static final class Property {
+        final BiConsumer<Object, Object> setter;
+        final Kind kind;
+        final Class<?> elementType;
+        final boolean primitive;
+
+        Property(BiConsumer<Object, Object> setter, Kind kind, Class<?> elementType, boolean primitive) {
+            this.setter = setter;
+            this.kind = kind;
+            this.elementType = elementType;
+            this.primitive = primitive;
+        }
+    }
+
+    /**
+     * Forma de leer un valor, decidida una vez a partir del tipo del parámetro del setter
+     */
+    private enum Kind {
+        STRING {
+            @Override
+            Object read(JsonReader reader, Class<?> elementType) throws IOException {
+                return reader.nextString();
+            }
+        },
+        LONG {
+            @Override
+            Object read(JsonReader reader, Class<?> elementType) throws IOException {
+                return reader.nextLong();
+            }
+        },
+        INTEGER {
+            @Override
+            Object read(JsonReader reader, Class<?> elementType) throws IOException {
+                return reader.nextInt();
+            }
+        },
+        DOUBLE {
+            @Override
+            Object read(JsonReader reader, Class<?> elementType) throws IOException {
+                return reader.nextBigDecimal().doubleValue();
+            }
+        },
+        DECIMAL {
+            @Override
+            Object read(JsonReader reader, Class<?> elementType) throws IOException {
+                return reader.nextBigDecimal();
+            }
+        },
+        BOOLEAN {
+            @Override
+            Object read(JsonReader reader, Class<?> elementType) throws IOException {
+                return reader.nextBoolean();
+            }
+        },
+        LIST {
+            @Override
+            Object read(JsonReader reader, Class<?> elementType) throws IOException {
+                Kind element = of(elementType);
+                List<Object> list = new ArrayList<>();
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    if (reader.peek() == JsonReader.Token.NULL) {
+                        reader.nextNull();
+                        list.add(null);
+                    } else {
+                        list.add(element.read(reader, elementType));
+                    }
+                }
+                reader.endArray();
+                return list;
+            }
+        },
+        BEAN {
+            @Override
+            Object read(JsonReader reader, Class<?> elementType) throws IOException {
+                return forClass(elementType).read(reader);
+            }
+        };
+
+        /**
+         * @param elementType tipo del elemento para LIST, o la clase del bean para BEAN
+         */
+        abstract Object read(JsonReader reader, Class<?> elementType) throws IOException;
+
+        /**
+         * @return la forma de leer el tipo, o null si no está soportado
+         */
+        static Kind of(Class<?> type) {
+            if (type == String.class) {
+                return STRING;
+            }
+            if (type == Long.class || type == long.class) {
+                return LONG;
+            }
+            if (type == Integer.class || type == int.class) {
+                return INTEGER;
+            }
+            if (type == Double.class || type == double.class) {
+                return DOUBLE;
+            }
+            if (type == BigDecimal.class) {
+                return DECIMAL;
+            }
+            if (type == Boolean.class || type == boolean.class) {
+                return BOOLEAN;
+            }
+            if (type == List.class) {
+                return LIST;
+            }
+            if (type.isPrimitive() || type.isArray() || type.isEnum() || type.isInterface()
+                    || type.getName().startsWith("java.")) {
+                return null;
+            }
+            try {
+                type.getConstructor();
+                return BEAN;
+            } catch (NoSuchMethodException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package utils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Serializador JSON precompilado por clase (model.Venta, model.Producto, etc.)
+ * Cada clase se inspecciona una sola vez: los getters se convierten en accesores
+ * generados con LambdaMetafactory y se guardan en caché junto con el nombre del campo.
+ * Los campos se escriben en orden alfabético para que la salida sea determinista.
+ */
+final class BeanSerializer {
+
+    private static final ConcurrentHashMap<Class<?>, BeanSerializer> cache = new ConcurrentHashMap<>();
+
+    private final Property[] properties;
+
+    private BeanSerializer(Property[] properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Obtener (o compilar la primera vez) el serializador de una clase
+     */
+    static BeanSerializer forClass(Class<?> clazz) {
+        return cache.computeIfAbsent(clazz, BeanSerializer::compile);
+    }
+
+    /**
+     * Escribir el objeto como JSON
+     * Un getter que lanza excepción se omite, igual que con la serialización por reflection.
+     */
+    void write(Writer out, Object obj) throws IOException {
+        out.write('{');
+        boolean first = true;
+
+        for (Property property : properties) {
+            Object value;
+            try {
+                value = property.getter.apply(obj);
+            } catch (RuntimeException e) {
+                continue;
+            }
+
+            out.write(first ? property.firstKey : property.key);
+            first = false;
+            property.kind.write(out, value);
+        }
+
+        out.write('}');
+    }
+
+    private static BeanSerializer compile(Class<?> clazz) {
+        // TreeMap: orden determinista y un solo getter por nombre (descarta métodos bridge duplicados)
+        Map<String, Method> getters = new TreeMap<>();
+        for (Method method : clazz.getMethods()) {
+            String name = method.getName();
+            if (name.length() > 3 && name.startsWith("get") && !name.equals("getClass")
+                    && method.getParameterCount() == 0 && !Modifier.isStatic(method.getModifiers())) {
+
+                String fieldName = name.substring(3, 4).toLowerCase() + name.substring(4);
+                Method actual = getters.get(fieldName);
+                if (actual == null || actual.isBridge()) {
+                    getters.put(fieldName, method);
+                }
+            }
+        }
+
+        List<Property> properties = new ArrayList<>(getters.size());
+        for (Map.Entry<String, Method> entry : getters.entrySet()) {
+            Method method = entry.getValue();
+            properties.add(new Property(entry.getKey(), accessor(clazz, method), Kind.of(method.getReturnType())));
+        }
+
+        return new BeanSerializer(properties.toArray(new Property[0]));
+    }
+
+    /**
+     * Generar un accesor directo para el getter; si la clase no es accesible
+     * (p. ej. clases internas no públicas) se usa Method.invoke
+     */
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object> accessor(Class<?> clazz, Method method) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle handle = lookup.unreflect(method);
+            CallSite site = LambdaMetafactory.metafactory(lookup, "apply",
+                    MethodType.methodType(Function.class),
+                    MethodType.methodType(Object.class, Object.class),
+                    handle,
+                    MethodType.methodType(method.getReturnType(), clazz).wrap());
+            return (Function<Object, Object>) site.getTarget().invokeExact();
+        } catch (Throwable e) {
+            return obj -> {
+                try {
+                    return method.invoke(obj);
+                } catch (ReflectiveOperationException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            };
+        }
+    }
+
+    /**
+     * Campo precompilado: clave JSON preformateada, accesor y forma de escribir el valor
+     */
+    private static final class Property {
+        final String firstKey;
+        final String key;
+        final Function<Object, Object> getter;
+        final Kind kind;
+
+        Property(String fieldName, Function<Object, Object> getter, Kind kind) {
+            this.firstKey = "\"" + fieldName + "\":";
+            this.key = "," + firstKey;
+            this.getter = getter;
+            this.kind = kind;
+        }
+    }
+
+    /**
+     * Forma de escribir un valor, decidida una vez a partir del tipo de retorno del getter
+     */
+    private enum Kind {
+        STRING {
+            @Override
+            void writeValue(Writer out, Object value) throws IOException {
+                JsonResponse.writeString(out, (String) value);
+            }
+        },
+        LITERAL {
+            @Override
+            void writeValue(Writer out, Object value) throws IOException {
+                out.write(value.toString());
+            }
+        },
+        QUOTED {
+            @Override
+            void writeValue(Writer out, Object value) throws IOException {
+                out.write('"');
+                out.write(value.toString());
+                out.write('"');
+            }
+        },
+        DYNAMIC {
+            @Override
+            void writeValue(Writer out, Object value) throws IOException {
+                if (value instanceof String) {
+                    STRING.writeValue(out, value);
+                } else if (value instanceof Number || value instanceof Boolean) {
+                    LITERAL.writeValue(out, value);
+                } else if (value instanceof java.sql.Date || value instanceof java.sql.Timestamp) {
+                    QUOTED.writeValue(out, value);
+                } else if (value instanceof List) {
+                    JsonResponse.writeJson(out, value);
+                } else {
+                    // Para objetos anidados, usar su propio serializador
+                    forClass(value.getClass()).write(out, value);
+                }
+            }
+        };
+
+        void write(Writer out, Object value) throws IOException {
+            if (value == null) {
+                out.write("null");
+            } else {
+                writeValue(out, value);
+            }
+        }
+
+        abstract void writeValue(Writer out, Object value) throws IOException;
+
+        static Kind of(Class<?> type) {
+            if (type == String.class) {
+                return STRING;
+            }
+            if ((type.isPrimitive() && type != void.class && type != char.class) || type == Long.class || type == Integer.class
+                    || type == Double.class || type == Boolean.class || type == BigDecimal.class) {
+                return LITERAL;
+            }
+            if (type == java.sql.Timestamp.class || type == java.sql.Date.class) {
+                return QUOTED;
+            }
+            return DYNAMIC;
+        }
+    }
+}
@@ -1,285 +1,98 @@
 package utils;
 
 import jakarta.servlet.http.HttpServletRequest;
-import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 /**
  * Utilidad para parsear JSON manualmente sin dependencias externas.
- * Diseñado para manejar JSON simple con objetos y arrays anidados.
+ * El cuerpo se lee en una sola pasada con JsonReader; los enteros llegan como Long y los
+ * decimales como BigDecimal.
  */
 public class JsonParser {
     
     /**
      * Lee el cuerpo de la petición HTTP y lo parsea como JSON
+     * Un cuerpo vacío devuelve un Map vacío; un JSON mal formado o que excede los límites
+     * de JsonReader lanza IllegalArgumentException.
      */
     public static Map<String, Object> readJsonFromRequest(HttpServletRequest request) throws IOException {
-        StringBuilder sb = new StringBuilder();
-        try (BufferedReader reader = request.getReader()) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                sb.append(line);
-            }
-        }
-        
-        String jsonString = sb.toString();
-        System.out.println("📥 JSON recibido: " + jsonString);
-        return parseSimpleJson(jsonString);
+        checkContentLength(request);
+        return readObject(request.getInputStream());
     }
     
     /**
-     * Parsea una cadena JSON simple a un Map
+     * Lee el cuerpo de la petición HTTP directamente en una instancia de la clase indicada
+     * (p. ej. dto.VentaDTO), sin Map intermedio; ver BeanBinder para los tipos soportados.
+     * Un cuerpo vacío devuelve una instancia sin campos asignados.
      */
-    public static Map<String, Object> parseSimpleJson(String json) {
-        Map<String, Object> result = new HashMap<>();
-        
-        if (json == null || json.trim().isEmpty()) {
-            return result;
-        }
-        
-        json = json.trim();
-        if (!json.startsWith("{") || !json.endsWith("}")) {
-            return result;
-        }
-        
-        // Remover llaves externas
-        json = json.substring(1, json.length() - 1).trim();
-        
-        if (json.isEmpty()) {
-            return result;
-        }
-        
-        // Parsear pares clave-valor
-        int depth = 0;
-        boolean inString = false;
-        boolean escaped = false;
-        StringBuilder keyBuilder = new StringBuilder();
-        StringBuilder valueBuilder = new StringBuilder();
-        boolean parsingKey = true;
-        
-        for (int i = 0; i < json.length(); i++) {
-            char c = json.charAt(i);
-            
-            if (escaped) {
-                if (parsingKey) {
-                    keyBuilder.append(c);
-                } else {
-                    valueBuilder.append(c);
-                }
-                escaped = false;
-                continue;
-            }
-            
-            if (c == '\\') {
-                escaped = true;
-                if (!parsingKey) {
-                    valueBuilder.append(c);
-                }
-                continue;
-            }
-            
-            if (c == '"') {
-                inString = !inString;
-                if (!parsingKey && depth == 0) {
-                    valueBuilder.append(c);
-                }
-                continue;
-            }
-            
-            if (!inString) {
-                if (c == '{' || c == '[') {
-                    depth++;
-                    if (!parsingKey) {
-                        valueBuilder.append(c);
-                    }
-                    continue;
-                }
-                
-                if (c == '}' || c == ']') {
-                    depth--;
-                    if (!parsingKey) {
-                        valueBuilder.append(c);
-                    }
-                    continue;
-                }
-                
-                if (depth == 0) {
-                    if (c == ':' && parsingKey) {
-                        parsingKey = false;
-                        continue;
-                    }
-                    
-                    if (c == ',') {
-                        String key = keyBuilder.toString().trim().replace("\"", "");
-                        String value = valueBuilder.toString().trim();
-                        result.put(key, parseValue(value));
-                        
-                        keyBuilder = new StringBuilder();
-                        valueBuilder = new StringBuilder();
-                        parsingKey = true;
-                        continue;
-                    }
-                }
+    public static <T> T readJsonFromRequest(HttpServletRequest request, Class<T> type) throws IOException {
+        checkContentLength(request);
+        return read(request.getInputStream(), type);
+    }
+    
+    /**
+     * Lee un objeto JSON completo del stream en una instancia de la clase indicada (y lo cierra)
+     */
+    public static <T> T read(InputStream in, Class<T> type) throws IOException {
+        BeanBinder binder = BeanBinder.forClass(type);
+        try (JsonReader reader = new JsonReader(in)) {
+            if (reader.peek() == JsonReader.Token.END_DOCUMENT) {
+                return type.cast(binder.create());
             }
-            
-            if (parsingKey) {
-                keyBuilder.append(c);
-            } else {
-                valueBuilder.append(c);
-            }
-        }
-        
-        // Último par clave-valor
-        if (keyBuilder.length() > 0 || valueBuilder.length() > 0) {
-            String key = keyBuilder.toString().trim().replace("\"", "");
-            String value = valueBuilder.toString().trim();
-            if (!key.isEmpty()) {
-                result.put(key, parseValue(value));
+            if (reader.peek() != JsonReader.Token.BEGIN_OBJECT) {
+                throw new IllegalArgumentException("Se esperaba un objeto JSON");
             }
+            T result = type.cast(binder.read(reader));
+            reader.peek(); // verifica que no haya contenido después del objeto
+            return result;
         }
-        
-        return result;
     }
     
     /**
-     * Parsea un valor JSON (string, number, boolean, null, array, object)
+     * Rechaza de entrada los cuerpos que declaran un tamaño mayor al permitido
      */
-    private static Object parseValue(String value) {
-        if (value == null || value.isEmpty()) {
-            return null;
-        }
-        
-        value = value.trim();
-        
-        // null
-        if ("null".equals(value)) {
-            return null;
+    private static void checkContentLength(HttpServletRequest request) {
+        if (request.getContentLengthLong() > JsonReader.MAX_BYTES) {
+            throw new IllegalArgumentException("El cuerpo JSON excede el tamaño máximo de "
+                + JsonReader.MAX_BYTES + " bytes");
         }
-        
-        // boolean
-        if ("true".equals(value)) {
-            return true;
-        }
-        if ("false".equals(value)) {
-            return false;
-        }
-        
-        // string (con comillas)
-        if (value.startsWith("\"") && value.endsWith("\"")) {
-            return value.substring(1, value.length() - 1)
-                    .replace("\\\"", "\"")
-                    .replace("\\n", "\n")
-                    .replace("\\t", "\t")
-                    .replace("\\\\", "\\");
-        }
-        
-        // array
-        if (value.startsWith("[") && value.endsWith("]")) {
-            return parseJsonArray(value);
-        }
-        
-        // object anidado
-        if (value.startsWith("{") && value.endsWith("}")) {
-            return parseSimpleJson(value);
+    }
+    
+    /**
+     * Parsea una cadena JSON simple a un Map
+     */
+    public static Map<String, Object> parseSimpleJson(String json) {
+        if (json == null || json.isBlank()) {
+            return new HashMap<>();
         }
-        
-        // number
         try {
-            if (value.contains(".")) {
-                return Double.parseDouble(value);
-            } else {
-                return Long.parseLong(value);
-            }
-        } catch (NumberFormatException e) {
-            // Si no es número, devolver como string
-            return value;
+            return readObject(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+        } catch (IOException e) {
+            // Un ByteArrayInputStream no lanza IOException
+            throw new UncheckedIOException(e);
         }
     }
     
     /**
-     * Parsea un array JSON
+     * Lee un objeto JSON completo del stream (y lo cierra)
      */
-    private static List<Object> parseJsonArray(String arrayStr) {
-        List<Object> result = new ArrayList<>();
-        
-        if (arrayStr == null || arrayStr.trim().isEmpty()) {
-            return result;
-        }
-        
-        arrayStr = arrayStr.trim();
-        if (!arrayStr.startsWith("[") || !arrayStr.endsWith("]")) {
-            return result;
-        }
-        
-        // Remover corchetes
-        arrayStr = arrayStr.substring(1, arrayStr.length() - 1).trim();
-        
-        if (arrayStr.isEmpty()) {
-            return result;
-        }
-        
-        // Parsear elementos
-        int depth = 0;
-        boolean inString = false;
-        boolean escaped = false;
-        StringBuilder elementBuilder = new StringBuilder();
-        
-        for (int i = 0; i < arrayStr.length(); i++) {
-            char c = arrayStr.charAt(i);
-            
-            if (escaped) {
-                elementBuilder.append(c);
-                escaped = false;
-                continue;
+    public static Map<String, Object> readObject(InputStream in) throws IOException {
+        try (JsonReader reader = new JsonReader(in)) {
+            if (reader.peek() == JsonReader.Token.END_DOCUMENT) {
+                return new HashMap<>();
             }
-            
-            if (c == '\\') {
-                escaped = true;
-                elementBuilder.append(c);
-                continue;
-            }
-            
-            if (c == '"') {
-                inString = !inString;
-                elementBuilder.append(c);
-                continue;
-            }
-            
-            if (!inString) {
-                if (c == '{' || c == '[') {
-                    depth++;
-                } else if (c == '}' || c == ']') {
-                    depth--;
-                } else if (c == ',' && depth == 0) {
-                    String element = elementBuilder.toString().trim();
-                    if (!element.isEmpty()) {
-                        // Detectar si es objeto o valor primitivo
-                        if (element.startsWith("{")) {
-                            result.add(parseSimpleJson(element));
-                        } else {
-                            result.add(parseValue(element));
-                        }
-                    }
-                    elementBuilder = new StringBuilder();
-                    continue;
-                }
-            }
-            
-            elementBuilder.append(c);
-        }
-        
-        // Último elemento
-        String element = elementBuilder.toString().trim();
-        if (!element.isEmpty()) {
-            if (element.startsWith("{")) {
-                result.add(parseSimpleJson(element));
-            } else {
-                result.add(parseValue(element));
+            if (reader.peek() != JsonReader.Token.BEGIN_OBJECT) {
+                throw new IllegalArgumentException("Se esperaba un objeto JSON");
             }
+            Map<String, Object> result = reader.readObject();
+            reader.peek(); // verifica que no haya contenido después del objeto
+            return result;
         }
-        
-        return result;
     }
     
     /**
@@ -0,0 +1,652 @@
+package utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lector JSON de tipo pull que recorre el cuerpo una sola vez, directamente desde el InputStream.
+ * Decodifica UTF-8 y números sobre buffers reutilizables (sin Strings intermedios) y aplica
+ * límites de tamaño y profundidad; cualquier error de formato o límite excedido lanza
+ * IllegalArgumentException, que los servlets responden como 400.
+ *
+ * Uso típico:
+ * <pre>
+ *   reader.beginObject();
+ *   while (reader.hasNext()) {
+ *       switch (reader.nextName()) {
+ *           case "cantidad": cantidad = reader.nextInt(); break;
+ *           default: reader.skipValue();
+ *       }
+ *   }
+ *   reader.endObject();
+ * </pre>
+ */
+public class JsonReader implements Closeable {
+
+    // Tamaño máximo del cuerpo (bytes) y anidamiento máximo de objetos/arrays
+    public static final long MAX_BYTES = Long.parseLong(
+        System.getenv().getOrDefault("JSON_MAX_BYTES", "1048576"));
+    public static final int MAX_DEPTH = Integer.parseInt(
+        System.getenv().getOrDefault("JSON_MAX_DEPTH", "32"));
+
+    public enum Token {
+        BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+    }
+
+    // Contextos de la pila de anidamiento
+    private static final byte DOCUMENTO_VACIO = 0;
+    private static final byte DOCUMENTO_LLENO = 1;
+    private static final byte OBJETO_VACIO = 2;
+    private static final byte OBJETO_LLENO = 3;
+    private static final byte NOMBRE_PENDIENTE = 4;
+    private static final byte ARRAY_VACIO = 5;
+    private static final byte ARRAY_LLENO = 6;
+
+    // 18 dígitos siempre caben en un long
+    private static final int MAX_DIGITOS_LONG = 18;
+    private static final int CACHE_NOMBRES = 64;
+    private static final int MAX_LARGO_NOMBRE_CACHE = 32;
+
+    private final InputStream in;
+    private final long maxBytes;
+    private final int maxDepth;
+
+    private final byte[] buffer = new byte[8192];
+    private int pos;
+    private int limite;
+    private long leidos;
+
+    private final byte[] pila;
+    private int profundidad;
+    private Token siguiente;
+
+    // Cadena o nombre en curso
+    private final StringBuilder texto = new StringBuilder(64);
+    // Los nombres se repiten en cada elemento de un array: se reutiliza el mismo String
+    private final String[] nombres = new String[CACHE_NOMBRES];
+
+    // Número en curso: mantisa y escala si cabe en un long, si no los caracteres
+    private long mantisa;
+    private int escala;
+    private boolean negativo;
+    private boolean entero;
+    private boolean desbordado;
+    private int cifrasMantisa;
+    private char[] digitos = new char[32];
+    private int largoDigitos;
+
+    private boolean booleano;
+
+    public JsonReader(InputStream in) {
+        this(in, MAX_BYTES, MAX_DEPTH);
+    }
+
+    public JsonReader(InputStream in, long maxBytes, int maxDepth) {
+        this.in = in;
+        this.maxBytes = maxBytes;
+        this.maxDepth = maxDepth;
+        this.pila = new byte[maxDepth + 1];
+        this.pila[profundidad++] = DOCUMENTO_VACIO;
+    }
+
+    /**
+     * Tipo del siguiente token, sin consumirlo
+     */
+    public Token peek() throws IOException {
+        if (siguiente == null) {
+            siguiente = avanzar();
+        }
+        return siguiente;
+    }
+
+    /**
+     * Hay más elementos en el objeto o array actual
+     */
+    public boolean hasNext() throws IOException {
+        Token t = peek();
+        return t != Token.END_OBJECT && t != Token.END_ARRAY && t != Token.END_DOCUMENT;
+    }
+
+    public void beginObject() throws IOException {
+        esperar(Token.BEGIN_OBJECT);
+        apilar(OBJETO_VACIO);
+    }
+
+    public void endObject() throws IOException {
+        esperar(Token.END_OBJECT);
+        profundidad--;
+    }
+
+    public void beginArray() throws IOException {
+        esperar(Token.BEGIN_ARRAY);
+        apilar(ARRAY_VACIO);
+    }
+
+    public void endArray() throws IOException {
+        esperar(Token.END_ARRAY);
+        profundidad--;
+    }
+
+    public String nextName() throws IOException {
+        esperar(Token.NAME);
+        leerCadena();
+        return nombreCacheado();
+    }
+
+    public String nextString() throws IOException {
+        Token t = peek();
+        if (t == Token.NUMBER) {
+            siguiente = null;
+            return desbordado ? new String(digitos, 0, largoDigitos) : nextBigDecimalActual().toPlainString();
+        }
+        esperar(Token.STRING);
+        leerCadena();
+        return texto.toString();
+    }
+
+    public boolean nextBoolean() throws IOException {
+        esperar(Token.BOOLEAN);
+        return booleano;
+    }
+
+    public void nextNull() throws IOException {
+        esperar(Token.NULL);
+    }
+
+    public long nextLong() throws IOException {
+        esperar(Token.NUMBER);
+        if (entero && !desbordado) {
+            return negativo ? -mantisa : mantisa;
+        }
+        try {
+            return nextBigDecimalActual().longValueExact();
+        } catch (ArithmeticException e) {
+            throw error("se esperaba un número entero");
+        }
+    }
+
+    public int nextInt() throws IOException {
+        long valor = nextLong();
+        if (valor != (int) valor) {
+            throw error("número fuera de rango: " + valor);
+        }
+        return (int) valor;
+    }
+
+    public BigDecimal nextBigDecimal() throws IOException {
+        esperar(Token.NUMBER);
+        return nextBigDecimalActual();
+    }
+
+    /**
+     * Omite el siguiente valor completo (incluidos objetos y arrays anidados)
+     */
+    public void skipValue() throws IOException {
+        int nivel = 0;
+        do {
+            switch (peek()) {
+                case BEGIN_OBJECT: beginObject(); nivel++; break;
+                case BEGIN_ARRAY: beginArray(); nivel++; break;
+                case END_OBJECT:
+                    if (nivel == 0) {
+                        throw error("se esperaba un valor");
+                    }
+                    endObject();
+                    nivel--;
+                    break;
+                case END_ARRAY:
+                    if (nivel == 0) {
+                        throw error("se esperaba un valor");
+                    }
+                    endArray();
+                    nivel--;
+                    break;
+                case NAME: nextName(); break;
+                case STRING: esperar(Token.STRING); leerCadena(); break;
+                case END_DOCUMENT: throw error("fin inesperado del documento");
+                default: siguiente = null;
+            }
+        } while (nivel > 0);
+    }
+
+    /**
+     * Lee el siguiente valor como Map, List, String, Long (enteros), BigDecimal (decimales),
+     * Boolean o null
+     */
+    public Object readValue() throws IOException {
+        switch (peek()) {
+            case BEGIN_OBJECT:
+                return readObject();
+            case BEGIN_ARRAY:
+                List<Object> lista = new ArrayList<>();
+                beginArray();
+                while (hasNext()) {
+                    lista.add(readValue());
+                }
+                endArray();
+                return lista;
+            case STRING:
+                return nextString();
+            case NUMBER:
+                esperar(Token.NUMBER);
+                return entero && !desbordado ? Long.valueOf(negativo ? -mantisa : mantisa) : nextBigDecimalActual();
+            case BOOLEAN:
+                return nextBoolean();
+            case NULL:
+                nextNull();
+                return null;
+            default:
+                throw error("se esperaba un valor");
+        }
+    }
+
+    public Map<String, Object> readObject() throws IOException {
+        Map<String, Object> objeto = new HashMap<>();
+        beginObject();
+        while (hasNext()) {
+            String nombre = nextName();
+            objeto.put(nombre, readValue());
+        }
+        endObject();
+        return objeto;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    // ==================== TOKENIZADOR ====================
+
+    private Token avanzar() throws IOException {
+        byte contexto = pila[profundidad - 1];
+        int c;
+        switch (contexto) {
+            case ARRAY_VACIO:
+                pila[profundidad - 1] = ARRAY_LLENO;
+                c = siguienteNoBlanco();
+                if (c == ']') {
+                    return Token.END_ARRAY;
+                }
+                return valor(c);
+            case ARRAY_LLENO:
+                c = siguienteNoBlanco();
+                if (c == ']') {
+                    return Token.END_ARRAY;
+                }
+                if (c != ',') {
+                    throw error("se esperaba ',' o ']'");
+                }
+                return valor(siguienteNoBlanco());
+            case OBJETO_VACIO:
+            case OBJETO_LLENO:
+                c = siguienteNoBlanco();
+                if (c == '}') {
+                    return Token.END_OBJECT;
+                }
+                if (contexto == OBJETO_LLENO) {
+                    if (c != ',') {
+                        throw error("se esperaba ',' o '}'");
+                    }
+                    c = siguienteNoBlanco();
+                }
+                if (c != '"') {
+                    throw error("se esperaba un nombre entre comillas");
+                }
+                pila[profundidad - 1] = NOMBRE_PENDIENTE;
+                return Token.NAME;
+            case NOMBRE_PENDIENTE:
+                if (siguienteNoBlanco() != ':') {
+                    throw error("se esperaba ':'");
+                }
+                pila[profundidad - 1] = OBJETO_LLENO;
+                return valor(siguienteNoBlanco());
+            case DOCUMENTO_VACIO:
+                pila[profundidad - 1] = DOCUMENTO_LLENO;
+                c = siguienteNoBlanco();
+                return c == -1 ? Token.END_DOCUMENT : valor(c);
+            default:
+                if (siguienteNoBlanco() != -1) {
+                    throw error("contenido después del final del documento");
+                }
+                return Token.END_DOCUMENT;
+        }
+    }
+
+    private Token valor(int c) throws IOException {
+        switch (c) {
+            case '{': return Token.BEGIN_OBJECT;
+            case '[': return Token.BEGIN_ARRAY;
+            case '"': return Token.STRING;
+            case 't':
+                literal("rue");
+                booleano = true;
+                return Token.BOOLEAN;
+            case 'f':
+                literal("alse");
+                booleano = false;
+                return Token.BOOLEAN;
+            case 'n':
+                literal("ull");
+                return Token.NULL;
+            case -1:
+                throw error("fin inesperado del documento");
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    leerNumero(c);
+                    return Token.NUMBER;
+                }
+                throw error("carácter inesperado '" + (char) c + "'");
+        }
+    }
+
+    private void literal(String resto) throws IOException {
+        for (int i = 0; i < resto.length(); i++) {
+            if (leer() != resto.charAt(i)) {
+                throw error("literal inválido");
+            }
+        }
+    }
+
+    private void leerNumero(int c) throws IOException {
+        mantisa = 0;
+        escala = 0;
+        entero = true;
+        desbordado = false;
+        cifrasMantisa = 0;
+        largoDigitos = 0;
+        negativo = c == '-';
+        if (negativo) {
+            agregarDigito(c);
+            c = leer();
+        }
+
+        int enteros = leerDigitos(c, false);
+        if (enteros == 0) {
+            throw error("número inválido");
+        }
+        if (enteros > 1 && digitos[negativo ? 1 : 0] == '0') {
+            throw error("número con ceros a la izquierda");
+        }
+
+        c = mirar();
+        if (c == '.') {
+            entero = false;
+            agregarDigito(leer());
+            if (leerDigitos(leer(), true) == 0) {
+                throw error("se esperaban dígitos después del punto decimal");
+            }
+            c = mirar();
+        }
+        if (c == 'e' || c == 'E') {
+            entero = false;
+            agregarDigito(leer());
+            c = leer();
+            boolean exponenteNegativo = c == '-';
+            if (c == '-' || c == '+') {
+                agregarDigito(c);
+                c = leer();
+            }
+            int exponente = 0;
+            int cifras = 0;
+            while (c >= '0' && c <= '9') {
+                agregarDigito(c);
+                if (exponente < 100_000) {
+                    exponente = exponente * 10 + (c - '0');
+                }
+                cifras++;
+                int p = mirar();
+                if (p < '0' || p > '9') {
+                    break;
+                }
+                c = leer();
+            }
+            if (cifras == 0) {
+                throw error("exponente inválido");
+            }
+            if (exponente >= 100_000) {
+                throw error("exponente fuera de rango");
+            }
+            escala -= exponenteNegativo ? -exponente : exponente;
+        }
+    }
+
+    /**
+     * Acumula dígitos empezando por c; deja sin consumir el primer carácter que no es dígito
+     * @return la cantidad de dígitos leídos
+     */
+    private int leerDigitos(int c, boolean fraccion) throws IOException {
+        int cifras = 0;
+        while (c >= '0' && c <= '9') {
+            agregarDigito(c);
+            if (!desbordado) {
+                // Los ceros iniciales no cuentan como dígitos significativos
+                if (c != '0' || cifrasMantisa > 0) {
+                    cifrasMantisa++;
+                }
+                if (cifrasMantisa > MAX_DIGITOS_LONG) {
+                    desbordado = true;
+                } else {
+                    mantisa = mantisa * 10 + (c - '0');
+                }
+            }
+            if (fraccion) {
+                escala++;
+            }
+            cifras++;
+            int p = mirar();
+            if (p < '0' || p > '9') {
+                break;
+            }
+            c = leer();
+        }
+        if (cifras == 0 && c != -1) {
+            // El carácter no era dígito: devolverlo para que lo procese el siguiente token
+            pos--;
+        }
+        return cifras;
+    }
+
+    private void agregarDigito(int c) {
+        if (largoDigitos == digitos.length) {
+            if (largoDigitos >= 1024) {
+                throw error("número demasiado largo");
+            }
+            char[] mayor = new char[largoDigitos * 2];
+            System.arraycopy(digitos, 0, mayor, 0, largoDigitos);
+            digitos = mayor;
+        }
+        digitos[largoDigitos++] = (char) c;
+    }
+
+    private BigDecimal nextBigDecimalActual() {
+        if (desbordado) {
+            try {
+                return new BigDecimal(digitos, 0, largoDigitos);
+            } catch (NumberFormatException e) {
+                throw error("número inválido");
+            }
+        }
+        return BigDecimal.valueOf(negativo ? -mantisa : mantisa, escala);
+    }
+
+    /**
+     * Lee una cadena (la comilla inicial ya fue consumida) a texto, decodificando UTF-8 y escapes
+     */
+    private void leerCadena() throws IOException {
+        texto.setLength(0);
+        while (true) {
+            // Camino rápido: ASCII sin escapes directamente del buffer
+            int p = pos;
+            int lim = limite;
+            byte[] b = buffer;
+            while (p < lim) {
+                int c = b[p];
+                if (c == '"' || c == '\\' || c < 0x20) {
+                    break;
+                }
+                texto.append((char) c);
+                p++;
+            }
+            pos = p;
+
+            int c = leer();
+            if (c == '"') {
+                return;
+            }
+            if (c == '\\') {
+                escape();
+            } else if (c == -1) {
+                throw error("cadena sin terminar");
+            } else if (c >= 0x80) {
+                utf8(c);
+            } else if (c < 0x20) {
+                throw error("carácter de control sin escapar en una cadena");
+            } else {
+                texto.append((char) c);
+            }
+        }
+    }
+
+    private void escape() throws IOException {
+        int c = leer();
+        switch (c) {
+            case '"': texto.append('"'); break;
+            case '\\': texto.append('\\'); break;
+            case '/': texto.append('/'); break;
+            case 'b': texto.append('\b'); break;
+            case 'f': texto.append('\f'); break;
+            case 'n': texto.append('\n'); break;
+            case 'r': texto.append('\r'); break;
+            case 't': texto.append('\t'); break;
+            case 'u':
+                int valor = 0;
+                for (int i = 0; i < 4; i++) {
+                    int h = Character.digit(leer(), 16);
+                    if (h < 0) {
+                        throw error("escape \\u inválido");
+                    }
+                    valor = (valor << 4) | h;
+                }
+                texto.append((char) valor);
+                break;
+            default:
+                throw error("escape inválido");
+        }
+    }
+
+    private void utf8(int primero) throws IOException {
+        int extra;
+        int codigo;
+        if ((primero & 0xE0) == 0xC0) {
+            extra = 1;
+            codigo = primero & 0x1F;
+        } else if ((primero & 0xF0) == 0xE0) {
+            extra = 2;
+            codigo = primero & 0x0F;
+        } else if ((primero & 0xF8) == 0xF0) {
+            extra = 3;
+            codigo = primero & 0x07;
+        } else {
+            throw error("UTF-8 inválido");
+        }
+        for (int i = 0; i < extra; i++) {
+            int c = leer();
+            if (c == -1 || (c & 0xC0) != 0x80) {
+                throw error("UTF-8 inválido");
+            }
+            codigo = (codigo << 6) | (c & 0x3F);
+        }
+        if (codigo > Character.MAX_CODE_POINT || (codigo >= 0xD800 && codigo <= 0xDFFF)) {
+            throw error("UTF-8 inválido");
+        }
+        texto.appendCodePoint(codigo);
+    }
+
+    private String nombreCacheado() {
+        int largo = texto.length();
+        if (largo > MAX_LARGO_NOMBRE_CACHE) {
+            return texto.toString();
+        }
+        int h = 0;
+        for (int i = 0; i < largo; i++) {
+            h = 31 * h + texto.charAt(i);
+        }
+        int slot = (h ^ (h >>> 16)) & (CACHE_NOMBRES - 1);
+        String cacheado = nombres[slot];
+        if (cacheado != null && cacheado.contentEquals(texto)) {
+            return cacheado;
+        }
+        String nombre = texto.toString();
+        nombres[slot] = nombre;
+        return nombre;
+    }
+
+    // ==================== ENTRADA ====================
+
+    private int siguienteNoBlanco() throws IOException {
+        while (true) {
+            int c = leer();
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return c;
+            }
+        }
+    }
+
+    /**
+     * Siguiente byte (0-255) o -1 al final
+     */
+    private int leer() throws IOException {
+        if (pos == limite && !llenar()) {
+            return -1;
+        }
+        return buffer[pos++] & 0xFF;
+    }
+
+    private int mirar() throws IOException {
+        if (pos == limite && !llenar()) {
+            return -1;
+        }
+        return buffer[pos] & 0xFF;
+    }
+
+    private boolean llenar() throws IOException {
+        int n = in.read(buffer, 0, buffer.length);
+        if (n <= 0) {
+            return false;
+        }
+        leidos += n;
+        if (leidos > maxBytes) {
+            throw new IllegalArgumentException("El cuerpo JSON excede el tamaño máximo de " + maxBytes + " bytes");
+        }
+        pos = 0;
+        limite = n;
+        return true;
+    }
+
+    private void esperar(Token esperado) throws IOException {
+        Token t = peek();
+        if (t != esperado) {
+            throw error("se esperaba " + esperado + " pero se encontró " + t);
+        }
+        siguiente = null;
+    }
+
+    private void apilar(byte contexto) {
+        if (profundidad > maxDepth) {
+            throw new IllegalArgumentException("JSON excede la profundidad máxima de " + maxDepth + " niveles");
+        }
+        pila[profundidad++] = contexto;
+    }
+
+    private IllegalArgumentException error(String detalle) {
+        long posicion = leidos - limite + pos;
+        return new IllegalArgumentException("JSON inválido en la posición " + posicion + ": " + detalle);
+    }
+}
@@ -3,22 +3,24 @@ package utils;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.Writer;
 
 /**
  * Utilidad para manejar respuestas JSON
+ * El JSON se escribe directamente en el writer de la respuesta (streaming),
+ * así los listados grandes no se materializan como un String en memoria.
  */
 public class JsonResponse {
     
+    // Tamaño del buffer de respuesta; el JSON se escribe en streaming sobre él
+    private static final int BUFFER_SIZE = 8 * 1024;
+    
     /**
      * Enviar respuesta JSON exitosa
      */
     public static void success(HttpServletResponse response, Object data) throws IOException {
-        response.setContentType("application/json");
-        response.setCharacterEncoding("UTF-8");
-        response.setStatus(HttpServletResponse.SC_OK);
-        
-        PrintWriter out = response.getWriter();
-        out.print(toJson(data));
+        PrintWriter out = begin(response, HttpServletResponse.SC_OK);
+        writeJson(out, data);
         out.flush();
     }
     
@@ -26,12 +28,12 @@ public class JsonResponse {
      * Enviar respuesta JSON exitosa con mensaje
      */
     public static void success(HttpServletResponse response, String message, Object data) throws IOException {
-        response.setContentType("application/json");
-        response.setCharacterEncoding("UTF-8");
-        response.setStatus(HttpServletResponse.SC_OK);
-        
-        PrintWriter out = response.getWriter();
-        out.print("{\"success\":true,\"message\":\"" + escapeJson(message) + "\",\"data\":" + toJson(data) + "}");
+        PrintWriter out = begin(response, HttpServletResponse.SC_OK);
+        out.write("{\"success\":true,\"message\":\"");
+        writeEscaped(out, message);
+        out.write("\",\"data\":");
+        writeJson(out, data);
+        out.write('}');
         out.flush();
     }
     
@@ -39,12 +41,10 @@ public class JsonResponse {
      * Enviar respuesta JSON de creación exitosa
      */
     public static void created(HttpServletResponse response, Object data) throws IOException {
-        response.setContentType("application/json");
-        response.setCharacterEncoding("UTF-8");
-        response.setStatus(HttpServletResponse.SC_CREATED);
-        
-        PrintWriter out = response.getWriter();
-        out.print("{\"success\":true,\"message\":\"Recurso creado exitosamente\",\"data\":" + toJson(data) + "}");
+        PrintWriter out = begin(response, HttpServletResponse.SC_CREATED);
+        out.write("{\"success\":true,\"message\":\"Recurso creado exitosamente\",\"data\":");
+        writeJson(out, data);
+        out.write('}');
         out.flush();
     }
     
@@ -52,12 +52,10 @@ public class JsonResponse {
      * Enviar respuesta JSON de error
      */
     public static void error(HttpServletResponse response, int statusCode, String message) throws IOException {
-        response.setContentType("application/json");
-        response.setCharacterEncoding("UTF-8");
-        response.setStatus(statusCode);
-        
-        PrintWriter out = response.getWriter();
-        out.print("{\"success\":false,\"error\":\"" + escapeJson(message) + "\"}");
+        PrintWriter out = begin(response, statusCode);
+        out.write("{\"success\":false,\"error\":\"");
+        writeEscaped(out, message);
+        out.write("\"}");
         out.flush();
     }
     
@@ -104,110 +102,100 @@ public class JsonResponse {
     }
     
     /**
-     * Convertir objeto a JSON simple (sin librerías externas)
+     * Preparar la respuesta y obtener el writer para escribir el JSON en streaming
      */
-    private static String toJson(Object obj) {
+    private static PrintWriter begin(HttpServletResponse response, int statusCode) throws IOException {
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.setStatus(statusCode);
+        // Buffer acotado: al llenarse el contenedor envía lo escrito y sigue, sin acumular el payload completo
+        if (!response.isCommitted()) {
+            response.setBufferSize(BUFFER_SIZE);
+        }
+        return response.getWriter();
+    }
+    
+    /**
+     * Escribir un valor como JSON directamente en el writer (sin librerías externas)
+     * Los tokens se escriben uno a uno, nunca se construye el String del payload completo.
+     */
+    static void writeJson(Writer out, Object obj) throws IOException {
         if (obj == null) {
-            return "null";
+            out.write("null");
+            return;
         }
         
         if (obj instanceof String) {
-            return "\"" + escapeJson((String) obj) + "\"";
+            writeString(out, (String) obj);
+            return;
         }
         
         if (obj instanceof Number || obj instanceof Boolean) {
-            return obj.toString();
+            out.write(obj.toString());
+            return;
         }
         
         if (obj instanceof java.util.List) {
-            StringBuilder sb = new StringBuilder("[");
-            java.util.List<?> list = (java.util.List<?>) obj;
-            for (int i = 0; i < list.size(); i++) {
-                if (i > 0) sb.append(",");
-                sb.append(toJson(list.get(i)));
+            out.write('[');
+            boolean first = true;
+            for (Object item : (java.util.List<?>) obj) {
+                if (!first) out.write(',');
+                first = false;
+                writeJson(out, item);
             }
-            sb.append("]");
-            return sb.toString();
+            out.write(']');
+            return;
         }
         
         if (obj instanceof java.util.Map) {
-            StringBuilder sb = new StringBuilder("{");
-            java.util.Map<?, ?> map = (java.util.Map<?, ?>) obj;
+            out.write('{');
             boolean first = true;
-            for (java.util.Map.Entry<?, ?> entry : map.entrySet()) {
-                if (!first) sb.append(",");
+            for (java.util.Map.Entry<?, ?> entry : ((java.util.Map<?, ?>) obj).entrySet()) {
+                if (!first) out.write(',');
                 first = false;
-                sb.append("\"").append(escapeJson(entry.getKey().toString())).append("\":");
-                sb.append(toJson(entry.getValue()));
+                writeString(out, entry.getKey().toString());
+                out.write(':');
+                writeJson(out, entry.getValue());
             }
-            sb.append("}");
-            return sb.toString();
+            out.write('}');
+            return;
         }
         
-        // Para objetos complejos, usar reflection básico
-        return objectToJson(obj);
+        // Para objetos complejos, usar el serializador precompilado de su clase
+        BeanSerializer.forClass(obj.getClass()).write(out, obj);
     }
     
     /**
-     * Convertir objeto a JSON usando reflection
+     * Escribir un String JSON entre comillas, escapando caracteres especiales
      */
-    private static String objectToJson(Object obj) {
-        if (obj == null) return "null";
-        
-        StringBuilder json = new StringBuilder("{");
-        Class<?> clazz = obj.getClass();
-        java.lang.reflect.Method[] methods = clazz.getMethods();
-        boolean first = true;
-        
-        for (java.lang.reflect.Method method : methods) {
-            String methodName = method.getName();
-            
-            // Solo procesar getters
-            if (methodName.startsWith("get") && !methodName.equals("getClass") && 
-                method.getParameterCount() == 0) {
-                
-                try {
-                    Object value = method.invoke(obj);
-                    String fieldName = methodName.substring(3, 4).toLowerCase() + methodName.substring(4);
-                    
-                    if (!first) json.append(",");
-                    first = false;
-                    
-                    json.append("\"").append(fieldName).append("\":");
-                    
-                    if (value == null) {
-                        json.append("null");
-                    } else if (value instanceof String) {
-                        json.append("\"").append(escapeJson((String) value)).append("\"");
-                    } else if (value instanceof Number || value instanceof Boolean) {
-                        json.append(value);
-                    } else if (value instanceof java.sql.Date || value instanceof java.sql.Timestamp) {
-                        json.append("\"").append(value.toString()).append("\"");
-                    } else if (value instanceof java.util.List) {
-                        json.append(toJson(value));
-                    } else {
-                        // Para objetos anidados, llamar recursivamente
-                        json.append(objectToJson(value));
-                    }
-                } catch (Exception e) {
-                    // Ignorar errores de reflexión
-                }
-            }
-        }
-        
-        json.append("}");
-        return json.toString();
+    static void writeString(Writer out, String str) throws IOException {
+        out.write('"');
+        writeEscaped(out, str);
+        out.write('"');
     }
     
     /**
-     * Escapar caracteres especiales para JSON
+     * Escapar caracteres especiales para JSON escribiendo directamente en el writer
+     * Copia tramos sin escapar de una sola vez en lugar de carácter por carácter.
      */
-    private static String escapeJson(String str) {
-        if (str == null) return "";
-        return str.replace("\\", "\\\\")
-                  .replace("\"", "\\\"")
-                  .replace("\n", "\\n")
-                  .replace("\r", "\\r")
-                  .replace("\t", "\\t");
+    private static void writeEscaped(Writer out, String str) throws IOException {
+        if (str == null) return;
+        int start = 0;
+        int length = str.length();
+        for (int i = 0; i < length; i++) {
+            String escape;
+            switch (str.charAt(i)) {
+                case '\\': escape = "\\\\"; break;
+                case '"':  escape = "\\\""; break;
+                case '\n': escape = "\\n"; break;
+                case '\r': escape = "\\r"; break;
+                case '\t': escape = "\\t"; break;
+                default: continue;
+            }
+            if (i > start) out.write(str, start, i - start);
+            out.write(escape);
+            start = i + 1;
+        }
+        if (start < length) out.write(str, start, length - start);
     }
 }
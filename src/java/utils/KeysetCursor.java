@@ -0,0 +1,107 @@
+package utils;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Base64;
+
+/**
+ * Cursor opaco para paginación por keyset (seek)
+ * Guarda la clave de orden y el id de la última fila entregada, codificados en Base64 URL-safe.
+ * El cliente sólo lo reenvía tal cual en el parámetro "cursor".
+ */
+public class KeysetCursor {
+    
+    private static final char TIPO_FECHA = 't';
+    private static final char TIPO_TEXTO = 's';
+    private static final char SEPARADOR = ':';
+    
+    private final Timestamp fecha;
+    private final String texto;
+    private final long id;
+    
+    private KeysetCursor(Timestamp fecha, String texto, long id) {
+        this.fecha = fecha;
+        this.texto = texto;
+        this.id = id;
+    }
+    
+    /**
+     * Cursor para listados ordenados por (fecha, id)
+     */
+    public static String encode(Timestamp fecha, long id) {
+        return encodeRaw(TIPO_FECHA + "" + SEPARADOR + id + SEPARADOR + fecha.getTime());
+    }
+    
+    /**
+     * Cursor para listados ordenados por (texto, id), p. ej. (nombre, id)
+     */
+    public static String encode(String texto, long id) {
+        return encodeRaw(TIPO_TEXTO + "" + SEPARADOR + id + SEPARADOR + texto);
+    }
+    
+    /**
+     * Decodifica un cursor recibido del cliente
+     * @return null si el cursor es null o vacío (primera página)
+     * @throws IllegalArgumentException si el cursor está mal formado
+     */
+    public static KeysetCursor decode(String cursor) {
+        if (cursor == null || cursor.trim().isEmpty()) {
+            return null;
+        }
+        
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+            int first = raw.indexOf(SEPARADOR);
+            int second = raw.indexOf(SEPARADOR, first + 1);
+            if (first != 1 || second < 0) {
+                throw new IllegalArgumentException("Cursor de paginación inválido");
+            }
+            
+            long id = Long.parseLong(raw.substring(first + 1, second));
+            String valor = raw.substring(second + 1);
+            
+            switch (raw.charAt(0)) {
+                case TIPO_FECHA:
+                    return new KeysetCursor(new Timestamp(Long.parseLong(valor)), null, id);
+                case TIPO_TEXTO:
+                    return new KeysetCursor(null, valor, id);
+                default:
+                    throw new IllegalArgumentException("Cursor de paginación inválido");
+            }
+        } catch (IllegalArgumentException e) {
+            // Incluye NumberFormatException y Base64 inválido
+            throw new IllegalArgumentException("Cursor de paginación inválido");
+        }
+    }
+    
+    private static String encodeRaw(String raw) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Fecha de la última fila (cursores por fecha)
+     * @throws IllegalArgumentException si el cursor no es de fecha
+     */
+    public Timestamp getFecha() {
+        if (fecha == null) {
+            throw new IllegalArgumentException("Cursor de paginación inválido para este listado");
+        }
+        return fecha;
+    }
+    
+    /**
+     * Texto de la última fila (cursores por nombre)
+     * @throws IllegalArgumentException si el cursor no es de texto
+     */
+    public String getTexto() {
+        if (texto == null) {
+            throw new IllegalArgumentException("Cursor de paginación inválido para este listado");
+        }
+        return texto;
+    }
+    
+    public long getId() {
+        return id;
+    }
+}
@@ -4,9 +4,14 @@ import java.util.List;
 
 /**
  * Clase genérica para respuestas paginadas
+ * Soporta paginación por número de página y paginación por cursor (keyset)
  */
 public class PagedResponse<T> {
     
+    // Tamaño de página por defecto y máximo para listados paginados
+    public static final int DEFAULT_SIZE = 50;
+    public static final int MAX_SIZE = 200;
+    
     private List<T> content;
     private int page;
     private int size;
@@ -14,6 +19,8 @@ public class PagedResponse<T> {
     private int totalPages;
     private boolean first;
     private boolean last;
+    private String cursor;
+    private String nextCursor;
     
     public PagedResponse() {}
     
@@ -27,6 +34,43 @@ public class PagedResponse<T> {
         this.last = page >= totalPages - 1;
     }
     
+    /**
+     * Página por cursor (keyset). No se calcula el total (evita un COUNT(*) por página),
+     * por eso totalElements y totalPages valen -1.
+     * 
+     * @param cursor cursor recibido (null en la primera página)
+     * @param nextCursor cursor para la siguiente página (null si es la última)
+     */
+    public PagedResponse(List<T> content, int size, String cursor, String nextCursor) {
+        this.content = content;
+        this.size = size;
+        this.totalElements = -1;
+        this.totalPages = -1;
+        this.cursor = cursor;
+        this.nextCursor = nextCursor;
+        this.first = cursor == null;
+        this.last = nextCursor == null;
+    }
+    
+    /**
+     * Interpreta el parámetro "limit" de un listado paginado
+     * @throws IllegalArgumentException si no es un número entre 1 y MAX_SIZE
+     */
+    public static int parseSize(String limitParam) {
+        if (limitParam == null || limitParam.trim().isEmpty()) {
+            return DEFAULT_SIZE;
+        }
+        try {
+            int size = Integer.parseInt(limitParam.trim());
+            if (size < 1 || size > MAX_SIZE) {
+                throw new IllegalArgumentException("El límite debe estar entre 1 y " + MAX_SIZE);
+            }
+            return size;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("El límite debe ser un número entero");
+        }
+    }
+    
     // Getters and Setters
     public List<T> getContent() { return content; }
     public void setContent(List<T> content) { this.content = content; }
@@ -48,4 +92,10 @@ public class PagedResponse<T> {
     
     public boolean isLast() { return last; }
     public void setLast(boolean last) { this.last = last; }
+    
+    public String getCursor() { return cursor; }
+    public void setCursor(String cursor) { this.cursor = cursor; }
+    
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
 }
@@ -0,0 +1,75 @@
+package security;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara la verificación de permisos con bitsets contra los Sets usados antes
+ * Ejecutar con: mvn -Pjmh test-compile exec:exec -Djmh.include=PermissionCheckBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PermissionCheckBenchmark {
+
+    private static final String[] CODIGOS = {"VENTAS_VER", "VENTAS_CREAR", "COMPRAS_VER"};
+
+    private Set<Integer> hashSetRoles;
+    private RoleSet roleSet;
+    private Set<String> permisosRol;
+    private PermissionCache.PermissionMask mascara;
+    private Integer[] roleIds;
+
+    @Setup
+    public void setup() {
+        roleSet = RolePermissions.VENTAS_READ;
+        hashSetRoles = new HashSet<>(roleSet);
+        roleIds = new Integer[21];
+        for (int i = 0; i < roleIds.length; i++) {
+            roleIds[i] = i;
+        }
+
+        permisosRol = new HashSet<>(Set.of("VENTAS_VER", "VENTAS_CREAR", "COMPRAS_VER", "CLIENTES_VER",
+            "PRODUCTOS_VER", "REPORTES_VER"));
+        Set<String> cargados = permisosRol;
+        PermissionCache.loader = roleId -> cargados;
+        PermissionCache.getPermissions(3);
+        mascara = PermissionCache.mask(CODIGOS);
+    }
+
+    @Benchmark
+    public void rolesHashSet(Blackhole bh) {
+        for (Integer roleId : roleIds) {
+            bh.consume(hashSetRoles.contains(roleId));
+        }
+    }
+
+    @Benchmark
+    public void rolesBitset(Blackhole bh) {
+        for (Integer roleId : roleIds) {
+            bh.consume(RolePermissions.hasPermission(roleId, roleSet));
+        }
+    }
+
+    @Benchmark
+    public boolean todosLosPermisosHashSet() {
+        for (String codigo : CODIGOS) {
+            if (!permisosRol.contains(codigo)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Benchmark
+    public boolean todosLosPermisosBitset() {
+        return PermissionCache.hasAllPermissions(3, mascara);
+    }
+}
@@ -0,0 +1,74 @@
+package utils;
+
+import dto.VentaDTO;
+import model.DetalleVenta;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara el enlace directo a VentaDTO contra el Map intermedio usado antes por VentaServlet
+ * Ejecutar con: mvn -Pjmh test-compile exec:exec -Djmh.include=RequestBindingBenchmark
+ * (agregar -prof gc a los argumentos de JMH para ver bytes asignados por operación)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RequestBindingBenchmark {
+
+    @Param({"5", "200"})
+    private int lineas;
+
+    private byte[] cuerpo;
+
+    @Setup
+    public void setup() {
+        StringBuilder sb = new StringBuilder("{\"clienteId\": 12, \"usuarioId\": 3, \"metodoPago\": \"EFECTIVO\",")
+            .append(" \"observaciones\": \"Venta de mostrador\", \"detalles\": [");
+        for (int i = 0; i < lineas; i++) {
+            sb.append(i > 0 ? ", " : "").append("{\"productoId\": ").append(1000 + i)
+                .append(", \"cantidad\": ").append(1 + i % 5).append(", \"precioUnitario\": 125.50}");
+        }
+        cuerpo = sb.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public List<DetalleVenta> mapIntermedio() throws IOException {
+        Map<String, Object> json = JsonParser.readObject(new ByteArrayInputStream(cuerpo));
+        List<Map<String, Object>> detallesJson = (List<Map<String, Object>>) json.get("detalles");
+        List<DetalleVenta> detalles = new ArrayList<>(detallesJson.size());
+        for (Map<String, Object> detalleJson : detallesJson) {
+            DetalleVenta detalle = new DetalleVenta();
+            detalle.setProductoId(((Number) detalleJson.get("productoId")).longValue());
+            detalle.setCantidad(((Number) detalleJson.get("cantidad")).intValue());
+            detalle.setPrecioUnitario(new BigDecimal(detalleJson.get("precioUnitario").toString()));
+            detalles.add(detalle);
+        }
+        return detalles;
+    }
+
+    @Benchmark
+    public List<DetalleVenta> enlaceDirecto() throws IOException {
+        VentaDTO venta = JsonParser.read(new ByteArrayInputStream(cuerpo), VentaDTO.class);
+        List<DetalleVenta> detalles = new ArrayList<>(venta.getDetalles().size());
+        for (VentaDTO.DetalleVentaDTO detalleDTO : venta.getDetalles()) {
+            DetalleVenta detalle = new DetalleVenta();
+            detalle.setProductoId(detalleDTO.getProductoId());
+            detalle.setCantidad(detalleDTO.getCantidad());
+            detalle.setPrecioUnitario(detalleDTO.getPrecioUnitario());
+            detalles.add(detalle);
+        }
+        return detalles;
+    }
+}
@@ -0,0 +1,112 @@
+package config;
+
+import org.junit.jupiter.api.*;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests unitarios para ConnectionPermits (semáforo JDBC del modo de hilos virtuales)
+ */
+@DisplayName("ConnectionPermits Tests")
+class ConnectionPermitsTest {
+
+    @Test
+    @DisplayName("Debe devolver el permiso una sola vez al cerrar la conexión")
+    void testCloseDevuelvePermiso() throws SQLException {
+        ConnectionPermits permits = new ConnectionPermits(2, 100);
+        Connection fisica = mock(Connection.class);
+
+        permits.acquire();
+        Connection conn = permits.wrap(fisica);
+        assertThat(permits.available()).isEqualTo(1);
+
+        conn.close();
+        conn.close();
+
+        assertThat(permits.available()).isEqualTo(2);
+        verify(fisica, times(2)).close();
+    }
+
+    @Test
+    @DisplayName("Debe delegar las llamadas y propagar la SQLException original")
+    void testDelegacion() throws SQLException {
+        ConnectionPermits permits = new ConnectionPermits(1, 100);
+        Connection fisica = mock(Connection.class);
+        when(fisica.getAutoCommit()).thenReturn(true);
+        when(fisica.prepareStatement("SELECT 1")).thenThrow(new SQLException("sin conexión"));
+
+        permits.acquire();
+        Connection conn = permits.wrap(fisica);
+
+        assertThat(conn.getAutoCommit()).isTrue();
+        assertThatThrownBy(() -> conn.prepareStatement("SELECT 1"))
+            .isInstanceOf(SQLException.class)
+            .hasMessage("sin conexión");
+        assertThat(permits.available()).isZero();
+    }
+
+    @Test
+    @DisplayName("Debe agotar el tiempo de espera cuando no quedan permisos")
+    void testTimeout() throws SQLException {
+        ConnectionPermits permits = new ConnectionPermits(1, 20);
+        permits.acquire();
+
+        assertThatThrownBy(permits::acquire)
+            .isInstanceOf(SQLTransientConnectionException.class)
+            .hasMessageContaining("Tiempo de espera agotado");
+
+        permits.release();
+        assertThatCode(permits::acquire).doesNotThrowAnyException();
+    }
+
+    @Test
+    @DisplayName("Debe dimensionar los permisos con el pool ya enlazado por Spring")
+    void testPermisosDelPoolFinal() throws SQLException {
+        try (PermitHikariDataSource dataSource = new PermitHikariDataSource(true)) {
+            dataSource.setJdbcUrl("jdbc:h2:mem:permits;DB_CLOSE_DELAY=-1");
+            dataSource.setMaximumPoolSize(16);
+            // spring.datasource.hikari.maximum-pool-size se aplica después del constructor
+            dataSource.setMaximumPoolSize(3);
+
+            try (Connection conn = dataSource.getConnection()) {
+                assertThat(dataSource.availablePermits()).isEqualTo(2);
+            }
+            assertThat(dataSource.availablePermits()).isEqualTo(3);
+        }
+    }
+
+    @Test
+    @DisplayName("Debe limitar también a quien usa el DataSource directamente")
+    void testDataSourceLimitado() throws SQLException {
+        try (PermitHikariDataSource dataSource = new PermitHikariDataSource(true)) {
+            dataSource.setJdbcUrl("jdbc:h2:mem:permits-gate;DB_CLOSE_DELAY=-1");
+            dataSource.setMaximumPoolSize(1);
+            dataSource.setConnectionTimeout(250);
+
+            try (Connection conn = dataSource.getConnection()) {
+                assertThatThrownBy(dataSource::getConnection)
+                    .isInstanceOf(SQLTransientConnectionException.class)
+                    .hasMessageContaining("Tiempo de espera agotado");
+                assertThat(dataSource.waiting()).isZero();
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("No debe crear permisos en modo platform")
+    void testModoPlatform() throws SQLException {
+        try (PermitHikariDataSource dataSource = new PermitHikariDataSource(false)) {
+            dataSource.setJdbcUrl("jdbc:h2:mem:permits-platform;DB_CLOSE_DELAY=-1");
+            dataSource.setMaximumPoolSize(2);
+
+            try (Connection conn = dataSource.getConnection()) {
+                assertThat(dataSource.availablePermits()).isEqualTo(-1);
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package config;
+
+import filter.Bulkhead;
+import filter.BulkheadFilter;
+import filter.JwtAuthenticationFilter;
+import filter.RateLimitFilter;
+import org.junit.jupiter.api.*;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests unitarios para FilterConfig (registro y orden de los filtros de la API)
+ */
+@DisplayName("FilterConfig Tests")
+class FilterConfigTest {
+
+    private final FilterConfig config = new FilterConfig();
+
+    @Test
+    @DisplayName("Debe registrar el rate limiting sobre toda la API")
+    void testRegistraRateLimit() {
+        FilterRegistrationBean<RateLimitFilter> rateLimit = config.rateLimitFilter();
+
+        assertThat(rateLimit.getFilter()).isInstanceOf(RateLimitFilter.class);
+        assertThat(rateLimit.getUrlPatterns()).containsExactly("/api/*");
+        assertThat(rateLimit.isEnabled()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Debe correr el rate limiting después del JWT y antes de los bulkheads")
+    void testOrdenFiltros() {
+        FilterRegistrationBean<JwtAuthenticationFilter> jwt = config.jwtAuthenticationFilter();
+        FilterRegistrationBean<RateLimitFilter> rateLimit = config.rateLimitFilter();
+        FilterRegistrationBean<BulkheadFilter> bulkheads = config.bulkheadFilter(new BulkheadProperties());
+
+        assertThat(rateLimit.getOrder()).isGreaterThan(jwt.getOrder());
+        assertThat(bulkheads.getOrder()).isGreaterThan(rateLimit.getOrder());
+    }
+
+    @Test
+    @DisplayName("Debe conservar la cola configurada de cada grupo")
+    void testConservaCola() {
+        BulkheadProperties properties = new BulkheadProperties();
+        properties.getGroups().put("sales", grupo("/api/ventas", 6, 8));
+
+        Bulkhead bulkhead = config.bulkheadFilter(properties).getFilter().getBulkheads().iterator().next();
+
+        assertThat(bulkhead.getMaxConcurrent()).isEqualTo(6);
+        assertThat(bulkhead.getMaxQueue()).isEqualTo(8);
+    }
+
+    @Test
+    @DisplayName("Debe fallar si ejecución + cola pueden ocupar todos los workers")
+    void testColasAgotanWorkers() {
+        BulkheadProperties properties = new BulkheadProperties();
+        properties.setWorkerThreads(16);
+        properties.getGroups().put("sales", grupo("/api/ventas", 6, 8));
+        properties.getGroups().put("reports", grupo("/api/reportes", 2, 0));
+
+        assertThatThrownBy(() -> FilterConfig.validarWorkers(properties))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("16 de 16");
+
+        properties.setWorkerThreads(17);
+        assertThatCode(() -> FilterConfig.validarWorkers(properties)).doesNotThrowAnyException();
+    }
+
+    private static BulkheadProperties.Group grupo(String path, int maxConcurrent, int queue) {
+        BulkheadProperties.Group group = new BulkheadProperties.Group();
+        group.setPaths(List.of(path));
+        group.setMaxConcurrent(maxConcurrent);
+        group.setQueue(queue);
+        return group;
+    }
+}
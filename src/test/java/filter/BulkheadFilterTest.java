@@ -0,0 +1,170 @@
+package filter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.*;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests unitarios para BulkheadFilter y Bulkhead
+ */
+@DisplayName("BulkheadFilter Tests")
+class BulkheadFilterTest {
+
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+    private FilterChain chain;
+    private StringWriter body;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        request = mock(HttpServletRequest.class);
+        response = mock(HttpServletResponse.class);
+        chain = mock(FilterChain.class);
+        body = new StringWriter();
+        when(response.getWriter()).thenReturn(new PrintWriter(body));
+        when(request.getMethod()).thenReturn("GET");
+    }
+
+    @Nested
+    @DisplayName("Admisión")
+    class Admision {
+
+        @Test
+        @DisplayName("Debe dejar pasar y liberar el permiso al terminar la cadena")
+        void testPasaYLibera() throws Exception {
+            Bulkhead reportes = new Bulkhead("reports", 1, 0, 0);
+            BulkheadFilter filter = new BulkheadFilter().add(reportes, List.of("/api/reportes"));
+            when(request.getServletPath()).thenReturn("/api/reportes");
+            doAnswer(inv -> {
+                assertThat(reportes.active()).isEqualTo(1);
+                return null;
+            }).when(chain).doFilter(request, response);
+
+            filter.doFilter(request, response, chain);
+
+            verify(chain).doFilter(request, response);
+            assertThat(reportes.active()).isZero();
+        }
+
+        @Test
+        @DisplayName("Debe liberar el permiso aunque el servlet lance una excepción")
+        void testLiberaConExcepcion() throws Exception {
+            Bulkhead ventas = new Bulkhead("sales", 1, 0, 0);
+            BulkheadFilter filter = new BulkheadFilter().add(ventas, List.of("/api/ventas"));
+            when(request.getServletPath()).thenReturn("/api/ventas");
+            doThrow(new RuntimeException("fallo")).when(chain).doFilter(request, response);
+
+            assertThatThrownBy(() -> filter.doFilter(request, response, chain))
+                .isInstanceOf(RuntimeException.class);
+            assertThat(ventas.active()).isZero();
+        }
+
+        @Test
+        @DisplayName("Debe ignorar OPTIONS y rutas sin bulkhead")
+        void testSinBulkhead() throws Exception {
+            Bulkhead reportes = new Bulkhead("reports", 1, 0, 0);
+            BulkheadFilter filter = new BulkheadFilter().add(reportes, List.of("/api/reportes"));
+            reportes.tryEnter();
+
+            when(request.getMethod()).thenReturn("OPTIONS");
+            when(request.getServletPath()).thenReturn("/api/reportes");
+            filter.doFilter(request, response, chain);
+
+            when(request.getMethod()).thenReturn("GET");
+            when(request.getServletPath()).thenReturn("/api/health");
+            filter.doFilter(request, response, chain);
+
+            verify(chain, times(2)).doFilter(request, response);
+            verify(response, never()).setStatus(anyInt());
+        }
+    }
+
+    @Nested
+    @DisplayName("Rechazo")
+    class Rechazo {
+
+        @Test
+        @DisplayName("Debe responder 503 con Retry-After cuando la cola está llena")
+        void testColaLlena() throws Exception {
+            Bulkhead reportes = new Bulkhead("reports", 1, 0, 1000);
+            BulkheadFilter filter = new BulkheadFilter().add(reportes, List.of("/api/reportes"));
+            when(request.getServletPath()).thenReturn("/api/reportes");
+            reportes.tryEnter();
+
+            filter.doFilter(request, response, chain);
+
+            verify(chain, never()).doFilter(any(), any());
+            verify(response).setStatus(503);
+            verify(response).setHeader("Retry-After", "1");
+            assertThat(body.toString()).contains("Servicio saturado (reports)");
+            assertThat(reportes.getRejectedQueueFull()).isEqualTo(1);
+            assertThat(reportes.getRejectedTimeout()).isZero();
+        }
+
+        @Test
+        @DisplayName("Debe rechazar por tiempo de espera y vaciar la cola")
+        void testTimeout() throws Exception {
+            Bulkhead catalogo = new Bulkhead("catalog", 1, 4, 20);
+            BulkheadFilter filter = new BulkheadFilter().add(catalogo, List.of("/api/productos"));
+            when(request.getServletPath()).thenReturn("/api/productos");
+            catalogo.tryEnter();
+
+            filter.doFilter(request, response, chain);
+
+            verify(response).setStatus(503);
+            assertThat(catalogo.getRejectedTimeout()).isEqualTo(1);
+            assertThat(catalogo.queueDepth()).isZero();
+            assertThat(catalogo.active()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Debe aislar los grupos: un grupo saturado no afecta a otro")
+        void testAislamiento() throws Exception {
+            Bulkhead reportes = new Bulkhead("reports", 1, 0, 0);
+            Bulkhead ventas = new Bulkhead("sales", 1, 0, 0);
+            BulkheadFilter filter = new BulkheadFilter()
+                .add(reportes, List.of("/api/reportes"))
+                .add(ventas, List.of("/api/ventas"));
+            reportes.tryEnter();
+            when(request.getServletPath()).thenReturn("/api/ventas");
+
+            filter.doFilter(request, response, chain);
+
+            verify(chain).doFilter(request, response);
+            assertThat(ventas.getRejectedQueueFull()).isZero();
+        }
+    }
+
+    @Nested
+    @DisplayName("Configuración")
+    class Configuracion {
+
+        @Test
+        @DisplayName("Debe rechazar rutas asignadas a dos bulkheads")
+        void testRutaDuplicada() {
+            BulkheadFilter filter = new BulkheadFilter()
+                .add(new Bulkhead("sales", 1, 0, 0), List.of("/api/ventas"));
+
+            assertThatThrownBy(() -> filter.add(new Bulkhead("reports", 1, 0, 0), List.of("/api/ventas")))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("/api/ventas");
+        }
+
+        @Test
+        @DisplayName("Debe validar los límites del bulkhead")
+        void testLimitesInvalidos() {
+            assertThatThrownBy(() -> new Bulkhead("sales", 0, 0, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> new Bulkhead("sales", 1, -1, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+}
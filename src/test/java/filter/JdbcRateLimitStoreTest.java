@@ -0,0 +1,205 @@
+package filter;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.*;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests de JdbcRateLimitStore sobre H2 en memoria (modo MySQL)
+ */
+@DisplayName("JdbcRateLimitStore Tests")
+class JdbcRateLimitStoreTest {
+
+    private static final long T0 = System.currentTimeMillis();
+
+    private JdbcDataSource dataSource;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:ratelimit;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS rate_limit_buckets");
+            stmt.execute("CREATE TABLE rate_limit_buckets ("
+                + "usuario_id BIGINT PRIMARY KEY, tokens BIGINT NOT NULL, actualizado_ms BIGINT NOT NULL)");
+        }
+    }
+
+    @Nested
+    @DisplayName("Cuota compartida")
+    class CuotaCompartida {
+
+        @Test
+        @DisplayName("Dos instancias no deben superar juntas el límite del usuario")
+        void testDosInstancias() {
+            JdbcRateLimitStore nodoA = new JdbcRateLimitStore(dataSource, 10, 5000);
+            JdbcRateLimitStore nodoB = new JdbcRateLimitStore(dataSource, 10, 5000);
+
+            int permitidos = 0;
+            for (int i = 0; i < 200; i++) {
+                JdbcRateLimitStore nodo = i % 2 == 0 ? nodoA : nodoB;
+                if (nodo.tryConsume(1, 100, T0) >= 0) {
+                    permitidos++;
+                }
+            }
+
+            assertThat(permitidos).isEqualTo(100);
+        }
+
+        @Test
+        @DisplayName("No debe superar el límite con hilos concurrentes en varias instancias")
+        void testConcurrencia() throws InterruptedException {
+            JdbcRateLimitStore[] nodos = {
+                new JdbcRateLimitStore(dataSource, 10, 5000),
+                new JdbcRateLimitStore(dataSource, 10, 5000),
+                new JdbcRateLimitStore(dataSource, 10, 5000)
+            };
+            AtomicInteger permitidos = new AtomicInteger();
+            ExecutorService executor = Executors.newFixedThreadPool(6);
+            CountDownLatch inicio = new CountDownLatch(1);
+
+            for (int i = 0; i < 6; i++) {
+                JdbcRateLimitStore nodo = nodos[i % nodos.length];
+                executor.submit(() -> {
+                    inicio.await();
+                    for (int j = 0; j < 100; j++) {
+                        if (nodo.tryConsume(2, 200, T0) >= 0) {
+                            permitidos.incrementAndGet();
+                        }
+                    }
+                    return null;
+                });
+            }
+            inicio.countDown();
+            executor.shutdown();
+            assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+            assertThat(permitidos.get()).isEqualTo(200);
+        }
+
+        @Test
+        @DisplayName("Debe devolver los tokens de un lease vencido al bucket global")
+        void testDevolucionLease() {
+            JdbcRateLimitStore nodoA = new JdbcRateLimitStore(dataSource, 10, 1000);
+            JdbcRateLimitStore nodoB = new JdbcRateLimitStore(dataSource, 10, 1000);
+
+            // A toma un lote de 10 y usa solo 1; B agota el resto del bucket global
+            assertThat(nodoA.tryConsume(3, 100, T0)).isNotNegative();
+            int permitidosB = 0;
+            while (nodoB.tryConsume(3, 100, T0) >= 0) {
+                permitidosB++;
+            }
+            assertThat(permitidosB).isEqualTo(90);
+
+            // En 1 s solo se rellena 1 token (100/min); al renovar su lease vencido A devuelve
+            // sus 9 tokens, así que vuelve a obtener un lote completo en lugar de uno solo
+            long despues = T0 + 1000;
+            assertThat(nodoA.tryConsume(3, 100, despues)).isEqualTo(9);
+        }
+    }
+
+    @Nested
+    @DisplayName("Lotes de tokens")
+    class Lotes {
+
+        @Test
+        @DisplayName("Debe hacer una transacción por lote y no por request")
+        void testTransaccionesPorLote() {
+            JdbcRateLimitStore store = new JdbcRateLimitStore(dataSource, 10, 5000);
+
+            for (int i = 0; i < 100; i++) {
+                assertThat(store.tryConsume(4, 100, T0)).isNotNegative();
+            }
+
+            assertThat(store.getTransacciones()).isEqualTo(10);
+        }
+
+        @Test
+        @DisplayName("No debe volver a la base mientras dura una denegación")
+        void testDenegacionEnCache() {
+            JdbcRateLimitStore store = new JdbcRateLimitStore(dataSource, 10, 5000);
+            for (int i = 0; i < 10; i++) {
+                store.tryConsume(5, 10, T0); // 10/min: lotes de 1 token
+            }
+            long transacciones = store.getTransacciones();
+
+            assertThat(store.tryConsume(5, 10, T0)).isNegative();
+            long resultado = store.tryConsume(5, 10, T0 + 1000);
+            assertThat(-resultado - 1).isEqualTo(5000);
+            assertThat(store.getTransacciones()).isEqualTo(transacciones + 1);
+        }
+
+        @Test
+        @DisplayName("Debe usar límites locales si la base no está disponible")
+        void testRespaldoLocal() throws SQLException {
+            try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+                stmt.execute("DROP TABLE rate_limit_buckets");
+            }
+            JdbcRateLimitStore store = new JdbcRateLimitStore(dataSource, 10, 5000);
+
+            for (int i = 0; i < 10; i++) {
+                assertThat(store.tryConsume(6, 10, T0)).isNotNegative();
+            }
+            assertThat(store.tryConsume(6, 10, T0)).isNegative();
+        }
+    }
+
+    @Nested
+    @DisplayName("Circuito de respaldo")
+    class Circuito {
+
+        private void borrarTabla() throws SQLException {
+            try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+                stmt.execute("DROP TABLE rate_limit_buckets");
+            }
+        }
+
+        @Test
+        @DisplayName("No debe volver a la base durante la ventana tras un fallo")
+        void testCircuitoAbierto() throws SQLException {
+            borrarTabla();
+            JdbcRateLimitStore store = new JdbcRateLimitStore(dataSource, 10, 5000, 10_000);
+
+            // 10/min: lotes de 1 token, cada request agotaría el lease y volvería a la base
+            for (int i = 0; i < 10; i++) {
+                assertThat(store.tryConsume(7, 10, T0)).isNotNegative();
+            }
+            assertThat(store.tryConsume(7, 10, T0)).isNegative();
+            assertThat(store.getTransacciones()).isEqualTo(1);
+
+            // Otro usuario tampoco espera a la base mientras el circuito está abierto
+            assertThat(store.tryConsume(8, 10, T0 + 5000)).isNotNegative();
+            assertThat(store.getTransacciones()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Debe probar la base con un solo request al vencer la ventana y cerrar el circuito")
+        void testSondaCierraCircuito() throws SQLException {
+            borrarTabla();
+            JdbcRateLimitStore store = new JdbcRateLimitStore(dataSource, 10, 5000, 10_000);
+            store.tryConsume(9, 100, T0);
+            assertThat(store.getTransacciones()).isEqualTo(1);
+
+            // Vencida la ventana con la base aún caída: una sola sonda y otra ventana
+            store.tryConsume(9, 100, T0 + 10_000);
+            store.tryConsume(10, 100, T0 + 10_001);
+            assertThat(store.getTransacciones()).isEqualTo(2);
+
+            // La base vuelve: la siguiente sonda cierra el circuito y se usan lotes otra vez
+            setUp();
+            assertThat(store.tryConsume(11, 100, T0 + 20_000)).isEqualTo(99);
+            assertThat(store.tryConsume(11, 100, T0 + 20_000)).isEqualTo(98);
+            assertThat(store.getTransacciones()).isEqualTo(3);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package filter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.*;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import security.TokenClaims;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests unitarios para RateLimitFilter, TokenBucket y LongBucketMap
+ */
+@DisplayName("RateLimitFilter Tests")
+class RateLimitFilterTest {
+
+    private static final long T0 = System.currentTimeMillis();
+
+    @Nested
+    @DisplayName("Token Bucket")
+    class TokenBucketTests {
+
+        @Test
+        @DisplayName("Debe permitir la capacidad completa y luego rechazar")
+        void testCapacidad() {
+            TokenBucket bucket = new TokenBucket(1, 10, T0);
+
+            for (int i = 9; i >= 0; i--) {
+                assertThat(bucket.tryConsume(T0)).isEqualTo(i);
+            }
+            assertThat(bucket.tryConsume(T0)).isNegative();
+        }
+
+        @Test
+        @DisplayName("Debe rellenar tokens con el tiempo sin perder fracciones")
+        void testRelleno() {
+            TokenBucket bucket = new TokenBucket(1, 60, T0); // 1 token por segundo
+            for (int i = 0; i < 60; i++) {
+                bucket.tryConsume(T0);
+            }
+
+            // 999 ms no alcanzan para un token; el tiempo consultado no debe perderse
+            assertThat(bucket.tryConsume(T0 + 999)).isNegative();
+            assertThat(bucket.tryConsume(T0 + 1000)).isZero();
+            assertThat(bucket.tryConsume(T0 + 1000)).isNegative();
+        }
+
+        @Test
+        @DisplayName("Debe indicar cuánto falta para el siguiente token")
+        void testEspera() {
+            TokenBucket bucket = new TokenBucket(1, 10, T0); // 1 token cada 6 s
+            for (int i = 0; i < 10; i++) {
+                bucket.tryConsume(T0);
+            }
+
+            long resultado = bucket.tryConsume(T0 + 1000);
+            assertThat(-resultado - 1).isEqualTo(5000);
+        }
+
+        @Test
+        @DisplayName("No debe exceder la capacidad con consumos concurrentes")
+        void testConcurrencia() throws InterruptedException {
+            TokenBucket bucket = new TokenBucket(1, 1000, T0);
+            AtomicInteger permitidos = new AtomicInteger();
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            CountDownLatch inicio = new CountDownLatch(1);
+
+            for (int i = 0; i < 8; i++) {
+                executor.submit(() -> {
+                    inicio.await();
+                    for (int j = 0; j < 500; j++) {
+                        if (bucket.tryConsume(T0) >= 0) {
+                            permitidos.incrementAndGet();
+                        }
+                    }
+                    return null;
+                });
+            }
+            inicio.countDown();
+            executor.shutdown();
+            assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+            assertThat(permitidos.get()).isEqualTo(1000);
+        }
+    }
+
+    @Nested
+    @DisplayName("Mapa de buckets por userId")
+    class MapaBuckets {
+
+        @Test
+        @DisplayName("Debe guardar y recuperar buckets por clave primitiva")
+        void testGetPut() {
+            LongBucketMap<TokenBucket> mapa = new LongBucketMap<>();
+            for (long id = 1; id <= 1000; id++) {
+                mapa.putIfAbsent(new TokenBucket(id, 10, T0), T0);
+            }
+
+            assertThat(mapa.size()).isEqualTo(1000);
+            assertThat(mapa.get(500).key).isEqualTo(500);
+            assertThat(mapa.get(5000)).isNull();
+        }
+
+        @Test
+        @DisplayName("Debe conservar el primer bucket si la clave ya existe")
+        void testPutIfAbsent() {
+            LongBucketMap<TokenBucket> mapa = new LongBucketMap<>();
+            TokenBucket primero = new TokenBucket(7, 10, T0);
+
+            assertThat(mapa.putIfAbsent(primero, T0)).isSameAs(primero);
+            assertThat(mapa.putIfAbsent(new TokenBucket(7, 10, T0), T0)).isSameAs(primero);
+        }
+
+        @Test
+        @DisplayName("Debe descartar buckets expirados al crecer")
+        void testExpiracionPerezosa() {
+            LongBucketMap<TokenBucket> mapa = new LongBucketMap<>();
+            for (long id = 1; id <= 1000; id++) {
+                mapa.putIfAbsent(new TokenBucket(id, 10, T0), T0);
+            }
+
+            long despues = T0 + TokenBucket.TTL_MS + 1;
+            for (long id = 2001; id <= 3000; id++) {
+                mapa.putIfAbsent(new TokenBucket(id, 10, despues), despues);
+            }
+
+            assertThat(mapa.size()).isLessThan(2000);
+            assertThat(mapa.get(2500)).isNotNull();
+        }
+    }
+
+    @Nested
+    @DisplayName("Filtro")
+    class Filtro {
+
+        @Mock
+        private HttpServletRequest request;
+
+        @Mock
+        private HttpServletResponse response;
+
+        @Mock
+        private FilterChain chain;
+
+        private AutoCloseable closeable;
+        private final RateLimitFilter filter = new RateLimitFilter();
+
+        @BeforeEach
+        void setUp() throws IOException {
+            closeable = MockitoAnnotations.openMocks(this);
+            when(request.getMethod()).thenReturn("GET");
+            when(request.getRequestURI()).thenReturn("/api/productos");
+            when(response.getWriter()).thenReturn(new PrintWriter(new StringWriter()));
+        }
+
+        @AfterEach
+        void tearDown() throws Exception {
+            closeable.close();
+        }
+
+        private void autenticar(long userId, int roleId) {
+            when(request.getAttribute(TokenClaims.REQUEST_ATTRIBUTE))
+                .thenReturn(new TokenClaims(userId, roleId, "test@farmacontrol.com", null));
+        }
+
+        @Test
+        @DisplayName("Debe responder 429 al superar el límite del rol")
+        void testLimiteRol() throws IOException, ServletException {
+            autenticar(900001L, 20); // INVITADO: 10/min
+
+            for (int i = 0; i < 10; i++) {
+                filter.doFilter(request, response, chain);
+            }
+            filter.doFilter(request, response, chain);
+
+            verify(chain, times(10)).doFilter(request, response);
+            verify(response).setStatus(429);
+            verify(response).setHeader(eq("Retry-After"), anyString());
+        }
+
+        @Test
+        @DisplayName("No debe limitar al rol ADMIN")
+        void testAdminIlimitado() throws IOException, ServletException {
+            autenticar(900002L, 1);
+
+            for (int i = 0; i < 500; i++) {
+                filter.doFilter(request, response, chain);
+            }
+
+            verify(chain, times(500)).doFilter(request, response);
+            verify(response, never()).setStatus(429);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package routes;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.*;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests unitarios para RouteTable
+ */
+@DisplayName("RouteTable Tests")
+class RouteTableTest {
+
+    @Mock
+    private HttpServletRequest request;
+
+    @Mock
+    private HttpServletResponse response;
+
+    private StringWriter responseWriter;
+    private AutoCloseable closeable;
+
+    private RouteTable routes;
+    private List<String> llamadas;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        closeable = MockitoAnnotations.openMocks(this);
+        responseWriter = new StringWriter();
+        when(response.getWriter()).thenReturn(new PrintWriter(responseWriter));
+
+        llamadas = new ArrayList<>();
+        routes = new RouteTable("ID de producto inválido")
+            .get("/", (req, resp, params) -> llamadas.add("listar"))
+            .get("/buscar", (req, resp, params) -> llamadas.add("buscar"))
+            .get("/{id}", (req, resp, params) -> llamadas.add("obtener " + params.getId()))
+            .get("/{id}/detalles", (req, resp, params) -> llamadas.add("detalles " + params.getId()))
+            .get("/barcode/{codigo}", (req, resp, params) -> llamadas.add("barcode " + params.getTexto()))
+            .post("/", (req, resp, params) -> llamadas.add("crear"))
+            .put("/{id}/stock", (req, resp, params) -> llamadas.add("stock " + params.getId()));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        closeable.close();
+    }
+
+    private void dispatch(String method, String pathInfo) throws Exception {
+        when(request.getMethod()).thenReturn(method);
+        when(request.getPathInfo()).thenReturn(pathInfo);
+        routes.dispatch(request, response);
+    }
+
+    @Nested
+    @DisplayName("Resolución de rutas")
+    class Resolucion {
+
+        @Test
+        @DisplayName("Debe resolver la raíz con pathInfo nulo, vacío o '/'")
+        void testRaiz() throws Exception {
+            dispatch("GET", null);
+            dispatch("GET", "/");
+            dispatch("POST", "");
+
+            assertThat(llamadas).containsExactly("listar", "listar", "crear");
+        }
+
+        @Test
+        @DisplayName("Debe extraer {id} numérico y priorizar los literales")
+        void testIdYLiterales() throws Exception {
+            dispatch("GET", "/42");
+            dispatch("GET", "/buscar");
+            dispatch("GET", "/7/detalles/");
+            dispatch("PUT", "/123456789012/stock");
+
+            assertThat(llamadas).containsExactly("obtener 42", "buscar", "detalles 7", "stock 123456789012");
+        }
+
+        @Test
+        @DisplayName("Debe extraer variables de texto")
+        void testTexto() throws Exception {
+            dispatch("GET", "/barcode/7501234567890");
+            dispatch("GET", "/barcode/ABC-001");
+
+            assertThat(llamadas).containsExactly("barcode 7501234567890", "barcode ABC-001");
+        }
+
+        @Test
+        @DisplayName("Debe resolver HEAD con el manejador de GET")
+        void testHead() throws Exception {
+            dispatch("HEAD", "/42");
+
+            assertThat(llamadas).containsExactly("obtener 42");
+        }
+    }
+
+    @Nested
+    @DisplayName("Errores de ruta")
+    class Errores {
+
+        @Test
+        @DisplayName("Debe responder 400 cuando el {id} no es numérico")
+        void testIdInvalido() throws Exception {
+            dispatch("GET", "/abc");
+
+            assertThat(llamadas).isEmpty();
+            verify(response).setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            assertThat(responseWriter.toString()).contains("ID de producto inválido");
+        }
+
+        @Test
+        @DisplayName("Debe responder 400 cuando el {id} excede 18 dígitos")
+        void testIdDesbordado() throws Exception {
+            dispatch("GET", "/99999999999999999999");
+
+            assertThat(llamadas).isEmpty();
+            verify(response).setStatus(HttpServletResponse.SC_BAD_REQUEST);
+        }
+
+        @Test
+        @DisplayName("Debe responder 404 para rutas inexistentes")
+        void testNoEncontrada() throws Exception {
+            dispatch("GET", "/5/desconocido");
+
+            assertThat(llamadas).isEmpty();
+            verify(response).setStatus(HttpServletResponse.SC_NOT_FOUND);
+            assertThat(responseWriter.toString()).contains("Ruta no encontrada");
+        }
+
+        @Test
+        @DisplayName("Debe responder 405 cuando la ruta existe para otros métodos")
+        void testMetodoNoPermitido() throws Exception {
+            dispatch("DELETE", "/5");
+
+            assertThat(llamadas).isEmpty();
+            verify(response).setStatus(HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+            verify(response).setHeader("Allow", "GET, HEAD, OPTIONS");
+        }
+
+        @Test
+        @DisplayName("Debe listar los métodos de la ruta en Allow")
+        void testAllow() throws Exception {
+            dispatch("HEAD", "/5/stock");
+
+            assertThat(llamadas).isEmpty();
+            verify(response).setStatus(HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+            verify(response).setHeader("Allow", "PUT, OPTIONS");
+        }
+
+        @Test
+        @DisplayName("Debe rechazar rutas duplicadas al registrar")
+        void testDuplicada() {
+            assertThatThrownBy(() -> routes.get("/{id}", (req, resp, params) -> { }))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("GET /{id}");
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package security;
 
+import java.util.Date;
+
 import model.Usuario;
 import org.junit.jupiter.api.*;
 import org.springframework.test.util.ReflectionTestUtils;
@@ -149,6 +151,101 @@ class JwtTokenProviderTest {
         }
     }
     
+    @Nested
+    @DisplayName("Verificación única de Claims")
+    class VerificacionClaims {
+        
+        @Test
+        @DisplayName("Debe devolver todos los claims con una sola verificación")
+        void debeDevolverClaimsVerificados() {
+            // Given
+            String token = jwtTokenProvider.generateToken(usuarioTest);
+            
+            // When
+            TokenClaims claims = jwtTokenProvider.verify(token);
+            
+            // Then
+            assertThat(claims).isNotNull();
+            assertThat(claims.getUserId()).isEqualTo(1L);
+            assertThat(claims.getRoleId()).isEqualTo(2);
+            assertThat(claims.getEmail()).isEqualTo("test@farmacontrol.com");
+            assertThat(claims.isExpired()).isFalse();
+        }
+        
+        @Test
+        @DisplayName("Debe devolver null para token inválido o null")
+        void debeDevolverNullParaTokenInvalido() {
+            // Given
+            String token = jwtTokenProvider.generateToken(usuarioTest);
+            String tokenModificado = token.substring(0, token.length() - 10) + "XXXXmodified";
+            
+            // Then
+            assertThat(jwtTokenProvider.verify(tokenModificado)).isNull();
+            assertThat(jwtTokenProvider.verify(null)).isNull();
+        }
+    }
+    
+    @Nested
+    @DisplayName("Cache de Tokens Verificados")
+    class CacheTokensVerificados {
+        
+        @Test
+        @DisplayName("Debe reutilizar los claims de un token ya verificado")
+        void debeReutilizarClaimsEnCache() {
+            // Given
+            TokenCache.invalidateAll();
+            String token = jwtTokenProvider.generateToken(usuarioTest);
+            
+            // When
+            TokenClaims primera = jwtTokenProvider.verify(token);
+            TokenClaims segunda = jwtTokenProvider.verify(token);
+            
+            // Then
+            assertThat(segunda).isSameAs(primera);
+            assertThat(TokenCache.size()).isEqualTo(1);
+        }
+        
+        @Test
+        @DisplayName("Debe mantener el cache acotado desalojando por muestreo al llenarse")
+        void debeMantenerCacheAcotado() {
+            // Given - cache lleno (JWT_CACHE_SIZE por defecto: 10000)
+            TokenCache.invalidateAll();
+            Date exp = new Date(System.currentTimeMillis() + 60_000);
+            for (int i = 0; i < 10_000; i++) {
+                TokenCache.put("token-" + i, new TokenClaims((long) i, 3, "u" + i + "@test.com", exp));
+            }
+            
+            // When
+            TokenClaims nuevo = new TokenClaims(1L, 3, "nuevo@test.com", exp);
+            TokenCache.put("token-nuevo", nuevo);
+            
+            // Then
+            assertThat(TokenCache.size()).isEqualTo(10_000);
+            assertThat(TokenCache.get("token-nuevo")).isSameAs(nuevo);
+            TokenCache.invalidateAll();
+        }
+        
+        @Test
+        @DisplayName("Debe rechazar un token revocado aunque esté en cache")
+        void debeRechazarTokenRevocado() throws Exception {
+            // Given - usuario propio: tokens idénticos (mismo segundo) comparten revocación
+            Usuario usuarioSesion = new Usuario();
+            usuarioSesion.setId(99L);
+            usuarioSesion.setEmail("logout@test.com");
+            usuarioSesion.setRolId(3);
+            String token = jwtTokenProvider.generateToken(usuarioSesion);
+            assertThat(jwtTokenProvider.verify(token)).isNotNull();
+            
+            // When
+            boolean revocado = jwtTokenProvider.revokeToken(token);
+            
+            // Then
+            assertThat(revocado).isTrue();
+            assertThat(jwtTokenProvider.verify(token)).isNull();
+            assertThat(jwtTokenProvider.validateToken(token)).isFalse();
+        }
+    }
+    
     @Nested
     @DisplayName("Expiración de Tokens")
     class ExpiracionTokens {
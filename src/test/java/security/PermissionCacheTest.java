@@ -0,0 +1,206 @@
+package security;
+
+import org.junit.jupiter.api.*;
+
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests unitarios para PermissionCache (sin base de datos: el loader se reemplaza)
+ */
+@DisplayName("PermissionCache Tests")
+class PermissionCacheTest {
+
+    private final AtomicLong ahora = new AtomicLong(1_000_000L);
+    private final AtomicInteger cargas = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        PermissionCache.clock = ahora::get;
+        PermissionCache.invalidateAll();
+        PermissionCache.resetStats();
+    }
+
+    @AfterEach
+    void tearDown() {
+        PermissionCache.loader = roleId -> Set.of();
+        PermissionCache.clock = System::currentTimeMillis;
+        PermissionCache.invalidateAll();
+    }
+
+    @Nested
+    @DisplayName("Carga única por rol")
+    class CargaUnica {
+
+        @Test
+        @DisplayName("Debe consultar la base una sola vez con requests concurrentes")
+        void testCargaConcurrente() throws InterruptedException {
+            CountDownLatch bloqueo = new CountDownLatch(1);
+            PermissionCache.loader = roleId -> {
+                cargas.incrementAndGet();
+                esperar(bloqueo);
+                return Set.of("VENTAS_CREAR");
+            };
+
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            AtomicInteger conPermiso = new AtomicInteger();
+            for (int i = 0; i < 8; i++) {
+                executor.submit(() -> {
+                    if (PermissionCache.hasPermission(3, "VENTAS_CREAR")) {
+                        conPermiso.incrementAndGet();
+                    }
+                });
+            }
+            Thread.sleep(200);
+            bloqueo.countDown();
+            executor.shutdown();
+            assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+            assertThat(cargas.get()).isEqualTo(1);
+            assertThat(conPermiso.get()).isEqualTo(8);
+        }
+
+        @Test
+        @DisplayName("No debe cachear un error de la base de datos")
+        void testErrorNoSeCachea() {
+            PermissionCache.loader = roleId -> {
+                if (cargas.incrementAndGet() == 1) {
+                    throw new SQLException("Conexión rechazada");
+                }
+                return Set.of("VENTAS_VER");
+            };
+
+            assertThat(PermissionCache.getPermissions(5)).isEmpty();
+            assertThat(PermissionCache.getPermissions(5)).containsExactly("VENTAS_VER");
+        }
+
+        @Test
+        @DisplayName("No debe recargar si otra carga terminó después de leer la entrada expirada")
+        void testCargaTerminadaAntesDeReclamar() throws InterruptedException {
+            PermissionCache.loader = roleId -> Set.of("PERMISO_" + cargas.incrementAndGet());
+            PermissionCache.getPermissions(4);
+            ahora.addAndGet(TimeUnit.MINUTES.toMillis(6));
+
+            // El hilo "rezagado" ve la entrada expirada y se detiene antes de reclamar la carga
+            CountDownLatch leyoExpirada = new CountDownLatch(1);
+            CountDownLatch continuar = new CountDownLatch(1);
+            PermissionCache.clock = () -> {
+                if (Thread.currentThread().getName().equals("rezagado") && leyoExpirada.getCount() > 0) {
+                    leyoExpirada.countDown();
+                    esperar(continuar);
+                }
+                return ahora.get();
+            };
+            AtomicReference<Set<String>> vistos = new AtomicReference<>();
+            Thread rezagado = new Thread(() -> vistos.set(PermissionCache.getPermissions(4)), "rezagado");
+            rezagado.start();
+            assertThat(leyoExpirada.await(5, TimeUnit.SECONDS)).isTrue();
+
+            // Otro request recarga el rol y libera la carga en curso
+            assertThat(PermissionCache.getPermissions(4)).containsExactly("PERMISO_2");
+            continuar.countDown();
+            rezagado.join(5000);
+
+            assertThat(vistos.get()).containsExactly("PERMISO_2");
+            assertThat(cargas.get()).isEqualTo(2);
+        }
+    }
+
+    @Nested
+    @DisplayName("Refresco anticipado")
+    class RefrescoAnticipado {
+
+        @Test
+        @DisplayName("Debe servir la entrada actual y recargarla en segundo plano")
+        void testRefrescoEnSegundoPlano() throws InterruptedException {
+            CountDownLatch liberarRecarga = new CountDownLatch(1);
+            PermissionCache.loader = roleId -> {
+                int n = cargas.incrementAndGet();
+                if (n > 1) {
+                    esperar(liberarRecarga);
+                }
+                return Set.of("PERMISO_" + n);
+            };
+
+            assertThat(PermissionCache.getPermissions(7)).containsExactly("PERMISO_1");
+
+            // 4.5 minutos después: sigue vigente pero ya toca recargar
+            ahora.addAndGet(TimeUnit.SECONDS.toMillis(270));
+            assertThat(PermissionCache.getPermissions(7)).containsExactly("PERMISO_1");
+            // Mientras la recarga está en curso se sigue sirviendo la entrada actual
+            assertThat(PermissionCache.getPermissions(7)).containsExactly("PERMISO_1");
+
+            liberarRecarga.countDown();
+            long limite = System.currentTimeMillis() + 5000;
+            while (!PermissionCache.getPermissions(7).contains("PERMISO_2") && System.currentTimeMillis() < limite) {
+                Thread.sleep(10);
+            }
+            assertThat(PermissionCache.getPermissions(7)).containsExactly("PERMISO_2");
+            assertThat(cargas.get()).isEqualTo(2);
+            assertThat(PermissionCache.getRefreshCount()).isEqualTo(1);
+            assertThat(PermissionCache.getStats().misses).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Debe recargar en línea una entrada ya expirada")
+        void testEntradaExpirada() {
+            PermissionCache.loader = roleId -> Set.of("PERMISO_" + cargas.incrementAndGet());
+
+            PermissionCache.getPermissions(9);
+            ahora.addAndGet(TimeUnit.MINUTES.toMillis(6));
+
+            assertThat(PermissionCache.getPermissions(9)).containsExactly("PERMISO_2");
+            assertThat(PermissionCache.getStats().misses).isEqualTo(2);
+        }
+    }
+
+    @Nested
+    @DisplayName("Verificación con bitset")
+    class Bitset {
+
+        @BeforeEach
+        void setUp() {
+            PermissionCache.loader = roleId -> roleId == 1
+                ? Set.of("VENTAS_VER", "VENTAS_CREAR", "COMPRAS_VER")
+                : Set.of("VENTAS_VER");
+        }
+
+        @Test
+        @DisplayName("Debe verificar permisos individuales")
+        void testHasPermission() {
+            assertThat(PermissionCache.hasPermission(1, "COMPRAS_VER")).isTrue();
+            assertThat(PermissionCache.hasPermission(2, "COMPRAS_VER")).isFalse();
+            assertThat(PermissionCache.hasPermission(2, "CODIGO_INEXISTENTE")).isFalse();
+        }
+
+        @Test
+        @DisplayName("Debe verificar ALGUNO y TODOS con máscaras precompiladas")
+        void testMascaras() {
+            PermissionCache.PermissionMask ventas = PermissionCache.mask("VENTAS_VER", "VENTAS_CREAR");
+
+            assertThat(PermissionCache.hasAnyPermission(2, ventas)).isTrue();
+            assertThat(PermissionCache.hasAllPermissions(2, ventas)).isFalse();
+            assertThat(PermissionCache.hasAllPermissions(1, ventas)).isTrue();
+            assertThat(PermissionCache.hasAllPermissions(1, "VENTAS_VER", "OTRO_PERMISO")).isFalse();
+            assertThat(PermissionCache.hasAnyPermission(1, "OTRO_PERMISO")).isFalse();
+            assertThat(PermissionCache.hasAllPermissions(1, PermissionCache.mask())).isFalse();
+        }
+    }
+
+    private static void esperar(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package security;
+
+import model.Usuario;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.*;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests de RevokedTokenStore sobre H2 en memoria (modo MySQL)
+ * Dos stores sobre la misma base hacen de dos instancias de la API.
+ */
+@DisplayName("RevokedTokenStore Tests")
+class RevokedTokenStoreTest {
+
+    private JdbcDataSource dataSource;
+    private RevokedTokenStore local;
+    private RevokedTokenStore otraInstancia;
+    private final JwtTokenProvider tokenProvider = new JwtTokenProvider();
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:revocados;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS revoked_tokens");
+            stmt.execute("CREATE TABLE revoked_tokens (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "token_hash CHAR(43) NOT NULL UNIQUE, expira_ms BIGINT NOT NULL)");
+        }
+        TokenCache.invalidateAll();
+        local = new RevokedTokenStore(dataSource, 60_000);
+        local.start();
+        otraInstancia = new RevokedTokenStore(dataSource, 60_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        local.shutdown();
+        TokenCache.invalidateAll();
+    }
+
+    private String token(long userId) {
+        Usuario usuario = new Usuario();
+        usuario.setId(userId);
+        usuario.setEmail("revocado" + userId + "@test.com");
+        usuario.setRolId(3);
+        return tokenProvider.generateToken(usuario);
+    }
+
+    private Date expiracion(String token) {
+        return tokenProvider.verify(token).getExpiration();
+    }
+
+    @Test
+    @DisplayName("Debe rechazar un token que otra instancia revocó antes de verlo aquí")
+    void testRevocadoEnOtraInstancia() throws SQLException {
+        String token = token(501);
+        Date exp = expiracion(token);
+        TokenCache.invalidateAll();
+
+        otraInstancia.revoke(TokenCache.keyOf(token), exp);
+
+        assertThat(tokenProvider.verify(token)).isNull();
+    }
+
+    @Test
+    @DisplayName("Debe quitar del cache un token ya verificado al sincronizar")
+    void testSincronizaTokenCacheado() throws SQLException {
+        String token = token(502);
+        assertThat(tokenProvider.verify(token)).isNotNull();
+
+        otraInstancia.revoke(TokenCache.keyOf(token), expiracion(token));
+        assertThat(local.sync()).isEqualTo(1);
+
+        assertThat(tokenProvider.verify(token)).isNull();
+    }
+
+    @Test
+    @DisplayName("Debe guardar el logout para las demás instancias")
+    void testLogoutPersistente() throws SQLException {
+        String token = token(503);
+        assertThat(tokenProvider.revokeToken(token)).isTrue();
+
+        assertThat(otraInstancia.isRevoked(TokenCache.keyOf(token))).isTrue();
+        // Revocar dos veces (p. ej. desde dos instancias) no es un error
+        otraInstancia.revoke(TokenCache.keyOf(token), new Date(System.currentTimeMillis() + 60_000));
+        assertThat(filas()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Debe borrar las revocaciones de tokens expirados")
+    void testPurgaExpirados() throws SQLException {
+        otraInstancia.revoke("expirado", new Date(System.currentTimeMillis() - 1000));
+        otraInstancia.revoke("vigente", new Date(System.currentTimeMillis() + 60_000));
+
+        assertThat(local.sync()).isEqualTo(1);
+        assertThat(filas()).isEqualTo(1);
+        assertThat(TokenCache.isRevoked("vigente")).isTrue();
+    }
+
+    private int filas() throws SQLException {
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM revoked_tokens")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
@@ -369,6 +369,41 @@ class RolePermissionsTest {
         }
     }
     
+    @Nested
+    @DisplayName("Máscara de Roles - RoleSet")
+    class MascaraRoles {
+        
+        @Test
+        @DisplayName("Debe comportarse como un Set con los mismos roles")
+        void debeComportarseComoSet() {
+            RoleSet roles = RoleSet.of(RolePermissions.ADMIN, RolePermissions.GERENTE, RolePermissions.DIRECTOR);
+            
+            assertThat(roles).containsExactly(1, 5, 14);
+            assertThat(roles).isEqualTo(Set.of(1, 5, 14));
+            assertThat(roles.contains(5)).isTrue();
+            assertThat(roles.contains(3)).isFalse();
+            assertThat(roles.contains((Object) "5")).isFalse();
+        }
+        
+        @Test
+        @DisplayName("Debe rechazar roleIds fuera de rango al construir y al consultar")
+        void debeValidarRango() {
+            assertThatThrownBy(() -> RoleSet.of(64)).isInstanceOf(IllegalArgumentException.class);
+            assertThat(RolePermissions.PRODUCTOS_READ.contains(-1)).isFalse();
+            assertThat(RolePermissions.PRODUCTOS_READ.contains(9999)).isFalse();
+        }
+        
+        @Test
+        @DisplayName("Debe dar el mismo resultado que un HashSet para todos los roles")
+        void debeCoincidirConHashSet() {
+            Set<Integer> hashSet = new java.util.HashSet<>(RolePermissions.VENTAS_READ);
+            for (int roleId = -1; roleId <= 70; roleId++) {
+                assertThat(RolePermissions.hasPermission(roleId, RolePermissions.VENTAS_READ))
+                    .isEqualTo(RolePermissions.hasPermission(roleId, hashSet));
+            }
+        }
+    }
+    
     @Nested
     @DisplayName("Casos Edge")
     class CasosEdge {
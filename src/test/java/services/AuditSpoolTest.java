@@ -0,0 +1,237 @@
+package services;
+
+import model.AuditLog;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests unitarios para AuditSpool y la reproducción desde AuditWriter
+ */
+@DisplayName("AuditSpool Tests")
+class AuditSpoolTest {
+
+    @TempDir
+    Path dir;
+
+    private AuditLog evento(long id) {
+        AuditLog evento = new AuditLog(id, "test@farmacontrol.com", AuditLog.ACCION_UPDATE,
+                                       AuditLog.ENTIDAD_VENTA, id, "Detalle ñ " + id, "127.0.0.1", null);
+        evento.setCreatedAt(new Timestamp(1700000000000L + id));
+        return evento;
+    }
+
+    private long segmentosEnDisco() throws IOException {
+        try (Stream<Path> archivos = Files.list(dir)) {
+            return archivos.filter(p -> p.getFileName().toString().endsWith(".seg")).count();
+        }
+    }
+
+    @Nested
+    @DisplayName("Escritura y lectura")
+    class EscrituraYLectura {
+
+        @Test
+        @DisplayName("Debe conservar todos los campos del evento")
+        void testCampos() throws IOException {
+            try (AuditSpool spool = new AuditSpool(dir, 4096)) {
+                spool.append(evento(7));
+
+                AuditLog leido = spool.peek(10).get(0);
+                assertThat(leido.getUsuarioId()).isEqualTo(7L);
+                assertThat(leido.getEntidadId()).isEqualTo(7L);
+                assertThat(leido.getDetalles()).isEqualTo("Detalle ñ 7");
+                assertThat(leido.getUserAgent()).isNull();
+                assertThat(leido.getCreatedAt()).isEqualTo(new Timestamp(1700000000007L));
+            }
+        }
+
+        @Test
+        @DisplayName("Debe entregar el mismo lote hasta confirmarlo")
+        void testPeekAck() throws IOException {
+            try (AuditSpool spool = new AuditSpool(dir, 4096)) {
+                for (int i = 0; i < 5; i++) {
+                    spool.append(evento(i));
+                }
+
+                assertThat(spool.peek(3)).extracting(AuditLog::getUsuarioId).containsExactly(0L, 1L, 2L);
+                assertThat(spool.peek(3)).extracting(AuditLog::getUsuarioId).containsExactly(0L, 1L, 2L);
+                spool.ack();
+
+                assertThat(spool.backlog()).isEqualTo(2);
+                assertThat(spool.peek(10)).extracting(AuditLog::getUsuarioId).containsExactly(3L, 4L);
+            }
+        }
+
+        @Test
+        @DisplayName("Debe continuar desde el checkpoint después de reabrir")
+        void testCheckpoint() throws IOException {
+            try (AuditSpool spool = new AuditSpool(dir, 4096)) {
+                for (int i = 0; i < 4; i++) {
+                    spool.append(evento(i));
+                }
+                spool.peek(2);
+                spool.ack();
+            }
+
+            try (AuditSpool spool = new AuditSpool(dir, 4096)) {
+                assertThat(spool.backlog()).isEqualTo(2);
+                spool.append(evento(4));
+                assertThat(spool.peek(10)).extracting(AuditLog::getUsuarioId).containsExactly(2L, 3L, 4L);
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Segmentos")
+    class Segmentos {
+
+        @Test
+        @DisplayName("Debe rotar segmentos y borrarlos al confirmar la reproducción")
+        void testRotacion() throws IOException {
+            try (AuditSpool spool = new AuditSpool(dir, 512)) {
+                for (int i = 0; i < 20; i++) {
+                    spool.append(evento(i));
+                }
+                assertThat(spool.segments()).isGreaterThan(1);
+                assertThat(segmentosEnDisco()).isEqualTo(spool.segments());
+
+                List<AuditLog> todos = spool.peek(100);
+                spool.ack();
+
+                assertThat(todos).extracting(AuditLog::getUsuarioId).hasSize(20).startsWith(0L).endsWith(19L);
+                assertThat(spool.backlog()).isZero();
+                assertThat(spool.segments()).isEqualTo(1);
+                assertThat(segmentosEnDisco()).isEqualTo(1);
+            }
+        }
+
+        @Test
+        @DisplayName("Debe mapear cada segmento una vez y liberar los ya reproducidos")
+        void testMapeos() throws IOException {
+            try (AuditSpool spool = new AuditSpool(dir, 512)) {
+                for (int i = 0; i < 40; i++) {
+                    spool.append(evento(i));
+                }
+                assertThat(spool.segments()).isGreaterThan(3);
+                // Solo el de lectura y el de escritura, aunque haya segmentos intermedios
+                assertThat(spool.mappedSegments()).isEqualTo(2);
+
+                long leidos = 0;
+                while (spool.backlog() > 0) {
+                    List<AuditLog> lote = spool.peek(3);
+                    int mapeados = spool.mappedSegments();
+                    // Un reintento sin ack() reutiliza los mapeos del lote
+                    assertThat(spool.peek(3)).hasSameSizeAs(lote);
+                    assertThat(spool.mappedSegments()).isEqualTo(mapeados).isLessThanOrEqualTo(3);
+
+                    spool.ack();
+                    leidos += lote.size();
+                    assertThat(spool.mappedSegments()).isLessThanOrEqualTo(spool.segments());
+                }
+
+                assertThat(leidos).isEqualTo(40);
+                assertThat(spool.segments()).isEqualTo(1);
+                assertThat(spool.mappedSegments()).isEqualTo(1);
+            }
+        }
+
+        @Test
+        @DisplayName("No debe aceptar eventos después de cerrarse")
+        void testCerrado() throws IOException {
+            AuditSpool spool = new AuditSpool(dir, 4096);
+            spool.append(evento(1));
+            spool.close();
+
+            assertThat(spool.mappedSegments()).isZero();
+            assertThatThrownBy(() -> spool.append(evento(2))).isInstanceOf(IOException.class);
+            assertThatThrownBy(() -> spool.peek(10)).isInstanceOf(IOException.class);
+        }
+
+        @Test
+        @DisplayName("Debe rechazar eventos más grandes que un segmento")
+        void testEventoGrande() throws IOException {
+            try (AuditSpool spool = new AuditSpool(dir, 256)) {
+                AuditLog grande = evento(1);
+                grande.setDetalles(String.join("", Collections.nCopies(300, "x")));
+
+                assertThatThrownBy(() -> spool.append(grande))
+                    .isInstanceOf(IllegalArgumentException.class);
+                assertThat(spool.backlog()).isZero();
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Reproducción desde AuditWriter")
+    class Reproduccion {
+
+        @Test
+        @DisplayName("No debe perder eventos mientras la BD no responde")
+        void testBdCaida() throws Exception {
+            AtomicInteger fallos = new AtomicInteger(3);
+            List<AuditLog> escritos = Collections.synchronizedList(new ArrayList<>());
+            AuditSpool spool = new AuditSpool(dir, 4096);
+            AuditWriter writer = new AuditWriter(10, 50, 10, lote -> {
+                if (fallos.getAndDecrement() > 0) {
+                    throw new SQLTransientConnectionException("Connection is not available");
+                }
+                escritos.addAll(lote);
+            }, spool);
+
+            for (int i = 0; i < 30; i++) {
+                assertThat(writer.enqueue(evento(i))).isTrue();
+            }
+
+            long limite = System.currentTimeMillis() + 5000;
+            while (escritos.size() < 30 && System.currentTimeMillis() < limite) {
+                Thread.sleep(10);
+            }
+            writer.shutdown();
+
+            assertThat(escritos).extracting(AuditLog::getUsuarioId).hasSize(30).doesNotHaveDuplicates();
+            assertThat(writer.getStats().backlog).isZero();
+            assertThat(writer.getStats().replayed).isEqualTo(30);
+            assertThat(writer.getStats().failed).isZero();
+        }
+
+        @Test
+        @DisplayName("Debe descartar solo el evento inválido de un lote rechazado")
+        void testEventoInvalido() throws Exception {
+            List<AuditLog> escritos = Collections.synchronizedList(new ArrayList<>());
+            AuditSpool spool = new AuditSpool(dir, 4096);
+            AuditWriter writer = new AuditWriter(10, 50, 10, lote -> {
+                if (lote.stream().anyMatch(e -> e.getUsuarioId() == 2L)) {
+                    throw new SQLException("Cannot add or update a child row", "23000");
+                }
+                escritos.addAll(lote);
+            }, spool);
+
+            for (int i = 0; i < 5; i++) {
+                writer.enqueue(evento(i));
+            }
+
+            long limite = System.currentTimeMillis() + 5000;
+            while (writer.getStats().backlog > 0 && System.currentTimeMillis() < limite) {
+                Thread.sleep(10);
+            }
+            writer.shutdown();
+
+            assertThat(escritos).extracting(AuditLog::getUsuarioId).containsExactly(0L, 1L, 3L, 4L);
+            assertThat(writer.getStats().failed).isEqualTo(1);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package services;
+
+import model.AuditLog;
+import org.junit.jupiter.api.*;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests unitarios para AuditWriter (sin base de datos)
+ */
+@DisplayName("AuditWriter Tests")
+class AuditWriterTest {
+
+    private List<List<AuditLog>> lotes;
+    private AuditWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        lotes = Collections.synchronizedList(new ArrayList<>());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (writer != null) {
+            writer.shutdown();
+        }
+    }
+
+    private AuditLog evento(long id) {
+        return new AuditLog(id, "test@farmacontrol.com", AuditLog.ACCION_CREATE,
+                            AuditLog.ENTIDAD_PRODUCTO, id, null, "127.0.0.1", "JUnit");
+    }
+
+    @Nested
+    @DisplayName("Escritura por lotes")
+    class EscrituraPorLotes {
+
+        @Test
+        @DisplayName("Debe agrupar los eventos en lotes de tamaño máximo")
+        void testLotesPorTamano() {
+            writer = new AuditWriter(100, 10, 60000, lote -> lotes.add(new ArrayList<>(lote)));
+
+            for (int i = 0; i < 25; i++) {
+                assertThat(writer.enqueue(evento(i))).isTrue();
+            }
+            writer.shutdown();
+
+            assertThat(lotes).allSatisfy(lote -> assertThat(lote).hasSizeLessThanOrEqualTo(10));
+            assertThat(lotes.stream().mapToInt(List::size).sum()).isEqualTo(25);
+            assertThat(writer.getStats().written).isEqualTo(25);
+            assertThat(writer.getStats().pending).isZero();
+        }
+
+        @Test
+        @DisplayName("Debe escribir un lote incompleto al vencer el tiempo de espera")
+        void testLotePorTiempo() throws InterruptedException {
+            CountDownLatch escrito = new CountDownLatch(1);
+            writer = new AuditWriter(100, 50, 20, lote -> {
+                lotes.add(new ArrayList<>(lote));
+                escrito.countDown();
+            });
+
+            writer.enqueue(evento(1));
+            writer.enqueue(evento(2));
+
+            assertThat(escrito.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(lotes.get(0)).hasSize(2);
+        }
+
+        @Test
+        @DisplayName("Debe contar los eventos de lotes fallidos sin detener el escritor")
+        void testLoteFallido() {
+            writer = new AuditWriter(100, 5, 20, lote -> {
+                throw new SQLException("BD no disponible");
+            });
+
+            writer.enqueue(evento(1));
+            writer.enqueue(evento(2));
+            writer.shutdown();
+
+            assertThat(writer.getStats().failed).isEqualTo(2);
+            assertThat(writer.getStats().written).isZero();
+        }
+    }
+
+    @Nested
+    @DisplayName("Back-pressure y apagado")
+    class BackPressureYApagado {
+
+        @Test
+        @DisplayName("Debe descartar y contar eventos cuando la cola está llena")
+        void testColaLlena() throws InterruptedException {
+            CountDownLatch bloqueo = new CountDownLatch(1);
+            CountDownLatch escribiendo = new CountDownLatch(1);
+            writer = new AuditWriter(2, 1, 20, lote -> {
+                escribiendo.countDown();
+                try {
+                    bloqueo.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+
+            // El primer evento ocupa al escritor; los dos siguientes llenan la cola
+            writer.enqueue(evento(1));
+            assertThat(escribiendo.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(writer.enqueue(evento(2))).isTrue();
+            assertThat(writer.enqueue(evento(3))).isTrue();
+            assertThat(writer.enqueue(evento(4))).isFalse();
+
+            assertThat(writer.getStats().dropped).isEqualTo(1);
+            bloqueo.countDown();
+        }
+
+        @Test
+        @DisplayName("Debe vaciar la cola al apagar y rechazar eventos posteriores")
+        void testApagado() {
+            writer = new AuditWriter(100, 50, 60000, lote -> lotes.add(new ArrayList<>(lote)));
+
+            writer.enqueue(evento(1));
+            writer.enqueue(evento(2));
+            writer.enqueue(evento(3));
+            writer.shutdown();
+
+            assertThat(writer.getStats().written).isEqualTo(3);
+            assertThat(writer.enqueue(evento(4))).isFalse();
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package services;
+
+import model.Producto;
+import model.ProductoScan;
+import org.junit.jupiter.api.*;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests unitarios para BarcodeCache (sin base de datos: el loader se reemplaza)
+ */
+@DisplayName("BarcodeCache Tests")
+class BarcodeCacheTest {
+
+    // "Base de datos" del test: ID -> registro vigente
+    private final Map<Long, ProductoScan> productos = new HashMap<>();
+    private final AtomicInteger consultas = new AtomicInteger();
+    // Escritura concurrente simulada durante la siguiente carga completa
+    private Runnable duranteCarga;
+    private BarcodeCache cache;
+
+    @BeforeEach
+    void setUp() {
+        guardar(1, "Paracetamol 500mg", "7501234567890", 10);
+        guardar(2, "Ibuprofeno 400mg", "012345678905", 5);
+        guardar(3, "Gel antibacterial", "GEL-250ML", 8);
+        guardar(4, "Sin código", null, 1);
+
+        cache = new BarcodeCache(new BarcodeCache.Loader() {
+            @Override
+            public List<ProductoScan> loadAll() {
+                consultas.incrementAndGet();
+                List<ProductoScan> leidos = new ArrayList<>(productos.values());
+                if (duranteCarga != null) {
+                    duranteCarga.run();
+                    duranteCarga = null;
+                }
+                return leidos;
+            }
+
+            @Override
+            public ProductoScan loadById(long id) {
+                consultas.incrementAndGet();
+                return productos.get(id);
+            }
+        });
+        cache.warmUp();
+        consultas.set(0);
+    }
+
+    private void guardar(long id, String nombre, String codigo, int stock) {
+        productos.put(id, new ProductoScan(id, nombre, new BigDecimal("25.50"), stock, codigo));
+    }
+
+    @Nested
+    @DisplayName("Escaneo")
+    class Escaneo {
+
+        @Test
+        @DisplayName("Debe responder desde memoria sin consultar la base")
+        void testSinBase() throws SQLException {
+            for (int i = 0; i < 100; i++) {
+                assertThat(cache.find("7501234567890").getId()).isEqualTo(1L);
+            }
+            assertThat(consultas.get()).isZero();
+            assertThat(cache.size()).isEqualTo(3);
+        }
+
+        @Test
+        @DisplayName("Debe normalizar ceros a la izquierda, espacios y guiones")
+        void testNormalizacion() throws SQLException {
+            // UPC-A de 12 dígitos y su EAN-13 equivalente
+            assertThat(cache.find("0012345678905").getId()).isEqualTo(2L);
+            assertThat(cache.find(" 750-1234-567890 ").getId()).isEqualTo(1L);
+            assertThat(cache.find("gel250ml").getId()).isEqualTo(3L);
+        }
+
+        @Test
+        @DisplayName("Debe devolver null para códigos desconocidos o inválidos")
+        void testDesconocido() throws SQLException {
+            assertThat(cache.find("7500000000000")).isNull();
+            assertThat(cache.find("9999999999999999999999")).isNull();
+            assertThat(cache.find("")).isNull();
+        }
+    }
+
+    @Nested
+    @DisplayName("Invalidación")
+    class Invalidacion {
+
+        @Test
+        @DisplayName("Debe releer por ID el stock de un producto invalidado")
+        void testStock() throws SQLException {
+            guardar(1, "Paracetamol 500mg", "7501234567890", 7);
+            cache.invalidate(List.of(1L));
+
+            assertThat(cache.find("7501234567890").getStock()).isEqualTo(7);
+            assertThat(cache.find("7501234567890").getStock()).isEqualTo(7);
+            assertThat(consultas.get()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Debe reflejar cambios de código y bajas de productos")
+        void testEscrituras() throws SQLException {
+            Producto producto = new Producto();
+            producto.setId(1L);
+            producto.setNombre("Paracetamol 500mg");
+            producto.setPrecio(new BigDecimal("25.50"));
+            producto.setStock(10);
+            producto.setCodigoBarras("7509999999999");
+            producto.setActivo(true);
+            cache.put(producto);
+
+            assertThat(cache.find("7501234567890")).isNull();
+            assertThat(cache.find("7509999999999").getId()).isEqualTo(1L);
+
+            cache.remove(3L);
+            assertThat(cache.find("GEL-250ML")).isNull();
+            assertThat(consultas.get()).isZero();
+        }
+
+        @Test
+        @DisplayName("Debe conservar la invalidación al reconstruir la tabla")
+        void testInvalidacionTrasReconstruir() throws SQLException {
+            guardar(2, "Ibuprofeno 400mg", "012345678905", 1);
+            cache.invalidate(List.of(2L));
+            cache.remove(3L);
+
+            assertThat(cache.find("012345678905").getStock()).isEqualTo(1);
+        }
+    }
+
+    @Nested
+    @DisplayName("Cambios de stock")
+    class CambiosStock {
+
+        @Test
+        @DisplayName("Debe aplicar las cantidades confirmadas sin consultar la base")
+        void testDeltas() throws SQLException {
+            BarcodeCache.StockChange cambio = cache.beginStockChange(Map.of(1L, -3, 2L, 4));
+            cache.applyStockChange(cambio);
+
+            assertThat(cache.find("7501234567890").getStock()).isEqualTo(7);
+            assertThat(cache.find("012345678905").getStock()).isEqualTo(9);
+            assertThat(cache.find("7501234567890").getNombre()).isEqualTo("Paracetamol 500mg");
+            assertThat(consultas.get()).isZero();
+        }
+
+        @Test
+        @DisplayName("No debe sumar dos veces si el registro se releyó después del commit")
+        void testRelecturaConcurrente() throws SQLException {
+            BarcodeCache.StockChange cambio = cache.beginStockChange(Map.of(1L, -3));
+            // Otra escritura invalida el registro y un escaneo lo relee ya con la venta confirmada
+            cache.invalidate(List.of(1L));
+            guardar(1, "Paracetamol 500mg", "7501234567890", 7);
+            assertThat(cache.find("7501234567890").getStock()).isEqualTo(7);
+
+            cache.applyStockChange(cambio);
+            assertThat(cache.find("7501234567890").getStock()).isEqualTo(7);
+            assertThat(consultas.get()).isEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("Debe dejar para relectura un registro que ya estaba invalidado")
+        void testRegistroInvalidado() throws SQLException {
+            cache.invalidate(List.of(2L));
+            BarcodeCache.StockChange cambio = cache.beginStockChange(Map.of(2L, -2));
+            guardar(2, "Ibuprofeno 400mg", "012345678905", 3);
+            cache.applyStockChange(cambio);
+
+            assertThat(cache.find("012345678905").getStock()).isEqualTo(3);
+            assertThat(consultas.get()).isEqualTo(1);
+        }
+    }
+
+    @Nested
+    @DisplayName("Recarga periódica")
+    class Recarga {
+
+        @Test
+        @DisplayName("Debe recoger cambios hechos fuera de esta instancia")
+        void testCambiosExternos() throws SQLException {
+            // Otra instancia vende y alguien cambia el precio directo en la base
+            productos.put(1L, new ProductoScan(1, "Paracetamol 500mg", new BigDecimal("27.00"), 4, "7501234567890"));
+            guardar(5, "Vitamina C", "7500000000005", 12);
+
+            cache.recargar();
+
+            assertThat(cache.find("7501234567890").getStock()).isEqualTo(4);
+            assertThat(cache.find("7501234567890").getPrecio()).isEqualByComparingTo("27.00");
+            assertThat(cache.find("7500000000005").getStock()).isEqualTo(12);
+            assertThat(consultas.get()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Debe releer un producto vendido mientras se recargaba")
+        void testVentaDuranteRecarga() throws SQLException {
+            // La carga lee stock 10; antes de instalarla se confirma una venta de 3
+            duranteCarga = () -> {
+                guardar(1, "Paracetamol 500mg", "7501234567890", 7);
+                cache.applyStockChange(cache.beginStockChange(Map.of(1L, -3)));
+            };
+
+            cache.recargar();
+
+            assertThat(cache.find("7501234567890").getStock()).isEqualTo(7);
+            assertThat(consultas.get()).isEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("Debe descartar la recarga si cambió un código mientras se leía")
+        void testCodigoDuranteRecarga() throws SQLException {
+            duranteCarga = () -> cache.remove(3L);
+
+            cache.recargar();
+
+            assertThat(cache.find("GEL-250ML")).isNull();
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package services;
+
+import org.junit.jupiter.api.*;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests unitarios para ProductoSearchIndex (sin base de datos: el loader se reemplaza)
+ */
+@DisplayName("ProductoSearchIndex Tests")
+class ProductoSearchIndexTest {
+
+    private final AtomicInteger cargas = new AtomicInteger();
+    private ProductoSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        List<ProductoSearchIndex.Documento> catalogo = List.of(
+            new ProductoSearchIndex.Documento(1, "Paracetamol 500mg", "Analgésico y antipirético", "7501234567890"),
+            new ProductoSearchIndex.Documento(2, "Ibuprofeno 400mg", "Antiinflamatorio", "7501234567891"),
+            new ProductoSearchIndex.Documento(3, "Jarabe para la tos", "Con paracetamol", "7509999999999"),
+            new ProductoSearchIndex.Documento(4, "Ácido fólico", "Vitamina B9", null),
+            new ProductoSearchIndex.Documento(5, "Gel antibacterial", "Para manos", "0000000000005")
+        );
+        index = new ProductoSearchIndex(() -> {
+            cargas.incrementAndGet();
+            return catalogo;
+        });
+    }
+
+    @Nested
+    @DisplayName("Búsqueda por subcadena")
+    class Subcadena {
+
+        @Test
+        @DisplayName("Debe encontrar por nombre, descripción y código de barras")
+        void testCampos() throws SQLException {
+            assertThat(index.search("profeno")).containsExactly(2L);
+            assertThat(index.search("vitamina")).containsExactly(4L);
+            assertThat(index.search("99999")).containsExactly(3L);
+        }
+
+        @Test
+        @DisplayName("Debe ignorar mayúsculas y acentos")
+        void testNormalizacion() throws SQLException {
+            assertThat(index.search("ACIDO")).containsExactly(4L);
+            assertThat(index.search("analgesico")).containsExactly(1L);
+            assertThat(index.search("fólico")).containsExactly(4L);
+        }
+
+        @Test
+        @DisplayName("No debe devolver candidatos que solo comparten trigramas")
+        void testVerificacion() throws SQLException {
+            // "Jarabe para la tos" tiene los trigramas par, ara, rab y abe, pero no "parabe"
+            assertThat(index.search("parabe")).isEmpty();
+            assertThat(index.search("xyz")).isEmpty();
+        }
+    }
+
+    @Nested
+    @DisplayName("Ranking")
+    class Ranking {
+
+        @Test
+        @DisplayName("Debe priorizar prefijo del nombre sobre coincidencias en otros campos")
+        void testPrefijoPrimero() throws SQLException {
+            assertThat(index.search("paracetamol")).containsExactly(1L, 3L);
+        }
+
+        @Test
+        @DisplayName("Debe priorizar el código de barras exacto")
+        void testCodigoExacto() throws SQLException {
+            assertThat(index.search("7501234567891")).containsExactly(2L);
+            assertThat(index.search("750123456789")).containsExactly(2L, 1L);
+        }
+
+        @Test
+        @DisplayName("Debe resolver consultas cortas por prefijo de palabra")
+        void testConsultasCortas() throws SQLException {
+            assertThat(index.search("p")).containsExactly(1L, 3L, 5L);
+            assertThat(index.search("an")).containsExactly(5L, 2L, 1L);
+        }
+    }
+
+    @Nested
+    @DisplayName("Mantenimiento")
+    class Mantenimiento {
+
+        @Test
+        @DisplayName("Debe cargar el catálogo una sola vez")
+        void testCargaUnica() throws SQLException {
+            index.search("gel");
+            index.search("jarabe");
+            assertThat(cargas.get()).isEqualTo(1);
+            assertThat(index.size()).isEqualTo(5);
+        }
+
+        @Test
+        @DisplayName("Debe reflejar altas, cambios y bajas")
+        void testEscrituras() throws SQLException {
+            index.search("gel");
+
+            index.put(6, "Gel para cabello", null, "1112223334445", true);
+            assertThat(index.search("gel")).containsExactly(5L, 6L);
+
+            index.put(5, "Alcohol en gel", "Para manos", "0000000000005", true);
+            assertThat(index.search("gel antibacterial")).isEmpty();
+            assertThat(index.search("alcohol")).containsExactly(5L);
+
+            index.remove(6);
+            assertThat(index.search("cabello")).isEmpty();
+            assertThat(index.findIdByCodigoBarras("1112223334445")).isNull();
+
+            index.put(1, "Paracetamol 500mg", null, "7501234567890", false);
+            assertThat(index.search("paracetamol")).containsExactly(3L);
+        }
+
+        @Test
+        @DisplayName("No debe revertir escrituras hechas durante una recarga")
+        void testEscriturasDuranteRecarga() throws Exception {
+            CountDownLatch leyendo = new CountDownLatch(1);
+            CountDownLatch continuar = new CountDownLatch(1);
+            List<ProductoSearchIndex.Documento> catalogo = List.of(
+                new ProductoSearchIndex.Documento(1, "Paracetamol 500mg", null, "7501234567890"),
+                new ProductoSearchIndex.Documento(2, "Ibuprofeno 400mg", null, "7501234567891")
+            );
+            ProductoSearchIndex recargable = new ProductoSearchIndex(() -> {
+                if (cargas.incrementAndGet() > 1) {
+                    leyendo.countDown();
+                    try {
+                        continuar.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return catalogo;
+            });
+            recargable.search("para");
+
+            Thread recarga = new Thread(recargable::recargar);
+            recarga.start();
+            assertThat(leyendo.await(5, TimeUnit.SECONDS)).isTrue();
+
+            // La API escribe mientras la recarga consulta la base con los datos anteriores
+            recargable.put(1, "Paracetamol 1g", null, "7501234567890", true);
+            recargable.remove(2);
+            recargable.put(3, "Gel antibacterial", null, null, true);
+            continuar.countDown();
+            recarga.join(5000);
+
+            assertThat(recargable.search("500mg")).isEmpty();
+            assertThat(recargable.search("1g")).containsExactly(1L);
+            assertThat(recargable.search("ibuprofeno")).isEmpty();
+            assertThat(recargable.findIdByCodigoBarras("7501234567891")).isNull();
+            assertThat(recargable.search("gel")).containsExactly(3L);
+            assertThat(cargas.get()).isEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("Debe resolver el código de barras exacto")
+        void testCodigoBarras() throws SQLException {
+            assertThat(index.findIdByCodigoBarras(" 7501234567890 ")).isEqualTo(1L);
+            assertThat(index.findIdByCodigoBarras("750123456789")).isNull();
+        }
+
+        @Test
+        @DisplayName("Debe mantener la latencia con un catálogo grande")
+        void testCatalogoGrande() throws SQLException {
+            List<ProductoSearchIndex.Documento> catalogo = new ArrayList<>();
+            for (int i = 0; i < 50_000; i++) {
+                catalogo.add(new ProductoSearchIndex.Documento(i, "Producto " + i, "Descripción genérica " + (i % 100),
+                    String.format("75%011d", i)));
+            }
+            ProductoSearchIndex grande = new ProductoSearchIndex(() -> catalogo);
+            grande.search("producto 4242");
+
+            long inicio = System.nanoTime();
+            for (int i = 0; i < 1000; i++) {
+                grande.search("75000000424");
+            }
+            long promedioMicros = (System.nanoTime() - inicio) / 1000 / 1000;
+
+            assertThat(grande.search("7500000004242")).containsExactly(4242L);
+            assertThat(promedioMicros).isLessThan(5000);
+        }
+    }
+}
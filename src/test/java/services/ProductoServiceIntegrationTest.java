@@ -6,7 +6,9 @@ import static org.assertj.core.api.Assertions.*;
 
 import java.math.BigDecimal;
 import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Tests de integración para ProductoService usando MySQL real
@@ -89,6 +91,39 @@ class ProductoServiceIntegrationTest {
             // Then
             assertThat(producto).isNull();
         }
+        
+        @Test
+        @Order(4)
+        @DisplayName("Debe obtener varios productos por ID en una sola consulta")
+        void debeObtenerVariosProductosPorId() throws SQLException {
+            // Given - IDs repetidos y uno inexistente
+            List<Long> ids = Arrays.asList(1L, 2L, 1L, 99999L);
+            
+            // When
+            Map<Long, Producto> productos = productoService.findByIds(ids);
+            
+            // Then
+            assertThat(productos).containsOnlyKeys(1L, 2L);
+            assertThat(productos.get(1L).getNombre()).isEqualTo("Paracetamol 500mg");
+        }
+        
+        @Test
+        @Order(5)
+        @DisplayName("Debe rellenar la lista IN hasta un tamaño fijo")
+        void debeRellenarListaInHastaTamanoFijo() throws SQLException {
+            // Given - 9 IDs: la consulta usa 32 marcadores repitiendo el último ID
+            List<Long> ids = Arrays.asList(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 99999L);
+            
+            // When
+            Map<Long, Producto> productos = productoService.findByIds(ids);
+            
+            // Then
+            assertThat(ProductoService.tamanoListaIn(9)).isEqualTo(32);
+            assertThat(ProductoService.tamanoListaIn(1)).isEqualTo(1);
+            assertThat(ProductoService.tamanoListaIn(500)).isEqualTo(500);
+            assertThat(productos).doesNotContainKey(99999L);
+            assertThat(productos.keySet()).isSubsetOf(ids);
+        }
     }
     
     @Nested
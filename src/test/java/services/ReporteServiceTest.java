@@ -0,0 +1,111 @@
+package services;
+
+import org.junit.jupiter.api.*;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests unitarios del dashboard de ReporteService (sin base de datos: el agregador se reemplaza)
+ */
+@DisplayName("ReporteService Dashboard Tests")
+class ReporteServiceTest {
+
+    private ReporteService.Agregador original;
+    private ReporteService service;
+    // Libera los agregados colgados si el test falla antes de cancelarlos
+    private final CountDownLatch nunca = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        original = ReporteService.agregador;
+        service = new ReporteService();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReporteService.agregador = original;
+        nunca.countDown();
+    }
+
+    @Test
+    @DisplayName("Combina los agregados de cada tabla en las estadísticas")
+    @SuppressWarnings("unchecked")
+    void testCombinaAgregados() throws Exception {
+        ReporteService.agregador = sql -> {
+            if (sql.contains("FROM ventas")) return new ReporteService.Agregado(12, new BigDecimal("450.00"));
+            if (sql.contains("FROM compras")) return new ReporteService.Agregado(3, new BigDecimal("120.50"));
+            if (sql.contains("FROM productos")) return new ReporteService.Agregado(40, new BigDecimal("5"));
+            if (sql.contains("FROM clientes")) return new ReporteService.Agregado(7, null);
+            return new ReporteService.Agregado(2, null);
+        };
+
+        Map<String, Object> dashboard = service.generarDashboard();
+        Map<String, Object> estadisticas = (Map<String, Object>) dashboard.get("estadisticas");
+
+        assertThat(dashboard.get("estado")).isEqualTo("Datos actualizados correctamente");
+        assertThat(estadisticas)
+            .containsEntry("totalVentas", 12)
+            .containsEntry("totalCompras", 3)
+            .containsEntry("totalProductos", 40)
+            .containsEntry("totalClientes", 7)
+            .containsEntry("totalProveedores", 2)
+            .containsEntry("montoTotalVentas", new BigDecimal("450.00"))
+            .containsEntry("montoTotalCompras", new BigDecimal("120.50"))
+            .containsEntry("productosStockBajo", 5L);
+    }
+
+    @Test
+    @DisplayName("Si un agregado falla, cancela los que siguen en curso")
+    @SuppressWarnings("unchecked")
+    void testFalloCancelaPendientes() throws Exception {
+        AtomicInteger iniciados = new AtomicInteger();
+        AtomicInteger interrumpidos = new AtomicInteger();
+        ReporteService.agregador = sql -> {
+            if (sql.contains("FROM compras")) {
+                // Falla cuando productos y clientes ya ocupan los otros hilos del executor
+                long espera = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+                while (iniciados.get() < 2 && System.nanoTime() < espera) {
+                    Thread.onSpinWait();
+                }
+                throw new SQLException("tabla bloqueada");
+            }
+            if (sql.contains("FROM ventas")) {
+                return new ReporteService.Agregado(1, BigDecimal.ONE);
+            }
+            // Productos, clientes y proveedores quedan colgados hasta que los interrumpan
+            iniciados.incrementAndGet();
+            try {
+                nunca.await();
+            } catch (InterruptedException e) {
+                interrumpidos.incrementAndGet();
+                Thread.currentThread().interrupt();
+            }
+            return new ReporteService.Agregado(0, null);
+        };
+
+        Map<String, Object> dashboard = service.generarDashboard();
+        Map<String, Object> estadisticas = (Map<String, Object>) dashboard.get("estadisticas");
+
+        assertThat(dashboard.get("estado")).isEqualTo("Error al cargar datos: tabla bloqueada");
+        assertThat(estadisticas).containsEntry("totalVentas", 0);
+        // Los que llegaron a ejecutarse se interrumpen; los que seguían en cola no llegan a correr
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (interrumpidos.get() < iniciados.get() && System.nanoTime() < limite) {
+            Thread.sleep(10);
+        }
+        assertThat(iniciados.get()).isGreaterThanOrEqualTo(2);
+        assertThat(interrumpidos.get()).as("agregados pendientes interrumpidos").isEqualTo(iniciados.get());
+
+        // El executor queda libre para el siguiente dashboard
+        ReporteService.agregador = sql -> new ReporteService.Agregado(1, BigDecimal.ONE);
+        assertThat(service.generarDashboard().get("estado"))
+            .isEqualTo("Datos actualizados correctamente");
+    }
+}
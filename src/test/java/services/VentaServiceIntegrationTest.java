@@ -1,6 +1,7 @@
 package services;
 
 import model.DetalleVenta;
+import model.Producto;
 import model.Venta;
 import org.junit.jupiter.api.*;
 import static org.assertj.core.api.Assertions.*;
@@ -10,7 +11,13 @@ import java.sql.Date;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Tests de integración para VentaService usando MySQL real
@@ -385,6 +392,129 @@ class VentaServiceIntegrationTest {
         }
     }
     
+    @Nested
+    @DisplayName("Reserva de Stock Concurrente")
+    @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+    class ReservaStockConcurrente {
+        
+        private Producto crearProducto(int stock) throws SQLException {
+            Producto producto = new Producto();
+            producto.setNombre("Test Reserva " + System.nanoTime());
+            producto.setCategoriaId(1L);
+            producto.setPrecio(new BigDecimal("10.00"));
+            producto.setStock(stock);
+            producto.setStockMinimo(0);
+            producto.setCodigoBarras("RES" + System.nanoTime());
+            producto.setActivo(true);
+            return new ProductoService().create(producto);
+        }
+        
+        private DetalleVenta detalle(Long productoId) {
+            DetalleVenta detalle = new DetalleVenta();
+            detalle.setProductoId(productoId);
+            detalle.setNombreProducto("Test Reserva");
+            detalle.setCantidad(1);
+            detalle.setPrecioUnitario(new BigDecimal("10.00"));
+            detalle.setSubtotal(new BigDecimal("10.00"));
+            return detalle;
+        }
+        
+        private Venta venta() {
+            Venta venta = new Venta();
+            venta.setUsuarioId(1L);
+            venta.setSubtotal(new BigDecimal("20.00"));
+            venta.setDescuento(BigDecimal.ZERO);
+            venta.setImpuestos(new BigDecimal("3.20"));
+            venta.setTotal(new BigDecimal("23.20"));
+            venta.setMetodoPago("EFECTIVO");
+            return venta;
+        }
+        
+        @Test
+        @Order(45)
+        @DisplayName("Ventas paralelas nunca deben dejar el stock en negativo")
+        void ventasParalelasNoDejanStockNegativo() throws Exception {
+            // Given - Dos productos con 20 unidades y 30 cajas comprando uno de cada uno,
+            // la mitad en orden (A, B) y la otra mitad en orden (B, A)
+            int stockInicial = 20;
+            int cajas = 30;
+            Producto productoA = crearProducto(stockInicial);
+            Producto productoB = crearProducto(stockInicial);
+            
+            ExecutorService executor = Executors.newFixedThreadPool(cajas);
+            CountDownLatch inicio = new CountDownLatch(1);
+            AtomicInteger exitosas = new AtomicInteger();
+            AtomicInteger sinStock = new AtomicInteger();
+            List<Throwable> errores = Collections.synchronizedList(new ArrayList<>());
+            
+            for (int i = 0; i < cajas; i++) {
+                List<DetalleVenta> detalles = new ArrayList<>();
+                if (i % 2 == 0) {
+                    detalles.add(detalle(productoA.getId()));
+                    detalles.add(detalle(productoB.getId()));
+                } else {
+                    detalles.add(detalle(productoB.getId()));
+                    detalles.add(detalle(productoA.getId()));
+                }
+                
+                executor.submit(() -> {
+                    try {
+                        inicio.await();
+                        ventaService.createConDetalles(venta(), detalles);
+                        exitosas.incrementAndGet();
+                    } catch (SQLException e) {
+                        if (e.getMessage() != null && e.getMessage().contains("stock insuficiente")) {
+                            sinStock.incrementAndGet();
+                        } else {
+                            errores.add(e); // p. ej. un deadlock
+                        }
+                    } catch (Throwable e) {
+                        errores.add(e);
+                    }
+                });
+            }
+            
+            // When
+            long t0 = System.nanoTime();
+            inicio.countDown();
+            executor.shutdown();
+            assertThat(executor.awaitTermination(60, TimeUnit.SECONDS)).isTrue();
+            long ms = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0);
+            System.out.println("⏱️  " + cajas + " ventas concurrentes en " + ms + " ms (" +
+                exitosas.get() + " completadas, " + sinStock.get() + " sin stock)");
+            
+            // Then - Se venden exactamente las unidades disponibles, sin deadlocks
+            assertThat(errores).isEmpty();
+            assertThat(exitosas.get()).isEqualTo(stockInicial);
+            assertThat(sinStock.get()).isEqualTo(cajas - stockInicial);
+            
+            ProductoService productoService = new ProductoService();
+            assertThat(productoService.findById(productoA.getId()).getStock()).isZero();
+            assertThat(productoService.findById(productoB.getId()).getStock()).isZero();
+        }
+        
+        @Test
+        @Order(46)
+        @DisplayName("Debe revertir toda la venta si un producto no tiene stock")
+        void debeRevertirVentaSinStock() throws Exception {
+            // Given - A con stock, B agotado
+            Producto productoA = crearProducto(5);
+            Producto productoB = crearProducto(0);
+            
+            List<DetalleVenta> detalles = new ArrayList<>();
+            detalles.add(detalle(productoA.getId()));
+            detalles.add(detalle(productoB.getId()));
+            
+            // When / Then
+            assertThatThrownBy(() -> ventaService.createConDetalles(venta(), detalles))
+                .isInstanceOf(SQLException.class)
+                .hasMessageContaining("stock insuficiente");
+            
+            // El descuento de A también se revirtió
+            assertThat(new ProductoService().findById(productoA.getId()).getStock()).isEqualTo(5);
+        }
+    }
+    
     @Nested
     @DisplayName("Validaciones y Manejo de Errores")
     @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
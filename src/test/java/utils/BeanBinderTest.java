@@ -0,0 +1,91 @@
+package utils;
+
+import dto.CompraDTO;
+import dto.VentaDTO;
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests unitarios para BeanBinder (JsonParser.read con clase destino)
+ */
+@DisplayName("BeanBinder Tests")
+class BeanBinderTest {
+
+    private static <T> T read(String json, Class<T> type) throws IOException {
+        return JsonParser.read(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), type);
+    }
+
+    @Nested
+    @DisplayName("Enlace de DTOs")
+    class EnlaceDTOs {
+
+        @Test
+        @DisplayName("Debe enlazar una venta con sus detalles")
+        void testVenta() throws IOException {
+            VentaDTO venta = read("{\"clienteId\": 3, \"usuarioId\": 1, \"metodoPago\": \"TARJETA\","
+                + " \"observaciones\": null, \"detalles\": [{\"productoId\": 10, \"cantidad\": 2,"
+                + " \"precioUnitario\": 25.50}, {\"productoId\": 11, \"cantidad\": 1}]}", VentaDTO.class);
+
+            assertThat(venta.getClienteId()).isEqualTo(3L);
+            assertThat(venta.getUsuarioId()).isEqualTo(1L);
+            assertThat(venta.getMetodoPago()).isEqualTo("TARJETA");
+            assertThat(venta.getObservaciones()).isNull();
+            assertThat(venta.getEstado()).isEqualTo("COMPLETADA");
+            assertThat(venta.getDetalles()).hasSize(2);
+
+            VentaDTO.DetalleVentaDTO primero = venta.getDetalles().get(0);
+            assertThat(primero.getProductoId()).isEqualTo(10L);
+            assertThat(primero.getCantidad()).isEqualTo(2);
+            assertThat(primero.getPrecioUnitario()).isEqualTo(new BigDecimal("25.50"));
+            assertThat(venta.getDetalles().get(1).getPrecioUnitario()).isNull();
+        }
+
+        @Test
+        @DisplayName("Debe enlazar una compra ignorando campos desconocidos")
+        void testCompra() throws IOException {
+            CompraDTO compra = read("{\"proveedorId\": 5, \"usuarioId\": 2, \"desconocido\": {\"a\": [1, 2]},"
+                + " \"detalles\": [{\"productoId\": 7, \"cantidad\": 100, \"precioUnitario\": 12, \"lote\": \"A1\"}]}",
+                CompraDTO.class);
+
+            assertThat(compra.getProveedorId()).isEqualTo(5L);
+            assertThat(compra.getEstado()).isEqualTo("PENDIENTE");
+            assertThat(compra.getDetalles()).singleElement()
+                .satisfies(d -> {
+                    assertThat(d.getProductoId()).isEqualTo(7L);
+                    assertThat(d.getCantidad()).isEqualTo(100);
+                    assertThat(d.getPrecioUnitario()).isEqualByComparingTo("12");
+                });
+        }
+
+        @Test
+        @DisplayName("Debe devolver una instancia vacía para un cuerpo vacío")
+        void testVacio() throws IOException {
+            VentaDTO venta = read("", VentaDTO.class);
+
+            assertThat(venta.getDetalles()).isNull();
+            assertThat(venta.getEstado()).isEqualTo("COMPLETADA");
+        }
+    }
+
+    @Nested
+    @DisplayName("Errores")
+    class Errores {
+
+        @Test
+        @DisplayName("Debe rechazar valores de tipo incorrecto")
+        void testTipoIncorrecto() {
+            assertThatThrownBy(() -> read("{\"usuarioId\": \"uno\"}", VentaDTO.class))
+                .isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> read("{\"detalles\": [{\"cantidad\": 1.5}]}", VentaDTO.class))
+                .isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> read("{\"detalles\": {}}", VentaDTO.class))
+                .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package utils;
+
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests unitarios para JsonReader y JsonParser
+ */
+@DisplayName("JsonReader Tests")
+class JsonReaderTest {
+
+    private static JsonReader reader(String json) {
+        return new JsonReader(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Nested
+    @DisplayName("Valores")
+    class Valores {
+
+        @Test
+        @DisplayName("Debe leer objetos y arrays anidados en una sola pasada")
+        @SuppressWarnings("unchecked")
+        void testAnidados() {
+            Map<String, Object> json = JsonParser.parseSimpleJson(
+                "{\"clienteId\": 7, \"metodoPago\": \"TARJETA\", \"activo\": true, \"observaciones\": null,"
+                    + " \"detalles\": [{\"productoId\": 1, \"cantidad\": 2, \"precioUnitario\": 25.50},"
+                    + " {\"productoId\": 2, \"cantidad\": 1, \"extra\": {\"a\": [1, [2, 3]]}}]}");
+
+            assertThat(json.get("clienteId")).isEqualTo(7L);
+            assertThat(json.get("metodoPago")).isEqualTo("TARJETA");
+            assertThat(json.get("activo")).isEqualTo(true);
+            assertThat(json).containsKey("observaciones");
+            List<Map<String, Object>> detalles = (List<Map<String, Object>>) json.get("detalles");
+            assertThat(detalles).hasSize(2);
+            assertThat(detalles.get(0).get("precioUnitario")).isEqualTo(new BigDecimal("25.50"));
+            assertThat(detalles.get(1).get("extra")).isEqualTo(Map.of("a", List.of(1L, List.of(2L, 3L))));
+        }
+
+        @Test
+        @DisplayName("Debe decodificar números sin perder precisión")
+        void testNumeros() throws IOException {
+            JsonReader r = reader("[0, -15, 3.14, -0.005, 1e3, 2.5E-2, 123456789012345678901234, 9223372036854775807]");
+            r.beginArray();
+            assertThat(r.nextLong()).isZero();
+            assertThat(r.nextInt()).isEqualTo(-15);
+            assertThat(r.nextBigDecimal()).isEqualTo(new BigDecimal("3.14"));
+            assertThat(r.nextBigDecimal()).isEqualTo(new BigDecimal("-0.005"));
+            assertThat(r.nextLong()).isEqualTo(1000L);
+            assertThat(r.nextBigDecimal()).isEqualByComparingTo("0.025");
+            assertThat(r.nextBigDecimal()).isEqualTo(new BigDecimal("123456789012345678901234"));
+            assertThat(r.nextLong()).isEqualTo(Long.MAX_VALUE);
+            r.endArray();
+            assertThat(r.peek()).isEqualTo(JsonReader.Token.END_DOCUMENT);
+        }
+
+        @Test
+        @DisplayName("Debe decodificar UTF-8 y escapes")
+        void testCadenas() {
+            Map<String, Object> json = JsonParser.parseSimpleJson(
+                "{\"nombre\": \"Ácido fólico ñ 💊\", \"nota\": \"línea\\n\\\"cita\\\" \\u00e9\\/x\"}");
+
+            assertThat(json.get("nombre")).isEqualTo("Ácido fólico ñ 💊");
+            assertThat(json.get("nota")).isEqualTo("línea\n\"cita\" é/x");
+        }
+
+        @Test
+        @DisplayName("Debe omitir valores desconocidos completos")
+        void testSkipValue() throws IOException {
+            JsonReader r = reader("{\"ignorar\": {\"a\": [1, {\"b\": \"c\"}]}, \"cantidad\": 3}");
+            r.beginObject();
+            assertThat(r.nextName()).isEqualTo("ignorar");
+            r.skipValue();
+            assertThat(r.nextName()).isEqualTo("cantidad");
+            assertThat(r.nextInt()).isEqualTo(3);
+            r.endObject();
+        }
+
+        @Test
+        @DisplayName("Debe devolver un Map vacío para un cuerpo vacío")
+        void testVacio() {
+            assertThat(JsonParser.parseSimpleJson("")).isEmpty();
+            assertThat(JsonParser.parseSimpleJson("  {}  ")).isEmpty();
+        }
+    }
+
+    @Nested
+    @DisplayName("Errores y límites")
+    class ErroresLimites {
+
+        @Test
+        @DisplayName("Debe rechazar JSON mal formado")
+        void testMalFormado() {
+            assertThatThrownBy(() -> JsonParser.parseSimpleJson("{\"a\": 1,}"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("JSON inválido");
+            assertThatThrownBy(() -> JsonParser.parseSimpleJson("{\"a\": \"sin cerrar}"))
+                .isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> JsonParser.parseSimpleJson("{\"a\": 01}"))
+                .isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> JsonParser.parseSimpleJson("{} {}"))
+                .isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> JsonParser.parseSimpleJson("[1, 2]"))
+                .isInstanceOf(IllegalArgumentException.class);
+        }
+
+        @Test
+        @DisplayName("Debe rechazar anidamiento mayor a la profundidad máxima")
+        void testProfundidad() {
+            String json = "{\"a\":".repeat(5) + "1" + "}".repeat(5);
+            JsonReader r = new JsonReader(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), 1024, 4);
+
+            assertThatThrownBy(r::readObject)
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("profundidad");
+        }
+
+        @Test
+        @DisplayName("Debe rechazar cuerpos mayores al tamaño máximo")
+        void testTamano() {
+            String json = "{\"a\": \"" + "x".repeat(20_000) + "\"}";
+            JsonReader r = new JsonReader(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), 10_000, 32);
+
+            assertThatThrownBy(r::readObject)
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("tamaño máximo");
+        }
+
+        @Test
+        @DisplayName("Debe leer en una sola pasada un array grande de detalles")
+        void testArrayGrande() throws IOException {
+            StringBuilder sb = new StringBuilder("{\"detalles\": [");
+            for (int i = 0; i < 10_000; i++) {
+                sb.append(i > 0 ? "," : "").append("{\"productoId\":").append(i)
+                    .append(",\"cantidad\":1,\"precioUnitario\":10.25}");
+            }
+            sb.append("]}");
+            // Stream que entrega pocos bytes por lectura, para cruzar los límites del buffer
+            byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+            InputStream lento = new ByteArrayInputStream(bytes) {
+                @Override
+                public synchronized int read(byte[] b, int off, int len) {
+                    return super.read(b, off, Math.min(len, 7));
+                }
+            };
+
+            Map<String, Object> json = JsonParser.readObject(lento);
+
+            assertThat((List<?>) json.get("detalles")).hasSize(10_000);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package utils;
+
+import jakarta.servlet.http.HttpServletResponse;
+import model.Categoria;
+import model.Producto;
+import org.junit.jupiter.api.*;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests unitarios para JsonResponse
+ */
+@DisplayName("JsonResponse Tests")
+class JsonResponseTest {
+
+    @Mock
+    private HttpServletResponse response;
+
+    private StringWriter responseWriter;
+    private AutoCloseable closeable;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        closeable = MockitoAnnotations.openMocks(this);
+        responseWriter = new StringWriter();
+        when(response.getWriter()).thenReturn(new PrintWriter(responseWriter));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        closeable.close();
+    }
+
+    @Nested
+    @DisplayName("Serialización de valores")
+    class SerializacionValores {
+
+        @Test
+        @DisplayName("Debe serializar listas y mapas conservando el orden")
+        void testListasYMapas() throws IOException {
+            Map<String, Object> data = new LinkedHashMap<>();
+            data.put("total", 3);
+            data.put("activo", true);
+            data.put("items", Arrays.asList("a", null, 2.5));
+
+            JsonResponse.success(response, data);
+
+            assertThat(responseWriter.toString())
+                .isEqualTo("{\"total\":3,\"activo\":true,\"items\":[\"a\",null,2.5]}");
+            verify(response).setStatus(HttpServletResponse.SC_OK);
+        }
+
+        @Test
+        @DisplayName("Debe escapar caracteres especiales")
+        void testEscape() throws IOException {
+            JsonResponse.success(response, "línea \"1\"\n\tC:\\ruta");
+
+            assertThat(responseWriter.toString())
+                .isEqualTo("\"línea \\\"1\\\"\\n\\tC:\\\\ruta\"");
+        }
+
+        @Test
+        @DisplayName("Debe serializar objetos del modelo y sus objetos anidados")
+        void testObjetoModelo() throws IOException {
+            Categoria categoria = new Categoria();
+            categoria.setNombre("Analgésicos");
+            Producto producto = new Producto();
+            producto.setId(5L);
+            producto.setNombre("Paracetamol");
+            producto.setPrecio(new BigDecimal("12.50"));
+            producto.setCategoria(categoria);
+
+            JsonResponse.success(response, producto);
+
+            assertThat(responseWriter.toString())
+                .startsWith("{")
+                .endsWith("}")
+                .contains("\"id\":5")
+                .contains("\"nombre\":\"Paracetamol\"")
+                .contains("\"precio\":12.50")
+                .contains("\"categoria\":{")
+                .contains("\"nombre\":\"Analgésicos\"");
+        }
+    }
+
+    @Nested
+    @DisplayName("Serializadores precompilados")
+    class SerializadoresPrecompilados {
+
+        @Test
+        @DisplayName("Debe escribir los campos en orden alfabético")
+        void testOrdenDeterminista() throws IOException {
+            Categoria categoria = new Categoria();
+            categoria.setId(1L);
+            categoria.setNombre("Vitaminas");
+
+            JsonResponse.success(response, categoria);
+
+            String json = responseWriter.toString();
+            assertThat(json).startsWith("{\"activo\":");
+            assertThat(json.indexOf("\"id\":1")).isLessThan(json.indexOf("\"nombre\":\"Vitaminas\""));
+        }
+
+        @Test
+        @DisplayName("Debe compilar una sola vez el serializador de cada clase")
+        void testCacheSerializador() {
+            assertThat(BeanSerializer.forClass(Producto.class))
+                .isSameAs(BeanSerializer.forClass(Producto.class));
+        }
+    }
+
+    @Nested
+    @DisplayName("Envoltorios de respuesta")
+    class EnvoltoriosRespuesta {
+
+        @Test
+        @DisplayName("Debe envolver los datos con mensaje")
+        void testSuccessConMensaje() throws IOException {
+            JsonResponse.success(response, "Listo", Arrays.asList(1, 2));
+
+            assertThat(responseWriter.toString())
+                .isEqualTo("{\"success\":true,\"message\":\"Listo\",\"data\":[1,2]}");
+        }
+
+        @Test
+        @DisplayName("Debe escribir errores con el código de estado")
+        void testError() throws IOException {
+            JsonResponse.notFound(response, "Producto \"X\" no encontrado");
+
+            assertThat(responseWriter.toString())
+                .isEqualTo("{\"success\":false,\"error\":\"Producto \\\"X\\\" no encontrado\"}");
+            verify(response).setStatus(HttpServletResponse.SC_NOT_FOUND);
+        }
+    }
+}
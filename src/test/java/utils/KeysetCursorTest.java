@@ -0,0 +1,90 @@
+package utils;
+
+import org.junit.jupiter.api.*;
+
+import java.sql.Timestamp;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests unitarios para KeysetCursor y la paginación por cursor de PagedResponse
+ */
+@DisplayName("KeysetCursor Tests")
+class KeysetCursorTest {
+
+    @Nested
+    @DisplayName("Codificación y decodificación")
+    class CodificacionDecodificacion {
+
+        @Test
+        @DisplayName("Debe conservar fecha e id en cursores por fecha")
+        void testCursorFecha() {
+            Timestamp fecha = Timestamp.valueOf("2025-03-14 10:15:30");
+
+            KeysetCursor cursor = KeysetCursor.decode(KeysetCursor.encode(fecha, 42L));
+
+            assertThat(cursor.getFecha()).isEqualTo(fecha);
+            assertThat(cursor.getId()).isEqualTo(42L);
+        }
+
+        @Test
+        @DisplayName("Debe conservar texto con separadores y acentos en cursores por nombre")
+        void testCursorTexto() {
+            KeysetCursor cursor = KeysetCursor.decode(KeysetCursor.encode("Paracetamol: 500mg ñ", 7L));
+
+            assertThat(cursor.getTexto()).isEqualTo("Paracetamol: 500mg ñ");
+            assertThat(cursor.getId()).isEqualTo(7L);
+        }
+
+        @Test
+        @DisplayName("Debe retornar null para cursor vacío (primera página)")
+        void testCursorVacio() {
+            assertThat(KeysetCursor.decode(null)).isNull();
+            assertThat(KeysetCursor.decode("  ")).isNull();
+        }
+    }
+
+    @Nested
+    @DisplayName("Cursores inválidos")
+    class CursoresInvalidos {
+
+        @Test
+        @DisplayName("Debe rechazar cursores mal formados")
+        void testCursorMalFormado() {
+            assertThatThrownBy(() -> KeysetCursor.decode("no-es-un-cursor"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Cursor de paginación inválido");
+        }
+
+        @Test
+        @DisplayName("Debe rechazar un cursor de nombre en un listado por fecha")
+        void testCursorTipoIncorrecto() {
+            KeysetCursor cursor = KeysetCursor.decode(KeysetCursor.encode("Aspirina", 1L));
+
+            assertThatThrownBy(cursor::getFecha)
+                .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("Tamaño de página")
+    class TamanoPagina {
+
+        @Test
+        @DisplayName("Debe usar el tamaño por defecto si no se envía limit")
+        void testLimitPorDefecto() {
+            assertThat(PagedResponse.parseSize(null)).isEqualTo(PagedResponse.DEFAULT_SIZE);
+        }
+
+        @Test
+        @DisplayName("Debe rechazar límites fuera de rango o no numéricos")
+        void testLimitInvalido() {
+            assertThatThrownBy(() -> PagedResponse.parseSize("0"))
+                .isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> PagedResponse.parseSize(String.valueOf(PagedResponse.MAX_SIZE + 1)))
+                .isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> PagedResponse.parseSize("abc"))
+                .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+}